@@ -0,0 +1,173 @@
+package edu.brown.cs.student.commandHandlers.pathfinding;
+
+import com.google.common.collect.ImmutableMap;
+import edu.brown.cs.student.main.ErrorMessages;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HubLabels;
+import edu.brown.cs.student.pathfinding.InMemoryDijkstra;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.utils.Utils;
+
+import java.awt.geom.IllegalPathStateException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Class that checks and executes the distance command, which gives the length of the
+ * shortest route between two points without the ways along it. Distances are read from
+ * the hub labels of the loaded map when there are any, and searched for in memory
+ * otherwise.
+ */
+public final class DistanceCommandHandler {
+  private DistanceCommandHandler() {
+  }
+
+  private static Utils.Function3To1<Double, GraticuleNode, GraticuleNode, String> parseFunc;
+
+  private static final Map<String,
+      Utils.Function3To1<Double, GraticuleNode, GraticuleNode, String>> VALID_PARSERS
+      = new HashMap<>() {{
+            put("repl", DistanceCommandHandler::parseToRepl);
+        }};
+
+  /** Return a String error or computation outcome of the distance command passed
+   back to the REPL.
+   @param command A String representing the full command entered.
+   @param parseKey A String key representing the function which should parse
+   any successful output into the desired format.
+   @return 1 String, either an ERROR, or the result of a successful computation.
+   */
+  public static String distanceCommand(String command, String parseKey) {
+    parseFunc = VALID_PARSERS.get(parseKey);
+    String[] splitCommand = RouteCommandsHandler.splitCommandComponents(command);
+    try {
+      return checkDistanceArgs(splitCommand);
+    } catch (IllegalPathStateException e) {
+      return ErrorMessages.INVALID_STREET_NAMES;
+    } catch (NumberFormatException e) {
+      return ErrorMessages.NON_REAL_LAT_AND_LON;
+    } catch (IllegalArgumentException e) {
+      return ErrorMessages.DISTANCE_INVALID_NUMBER_ARGUMENTS;
+    } catch (SQLException e) {
+      return ErrorMessages.INVALID_SQL_QUERY;
+    }
+  }
+
+  /** Checks whether the distance command passed has valid arguments, which are the same
+   * four latitudes and longitudes or four quoted street names the route command takes.
+   @param splitCommand An Array of Strings representing each part of an entered
+   command
+   @return 1 String, either an ERROR, or the result of a successful computation.
+   @throws SQLException if SQL fails to execute command
+   */
+  static String checkDistanceArgs(String[] splitCommand) throws SQLException {
+    if (splitCommand.length != 5) {
+      throw new IllegalArgumentException();
+    }
+    if (!String.join("", splitCommand).contains("\"")) {
+      try {
+        GraticuleNode start = RouteCommandsHandler.getTargetPathNode(
+            Double.parseDouble(splitCommand[1]), Double.parseDouble(splitCommand[2]));
+        GraticuleNode end = RouteCommandsHandler.getTargetPathNode(
+            Double.parseDouble(splitCommand[3]), Double.parseDouble(splitCommand[4]));
+        return parseFunc.apply(distance(start, end), start, end);
+      } catch (NullPointerException e) {
+        return ErrorMessages.NO_DATABASE_LOADED;
+      } catch (IllegalArgumentException e) {
+        return ErrorMessages.FIXED_POINT_OUT_OF_RANGE;
+      }
+    }
+    String[] streets = new String[4];
+    for (int i = 0; i < streets.length; i++) {
+      String street = splitCommand[i + 1];
+      if (!(street.startsWith("\"") && street.endsWith("\""))) {
+        throw new IllegalPathStateException();
+      }
+      streets[i] = street.substring(1, street.length() - 1);
+    }
+    try {
+      GraticuleNode start = RouteCommandsHandler.getTargetPathNode(streets[0], streets[1]);
+      GraticuleNode end = RouteCommandsHandler.getTargetPathNode(streets[2], streets[3]);
+      return parseFunc.apply(distance(start, end), start, end);
+    } catch (IllegalPathStateException e) {
+      return ErrorMessages.PATHS_NON_INTERSECTION;
+    } catch (NullPointerException e) {
+      return ErrorMessages.NO_DATABASE_LOADED;
+    } catch (IllegalAccessError e) {
+      return ErrorMessages.STREET_SELF_INTERSECTION;
+    }
+  }
+
+  /** Get the length of the shortest route between two nodes of the loaded map.
+   * @param start is the GraticuleNode the route starts at
+   * @param end is the GraticuleNode the route ends at
+   * @return the distance, or infinity if there is no route
+   * @throws NullPointerException if no database has been loaded.
+   */
+  public static double distance(GraticuleNode start, GraticuleNode end)
+      throws NullPointerException {
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    int source = graph.indexOf(start);
+    int target = graph.indexOf(end);
+    if (source == -1 || target == -1) {
+      return start.getId().equals(end.getId()) ? 0 : Double.POSITIVE_INFINITY;
+    }
+    HubLabels hubLabels = MapCommandHandler.getHubLabels();
+    if (hubLabels != null) {
+      return hubLabels.distance(source, target);
+    }
+    return new InMemoryDijkstra(graph, graph.getEdgeLengths())
+        .shortestPathTree(source)[target];
+  }
+
+  /** Parses a distance between two nodes to REPL.
+   * @param distance is the length of the shortest route, or infinity if there is none
+   * @param start is the GraticuleNode the route starts at
+   * @param end is the GraticuleNode the route ends at
+   * @return a String that represents the distance
+   */
+  static String parseToRepl(double distance, GraticuleNode start, GraticuleNode end) {
+    if (Double.isInfinite(distance)) {
+      return start.getId() + " -/- " + end.getId();
+    }
+    return start.getId() + " -> " + end.getId() + " : " + distance;
+  }
+
+  /**
+   * Returns the length of the shortest route from (lat1, lon1) to (lat2, lon2) or an
+   * informative error message if this could not be found, in a format compatible with
+   * the front-end. The distance is empty if there is no route.
+   *
+   * @param lat1 - a double that represents a latitude
+   * @param lon1 - a double that represents a longitude
+   * @param lat2 - a double that represents a latitude
+   * @param lon2 - a double that represents a longitude
+   * @return a map in the format compatible with the front-end holding the start and end
+   * nodes and the distance between them, or an informative error message
+   */
+  public static Map<String, Object> getDistanceLatLonGui(double lat1, double lon1,
+                                                         double lat2, double lon2) {
+    try {
+      GraticuleNode start = RouteCommandsHandler.getTargetPathNode(lat1, lon1);
+      GraticuleNode end = RouteCommandsHandler.getTargetPathNode(lat2, lon2);
+      double distance = distance(start, end);
+      return ImmutableMap.of(
+        "start", start.getId(),
+        "end", end.getId(),
+        "distance", Double.isInfinite(distance) ? "" : distance,
+        "error", "");
+    } catch (NullPointerException e) {
+      return ImmutableMap.of(
+        "start", "",
+        "end", "",
+        "distance", "",
+        "error", "ERROR: No DB loaded");
+    } catch (IllegalArgumentException e) {
+      return ImmutableMap.of(
+        "start", "",
+        "end", "",
+        "distance", "",
+        "error", ErrorMessages.FIXED_POINT_OUT_OF_RANGE);
+    }
+  }
+}
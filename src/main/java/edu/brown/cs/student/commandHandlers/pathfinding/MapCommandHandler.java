@@ -1,16 +1,40 @@
 package edu.brown.cs.student.commandHandlers.pathfinding;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import edu.brown.cs.student.coordinates.KdTree;
+import edu.brown.cs.student.pathfinding.ArcFlags;
+import edu.brown.cs.student.pathfinding.ChainContractedGraph;
+import edu.brown.cs.student.pathfinding.EdgeCacheOptions;
+import edu.brown.cs.student.pathfinding.GraphEdge;
 import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HubLabels;
+import edu.brown.cs.student.pathfinding.NodeRegistry;
 import edu.brown.cs.student.pathfinding.ProxiedEdgeFetcher;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.StringDictionary;
+import edu.brown.cs.student.pathfinding.StronglyConnectedComponents;
+import edu.brown.cs.student.pathfinding.WarmCacheFile;
+import edu.brown.cs.student.pathfinding.WeightProfile;
 import edu.brown.cs.student.database.DatabaseHandler;
 import edu.brown.cs.student.main.ErrorMessages;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /** Class that checks and executes map command.
@@ -21,9 +45,40 @@ public final class MapCommandHandler {
 
   private static String curDb = "";
 
+  // the most nodes a prefetched cell holds, which keeps its query to a bounded size
+  private static final int MAX_CELL_NODES = 2048;
+
+  // the most hot nodes saved for warming the edge cache, and how many are fetched at once
+  private static final int WARM_CACHE_NODES = 16_384;
+  private static final int WARM_CACHE_BATCH = 256;
+
+  private static final ScheduledExecutorService WARM_CACHE_EXECUTOR =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("warm-cache-%d").build());
+  private static final Thread WARM_CACHE_SAVER = new Thread(MapCommandHandler::saveWarmCache);
+
+  private static final Set<String> MAJOR_WAY_TYPES = Set.of(
+      "motorway", "motorway_link", "trunk", "trunk_link", "primary", "primary_link",
+      "secondary", "secondary_link", "tertiary", "tertiary_link");
+
   private static Function<String, String> parseFunc;
   private static KdTree<String, GraticuleNode> kdTree = null;
-  private static ProxiedEdgeFetcher<String, String, GraticuleNode> dBProxiedReader;
+  private static RoadGraph roadGraph = null;
+  private static StringDictionary stringDictionary = null;
+  private static StronglyConnectedComponents components = null;
+  private static ChainContractedGraph contractedGraph = null;
+  private static RoadGraph coarseGraph = null;
+  private static KdTree<String, GraticuleNode> coarseKdTree = null;
+  private static int arcFlagLevels = 0;
+  private static ArcFlags arcFlags = null;
+  private static Path hubLabelFile = null;
+  private static HubLabels hubLabels = null;
+  // read by the warm-up and by server threads, so a new map's reader must be seen at once
+  private static volatile ProxiedEdgeFetcher<String, String, GraticuleNode> dBProxiedReader;
+  private static EdgeCacheOptions edgeCacheOptions = new EdgeCacheOptions();
+  private static Path warmCacheFile = null;
+  private static ScheduledFuture<?> warmCacheSaving = null;
+  private static Future<?> warmUp = CompletableFuture.completedFuture(null);
 
   /**
    * Getter function for the name of the current database.
@@ -46,6 +101,133 @@ public final class MapCommandHandler {
     return dBProxiedReader;
   }
 
+  /** sets how the ways out of nodes are cached for maps loaded from now on.
+   * @param options is the EdgeCacheOptions of the cache.
+   */
+  public static void setEdgeCacheOptions(EdgeCacheOptions options) {
+    MapCommandHandler.edgeCacheOptions = options;
+  }
+
+  /** sets the file the hottest nodes of the edge cache are saved to, every given number of
+   * seconds and when the program stops. When a map is loaded, the ways of the saved nodes
+   * that are in it are fetched in the background, hottest first, so its first routes do
+   * not wait for the cache to fill.
+   * @param file is the Path of the warm cache file, or null to stop saving and warming.
+   * @param saveIntervalSeconds is the number of seconds between saves, or 0 to only save
+   *                            when the program stops.
+   */
+  public static synchronized void setWarmCacheFile(Path file, long saveIntervalSeconds) {
+    if (warmCacheFile == null && file != null) {
+      Runtime.getRuntime().addShutdownHook(WARM_CACHE_SAVER);
+    } else if (warmCacheFile != null && file == null) {
+      Runtime.getRuntime().removeShutdownHook(WARM_CACHE_SAVER);
+    }
+    MapCommandHandler.warmCacheFile = file;
+    if (warmCacheSaving != null) {
+      warmCacheSaving.cancel(false);
+      warmCacheSaving = null;
+    }
+    if (file != null && saveIntervalSeconds > 0) {
+      warmCacheSaving = WARM_CACHE_EXECUTOR.scheduleWithFixedDelay(
+          MapCommandHandler::saveWarmCache, saveIntervalSeconds, saveIntervalSeconds,
+          TimeUnit.SECONDS);
+    }
+  }
+
+  /** returns the background fetch of the nodes in the warm cache file into the edge cache
+   * of the last loaded map, for waiting until the cache is warm.
+   * @return a Future that is done once the nodes are fetched.
+   */
+  public static Future<?> getWarmUp() {
+    return warmUp;
+  }
+
+  /** saves the ids of the hottest nodes of the edge cache of the loaded map to the warm
+   * cache file, unless no file is set or nothing is cached, which keeps the last save.
+   */
+  public static synchronized void saveWarmCache() {
+    Path file = warmCacheFile;
+    ProxiedEdgeFetcher<String, String, GraticuleNode> reader = dBProxiedReader;
+    if (file == null || reader == null) {
+      return;
+    }
+    List<String> ids = new ArrayList<>();
+    for (GraticuleNode node : reader.hotNodes(WARM_CACHE_NODES)) {
+      ids.add(node.getId());
+    }
+    if (ids.isEmpty()) {
+      return;
+    }
+    try {
+      WarmCacheFile.write(file, ids);
+    } catch (IOException e) {
+      System.err.println("ERROR: Could not write warm cache to " + file);
+    }
+  }
+
+  /** fetches the ways of the nodes saved in the warm cache file that are in the loaded map
+   * into its edge cache, WARM_CACHE_BATCH nodes at a time, on a background thread. It
+   * stops if another map is loaded meanwhile.
+   */
+  private static void warmEdgeCache() {
+    Path file = warmCacheFile;
+    ProxiedEdgeFetcher<String, String, GraticuleNode> reader = dBProxiedReader;
+    RoadGraph graph = roadGraph;
+    if (file == null || reader == null || graph == null) {
+      return;
+    }
+    warmUp = WARM_CACHE_EXECUTOR.submit(() -> {
+      List<String> ids;
+      try {
+        ids = WarmCacheFile.read(file);
+      } catch (IOException e) {
+        // nothing has been saved yet, so the cache fills from the searches
+        return;
+      }
+      List<GraticuleNode> nodes = new ArrayList<>();
+      for (String id : ids) {
+        int index = graph.indexOf(id);
+        if (index >= 0) {
+          nodes.add(graph.getNode(index));
+        }
+      }
+      for (int from = 0; from < nodes.size() && dBProxiedReader == reader;
+           from += WARM_CACHE_BATCH) {
+        reader.fetchAll(nodes.subList(from, Math.min(from + WARM_CACHE_BATCH, nodes.size())));
+      }
+    });
+  }
+
+  /** returns the size and statistics of the cache of ways out of nodes of the loaded map.
+   * @return a map from the name of each figure to its value, which is empty if no map has
+   * been loaded.
+   */
+  public static Map<String, Object> getEdgeCacheStats() {
+    ProxiedEdgeFetcher<String, String, GraticuleNode> reader = dBProxiedReader;
+    return reader == null ? Map.of() : reader.stats();
+  }
+
+  /** queries the ways out of every traversable node within a radius of a node, the nearest
+   * MAX_CELL_NODES of them at most, which is how the edge cache prefetches a cell.
+   * @param node is the node at the center of the cell.
+   * @param radius is the radius of the cell in degrees.
+   * @return a map from every node of the cell, and the given node, to its ways.
+   */
+  private static Map<GraticuleNode, Set<GraphEdge<String, String, GraticuleNode>>>
+      getWaysInCell(GraticuleNode node, double radius) {
+    List<GraticuleNode> cell = new ArrayList<>();
+    cell.add(node);
+    if (kdTree != null) {
+      for (GraticuleNode neighbor : kdTree.getRadiusSearchResult(radius, node, true)) {
+        if (cell.size() == MAX_CELL_NODES) {
+          break;
+        }
+        cell.add(neighbor);
+      }
+    }
+    return NeighborWaySearchers.getWaysFromTargetNodes(cell);
+  }
+
   /** returns built KDTree.
    * @return a KDTree made from GraticuleNodes with type String ids.
    */
@@ -53,11 +235,106 @@ public final class MapCommandHandler {
     return kdTree;
   }
 
-  /** resets the database handler connection and KDTree.
+  /** returns the in-memory graph of traversable ways built at map load.
+   * @return a RoadGraph, or null if no map has been loaded.
+   */
+  public static RoadGraph getRoadGraph() {
+    return roadGraph;
+  }
+
+  /** returns the dictionary that codes the way names and types of the loaded map.
+   * @return a StringDictionary, or null if no map has been loaded.
+   */
+  public static StringDictionary getStringDictionary() {
+    return stringDictionary;
+  }
+
+  /** returns the strongly connected components of the loaded map.
+   * @return a StronglyConnectedComponents, or null if no map has been loaded.
+   */
+  public static StronglyConnectedComponents getComponents() {
+    return components;
+  }
+
+  /** returns the road graph with its degree-2 chains contracted.
+   * @return a ChainContractedGraph, or null if no map has been loaded.
+   */
+  public static ChainContractedGraph getContractedGraph() {
+    return contractedGraph;
+  }
+
+  /** returns the graph of the major ways of the loaded map, used for quick coarse routes.
+   * @return a RoadGraph, or null if no map has been loaded.
+   */
+  public static RoadGraph getCoarseGraph() {
+    return coarseGraph;
+  }
+
+  /** returns the KDTree of the nodes of the coarse graph.
+   * @return a KDTree made from GraticuleNodes with type String ids, or null if no map has
+   * been loaded.
+   */
+  public static KdTree<String, GraticuleNode> getCoarseKdTree() {
+    return coarseKdTree;
+  }
+
+  /** sets the number of median splits of the regions arc flags are computed for when a
+   * map is loaded, or 0 to not compute them.
+   * @param levels is an int between 0 and ArcFlags.MAX_LEVELS.
+   */
+  public static void setArcFlagLevels(int levels) {
+    MapCommandHandler.arcFlagLevels = levels;
+  }
+
+  /** returns the arc flags of the loaded map.
+   * @return an ArcFlags, or null if no map has been loaded or arc flags are turned off.
+   */
+  public static ArcFlags getArcFlags() {
+    return arcFlags;
+  }
+
+  /** sets the file the hub labels of loaded maps are kept in. When a map is loaded, the
+   * labels in the file are used if they were built for that map; otherwise they are
+   * built and written to the file, replacing what was there.
+   * @param file is the Path of the hub label file, or null to not use hub labels.
+   */
+  public static void setHubLabelFile(Path file) {
+    MapCommandHandler.hubLabelFile = file;
+  }
+
+  /** returns the hub labels of the loaded map.
+   * @return a HubLabels, or null if no map has been loaded or no hub label file is set.
+   */
+  public static HubLabels getHubLabels() {
+    return hubLabels;
+  }
+
+  /** returns the weight of every edge of the road graph under a profile, computing them
+   * the first time the profile is used with the loaded map. The weights are kept by the
+   * road graph, so they are replaced together with it when another map is loaded.
+   * @param profile is a WeightProfile.
+   * @return an array of weights indexed by edge of the road graph.
+   * @throws NullPointerException if no database has been loaded.
+   */
+  public static double[] getProfileWeights(WeightProfile profile)
+      throws NullPointerException {
+    return roadGraph.getProfileWeights(profile);
+  }
+
+  /** closes the database handler connections, and resets the KDTree and road graph.
    */
   public static void reset() {
-    DatabaseHandler.setConn(null);
+    DatabaseHandler.close();
     MapCommandHandler.kdTree = null;
+    MapCommandHandler.roadGraph = null;
+    MapCommandHandler.stringDictionary = null;
+    MapCommandHandler.components = null;
+    MapCommandHandler.contractedGraph = null;
+    MapCommandHandler.coarseGraph = null;
+    MapCommandHandler.coarseKdTree = null;
+    MapCommandHandler.arcFlags = null;
+    MapCommandHandler.hubLabels = null;
+    MapDBResultSetHandler.setNodeRegistry(new NodeRegistry());
   }
 
   /** Return a String error or computation outcome of the map command passed
@@ -102,14 +379,17 @@ public final class MapCommandHandler {
   static String loadDB(String filename) {
     try {
       DatabaseHandler.loadDB(filename);
-      dBProxiedReader
-        = new ProxiedEdgeFetcher<>(NeighborWaySearchers::getWaysFromTargetNode);
+      dBProxiedReader = new ProxiedEdgeFetcher<>(
+          NeighborWaySearchers::getWaysFromTargetNode,
+          NeighborWaySearchers::getWaysFromTargetNodes, MapCommandHandler::getWaysInCell,
+          edgeCacheOptions);
       loadTree();
       if (kdTree.getRoot() == null) {
         MapCommandHandler.reset();
         throw new IllegalArgumentException();
       }
       curDb = "Currently Loaded: " + filename;
+      warmEdgeCache();
       return parseFunc.apply(filename);
     } catch (FileNotFoundException e) {
       return ErrorMessages.invalidDatabaseFilepath(filename);
@@ -128,13 +408,18 @@ public final class MapCommandHandler {
     }
   }
 
-  /** creates the KDTree by querying database for traversable nodes.
+  /** creates the road graph, its component labels, its contracted form, its coarse graph
+   * of major ways, its arc flags and hub labels if turned on and the KDTrees by querying
+   * database for traversable ways.
    * @throws SQLException if SQL fails to execute command
    */
   static void loadTree() throws SQLException, IllegalAccessException {
-    kdTree = MapDBResultSetHandler.queryDBNodes(
-        "SELECT N1.id, N1.latitude as lat1, N1.longitude as lon1, "
-            + "N2.id, N2.latitude as lat2, N2.longitude as lon2, way.id "
+    StringDictionary dictionary = new StringDictionary();
+    MapDBResultSetHandler.setNodeRegistry(new NodeRegistry(dictionary));
+    roadGraph = MapDBResultSetHandler.queryDBGraph(
+        "SELECT way.id AS wayID, way.name, way.type, way.start, way.end,\n"
+            + "N1.latitude as lat1, N1.longitude as lon1,\n"
+            + "N2.latitude as lat2, N2.longitude as lon2\n"
             + "FROM way\n"
             + "INNER JOIN node as N1\n"
             + "INNER JOIN node as N2\n"
@@ -142,6 +427,50 @@ public final class MapCommandHandler {
             + "AND NOT(way.type=\"\" OR way.type=\"unclassified\")\n"
             + ";"
     );
+    stringDictionary = dictionary;
+    MapDBResultSetHandler.setNodeRegistry(new NodeRegistry(roadGraph, dictionary));
+    components = new StronglyConnectedComponents(roadGraph);
+    contractedGraph = new ChainContractedGraph(roadGraph, roadGraph.getEdgeLengths());
+    kdTree = new KdTree<>(2, roadGraph.getNodes());
+    kdTree.buildTree();
+    BitSet majorTypes = new BitSet();
+    for (String type : MAJOR_WAY_TYPES) {
+      if (dictionary.codeOf(type) >= 0) {
+        majorTypes.set(dictionary.codeOf(type));
+      }
+    }
+    // every way of the graph was coded in the dictionary, so its type is checked as an int
+    coarseGraph = roadGraph.subgraph(way -> way.getTypeCode() >= 0
+        && majorTypes.get(way.getTypeCode()));
+    coarseKdTree = new KdTree<>(2, coarseGraph.getNodes());
+    coarseKdTree.buildTree();
+    arcFlags = arcFlagLevels > 0
+        ? new ArcFlags(roadGraph, getProfileWeights(WeightProfile.SHORTEST), arcFlagLevels)
+        : null;
+    hubLabels = hubLabelFile != null ? loadHubLabels(hubLabelFile) : null;
+  }
+
+  /** reads the hub labels of the road graph from a file, or builds them and writes them
+   * to the file if it is missing, unreadable or holds the labels of another map.
+   * @param file is the Path of the hub label file.
+   * @return the HubLabels of the road graph
+   */
+  static HubLabels loadHubLabels(Path file) {
+    try {
+      HubLabels stored = HubLabels.read(file);
+      if (stored.matches(roadGraph)) {
+        return stored;
+      }
+    } catch (IOException e) {
+      // fall through and rebuild the labels
+    }
+    HubLabels built = HubLabels.build(roadGraph, roadGraph.getEdgeLengths());
+    try {
+      built.write(file);
+    } catch (IOException e) {
+      System.err.println("ERROR: Could not write hub labels to " + file);
+    }
+    return built;
   }
 
   /** returns a display String as load message.
@@ -164,14 +493,17 @@ public final class MapCommandHandler {
   public static ImmutableMap<String, Object> loadDBGui(String filename) {
     try {
       DatabaseHandler.loadDB(filename);
-      dBProxiedReader
-        = new ProxiedEdgeFetcher<>(NeighborWaySearchers::getWaysFromTargetNode);
+      dBProxiedReader = new ProxiedEdgeFetcher<>(
+          NeighborWaySearchers::getWaysFromTargetNode,
+          NeighborWaySearchers::getWaysFromTargetNodes, MapCommandHandler::getWaysInCell,
+          edgeCacheOptions);
       loadTree();
       if (kdTree.getRoot() == null) {
         MapCommandHandler.reset();
         throw new IllegalArgumentException();
       }
       curDb = "Currently Loaded: " + filename;
+      warmEdgeCache();
       return parseToGui(filename);
     } catch (FileNotFoundException e) {
       return ImmutableMap.of(
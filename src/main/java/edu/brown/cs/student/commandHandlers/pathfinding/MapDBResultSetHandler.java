@@ -1,10 +1,12 @@
 package edu.brown.cs.student.commandHandlers.pathfinding;
 
-import edu.brown.cs.student.coordinates.KdTree;
+import edu.brown.cs.student.database.ConnectionPool;
 import edu.brown.cs.student.database.DatabaseHandler;
 import edu.brown.cs.student.pathfinding.GraticuleEdge;
 import edu.brown.cs.student.pathfinding.GraticuleNode;
 import edu.brown.cs.student.pathfinding.GraphEdge;
+import edu.brown.cs.student.pathfinding.NodeRegistry;
+import edu.brown.cs.student.pathfinding.RoadGraph;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -12,6 +14,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /** Class that handles pathfinding database queries.
@@ -20,6 +23,17 @@ public final class MapDBResultSetHandler {
   private MapDBResultSetHandler() {
   }
 
+  private static NodeRegistry nodeRegistry = new NodeRegistry();
+  // the pool of the database whose tables were last found valid, so they are checked once
+  private static volatile ConnectionPool validatedPool = null;
+
+  /** Sets the registry that the nodes and ways read by the queries resolve to.
+   * @param registry is the NodeRegistry of the loaded map.
+   */
+  public static void setNodeRegistry(NodeRegistry registry) {
+    nodeRegistry = registry;
+  }
+
   /** Queries database for ways and converts data into a list of ways.
    * @param query is a series of SQL commands to access data
    * @return a list of GraticuleEdge
@@ -30,41 +44,41 @@ public final class MapDBResultSetHandler {
   public static List<GraticuleEdge> queryDBWays(String query)
     throws SQLException, NullPointerException, IllegalArgumentException {
     List<GraticuleEdge> queriedGraticuleEdges = new ArrayList<>();
-    ResultSet rs = DatabaseHandler.queryLoadedDB(query);
-
-    final int wayIDIndex = 1;
-    final int wayNameIndex = 2;
-    final int typeIndex = 3;
-    final int startNodeIDIndex = 4;
-    final int endNodeIDIndex = 5;
-    final int lat1Index = 6;
-    final int lon1Index = 7;
-    final int lat2Index = 8;
-    final int lon2Index = 9;
+    try (ResultSet rs = DatabaseHandler.queryLoadedDB(query)) {
+      final int wayIDIndex = 1;
+      final int wayNameIndex = 2;
+      final int typeIndex = 3;
+      final int startNodeIDIndex = 4;
+      final int endNodeIDIndex = 5;
+      final int lat1Index = 6;
+      final int lon1Index = 7;
+      final int lat2Index = 8;
+      final int lon2Index = 9;
 
-    if (!isValid()) {
-      throw new IllegalArgumentException();
-    }
-    if (!rs.isClosed()) {
-      while (rs.next()) {
-        String wayID = rs.getString(wayIDIndex);
-        String wayName = rs.getString(wayNameIndex);
-        String type = rs.getString(typeIndex);
-        String startNodeID = rs.getString(startNodeIDIndex);
-        String endNodeID = rs.getString(endNodeIDIndex);
+      if (!isValid()) {
+        throw new IllegalArgumentException();
+      }
+      if (!rs.isClosed()) {
+        while (rs.next()) {
+          String wayID = rs.getString(wayIDIndex);
+          String wayName = rs.getString(wayNameIndex);
+          String type = rs.getString(typeIndex);
+          String startNodeID = rs.getString(startNodeIDIndex);
+          String endNodeID = rs.getString(endNodeIDIndex);
 
-        double lat1 = Double.parseDouble(rs.getString(lat1Index));
-        double lon1 = Double.parseDouble(rs.getString(lon1Index));
-        GraticuleNode startNode = new GraticuleNode(startNodeID, lat1, lon1);
+          double lat1 = Double.parseDouble(rs.getString(lat1Index));
+          double lon1 = Double.parseDouble(rs.getString(lon1Index));
+          GraticuleNode startNode = nodeRegistry.resolveNode(startNodeID, lat1, lon1);
 
-        double lat2 = Double.parseDouble(rs.getString(lat2Index));
-        double lon2 = Double.parseDouble(rs.getString(lon2Index));
-        GraticuleNode endNode = new GraticuleNode(endNodeID, lat2, lon2);
+          double lat2 = Double.parseDouble(rs.getString(lat2Index));
+          double lon2 = Double.parseDouble(rs.getString(lon2Index));
+          GraticuleNode endNode = nodeRegistry.resolveNode(endNodeID, lat2, lon2);
 
-        queriedGraticuleEdges.add(new GraticuleEdge(wayID, wayName, type, startNode, endNode));
+          queriedGraticuleEdges.add(
+              nodeRegistry.resolveEdge(wayID, wayName, type, startNode, endNode));
+        }
       }
     }
-    rs.close();
 
     return queriedGraticuleEdges;
   }
@@ -72,131 +86,182 @@ public final class MapDBResultSetHandler {
   /**
    * Given a Node finds the first two streets intersections at that node.
    *
-   * @param query - a list of GraticuleEdge
+   * @param query - a series of SQL commands with ? parameters that selects way names
+   * @param parameters - the Strings bound to the parameters of the query, in order
    * @return a list a streets intersecting at the given node
    * @throws SQLException if SQL fails to execute commands
    * @throws NullPointerException if no database has been loaded.
    * @throws IllegalArgumentException if the column names and length are incorrect
    */
-  public static List<String> queryDBStreetIntersections(String query)
+  public static List<String> queryDBStreetIntersections(String query, List<String> parameters)
     throws SQLException, NullPointerException, IllegalArgumentException {
-    List<String> potentialStreetIntersections = new ArrayList<>();
-    ResultSet rs = DatabaseHandler.queryLoadedDB(query);
-
+    // checked before the query, since checking borrows a pooled connection of its own
     if (!isValid()) {
       throw new IllegalArgumentException();
     }
-    if (!rs.isClosed()) {
-      while (rs.next()) {
-        potentialStreetIntersections.add(rs.getString(1));
+    return DatabaseHandler.queryPooled(query, parameters, rs -> {
+      List<String> potentialStreetIntersections = new ArrayList<>();
+      if (!rs.isClosed()) {
+        while (rs.next()) {
+          potentialStreetIntersections.add(rs.getString(1));
+        }
       }
-    }
-    rs.close();
-
-    return potentialStreetIntersections;
+      return potentialStreetIntersections;
+    });
   }
 
-  /** Queries the column names of tables way and node to check if they're valid.
+  /** Queries the column names of tables way and node to check if they're valid, once for
+   * every loaded database whose tables are valid.
    * @return true or false depending on their validity
    */
   public static boolean isValid() {
+    ConnectionPool pool = DatabaseHandler.getPool();
+    if (pool != null && pool == validatedPool) {
+      return true;
+    }
     try {
-      ResultSet rs = DatabaseHandler.queryLoadedDB(
-          "SELECT c.name FROM pragma_table_info('node') c;");
-      List<String> nodeCols = new ArrayList<>();
-      while (rs.next()) {
-        nodeCols.add(rs.getString(1));
-      }
+      List<String> nodeCols = DatabaseHandler.queryPooled(
+          "SELECT c.name FROM pragma_table_info('node') c;", List.of(),
+          MapDBResultSetHandler::readColumn);
       boolean isNodeValid = nodeCols.size() == 3
           && nodeCols.get(0).equals("id")
           && nodeCols.get(1).equals("latitude")
           && nodeCols.get(2).equals("longitude");
 
-      rs = DatabaseHandler.queryLoadedDB("SELECT c.name FROM pragma_table_info('way') c;");
-      List<String> wayCols = new ArrayList<>();
-      while (rs.next()) {
-        wayCols.add(rs.getString(1));
-      }
+      List<String> wayCols = DatabaseHandler.queryPooled(
+          "SELECT c.name FROM pragma_table_info('way') c;", List.of(),
+          MapDBResultSetHandler::readColumn);
       boolean isWayValid = wayCols.size() == 5
           && wayCols.get(0).equals("id")
           && wayCols.get(1).equals("name")
           && wayCols.get(2).equals("type")
           && wayCols.get(3).equals("start")
           && wayCols.get(4).equals("end");
+      if (isNodeValid && isWayValid) {
+        validatedPool = pool;
+      }
       return isNodeValid && isWayValid;
     } catch (NullPointerException | SQLException e) {
       return false;
     }
   }
 
-  /** Queries database for traversable nodes and converts node data into a KDTree.
-   * @param query is a series of SQL commands
-   * @return a KDTree built from queried nodes
+  /** Reads the first column of every row of a query.
+   * @param rs is the ResultSet of the query
+   * @return a list of the values of the first column, in order
+   * @throws SQLException if SQL fails to read the rows
+   */
+  private static List<String> readColumn(ResultSet rs) throws SQLException {
+    List<String> values = new ArrayList<>();
+    while (rs.next()) {
+      values.add(rs.getString(1));
+    }
+    return values;
+  }
+
+  /** Queries database for traversable ways and converts them into an in-memory RoadGraph,
+   * creating a single GraticuleNode for every node id that the ways start or end at.
+   * @param query is a series of SQL commands that selects way id, name, type, start, end,
+   *              and the latitudes and longitudes of the start and end nodes, in that order
+   * @return a RoadGraph built from the queried ways
    * @throws SQLException if SQL fails to query
    * @throws NullPointerException if no database has been loaded.
    * @throws IllegalArgumentException if the column names and length are incorrect
    * @throws IllegalAccessException if way and node ids are empty
    */
-  public static KdTree<String, GraticuleNode> queryDBNodes(String query)
+  public static RoadGraph queryDBGraph(String query)
       throws SQLException, NullPointerException, IllegalArgumentException, IllegalAccessException {
-    HashMap<String, GraticuleNode> queriedNodes = new HashMap<>();
-    ResultSet rs = DatabaseHandler.queryLoadedDB(query);
-
-    final int startNodeIDIndex = 1;
-    final int startNodeLatIndex = 2;
-    final int startNodeLonIndex = 3;
-    final int endNodeIDIndex = 4;
-    final int endNodeLatIndex = 5;
-    final int endNodeLonIndex = 6;
-    final int wayIndex = 7;
+    Map<String, GraticuleNode> queriedNodes = new HashMap<>();
+    List<GraticuleEdge> queriedEdges = new ArrayList<>();
+    try (ResultSet rs = DatabaseHandler.queryLoadedDB(query)) {
+      final int wayIDIndex = 1;
+      final int wayNameIndex = 2;
+      final int typeIndex = 3;
+      final int startNodeIDIndex = 4;
+      final int endNodeIDIndex = 5;
+      final int lat1Index = 6;
+      final int lon1Index = 7;
+      final int lat2Index = 8;
+      final int lon2Index = 9;
 
-    if (!isValid()) {
-      throw new IllegalArgumentException();
-    }
-    if (!rs.isClosed()) {
-      while (rs.next()) {
-        String startNodeID = rs.getString(startNodeIDIndex);
-        double startNodeLat = Double.parseDouble(rs.getString(startNodeLatIndex));
-        double startNodeLon = Double.parseDouble(rs.getString(startNodeLonIndex));
-        String endNodeID = rs.getString(endNodeIDIndex);
-        double endNodeLat = Double.parseDouble(rs.getString(endNodeLatIndex));
-        double endNodeLon = Double.parseDouble(rs.getString(endNodeLonIndex));
-        String wayID = rs.getString(wayIndex);
-        //if ids are empty
-        if (startNodeID.equals("") || endNodeID.equals("") || wayID.equals("")) {
-          throw new IllegalAccessException();
-        }
-        //if queriedNodes doesn't have start node
-        if (!(queriedNodes.containsKey(startNodeID))) {
-          queriedNodes.put(startNodeID,
-              new GraticuleNode(startNodeID, startNodeLat, startNodeLon));
-        }
-        //if queriedNodes doesn't have end node
-        if (!(queriedNodes.containsKey(endNodeID))) {
-          queriedNodes.put(endNodeID,
-              new GraticuleNode(endNodeID, endNodeLat, endNodeLon));
+      if (!isValid()) {
+        throw new IllegalArgumentException();
+      }
+      if (!rs.isClosed()) {
+        while (rs.next()) {
+          String wayID = rs.getString(wayIDIndex);
+          String startNodeID = rs.getString(startNodeIDIndex);
+          String endNodeID = rs.getString(endNodeIDIndex);
+          double lat1 = Double.parseDouble(rs.getString(lat1Index));
+          double lon1 = Double.parseDouble(rs.getString(lon1Index));
+          double lat2 = Double.parseDouble(rs.getString(lat2Index));
+          double lon2 = Double.parseDouble(rs.getString(lon2Index));
+          //if ids are empty
+          if (startNodeID.equals("") || endNodeID.equals("") || wayID.equals("")) {
+            throw new IllegalAccessException();
+          }
+          GraticuleNode startNode = queriedNodes.computeIfAbsent(startNodeID,
+              id -> GraticuleNode.of(id, lat1, lon1));
+          GraticuleNode endNode = queriedNodes.computeIfAbsent(endNodeID,
+              id -> GraticuleNode.of(id, lat2, lon2));
+          queriedEdges.add(new GraticuleEdge(wayID, rs.getString(wayNameIndex),
+              rs.getString(typeIndex), startNode, endNode, nodeRegistry.getDictionary()));
         }
       }
     }
-    rs.close();
-    KdTree<String, GraticuleNode> kdTree = new KdTree<>(2,
-        new ArrayList<>(queriedNodes.values()));
-    kdTree.buildTree();
-    return kdTree;
+    return new RoadGraph(new ArrayList<>(queriedNodes.values()), queriedEdges);
   }
 
   /** Queries for ways that start from a specific target node.
-   * @param query is a series of SQL commands
+   * @param query is a series of SQL commands with ? parameters
+   * @param parameters are the Strings bound to the parameters of the query, in order
    * @return a set of path edges of string ids made from Graticule nodes of string ids
    * @throws SQLException if SQL fails to execute command
    * @throws NullPointerException if no database has been loaded.
    * @throws IllegalArgumentException if the column names and length of the table are incorrect
     */
   public static Set<GraphEdge<String, String, GraticuleNode>>
-              queryDBGetWaysAroundTarget(String query)
+              queryDBGetWaysAroundTarget(String query, List<String> parameters)
+      throws SQLException, NullPointerException, IllegalArgumentException {
+    if (!isValid()) {
+      throw new IllegalArgumentException();
+    }
+    return DatabaseHandler.queryPooled(query, parameters, MapDBResultSetHandler::readWays);
+  }
+
+  /** Queries for ways that start from any of several nodes, grouped by the node they start
+   * from.
+   * @param query is a series of SQL commands with ? parameters that selects way id, name,
+   *              type, start, end, and the latitudes and longitudes of the start and end
+   *              nodes, in that order
+   * @param parameters are the Strings bound to the parameters of the query, in order
+   * @return a map from the id of every start node that has ways to a set of its path edges
+   * @throws SQLException if SQL fails to execute command
+   * @throws NullPointerException if no database has been loaded.
+   * @throws IllegalArgumentException if the column names and length of the table are incorrect
+   */
+  public static Map<String, Set<GraphEdge<String, String, GraticuleNode>>>
+              queryDBGetWaysAroundTargets(String query, List<String> parameters)
       throws SQLException, NullPointerException, IllegalArgumentException {
+    if (!isValid()) {
+      throw new IllegalArgumentException();
+    }
+    Map<String, Set<GraphEdge<String, String, GraticuleNode>>> queriedWays = new HashMap<>();
+    for (GraphEdge<String, String, GraticuleNode> way
+        : DatabaseHandler.queryPooled(query, parameters, MapDBResultSetHandler::readWays)) {
+      queriedWays.computeIfAbsent(way.getStartNode().getId(), id -> new HashSet<>()).add(way);
+    }
+    return queriedWays;
+  }
+
+  /** Reads the ways selected by a query for ways around target nodes.
+   * @param rs is the ResultSet of the query
+   * @return a set of path edges of string ids made from Graticule nodes of string ids
+   * @throws SQLException if SQL fails to execute command
+   */
+  private static Set<GraphEdge<String, String, GraticuleNode>> readWays(ResultSet rs)
+      throws SQLException {
     Set<GraphEdge<String, String, GraticuleNode>> queriedWays = new HashSet<>();
-    ResultSet rs = DatabaseHandler.queryLoadedDB(query);
 
     final int wayIDIndex = 1;
     final int wayNameIndex = 2;
@@ -208,9 +273,6 @@ public final class MapDBResultSetHandler {
     final int lat2Index = 8;
     final int lon2Index = 9;
 
-    if (!isValid()) {
-      throw new IllegalArgumentException();
-    }
     if (!rs.isClosed()) {
       while (rs.next()) {
         String wayID = rs.getString(wayIDIndex);
@@ -221,16 +283,15 @@ public final class MapDBResultSetHandler {
 
         double lat1 = Double.parseDouble(rs.getString(lat1Index));
         double lon1 = Double.parseDouble(rs.getString(lon1Index));
-        GraticuleNode startNode = new GraticuleNode(startNodeID, lat1, lon1);
+        GraticuleNode startNode = nodeRegistry.resolveNode(startNodeID, lat1, lon1);
 
         double lat2 = Double.parseDouble(rs.getString(lat2Index));
         double lon2 = Double.parseDouble(rs.getString(lon2Index));
-        GraticuleNode endNode = new GraticuleNode(endNodeID, lat2, lon2);
+        GraticuleNode endNode = nodeRegistry.resolveNode(endNodeID, lat2, lon2);
 
-        queriedWays.add(new GraticuleEdge(wayID, wayName, type, startNode, endNode));
+        queriedWays.add(nodeRegistry.resolveEdge(wayID, wayName, type, startNode, endNode));
       }
     }
-    rs.close();
     return queriedWays;
   }
 }
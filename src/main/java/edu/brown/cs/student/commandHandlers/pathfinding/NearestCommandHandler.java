@@ -3,6 +3,7 @@ package edu.brown.cs.student.commandHandlers.pathfinding;
 import com.google.common.collect.ImmutableMap;
 import edu.brown.cs.student.pathfinding.GraphNode;
 import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.StronglyConnectedComponents;
 import edu.brown.cs.student.main.ErrorMessages;
 
 import java.sql.SQLException;
@@ -16,10 +17,21 @@ import java.util.function.Function;
  */
 public final class NearestCommandHandler {
   private static Function<GraticuleNode, String> parseFunc;
+  private static boolean preferLargestComponent = false;
 
   private NearestCommandHandler() {
   }
 
+  /** Sets whether nearest-node snapping only considers nodes in the largest weakly
+   * connected component of the loaded map, so that routes between snapped nodes are
+   * not stranded on small disconnected pieces of road. Strongly connected components
+   * would not do: on maps of one-way ways nearly all of them are single nodes.
+   * @param preferLargest is true to snap only to nodes in the largest component.
+   */
+  public static void setPreferLargestComponent(boolean preferLargest) {
+    preferLargestComponent = preferLargest;
+  }
+
   private static final Map<String, Function<GraticuleNode, String>>
       VALID_PARSERS = new HashMap<>() {
         { put("repl", NearestCommandHandler::parseToRepl); }
@@ -70,11 +82,21 @@ public final class NearestCommandHandler {
    * @param lon is a given double that represents longitude
    * @return a GraticuleNode that is the found nearest node
    * @throws IndexOutOfBoundsException if the object at index does not exist
+   * @throws IllegalArgumentException if nodes are stored in fixed point and lat or lon
+   *                                  does not fit.
    */
-  public static GraticuleNode getNearestNode(double lat, double lon) throws IndexOutOfBoundsException {
-    GraticuleNode target = new GraticuleNode("", lat, lon);
-    List<GraticuleNode> nearestNode = MapCommandHandler.getKdTree()
-        .getNearestNeighborsResult(1, target, false);
+  public static GraticuleNode getNearestNode(double lat, double lon)
+      throws IndexOutOfBoundsException, IllegalArgumentException {
+    GraticuleNode target = GraticuleNode.of("", lat, lon);
+    StronglyConnectedComponents components = MapCommandHandler.getComponents();
+    List<GraticuleNode> nearestNode;
+    if (preferLargestComponent && components != null) {
+      nearestNode = MapCommandHandler.getKdTree()
+          .getNearestNeighborsResult(1, target, false, components::isInLargestWeakComponent);
+    } else {
+      nearestNode = MapCommandHandler.getKdTree()
+          .getNearestNeighborsResult(1, target, false);
+    }
     // if there are multiple nearest nodes that are equidistant, the return is selected based on the
     // kdTree build
     return nearestNode.get(0);
@@ -91,6 +113,8 @@ public final class NearestCommandHandler {
       return parseFunc.apply(nearestNode);
     } catch (IndexOutOfBoundsException e) {
       return "";
+    } catch (IllegalArgumentException e) {
+      return ErrorMessages.FIXED_POINT_OUT_OF_RANGE;
     }
   }
 
@@ -114,7 +138,17 @@ public final class NearestCommandHandler {
    * @throws SQLException if database is not set/ cannot be queried
    */
   public static Map<String, Object> handleNearestGui(double lat, double lon) throws SQLException {
-    GraticuleNode nearestNode = getNearestNode(lat, lon);
+    GraticuleNode nearestNode;
+    try {
+      nearestNode = getNearestNode(lat, lon);
+    } catch (IllegalArgumentException e) {
+      return ImmutableMap.of(
+        "map", "",
+        "route", "",
+        "ways", "",
+        "nearest", "",
+        "error", ErrorMessages.FIXED_POINT_OUT_OF_RANGE);
+    }
     return parseToGui(nearestNode);
   }
 
@@ -129,10 +163,8 @@ public final class NearestCommandHandler {
    */
   public static String[] getIntersectingStreets(GraphNode<String> targetNode) throws SQLException {
     List<String> streetEdges = MapDBResultSetHandler.queryDBStreetIntersections(
-        "SELECT name from way WHERE "
-        + "(start='" + targetNode.getId() + "' or end='" + targetNode.getId() + "')"
-
-    );
+        "SELECT name from way WHERE (start=? or end=?)",
+        List.of(targetNode.getId(), targetNode.getId()));
 
     if (streetEdges.size() == 0) {
       return null;
@@ -143,8 +175,8 @@ public final class NearestCommandHandler {
       for (String street : streetEdges) {
         if (!street.equals(streets[0])) {
           streets[1] = street;
-          streets[2] = targetNode.getCoordinates().get(0) + "";
-          streets[3] = targetNode.getCoordinates().get(1) + "";
+          streets[2] = targetNode.coord(0) + "";
+          streets[3] = targetNode.coord(1) + "";
           return streets;
         }
       }
@@ -3,13 +3,24 @@ package edu.brown.cs.student.commandHandlers.pathfinding;
 import edu.brown.cs.student.pathfinding.GraphEdge;
 import edu.brown.cs.student.pathfinding.GraphNode;
 import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.SearchStats;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /** class that searches for ways that connect a specific node in database.
  */
 public final class NeighborWaySearchers {
+  // the most parameters older SQLite builds allow in one statement
+  private static final int MAX_IN_LIST_NODES = 999;
+
   private NeighborWaySearchers() {
   }
 
@@ -22,6 +33,7 @@ public final class NeighborWaySearchers {
       GraphNode<String> node)
     throws NullPointerException {
     Set<GraphEdge<String, String, GraticuleNode>> results;
+    long queryStart = System.nanoTime();
     try {
       results = MapDBResultSetHandler.queryDBGetWaysAroundTarget(
           "SELECT way.id AS wayID, way.name, way.type, way.start, way.end,\n"
@@ -31,13 +43,62 @@ public final class NeighborWaySearchers {
               + "INNER JOIN node as N1\n"
               + "INNER JOIN node as N2\n"
               + "ON (way.start=N1.id) AND (way.end=N2.id)" + "\n"
-              + "WHERE way.start='" + node.getId() + "'\n"
+              + "WHERE way.start=?\n"
               + "AND way.type!='unclassified' AND way.type!=''"
-              + ";"
-      );
+              + ";", List.of(node.getId()));
     } catch (SQLException e) {
       throw new IllegalAccessError();
+    } finally {
+      SearchStats.recordSqlTime(System.nanoTime() - queryStart);
     }
     return results;
   }
+
+  /** queries ways that start from any of the given nodes with one prepared query for every
+   * MAX_IN_LIST_NODES of them. A smaller list of ids is padded with its last id up to a
+   * power of two, so the queries take few shapes and their statements are reused.
+   * @param nodes are the given nodes
+   * @return a map from every given node to the set of ways that start from it, which is
+   * empty if none do
+   * @throws NullPointerException if no database has been loaded.
+   */
+  public static Map<GraticuleNode, Set<GraphEdge<String, String, GraticuleNode>>>
+      getWaysFromTargetNodes(Collection<GraticuleNode> nodes)
+    throws NullPointerException {
+    List<String> ids = new ArrayList<>();
+    for (GraticuleNode node : nodes) {
+      ids.add(node.getId());
+    }
+    Map<String, Set<GraphEdge<String, String, GraticuleNode>>> results = new HashMap<>();
+    long queryStart = System.nanoTime();
+    try {
+      for (int from = 0; from < ids.size(); from += MAX_IN_LIST_NODES) {
+        List<String> chunk = new ArrayList<>(
+            ids.subList(from, Math.min(from + MAX_IN_LIST_NODES, ids.size())));
+        int padded = Math.min(Integer.highestOneBit(chunk.size() * 2 - 1), MAX_IN_LIST_NODES);
+        chunk.addAll(Collections.nCopies(padded - chunk.size(), chunk.get(chunk.size() - 1)));
+        results.putAll(MapDBResultSetHandler.queryDBGetWaysAroundTargets(
+            "SELECT way.id AS wayID, way.name, way.type, way.start, way.end,\n"
+                + "N1.latitude as lat1, N1.longitude as lon1,\n"
+                + "N2.latitude as lat2, N2.longitude as lon2\n"
+                + "FROM way\n"
+                + "INNER JOIN node as N1\n"
+                + "INNER JOIN node as N2\n"
+                + "ON (way.start=N1.id) AND (way.end=N2.id)" + "\n"
+                + "WHERE way.start IN ("
+                + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")\n"
+                + "AND way.type!='unclassified' AND way.type!=''"
+                + ";", chunk));
+      }
+    } catch (SQLException e) {
+      throw new IllegalAccessError();
+    } finally {
+      SearchStats.recordSqlTime(System.nanoTime() - queryStart);
+    }
+    Map<GraticuleNode, Set<GraphEdge<String, String, GraticuleNode>>> ways = new HashMap<>();
+    for (GraticuleNode node : nodes) {
+      ways.put(node, results.getOrDefault(node.getId(), new HashSet<>()));
+    }
+    return ways;
+  }
 }
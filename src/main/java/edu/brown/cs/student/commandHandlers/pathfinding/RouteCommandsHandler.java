@@ -1,13 +1,34 @@
 package edu.brown.cs.student.commandHandlers.pathfinding;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import edu.brown.cs.student.coordinates.KdTree;
 import edu.brown.cs.student.database.DatabaseHandler;
+import edu.brown.cs.student.pathfinding.ArcFlags;
+import edu.brown.cs.student.pathfinding.CancellationToken;
+import edu.brown.cs.student.pathfinding.ChainContractedGraph;
 import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.DistanceKernel;
+import edu.brown.cs.student.pathfinding.EdgeReadAhead;
 import edu.brown.cs.student.pathfinding.GraphEdge;
 import edu.brown.cs.student.pathfinding.GraphNode;
 import edu.brown.cs.student.pathfinding.GraticuleEdge;
 import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HashDistributedAStar;
 import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.InMemoryDijkstra;
+import edu.brown.cs.student.pathfinding.ProxiedEdgeFetcher;
+import edu.brown.cs.student.pathfinding.RadixHeapQueue;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import edu.brown.cs.student.pathfinding.RouteResult;
+import edu.brown.cs.student.pathfinding.RouteStatus;
+import edu.brown.cs.student.pathfinding.SearchStats;
+import edu.brown.cs.student.pathfinding.StringDictionary;
+import edu.brown.cs.student.pathfinding.StronglyConnectedComponents;
+import edu.brown.cs.student.pathfinding.WeightProfile;
 import edu.brown.cs.student.main.ErrorMessages;
 import edu.brown.cs.student.utils.Utils;
 
@@ -16,9 +37,20 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -39,6 +71,84 @@ public final class RouteCommandsHandler {
             put("repl", RouteCommandsHandler::parseToRepl);
         }};
 
+  private static final Set<String> VALID_FLAGS = Set.of("--contracted", "--stats");
+
+  private static final Set<String> VALID_VALUED_FLAGS = Set.of("--weight", "--profile",
+      "--threads");
+
+  private static boolean radixRouteQueue = false;
+
+  private static int expansionBatchSize = 1;
+
+  private static int readAheadDepth = 0;
+
+  private static final int READ_AHEAD_THREADS = 1;
+
+  private static final ExecutorService READ_AHEAD_EXECUTOR = Executors.newFixedThreadPool(
+      READ_AHEAD_THREADS,
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("read-ahead-%d").build());
+
+  private static DistanceKernel heuristicKernel = DistanceKernel.HAVERSINE;
+
+  private static final int ROUTE_JOB_THREADS = 2;
+
+  private static final ExecutorService ROUTE_JOB_EXECUTOR = Executors.newFixedThreadPool(
+      ROUTE_JOB_THREADS,
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("route-job-%d").build());
+
+  // route jobs nobody polls are dropped after a while
+  private static final Cache<String, RouteJob> ROUTE_JOBS = CacheBuilder.newBuilder()
+      .expireAfterWrite(5, TimeUnit.MINUTES)
+      .build();
+
+  /** Class that holds the exact route search of a progressive route request.
+   */
+  private static final class RouteJob {
+    private final Future<Map<String, Object>> result;
+    private final CancellationToken token;
+
+    /** Constructor for RouteJob.
+     * @param result is the future front-end map of the exact route.
+     * @param token is the token that cancels the search.
+     */
+    private RouteJob(Future<Map<String, Object>> result, CancellationToken token) {
+      this.result = result;
+      this.token = token;
+    }
+  }
+
+  /** Class that holds the flags of one route command and the result of its search, so
+   * that commands run at once do not see each other's flags or results.
+   */
+  private static final class RouteRequest {
+    private final Map<String, String> flags;
+    private final double weight;
+    private final WeightProfile profile;
+    private final int threads;
+    private RouteResult<String, String, GraticuleNode> result = null;
+
+    /** Constructor for RouteRequest; parses the values of the flags.
+     * @param flags is a Map from each flag of the command to its value.
+     * @throws IllegalArgumentException if the value of a flag is not valid.
+     */
+    private RouteRequest(Map<String, String> flags) throws IllegalArgumentException {
+      this.flags = flags;
+      this.weight = parseWeight(flags.get("--weight"));
+      this.profile = parseProfile(flags.get("--profile"));
+      this.threads = parseThreads(flags.get("--threads"));
+    }
+
+    /** Check whether the command combines flags that cannot work together: the contracted
+     * graph is searched by length with plain Dijkstra, so it has no heuristic to weight,
+     * no profile to route by and no workers to split between.
+     * @return true if the flags conflict.
+     */
+    private boolean hasConflictingFlags() {
+      return flags.containsKey("--contracted") && (flags.containsKey("--weight")
+          || flags.containsKey("--profile") || flags.containsKey("--threads"));
+    }
+  }
+
   /** Return a String error or computation outcome of the route command passed
    back to the REPL.
    @param command A String representing the full command entered.
@@ -50,8 +160,17 @@ public final class RouteCommandsHandler {
   public static String routeCommand(String command, String parseKey) {
     parseFunc = VALID_PARSERS.get(parseKey);
     List<String> splitCommand = new LinkedList<>(Arrays.asList(splitCommandComponents(command)));
+    RouteRequest request;
     try {
-      return checkRouteArgs(splitCommand);
+      request = new RouteRequest(extractFlags(splitCommand));
+    } catch (IllegalArgumentException e) {
+      return ErrorMessages.ROUTE_INVALID_FLAG;
+    }
+    if (request.hasConflictingFlags()) {
+      return ErrorMessages.ROUTE_CONFLICTING_FLAGS;
+    }
+    try {
+      return checkRouteArgs(splitCommand, request);
     } catch (IllegalPathStateException e) {
       return ErrorMessages.INVALID_STREET_NAMES;
     } catch (NumberFormatException e) {
@@ -66,18 +185,20 @@ public final class RouteCommandsHandler {
   /** Checks whether the route command passed has valid arguments.
    @param splitCommand An Array of Strings representing each part of an entered
    command
+   @param request The RouteRequest of the flags of the command.
    @return 1 String, either an ERROR, or the result of a successful computation
    which may have newlines.
    @throws SQLException if SQL fails to execute command
    */
-  static String checkRouteArgs(List<String> splitCommand) throws SQLException {
+  private static String checkRouteArgs(List<String> splitCommand, RouteRequest request)
+      throws SQLException {
     if (splitCommand.size() == 5) {
       if (!String.join("", splitCommand).contains("\"")) {
         double lat1 = Double.parseDouble(splitCommand.get(1));
         double lon1 = Double.parseDouble(splitCommand.get(2));
         double lat2 = Double.parseDouble(splitCommand.get(3));
         double lon2 = Double.parseDouble(splitCommand.get(4));
-        return getPath(lat1, lon1, lat2, lon2);
+        return getPath(lat1, lon1, lat2, lon2, request);
       } else {
         List<String> streetsOutsideQuotes = new ArrayList<>();
 
@@ -90,13 +211,119 @@ public final class RouteCommandsHandler {
           }
         }
         return getPath(streetsOutsideQuotes.get(0), streetsOutsideQuotes.get(1),
-            streetsOutsideQuotes.get(2), streetsOutsideQuotes.get(3));
+            streetsOutsideQuotes.get(2), streetsOutsideQuotes.get(3), request);
       }
     } else {
       throw new IllegalArgumentException();
     }
   }
 
+  /** Removes every flag (an argument starting with "--") from the split command.
+   * Flags may appear anywhere after the command name:
+   * "--contracted" routes over the road graph with its degree-2 chains contracted, and
+   * cannot be combined with the flags below that change the search, only with "--stats";
+   * "--stats" prints the counters of the search after the route;
+   * "--weight=w" runs weighted A* with the heuristic inflated by w, and prints how far
+   * from optimal the route can be;
+   * "--profile=name" routes by the costs of the named WeightProfile instead of length;
+   * "--threads=n" splits the search between n worker threads with hash distributed A*.
+   @param splitCommand A List of Strings representing each part of an entered command,
+   from which the flags are removed.
+   @return A Map from each flag found to its value, which is empty for flags without one.
+   @throws IllegalArgumentException if a flag is not recognised or lacks its value.
+   */
+  static Map<String, String> extractFlags(List<String> splitCommand)
+      throws IllegalArgumentException {
+    Map<String, String> flags = new HashMap<>();
+    Iterator<String> parts = splitCommand.iterator();
+    while (parts.hasNext()) {
+      String part = parts.next();
+      if (part.startsWith("--")) {
+        int equals = part.indexOf('=');
+        if (equals == -1 && VALID_FLAGS.contains(part)) {
+          flags.put(part, "");
+        } else if (equals != -1 && VALID_VALUED_FLAGS.contains(part.substring(0, equals))) {
+          flags.put(part.substring(0, equals), part.substring(equals + 1));
+        } else {
+          throw new IllegalArgumentException();
+        }
+        parts.remove();
+      }
+    }
+    return flags;
+  }
+
+  /** Parses the value of the "--weight" flag.
+   @param weight A String that is the value of the flag, or null if it was not given.
+   @return the heuristic weight, which is 1 if the flag was not given.
+   @throws IllegalArgumentException if the weight is not a number of at least 1.
+   */
+  static double parseWeight(String weight) throws IllegalArgumentException {
+    if (weight == null) {
+      return 1;
+    }
+    return checkWeight(Double.parseDouble(weight));
+  }
+
+  /** Parses the numbers of a GUI route request: two pairs of coordinates, then an
+   optional heuristic weight.
+   @param coords An array of the numbers in the request, or null if there were none.
+   @return the heuristic weight, which is 1 if the request did not give one.
+   @throws IllegalArgumentException if there are fewer than four numbers or the weight is
+   not a number of at least 1.
+   */
+  public static double parseWeight(double[] coords) throws IllegalArgumentException {
+    final int coordinates = 4;
+    if (coords == null || coords.length < coordinates) {
+      throw new IllegalArgumentException();
+    }
+    return coords.length > coordinates ? checkWeight(coords[coordinates]) : 1;
+  }
+
+  /** Checks that a heuristic weight is a finite number of at least 1.
+   @param weight A double that is the weight.
+   @return the weight.
+   @throws IllegalArgumentException if the weight is below 1, infinite or NaN.
+   */
+  private static double checkWeight(double weight) throws IllegalArgumentException {
+    if (!(weight >= 1) || Double.isInfinite(weight)) {
+      throw new IllegalArgumentException();
+    }
+    return weight;
+  }
+
+  /** Parses the value of the "--threads" flag.
+   @param threads A String that is the value of the flag, or null if it was not given.
+   @return the number of worker threads, which is 1 if the flag was not given.
+   @throws IllegalArgumentException if the value is not a positive integer.
+   */
+  static int parseThreads(String threads) throws IllegalArgumentException {
+    if (threads == null) {
+      return 1;
+    }
+    int parsed = Integer.parseInt(threads);
+    if (parsed < 1) {
+      throw new IllegalArgumentException();
+    }
+    return parsed;
+  }
+
+  /** Parses the value of the "--profile" flag.
+   @param name A String that is the value of the flag, or null if it was not given.
+   @return the WeightProfile, which routes by length if the flag was not given.
+   @throws IllegalArgumentException if no profile has the given name.
+   */
+  public static WeightProfile parseProfile(String name) throws IllegalArgumentException {
+    if (name == null) {
+      return WeightProfile.SHORTEST;
+    }
+    WeightProfile profile = WeightProfile.forName(name);
+    if (profile == null) {
+      throw new IllegalArgumentException();
+    }
+    return profile;
+  }
+
   /** Split the passed command at any spaces not included within a pair of quotes.
    @param command A String representing the full command entered.
    @return An ArrayList of Strings representing each part of the command.
@@ -111,7 +338,9 @@ public final class RouteCommandsHandler {
     return matchList.toArray(new String[0]);
   }
 
-  /** Find the node at the intersection of two streets with given names.
+  /** Find the node at the intersection of two streets with given names. The names are
+   * looked up in the dictionary of the loaded map once, and the ways of the road graph
+   * are matched to them by their name codes.
    * @param street is a String that is the name of a street
    * @param crossStreet is a String that is the name of a street
    * @return a GraticuleNode that is at their intersection
@@ -119,9 +348,11 @@ public final class RouteCommandsHandler {
    * @throws NullPointerException if no database has been loaded.
    * @throws NoSuchFieldError if queried field does not exist
    */
-  static GraticuleNode getTargetPathNode(String street, String crossStreet)
+  public static GraticuleNode getTargetPathNode(String street, String crossStreet)
       throws SQLException, NullPointerException, NoSuchFieldError {
-    if (DatabaseHandler.getConn() == null) {
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    StringDictionary dictionary = MapCommandHandler.getStringDictionary();
+    if (DatabaseHandler.getConn() == null || graph == null || dictionary == null) {
       throw new NullPointerException();
     }
 
@@ -129,31 +360,23 @@ public final class RouteCommandsHandler {
       throw new IllegalAccessError();
     }
 
-    List<GraticuleEdge> streetEdges = MapDBResultSetHandler.queryDBWays(
-        "SELECT way.id AS wayID, way.name, way.type, way.start, way.end,\n"
-            + "N1.latitude as lat1, N1.longitude as lon1,\n"
-            + "N2.latitude as lat2, N2.longitude as lon2\n"
-            + "FROM way\n"
-            + "INNER JOIN node as N1\n"
-            + "INNER JOIN node as N2\n"
-            + "ON (way.start=N1.id) AND (way.end=N2.id)" + "\n"
-            + "WHERE (way.name='" + street + "')\n"
-            + "AND way.type!='unclassified' AND way.type!=''"
-            + ";"
-    );
-
-    List<GraticuleEdge> crossStreetEdges = MapDBResultSetHandler.queryDBWays(
-        "SELECT way.id AS wayID, way.name, way.type, way.start, way.end,\n"
-            + "N1.latitude as lat1, N1.longitude as lon1,\n"
-            + "N2.latitude as lat2, N2.longitude as lon2\n"
-            + "FROM way\n"
-            + "INNER JOIN node as N1\n"
-            + "INNER JOIN node as N2\n"
-            + "ON (way.start=N1.id) AND (way.end=N2.id)" + "\n"
-            + "WHERE (way.name='" + crossStreet + "')\n"
-            + "AND way.type!='unclassified' AND way.type!=''"
-            + ";"
-    );
+    // the road graph holds exactly the traversable ways, which are the ones named here;
+    // they are visited in the order the database gave them, so that the same intersection
+    // is picked first as when they were queried by name
+    int streetCode = dictionary.codeOf(street);
+    int crossStreetCode = dictionary.codeOf(crossStreet);
+    List<GraticuleEdge> streetEdges = new ArrayList<>();
+    List<GraticuleEdge> crossStreetEdges = new ArrayList<>();
+    if (streetCode >= 0 && crossStreetCode >= 0) {
+      for (int position = 0; position < graph.edgeCount(); position++) {
+        GraticuleEdge way = graph.getEdge(graph.edgeAtLoadPosition(position));
+        if (way.getNameCode() == streetCode) {
+          streetEdges.add(way);
+        } else if (way.getNameCode() == crossStreetCode) {
+          crossStreetEdges.add(way);
+        }
+      }
+    }
 
     if (streetEdges.size() == 0 || crossStreetEdges.size() == 0) {
       throw new IllegalPathStateException();
@@ -162,13 +385,13 @@ public final class RouteCommandsHandler {
     // if multiple streets intersect, the first two where the start nodes equated were chosen
     for (GraticuleEdge w1 : streetEdges) {
       for (GraticuleEdge w2 : crossStreetEdges) {
-        if (w1.getStartNode().getId().equals(w2.getStartNode().getId())) {
+        if (w1.getStartNode() == w2.getStartNode()) {
           return w1.getStartNode();
-        } else if (w1.getEndNode().getId().equals(w2.getEndNode().getId())) {
+        } else if (w1.getEndNode() == w2.getEndNode()) {
           return w1.getEndNode();
-        } else if (w1.getStartNode().getId().equals(w2.getEndNode().getId())) {
+        } else if (w1.getStartNode() == w2.getEndNode()) {
           return w1.getStartNode();
-        } else if (w1.getEndNode().getId().equals(w2.getStartNode().getId())) {
+        } else if (w1.getEndNode() == w2.getStartNode()) {
           return w1.getEndNode();
         }
       }
@@ -180,8 +403,11 @@ public final class RouteCommandsHandler {
    * @param lat is a Double that is the given latitude
    * @param lon is a Double that is the given longitude
    * @return a GraticuleNode that is the nearest to the provided location
+   * @throws IllegalArgumentException if nodes are stored in fixed point and lat or lon
+   *                                  does not fit.
    */
-  public static GraticuleNode getTargetPathNode(double lat, double lon) {
+  public static GraticuleNode getTargetPathNode(double lat, double lon)
+      throws IllegalArgumentException {
     return NearestCommandHandler.getNearestNode(lat, lon);
   }
 
@@ -191,21 +417,19 @@ public final class RouteCommandsHandler {
    * @param crossStreet1 is a String that is the name of a street in the database
    * @param street2 is a String that is the name of a street in the database
    * @param crossStreet2 is a String that is the name of a street in the database
+   * @param request is the RouteRequest of the flags of the route command
    * @return a String that represents the path, connecting nodes and ways
    * @throws SQLException if SQL fails to execute command
    */
-  static String getPath(String street1, String crossStreet1,
-                        String street2, String crossStreet2) throws SQLException {
+  private static String getPath(String street1, String crossStreet1, String street2,
+                                String crossStreet2, RouteRequest request)
+      throws SQLException {
     try {
       GraticuleNode start = getTargetPathNode(street1, crossStreet1);
       GraticuleNode end = getTargetPathNode(street2, crossStreet2);
 
-      DijkstraAStar<String, String, GraticuleNode> aStar
-          = new DijkstraAStar<>(
-          NodeDistanceCalculators::getHaversineDistance,
-          MapCommandHandler.getdBProxiedReader()::get,
-          HeuristicFuncs::aStarDist);
-      return parseFunc.apply(aStar.runDijkstraAStar(start, end), start, end);
+      return withSearchDetails(parseFunc.apply(findRoute(start, end, request), start, end),
+          request);
 
     } catch (IllegalPathStateException e) {
       return ErrorMessages.PATHS_NON_INTERSECTION;
@@ -221,23 +445,236 @@ public final class RouteCommandsHandler {
    * @param lon1 is a double that represents a longitude
    * @param lat2 is a double that represents a latitude
    * @param lon2 is a double that represents a longitude
+   * @param request is the RouteRequest of the flags of the route command
    * @return a String that represents the path
    */
-  static String getPath(double lat1, double lon1, double lat2, double lon2) {
+  private static String getPath(double lat1, double lon1, double lat2, double lon2,
+                                RouteRequest request) {
     try {
       GraticuleNode start = getTargetPathNode(lat1, lon1);
       GraticuleNode end = getTargetPathNode(lat2, lon2);
 
-      DijkstraAStar<String, String, GraticuleNode> aStar
-          = new DijkstraAStar<>(
-              NodeDistanceCalculators::getHaversineDistance,
-              MapCommandHandler.getdBProxiedReader()::get,
-              HeuristicFuncs::aStarDist);
-      return parseFunc.apply(aStar.runDijkstraAStar(start, end), start, end);
+      return withSearchDetails(parseFunc.apply(findRoute(start, end, request), start, end),
+          request);
 
     } catch (NullPointerException e) {
       return ErrorMessages.NO_DATABASE_LOADED;
+    } catch (IllegalArgumentException e) {
+      return ErrorMessages.FIXED_POINT_OUT_OF_RANGE;
+    }
+  }
+
+  /** Finds the route between two nodes for the REPL route command, using the search
+   * selected by the command's flags.
+   * @param start is the GraticuleNode the route starts at
+   * @param end is the GraticuleNode the route ends at
+   * @param request is the RouteRequest of the flags of the route command, which is given
+   *                the result of the search
+   * @return a list of GraphEdges that represent the shortest path
+   * @throws NullPointerException if no database has been loaded.
+   */
+  private static List<GraphEdge<String, String, GraticuleNode>> findRoute(
+      GraticuleNode start, GraticuleNode end, RouteRequest request)
+      throws NullPointerException {
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    ChainContractedGraph contracted = MapCommandHandler.getContractedGraph();
+    int source = graph.indexOf(start);
+    int target = graph.indexOf(end);
+    if (request.flags.containsKey("--contracted") && source != -1 && target != -1) {
+      SearchStats stats = SearchStats.begin();
+      List<Integer> edges;
+      try {
+        edges = contracted.shortestPath(source, target, stats);
+      } finally {
+        stats.finish();
+      }
+      List<GraphEdge<String, String, GraticuleNode>> ways = new ArrayList<>();
+      double cost = source == target || !edges.isEmpty() ? 0 : Double.POSITIVE_INFINITY;
+      for (int edge : edges) {
+        ways.add(graph.getEdge(edge));
+        cost += graph.edgeLength(edge);
+      }
+      request.result = new RouteResult<>(RouteStatus.COMPLETED, ways, ways, cost, 1, stats);
+      return ways;
+    }
+    if (request.flags.containsKey("--threads")) {
+      request.result = newParallelAStar(request.profile, request.threads)
+          .runHashDistributedAStar(start, end, new RouteQueryOptions(Long.MAX_VALUE,
+              Integer.MAX_VALUE, Integer.MAX_VALUE, new CancellationToken(), request.weight));
+      return new ArrayList<>(request.result.getPath());
+    }
+    request.result = newAStar(request.profile, request.weight).runDijkstraAStar(start, end,
+        new RouteQueryOptions(Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+            new CancellationToken(), request.weight));
+    return new ArrayList<>(request.result.getPath());
+  }
+
+  /** Appends details of the A* search of a route command to its route: its counters if
+   * the "--stats" flag is set, and its cost and suboptimality bound if the "--weight" flag
+   * is set.
+   * @param route is the parsed output of the route command
+   * @param request is the RouteRequest of the route command
+   * @return the route, followed by the requested details
+   */
+  private static String withSearchDetails(String route, RouteRequest request) {
+    RouteResult<String, String, GraticuleNode> result = request.result;
+    if (result == null) {
+      return route;
+    }
+    StringBuilder details = new StringBuilder(route);
+    if (request.flags.containsKey("--weight")) {
+      details.append(String.format("%ncost: %.6f, within %.4fx of the shortest route",
+          result.getCost(), result.getSuboptimalityBound()));
+    }
+    if (request.flags.containsKey("--stats")) {
+      details.append(System.lineSeparator()).append(result.getStats());
+    }
+    return details.toString();
+  }
+
+  /** sets the DistanceKernel the A* heuristic of the route commands measures straight
+   * line distances with. A cheaper kernel is scaled down by its error bound, so routes stay
+   * shortest but the search may settle a few more nodes.
+   * @param kernel is a DistanceKernel.
+   */
+  public static void setHeuristicKernel(DistanceKernel kernel) {
+    heuristicKernel = kernel;
+  }
+
+  /** sets whether the A* searches of the route commands keep their ways in a radix heap
+   * over whole centimetres instead of a binary heap. Weighted searches always use a
+   * binary heap, since they are not monotone.
+   * @param radix is true to use a RadixHeapQueue.
+   */
+  public static void setRadixRouteQueue(boolean radix) {
+    radixRouteQueue = radix;
+  }
+
+  /** sets how many frontier nodes the A* searches of the route commands fetch the ways of
+   * with one query when the node they expand is not cached. Nodes are settled in the same
+   * order whatever the size.
+   * @param batchSize is the most nodes fetched at once; 1 fetches one node at a time.
+   */
+  public static void setExpansionBatchSize(int batchSize) {
+    expansionBatchSize = Math.max(batchSize, 1);
+  }
+
+  /** sets how many frontier nodes the A* searches of the route commands fetch the ways of
+   * in the background while they relax the ways of the node they settled.
+   * @param depth is the most fetches pending at once; 0 turns read-ahead off.
+   */
+  public static void setReadAheadDepth(int depth) {
+    readAheadDepth = Math.max(depth, 0);
+  }
+
+  /** Creates the A* search used by the route commands. Queries between nodes that the
+   * strongly connected components of the loaded map show to be disconnected return an
+   * empty route without searching, and if arc flags were computed for the map and the
+   * profile, ways on no shortest path toward the region of the end node are skipped.
+   * With the radix route queue chosen, searches that are not weighted keep their ways in
+   * a RadixHeapQueue, with the way weights rounded up and the heuristic rounded down to
+   * whole centimetres so that the search stays monotone. With an expansion batch size
+   * above 1, the ways out of uncached frontier nodes are fetched in batches, and with a
+   * read-ahead depth above 0 they are fetched on a background thread ahead of the search.
+   * @param profile is the WeightProfile whose precomputed edge weights are the costs
+   * @param heuristicWeight is the heuristic weight the search will be run with
+   * @return a DijkstraAStar using the profile's weights and the A* heuristic, measured
+   * with the chosen DistanceKernel and scaled to stay admissible under them
+   * @throws NullPointerException if no database has been loaded.
+   */
+  private static DijkstraAStar<String, String, GraticuleNode> newAStar(WeightProfile profile,
+                                                                       double heuristicWeight)
+      throws NullPointerException {
+    StronglyConnectedComponents components = MapCommandHandler.getComponents();
+    double scale = profile.getHeuristicScale();
+    DistanceKernel kernel = heuristicKernel;
+    Function<GraphEdge<String, String, GraticuleNode>, Double> weights = profileWeights(profile);
+    ProxiedEdgeFetcher<String, String, GraticuleNode> reader =
+        MapCommandHandler.getdBProxiedReader();
+    DijkstraAStar<String, String, GraticuleNode> aStar;
+    if (!radixRouteQueue || heuristicWeight != 1) {
+      aStar = new DijkstraAStar<>(
+          kernel::distance,
+          reader::get,
+          (start, end, way, distanceFunc) ->
+              scale * HeuristicFuncs.aStarKernelDist(start, end, way, kernel),
+          components::canReach,
+          arcFlagPruning(profile),
+          weights);
+    } else {
+      final double quanta = RadixHeapQueue.CENTIMETRES_PER_KILOMETRE;
+      aStar = new DijkstraAStar<>(
+          kernel::distance,
+          reader::get,
+          (start, end, way, distanceFunc) -> RadixHeapQueue.floorToQuantum(
+              scale * HeuristicFuncs.aStarKernelDist(start, end, way, kernel), quanta),
+          components::canReach,
+          arcFlagPruning(profile),
+          way -> RadixHeapQueue.ceilToQuantum(weights.apply(way), quanta),
+          new RadixHeapQueue<>(quanta));
+    }
+    aStar.setBatchedExpansion(reader::isCached, reader::fetchAll, expansionBatchSize);
+    if (readAheadDepth > 0) {
+      aStar.setReadAhead(reader::isCached,
+          new EdgeReadAhead<>(reader::preload, READ_AHEAD_EXECUTOR, readAheadDepth));
     }
+    return aStar;
+  }
+
+  /** Creates the parallel search used by the route command with the "--threads" flag,
+   * which prunes and weighs ways the same way as the A* search of newAStar.
+   * @param profile is the WeightProfile whose precomputed edge weights are the costs
+   * @param threads is the number of worker threads
+   * @return a HashDistributedAStar using the profile's weights and the A* heuristic
+   * @throws NullPointerException if no database has been loaded.
+   */
+  private static HashDistributedAStar<String, String, GraticuleNode> newParallelAStar(
+      WeightProfile profile, int threads) throws NullPointerException {
+    StronglyConnectedComponents components = MapCommandHandler.getComponents();
+    double scale = profile.getHeuristicScale();
+    DistanceKernel kernel = heuristicKernel;
+    return new HashDistributedAStar<>(
+        kernel::distance,
+        MapCommandHandler.getdBProxiedReader()::get,
+        (start, end, way, distanceFunc) ->
+            scale * HeuristicFuncs.aStarKernelDist(start, end, way, kernel),
+        components::canReach,
+        arcFlagPruning(profile),
+        profileWeights(profile),
+        threads);
+  }
+
+  /** Get the function that skips ways by the arc flags of the loaded map, if they were
+   * computed for the weights of the profile.
+   * @param profile is the WeightProfile being routed by
+   * @return a function that returns false only if a way is on no shortest path toward
+   * the region of the end node
+   * @throws NullPointerException if no database has been loaded.
+   */
+  private static BiPredicate<GraphEdge<String, String, GraticuleNode>, GraticuleNode>
+      arcFlagPruning(WeightProfile profile) throws NullPointerException {
+    ArcFlags arcFlags = MapCommandHandler.getArcFlags();
+    double[] weights = MapCommandHandler.getProfileWeights(profile);
+    return arcFlags == null || !arcFlags.isFor(weights) ? (way, end) -> true
+        : arcFlags::mayLeadTo;
+  }
+
+  /** Get the function that weighs ways by the precomputed weights of a profile, falling
+   * back to computing the weight of ways missing from the road graph.
+   * @param profile is the WeightProfile being routed by
+   * @return a function from a way to its weight under the profile
+   * @throws NullPointerException if no database has been loaded.
+   */
+  private static Function<GraphEdge<String, String, GraticuleNode>, Double> profileWeights(
+      WeightProfile profile) throws NullPointerException {
+    // the weights are read from the same graph as the edge indices, even during a reload
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    double[] weights = graph.getProfileWeights(profile);
+    return way -> {
+      int edge = graph.edgeIndexOf(way.getId());
+      return edge == -1 ? profile.factor(((GraticuleEdge) way).getType())
+          * ((GraticuleEdge) way).getLength() : weights[edge];
+    };
   }
 
   /** Parse ways, with startNode and endNode, to REPL.
@@ -282,11 +719,7 @@ public final class RouteCommandsHandler {
       GraticuleNode start = getTargetPathNode(street1, crossStreet1);
       GraticuleNode end = getTargetPathNode(street2, crossStreet2);
 
-      DijkstraAStar<String, String, GraticuleNode> lazyDijk
-          = new DijkstraAStar<>(
-          NodeDistanceCalculators::getHaversineDistance,
-          MapCommandHandler.getdBProxiedReader()::get,
-          HeuristicFuncs::aStarDist);
+      DijkstraAStar<String, String, GraticuleNode> lazyDijk = newAStar(WeightProfile.SHORTEST, 1);
       return parseToGui(lazyDijk.runDijkstraAStar(start, end), start, end);
     } catch (IllegalPathStateException e) {
       return ImmutableMap.of(
@@ -328,16 +761,111 @@ public final class RouteCommandsHandler {
    */
   public static Map<String, Object> getPathLatLonGui(double lat1, double lon1,
                                                double lat2, double lon2) throws SQLException {
+    return getPathLatLonGui(lat1, lon1, lat2, lon2, new RouteQueryOptions());
+  }
+
+  /**
+   * Returns the path from (lat1, lon1) to (lat2, lon2) found within the limits of the
+   * given options, or an informative error message if this could not be done, in a
+   * format compatible with the front-end. A search cut short by its limits returns an
+   * error along with the best partial route it found.
+   *
+   * @param lat1 - a double that represents a latitude
+   * @param lon1 - a double that represents a longitude
+   * @param lat2 - a double that represents a latitude
+   * @param lon2 - a double that represents a longitude
+   * @param options - the deadline, budgets and cancellation token of the search
+   *
+   * @return a map in the format compatible with the front-end representing
+   * either the path between the given positions or an informative error
+   * message if this could not be done
+   * @throws SQLException if database is not set/ cannot be queried
+   */
+  public static Map<String, Object> getPathLatLonGui(double lat1, double lon1,
+                                                     double lat2, double lon2,
+                                                     RouteQueryOptions options)
+      throws SQLException {
+    return getPathLatLonGui(lat1, lon1, lat2, lon2, options, WeightProfile.SHORTEST);
+  }
+
+  /**
+   * Returns the cheapest path from (lat1, lon1) to (lat2, lon2) under a weight profile,
+   * found within the limits of the given options, or an informative error message if
+   * this could not be done, in a format compatible with the front-end.
+   *
+   * @param lat1 - a double that represents a latitude
+   * @param lon1 - a double that represents a longitude
+   * @param lat2 - a double that represents a latitude
+   * @param lon2 - a double that represents a longitude
+   * @param options - the deadline, budgets and cancellation token of the search
+   * @param profile - the WeightProfile whose costs the path minimizes
+   *
+   * @return a map in the format compatible with the front-end representing
+   * either the path between the given positions or an informative error
+   * message if this could not be done
+   * @throws SQLException if database is not set/ cannot be queried
+   */
+  public static Map<String, Object> getPathLatLonGui(double lat1, double lon1,
+                                                     double lat2, double lon2,
+                                                     RouteQueryOptions options,
+                                                     WeightProfile profile)
+      throws SQLException {
     try {
       GraticuleNode start = getTargetPathNode(lat1, lon1);
       GraticuleNode end = getTargetPathNode(lat2, lon2);
 
-      DijkstraAStar<String, String, GraticuleNode> lazyDijk
-          = new DijkstraAStar<>(
-          NodeDistanceCalculators::getHaversineDistance,
-          MapCommandHandler.getdBProxiedReader()::get,
-          HeuristicFuncs::aStarDist);
-      return parseToGui(lazyDijk.runDijkstraAStar(start, end), start, end);
+      DijkstraAStar<String, String, GraticuleNode> lazyDijk =
+          newAStar(profile, options.getHeuristicWeight());
+      return parseResultToGui(lazyDijk.runDijkstraAStar(start, end, options), start, end);
+    } catch (NullPointerException e) {
+      return ImmutableMap.of(
+        "map", "",
+        "route", "",
+        "ways", "",
+        "nearest", "",
+        "error", "ERROR: No DB loaded");
+    } catch (IllegalArgumentException e) {
+      return ImmutableMap.of(
+        "map", "",
+        "route", "",
+        "ways", "",
+        "nearest", "",
+        "error", ErrorMessages.FIXED_POINT_OUT_OF_RANGE);
+    }
+  }
+
+  /**
+   * Starts a progressive route from (lat1, lon1) to (lat2, lon2). A coarse route over the
+   * major ways of the map is returned at once, in a format compatible with the front-end,
+   * under the "phase" "coarse", while the exact route is searched in the background as a
+   * route job whose id is given under "job". The coarse route runs between the major way
+   * nodes nearest to each end, and is empty if the map has no major ways.
+   *
+   * @param lat1 - a double that represents a latitude
+   * @param lon1 - a double that represents a longitude
+   * @param lat2 - a double that represents a latitude
+   * @param lon2 - a double that represents a longitude
+   * @param options - the deadline, budgets and cancellation token of the exact search
+   *
+   * @return a map in the format compatible with the front-end representing
+   * either the coarse route and the id of the job searching for the exact one,
+   * or an informative error message if this could not be done
+   * @throws SQLException if database is not set/ cannot be queried
+   */
+  public static Map<String, Object> startProgressiveRoute(double lat1, double lon1,
+                                                          double lat2, double lon2,
+                                                          RouteQueryOptions options)
+      throws SQLException {
+    try {
+      GraticuleNode start = getTargetPathNode(lat1, lon1);
+      GraticuleNode end = getTargetPathNode(lat2, lon2);
+
+      Map<String, Object> coarse = parseToGui(findCoarseRoute(start, end), start, end);
+      String jobId = UUID.randomUUID().toString();
+      ROUTE_JOBS.put(jobId, new RouteJob(ROUTE_JOB_EXECUTOR.submit(
+          () -> getPathLatLonGui(lat1, lon1, lat2, lon2, options)),
+          options.getCancellationToken()));
+      return withEntry(withEntry(coarse, "phase", "coarse"), "job", jobId);
     } catch (NullPointerException e) {
       return ImmutableMap.of(
         "map", "",
@@ -345,7 +873,101 @@ public final class RouteCommandsHandler {
         "ways", "",
         "nearest", "",
         "error", "ERROR: No DB loaded");
+    } catch (IllegalArgumentException e) {
+      return ImmutableMap.of(
+        "map", "",
+        "route", "",
+        "ways", "",
+        "nearest", "",
+        "error", ErrorMessages.FIXED_POINT_OUT_OF_RANGE);
+    }
+  }
+
+  /**
+   * Returns the state of a route job started by startProgressiveRoute: the exact route
+   * under the "phase" "exact" once it has been found, after which the job is forgotten,
+   * or the "phase" "pending" while it is still being searched. A job whose search threw
+   * reports a SQL error if the database failed, and otherwise the message of what failed.
+   *
+   * @param jobId - the id of the route job
+   * @return a map in the format compatible with the front-end representing the state of
+   * the job, or an informative error message if there is no such job
+   * @throws InterruptedException if the thread is interrupted while reading the result
+   */
+  public static Map<String, Object> pollRouteJob(String jobId) throws InterruptedException {
+    RouteJob job = ROUTE_JOBS.getIfPresent(jobId);
+    if (job == null) {
+      return ImmutableMap.of(
+        "map", "",
+        "route", "",
+        "ways", "",
+        "nearest", "",
+        "error", ErrorMessages.ROUTE_UNKNOWN_JOB);
+    } else if (!job.result.isDone()) {
+      Map<String, Object> pending = ImmutableMap.of(
+        "map", "",
+        "route", "",
+        "ways", "",
+        "nearest", "",
+        "error", "");
+      return withEntry(withEntry(pending, "phase", "pending"), "job", jobId);
+    }
+    ROUTE_JOBS.invalidate(jobId);
+    try {
+      return withEntry(withEntry(job.result.get(), "phase", "exact"), "job", jobId);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      String error = cause instanceof SQLException ? ErrorMessages.INVALID_SQL_QUERY
+          : ErrorMessages.ROUTE_FAILED + ": " + cause;
+      return ImmutableMap.of(
+        "map", "",
+        "route", "",
+        "ways", "",
+        "nearest", "",
+        "error", error);
+    }
+  }
+
+  /**
+   * Cancels a route job started by startProgressiveRoute and forgets it.
+   *
+   * @param jobId - the id of the route job
+   * @return true if there was such a job.
+   */
+  public static boolean cancelRouteJob(String jobId) {
+    RouteJob job = ROUTE_JOBS.getIfPresent(jobId);
+    if (job == null) {
+      return false;
+    }
+    job.token.cancel();
+    ROUTE_JOBS.invalidate(jobId);
+    return true;
+  }
+
+  /** Finds a route between the nodes of the coarse graph nearest to two nodes.
+   * @param start is the GraticuleNode the route starts near
+   * @param end is the GraticuleNode the route ends near
+   * @return a list of GraphEdges of major ways, which is empty if there is no route
+   * @throws NullPointerException if no database has been loaded.
+   */
+  static List<GraphEdge<String, String, GraticuleNode>> findCoarseRoute(GraticuleNode start,
+                                                                       GraticuleNode end)
+      throws NullPointerException {
+    RoadGraph coarse = MapCommandHandler.getCoarseGraph();
+    List<GraphEdge<String, String, GraticuleNode>> ways = new ArrayList<>();
+    if (coarse.size() == 0) {
+      return ways;
+    }
+    KdTree<String, GraticuleNode> coarseTree = MapCommandHandler.getCoarseKdTree();
+    int source = coarse.indexOf(
+        coarseTree.getNearestNeighborsResult(1, start, false).get(0).getId());
+    int target = coarse.indexOf(
+        coarseTree.getNearestNeighborsResult(1, end, false).get(0).getId());
+    InMemoryDijkstra dijkstra = new InMemoryDijkstra(coarse, coarse.getEdgeLengths());
+    for (int edge : dijkstra.shortestPath(source, target)) {
+      ways.add(coarse.getEdge(edge));
     }
+    return ways;
   }
 
   /**
@@ -363,6 +985,49 @@ public final class RouteCommandsHandler {
    * @throws SQLException if database is not set/ cannot be queried
    */
 
+  /**
+   * Returns the outcome of a route search in a format compatible with the front-end.
+   * A search that did not complete gives its partial route and an error saying why.
+   *
+   * @param result - the RouteResult of the search
+   * @param startNode - the starting GraphNode of the route
+   * @param endNode - the ending GraphNode of the route
+   * @return a map in a format compatible with the front-end representing
+   * the route found between the given start and end nodes.
+   */
+  public static Map<String, Object> parseResultToGui(
+      RouteResult<String, String, GraticuleNode> result,
+      GraphNode<String> startNode, GraphNode<String> endNode) {
+    switch (result.getStatus()) {
+      case TIMED_OUT:
+        return withEntry(parseToGui(result.getPartialPath(), startNode, endNode), "error",
+            ErrorMessages.ROUTE_TIMED_OUT);
+      case BUDGET_EXHAUSTED:
+        return withEntry(parseToGui(result.getPartialPath(), startNode, endNode), "error",
+            ErrorMessages.ROUTE_BUDGET_EXHAUSTED);
+      case CANCELLED:
+        return withEntry(parseToGui(result.getPartialPath(), startNode, endNode), "error",
+            ErrorMessages.ROUTE_CANCELLED);
+      default:
+        return parseToGui(result.getPath(), startNode, endNode);
+    }
+  }
+
+  /**
+   * Returns a copy of a front-end map with one entry added or replaced.
+   *
+   * @param guiMap - a map in a format compatible with the front-end
+   * @param key - the key of the entry to set
+   * @param value - the value of the entry to set
+   * @return a new map with the same entries except for the one set.
+   */
+  private static Map<String, Object> withEntry(Map<String, Object> guiMap, String key,
+                                               Object value) {
+    Map<String, Object> copy = new LinkedHashMap<>(guiMap);
+    copy.put(key, value);
+    return ImmutableMap.copyOf(copy);
+  }
+
   /**
    * Returns the path between the given start and end nodes through the given ways
    * in a format compatible with the front-end.
@@ -379,10 +1044,10 @@ public final class RouteCommandsHandler {
 
     if (ways.size() == 0) {
       edgesAndNodes.add(new String[]{
-          startNode.getId(), startNode.getCoordinates().get(0) + "",
-              startNode.getCoordinates().get(1) + "",
-          endNode.getId(), endNode.getCoordinates().get(0) + "",
-              endNode.getCoordinates().get(1) + ""
+          startNode.getId(), startNode.coord(0) + "",
+              startNode.coord(1) + "",
+          endNode.getId(), endNode.coord(0) + "",
+              endNode.coord(1) + ""
       });
     } else {
       for (GraphEdge<String, String, GraticuleNode> w : ways) {
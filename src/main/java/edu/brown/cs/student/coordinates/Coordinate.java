@@ -1,5 +1,6 @@
 package edu.brown.cs.student.coordinates;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /** Interface of a Coordinate with a specified type ID.
@@ -8,11 +9,43 @@ import java.util.List;
  */
 public interface Coordinate<T> {
 
+  /** Get the coordinate value at the dimension requested, without boxing it, which is
+   * what searches over many coordinates should read.
+   * @param dim the dimension number, from 0 to n - 1 where n is the number of dimensions.
+   * @return a double value, any real number.
+   */
+  double coord(int dim);
+
+  /** Get the number of dimensions of the Coordinate.
+   * @return a positive int.
+   */
+  int dimensions();
+
+  /** Check whether the Coordinate is stored in fixed point, so that fixedCoord gives its
+   * stored values exactly and coord gives them decoded.
+   * @return true if the values are stored as ints in units of 1e-7.
+   */
+  default boolean isFixedPoint() {
+    return false;
+  }
+
+  /** Get the coordinate value at the dimension requested in fixed point.
+   * @param dim the dimension number, from 0 to n - 1 where n is the number of dimensions.
+   * @return an int in units of 1e-7, rounded from coord if the Coordinate is not stored in
+   * fixed point.
+   * @throws IllegalArgumentException if the value does not fit an int in those units.
+   */
+  default int fixedCoord(int dim) throws IllegalArgumentException {
+    return FixedPoint.encode(coord(dim));
+  }
+
   /** Get the coordinate value at the dimension requested.
    * @param dim the dimension number, from 1 to n where n is a positive integer.
    * @return a Double value, any real number.
    */
-  Double getCoordinateVal(int dim);
+  default Double getCoordinateVal(int dim) {
+    return coord(dim);
+  }
 
   /** Get the ID.
    * @return id of type with which the Coordinate was created.
@@ -22,7 +55,13 @@ public interface Coordinate<T> {
   /** Get all coordinate values of the Coordinate.
    * @return a List of Double; i.e., a list of as many real numbers as there are dimensions.
    */
-  List<Double> getCoordinates();
+  default List<Double> getCoordinates() {
+    List<Double> coordinates = new ArrayList<>(dimensions());
+    for (int dim = 0; dim < dimensions(); dim++) {
+      coordinates.add(coord(dim));
+    }
+    return coordinates;
+  }
 
   /** Represent the Coordinate as a String.
    * @return a String representation of a Coordinate.
@@ -6,11 +6,10 @@ import edu.brown.cs.student.searchAlgorithms.ListNaiveSearch;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.PriorityQueue;
+import java.util.function.Predicate;
 
 /** Class to create a KdTree of specified type ID.
  @param <I> Any type for the ID of the Coordinates that is specified
@@ -22,6 +21,8 @@ public class KdTree<I, T extends Coordinate<I>> {
   private final int dimensions;
   private TreeNode<I, T> root;
   private final List<T> coordinates;
+  // whether every coordinate is stored in fixed point, so the tree is split on the ints
+  private final boolean fixedPoint;
 
   /** Set the KdTree to have the passed coordinates with the specified dimensions each.
    @param dimensions the dimension number, from 1 to n where n is a positive integer.
@@ -31,6 +32,8 @@ public class KdTree<I, T extends Coordinate<I>> {
     this.dimensions = dimensions;
     this.root = null;
     this.coordinates = new ArrayList<>(coordinates);
+    this.fixedPoint = !coordinates.isEmpty()
+        && coordinates.stream().allMatch(Coordinate::isFixedPoint);
   }
 
   /** Creates a new Node in KDTree.
@@ -54,12 +57,13 @@ public class KdTree<I, T extends Coordinate<I>> {
     int axis = depth % dimensions;
     int nextDepth = depth + 1;
 
-    if (coordinate.getCoordinateVal(axis).compareTo(
-        currentNode.getValue().getCoordinateVal(axis)) < 0) {
+    int comparison = fixedPoint
+        ? Integer.compare(coordinate.fixedCoord(axis), currentNode.getValue().fixedCoord(axis))
+        : Double.compare(coordinate.coord(axis), currentNode.getValue().coord(axis));
+    if (comparison < 0) {
       TreeNode<I, T> currentLeft = currentNode.getLeft();
       currentNode.setLeftChild(addNode(nextDepth, currentLeft, coordinate));
-    } else if (coordinate.getCoordinateVal(axis).compareTo(
-        currentNode.getValue().getCoordinateVal(axis)) >= 0) {
+    } else {
       TreeNode<I, T> currentRight = currentNode.getRight();
       currentNode.setRightChild(addNode(nextDepth, currentRight, coordinate));
     }
@@ -83,8 +87,9 @@ public class KdTree<I, T extends Coordinate<I>> {
       return currentNode;
     }
     int axis = depth % dimensions;
-    Comparator<T> byDimension
-        = Comparator.comparingDouble(T -> T.getCoordinateVal(axis));
+    Comparator<T> byDimension = fixedPoint
+        ? Comparator.comparingInt(T -> T.fixedCoord(axis))
+        : Comparator.comparingDouble(T -> T.coord(axis));
     coords.sort(byDimension);
     int median = coords.size() / 2;
     // elements to the left
@@ -123,22 +128,39 @@ public class KdTree<I, T extends Coordinate<I>> {
   public PriorityQueue<TreeNode<I, T>> updateQueue(
       List<Double> target, TreeNode<I, T> current,
       PriorityQueue<TreeNode<I, T>> nearestNeighborsSoFar, int numNeighbors) {
+    return updateQueue(unbox(target), current, nearestNeighborsSoFar, numNeighbors);
+  }
+
+  /** Updates the Priority Queue storing the nearest neighbors as Nodes
+   * depending on the distance between the target and current Node
+   * and the distance between the target and the farthest nearest neighbors.
+   @param target is an array of doubles that represents the coordinates of the target.
+   @param current is the current Node updateQueue is operating on.
+   @param nearestNeighborsSoFar is the Priority Queue storing the nearest neighbors.
+   @param numNeighbors is the number of neighbors searching for.
+   @return produces the new Priority Queue storing the nearest neighbors.
+   */
+  public PriorityQueue<TreeNode<I, T>> updateQueue(
+      double[] target, TreeNode<I, T> current,
+      PriorityQueue<TreeNode<I, T>> nearestNeighborsSoFar, int numNeighbors) {
     // if the queue of neighbors is not full, add the current Node
     if (nearestNeighborsSoFar.size() < numNeighbors) {
-      current.distanceTo(target);
       nearestNeighborsSoFar.offer(current);
       return nearestNeighborsSoFar;
+    }
+    if (nearestNeighborsSoFar.isEmpty()) {
+      return nearestNeighborsSoFar;
+    }
+    int comparison = Double.compare(current.distanceTo(target),
+        nearestNeighborsSoFar.peek().distanceTo(target));
+    if (comparison < 0) {
       // if the current node is closer to the target point
       // than the farthest k-nearest neighbor
-    } else if (!(nearestNeighborsSoFar.isEmpty()) && current.distanceTo(target).compareTo(
-        nearestNeighborsSoFar.peek().distanceTo(target)) < 0) {
       nearestNeighborsSoFar.poll();
       nearestNeighborsSoFar.offer(current);
-      return nearestNeighborsSoFar;
+    } else if (comparison == 0) {
       // if the current node is equidistant to the target
       // as the farther k-nearest neighbor
-    } else if (!(nearestNeighborsSoFar.isEmpty()) && current.distanceTo(target).compareTo(
-        nearestNeighborsSoFar.peek().distanceTo(target)) == 0) {
       nearestNeighborsSoFar.offer(current);
     }
     return nearestNeighborsSoFar;
@@ -164,40 +186,79 @@ public class KdTree<I, T extends Coordinate<I>> {
                                                               PriorityQueue<TreeNode<I, T>>
                                                                 nearestNeighborsSoFar,
                                                               int numNeighbors) {
+    return searchNearestNeighbors(depth, unbox(target), current, nearestNeighborsSoFar,
+        numNeighbors, coordinate -> true);
+  }
+
+  /** Finds the k-nearest neighbors to the target point among the coordinates that pass
+   * the given filter.
+   @param depth determines the relevant axis for comparison
+   @param target is a list of Doubles that represents the target point
+   @param current is the current Node searchNN is operating on
+   @param nearestNeighborsSoFar is the PriorityQueue of nearest neighbors
+   @param numNeighbors is the number of neighbors searching for.
+   @param filter is a Predicate that a coordinate must pass to be a neighbor.
+   @return returns an updated PriorityQueue with the nearest neighbors
+   */
+  public PriorityQueue<TreeNode<I, T>> searchNearestNeighbors(int depth, List<Double> target,
+                                                              TreeNode<I, T> current,
+                                                              PriorityQueue<TreeNode<I, T>>
+                                                                nearestNeighborsSoFar,
+                                                              int numNeighbors,
+                                                              Predicate<T> filter) {
+    return searchNearestNeighbors(depth, unbox(target), current, nearestNeighborsSoFar,
+        numNeighbors, filter);
+  }
+
+  /** Finds the k-nearest neighbors to the target point among the coordinates that pass
+   * the given filter, without boxing any coordinate or distance.
+   @param depth determines the relevant axis for comparison
+   @param target is an array of doubles that represents the target point
+   @param current is the current Node searchNN is operating on
+   @param nearestNeighborsSoFar is the PriorityQueue of nearest neighbors
+   @param numNeighbors is the number of neighbors searching for.
+   @param filter is a Predicate that a coordinate must pass to be a neighbor.
+   @return returns an updated PriorityQueue with the nearest neighbors
+   */
+  public PriorityQueue<TreeNode<I, T>> searchNearestNeighbors(int depth, double[] target,
+                                                              TreeNode<I, T> current,
+                                                              PriorityQueue<TreeNode<I, T>>
+                                                                nearestNeighborsSoFar,
+                                                              int numNeighbors,
+                                                              Predicate<T> filter) {
     // find the relevant axis, according to the depth
     int axis = depth % dimensions;
     int nextDepth = depth + 1;
     if (current == null) {
       return nearestNeighborsSoFar;
     }
-    nearestNeighborsSoFar = updateQueue(target, current, nearestNeighborsSoFar,
-        numNeighbors);
+    if (filter.test(current.getValue())) {
+      nearestNeighborsSoFar = updateQueue(target, current, nearestNeighborsSoFar,
+          numNeighbors);
+    }
 
     // the relevant axis distance between the current node and target point
-    Double axisDistanceFromTargetToCurrent =
-        target.get(axis) - (Math.abs(current.getValue().getCoordinateVal(axis)));
-    if (!(nearestNeighborsSoFar.isEmpty())
-        && nearestNeighborsSoFar.peek().distanceTo(target).compareTo(
+    double currentAxis = current.getValue().coord(axis);
+    double axisDistanceFromTargetToCurrent = Math.abs(target[axis] - currentAxis);
+    if (nearestNeighborsSoFar.size() < numNeighbors
+        || Double.compare(nearestNeighborsSoFar.peek().distanceTo(target),
         axisDistanceFromTargetToCurrent) >= 0) {
-      // recur on both children
+      // recur on both children, which is always needed until enough neighbors are found
       searchNearestNeighbors(nextDepth, target, current.getLeft(), nearestNeighborsSoFar,
-          numNeighbors);
+          numNeighbors, filter);
       searchNearestNeighbors(nextDepth, target, current.getRight(), nearestNeighborsSoFar,
-          numNeighbors);
+          numNeighbors, filter);
       // if the current node's coordinate on the relevant axis is
       // less than target's coordinate, recur on the right child
     } else if (!(nearestNeighborsSoFar.isEmpty())
-        && target.get(axis).compareTo(current.getValue()
-        .getCoordinateVal(axis)) >= 0) {
+        && Double.compare(target[axis], currentAxis) >= 0) {
       searchNearestNeighbors(nextDepth, target, current.getRight(), nearestNeighborsSoFar,
-          numNeighbors);
+          numNeighbors, filter);
       // if the current node's coordinate on the relevant axis is
       // greater than target's coordinate, recur on the left child
-    } else if (!(nearestNeighborsSoFar.isEmpty())
-        && target.get(axis).compareTo(current.getValue()
-        .getCoordinateVal(axis)) < 0) {
+    } else if (!(nearestNeighborsSoFar.isEmpty())) {
       searchNearestNeighbors(nextDepth, target, current.getLeft(), nearestNeighborsSoFar,
-          numNeighbors);
+          numNeighbors, filter);
     }
     return nearestNeighborsSoFar;
   }
@@ -213,6 +274,21 @@ public class KdTree<I, T extends Coordinate<I>> {
   public PriorityQueue<TreeNode<I, T>> searchRadius(int depth, List<Double> target,
                                                     TreeNode<I, T> current, Double r,
                                                     PriorityQueue<TreeNode<I, T>> nearest) {
+    return searchRadius(depth, unbox(target), current, r, nearest);
+  }
+
+  /** Finds all the stars within the radius r to the target, without boxing any coordinate
+   * or distance.
+   @param depth determines the relevant axis for comparison
+   @param target is an array of doubles that represents the target point
+   @param current is the current Node searchRadius is operating on
+   @param r is the radius to search within
+   @param nearest is the PriorityQueue storing all the stars within radius r to the target
+   @return returns an update PriorityQueue
+   */
+  public PriorityQueue<TreeNode<I, T>> searchRadius(int depth, double[] target,
+                                                    TreeNode<I, T> current, double r,
+                                                    PriorityQueue<TreeNode<I, T>> nearest) {
     // find the relevant axis, according to the depth
     int axis = depth % dimensions;
     int nextDepth = depth + 1;
@@ -220,22 +296,22 @@ public class KdTree<I, T extends Coordinate<I>> {
       return nearest;
     }
     // the relevant axis distance between the current node and target point
-    Double distanceFromTargetToCurrent =
-        target.get(axis) - (Math.abs(current.getValue().getCoordinateVal(axis)));
+    double currentAxis = current.getValue().coord(axis);
+    double distanceFromTargetToCurrent = Math.abs(target[axis] - currentAxis);
     // updates the Queue of stars if currentNode is within the radius to target
-    if (current.distanceTo(target).compareTo(r) <= 0) {
+    if (Double.compare(current.distanceTo(target), r) <= 0) {
       nearest.add(current);
     }
 
-    if (r.compareTo(distanceFromTargetToCurrent) >= 0) {
+    if (Double.compare(r, distanceFromTargetToCurrent) >= 0) {
       // recur on both children
       searchRadius(nextDepth, target, current.getLeft(), r, nearest);
       searchRadius(nextDepth, target, current.getRight(), r, nearest);
-    } else if (target.get(axis).compareTo(current.getValue().getCoordinateVal(axis)) >= 0) {
+    } else if (Double.compare(target[axis], currentAxis) >= 0) {
       // if the current node's coordinate on the relevant axis is
       // less than target's coordinate, recur on the right child
       searchRadius(nextDepth, target, current.getRight(), r, nearest);
-    } else if (target.get(axis).compareTo(current.getValue().getCoordinateVal(axis)) < 0) {
+    } else {
       // if the current node's coordinate on the relevant axis is
       // greater than target's coordinate, recur on the left child
       searchRadius(nextDepth, target, current.getLeft(), r, nearest);
@@ -254,6 +330,21 @@ public class KdTree<I, T extends Coordinate<I>> {
    */
   public List<T> getNearestNeighborsResult(int n,  Coordinate<I> targetPoint,
                                            boolean excludeTarget) {
+    return getNearestNeighborsResult(n, targetPoint, excludeTarget, coordinate -> true);
+  }
+
+  /** Produces a list of sorted nearest neighbors among the coordinates that pass the
+   * given filter, with randomly selected equidistant coordinates if necessary.
+   @param n is the number of neighbors to search for.
+   @param targetPoint is a Coordinate represents the target position.
+   @param excludeTarget determines whether to exclude the
+   given target point as one of the nearest neighbors output.
+   @param filter is a Predicate that a coordinate must pass to be a neighbor.
+   @return the final list of k-nearest neighbors, may include
+   equidistant stars that exceed the limit of k.
+   */
+  public List<T> getNearestNeighborsResult(int n,  Coordinate<I> targetPoint,
+                                           boolean excludeTarget, Predicate<T> filter) {
     int numNeighbors = n;
 
     if (excludeTarget) {
@@ -261,15 +352,16 @@ public class KdTree<I, T extends Coordinate<I>> {
       numNeighbors = n + 1;
     }
 
+    double[] target = unbox(targetPoint);
     Comparator<TreeNode<I, T>> sortByReversedDistance = Comparator
-        .comparing(node -> -1 * node.distanceTo(targetPoint.getCoordinates()));
+        .comparingDouble(node -> -1 * node.distanceTo(target));
     // reverse sorting so that the farthest nearest neighbor
     // is easily accessible at the front of the queue
     PriorityQueue<TreeNode<I, T>> nearestNeighborsSoFar
         = new PriorityQueue<>(sortByReversedDistance);
     nearestNeighborsSoFar
-        = searchNearestNeighbors(0, targetPoint.getCoordinates(),
-        root, nearestNeighborsSoFar, numNeighbors);
+        = searchNearestNeighbors(0, target,
+        root, nearestNeighborsSoFar, numNeighbors, filter);
     if (nearestNeighborsSoFar == null) {
       return null;
     }
@@ -288,12 +380,13 @@ public class KdTree<I, T extends Coordinate<I>> {
 
     // begin conversion process of PriorityQueue into ListNaiveSearch to handle randomness
     // of tied distance star IDs
-    Map<T, Double> keyDistance = new HashMap<>();
+    List<T> keys = new ArrayList<>(neighbors.size());
+    double[] distances = new double[neighbors.size()];
     for (TreeNode<I, T> neighbor : neighbors) {
-      keyDistance.put(neighbor.getValue(), neighbor
-          .distanceTo(targetPoint.getCoordinates()));
+      distances[keys.size()] = neighbor.distanceTo(target);
+      keys.add(neighbor.getValue());
     }
-    ListNaiveSearch<I, T> kNN = new ListNaiveSearch<>(keyDistance);
+    ListNaiveSearch<I, T> kNN = new ListNaiveSearch<>(keys, distances);
     return kNN.getNaiveNearestNeighbors(n);
   }
 
@@ -306,18 +399,19 @@ public class KdTree<I, T extends Coordinate<I>> {
    */
   public List<T> getRadiusSearchResult(Double r, Coordinate<I> targetPoint,
                                        boolean excludeTarget) {
+    double[] target = unbox(targetPoint);
     Comparator<TreeNode<I, T>> sortByDistance = Comparator
-        .comparing(node -> node.distanceTo(targetPoint.getCoordinates()));
+        .comparingDouble(node -> node.distanceTo(target));
     PriorityQueue<TreeNode<I, T>> nearestWithinRSoFar
         = new PriorityQueue<>(sortByDistance);
-    nearestWithinRSoFar = searchRadius(0, targetPoint.getCoordinates(),
+    nearestWithinRSoFar = searchRadius(0, target,
         root, r, nearestWithinRSoFar);
     if (nearestWithinRSoFar == null) {
       return null;
     }
     List<T> neighbors = new ArrayList<>();
-    while (!nearestWithinRSoFar.isEmpty() && (nearestWithinRSoFar.peek()
-        .distanceTo(targetPoint.getCoordinates()).compareTo(r) <= 0)) {
+    while (!nearestWithinRSoFar.isEmpty()
+        && Double.compare(nearestWithinRSoFar.peek().distanceTo(target), r) <= 0) {
       TreeNode<I, T> neighbor = nearestWithinRSoFar.remove();
       if (excludeTarget) {
         if (!(neighbor.getValue().getId().equals(targetPoint.getId()))) {
@@ -330,6 +424,30 @@ public class KdTree<I, T extends Coordinate<I>> {
     return neighbors;
   }
 
+  /** Copies a target point given as a list into an array, for the boxed search methods.
+   * @param target is a list of Doubles that represents the target point.
+   * @return an array of doubles with the same values.
+   */
+  private static double[] unbox(List<Double> target) {
+    double[] values = new double[target.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = target.get(i);
+    }
+    return values;
+  }
+
+  /** Copies the coordinates of a target point into an array, once per search.
+   * @param target is a Coordinate that represents the target point.
+   * @return an array of doubles with its coordinates.
+   */
+  private static double[] unbox(Coordinate<?> target) {
+    double[] values = new double[target.dimensions()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = target.coord(i);
+    }
+    return values;
+  }
+
   /** Represent the KdTree as a String.
    @return a String representation of a KdTree.
    */
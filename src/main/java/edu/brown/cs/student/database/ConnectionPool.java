@@ -0,0 +1,213 @@
+package edu.brown.cs.student.database;
+
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/** Class that is a small pool of read-only connections to one SQLite database, so that
+ * searches on several threads query it at once rather than one after the other. Each
+ * connection keeps its most recently used prepared statements by their SQL, so a query
+ * of the same shape binds its parameters to a statement SQLite has already parsed
+ * instead of being parsed again. Connections are opened as they are first needed.
+ *
+ * <p>A query borrows a connection, runs, reads its rows through a ResultSetReader,
+ * closes its ResultSet and gives the connection back. Closing the pool closes its idle
+ * connections, and the others once their queries finish.
+ */
+public final class ConnectionPool {
+  // enough for the fixed query shapes, and the padded sizes of the batched one
+  private static final int STATEMENTS_PER_CONNECTION = 32;
+  private static final float LOAD_FACTOR = 0.75f;
+  // how long a query waits for a connection before checking whether the pool was closed
+  private static final long WAIT_MILLIS = 100;
+
+  private final String url;
+  private final int size;
+  private final BlockingQueue<PooledConnection> idle;
+  private int opened;
+  private volatile boolean closed;
+
+  /** Constructor for ConnectionPool.
+   * @param url is the JDBC url of the SQLite database.
+   * @param size is the most connections open at once.
+   * @throws IllegalArgumentException if size is not positive.
+   */
+  public ConnectionPool(String url, int size) throws IllegalArgumentException {
+    if (size < 1) {
+      throw new IllegalArgumentException();
+    }
+    this.url = url;
+    this.size = size;
+    this.idle = new LinkedBlockingQueue<>(size);
+  }
+
+  /** Runs a query with ? parameters on a pooled connection and reads its rows.
+   * @param query is a String of the SQL Commands.
+   * @param parameters are the Strings bound to the parameters of the query, in order.
+   * @param reader is the ResultSetReader that reads the rows.
+   * @param <T> is the type of the value read.
+   * @return the value the reader read.
+   * @throws SQLException if something goes wrong with the query or the pool is closed.
+   */
+  public <T> T query(String query, List<String> parameters, ResultSetReader<T> reader)
+      throws SQLException {
+    PooledConnection connection = borrow();
+    try {
+      PreparedStatement prep = connection.prepare(query);
+      prep.clearParameters();
+      for (int i = 0; i < parameters.size(); i++) {
+        prep.setString(i + 1, parameters.get(i));
+      }
+      try (ResultSet rs = prep.executeQuery()) {
+        return reader.read(rs);
+      }
+    } finally {
+      giveBack(connection);
+    }
+  }
+
+  /** Closes the idle connections, and makes the borrowed ones close when they are given
+   * back. Queries after this fail.
+   */
+  public void close() {
+    closed = true;
+    PooledConnection connection;
+    while ((connection = idle.poll()) != null) {
+      connection.close();
+    }
+  }
+
+  /** Takes an idle connection, opening one if fewer than size are open, or otherwise
+   * waits for one to be given back.
+   * @return a PooledConnection that only the calling thread uses until it is given back.
+   * @throws SQLException if the pool is closed, the wait is interrupted or a connection
+   *                      cannot be opened.
+   */
+  private PooledConnection borrow() throws SQLException {
+    if (closed) {
+      throw new SQLException("connection pool is closed");
+    }
+    PooledConnection connection = idle.poll();
+    if (connection != null) {
+      return connection;
+    }
+    synchronized (this) {
+      if (opened < size) {
+        opened++;
+        try {
+          return new PooledConnection(open());
+        } catch (SQLException e) {
+          opened--;
+          throw e;
+        }
+      }
+    }
+    try {
+      while ((connection = idle.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+        if (closed) {
+          throw new SQLException("connection pool is closed");
+        }
+      }
+      return connection;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException(e);
+    }
+  }
+
+  /** Returns a borrowed connection to the pool, or closes it if the pool is closed.
+   * @param connection is the PooledConnection that was borrowed.
+   */
+  private void giveBack(PooledConnection connection) {
+    if (closed || !idle.offer(connection)) {
+      connection.close();
+    } else if (closed && idle.remove(connection)) {
+      // the pool closed between the check and the offer
+      connection.close();
+    }
+  }
+
+  /** Opens a read-only connection to the database.
+   * @return a new Connection.
+   * @throws SQLException if the connection cannot be opened.
+   */
+  private Connection open() throws SQLException {
+    SQLiteConfig config = new SQLiteConfig();
+    config.setReadOnly(true);
+    return DriverManager.getConnection(url, config.toProperties());
+  }
+
+  /** Class that is one connection of a pool with its cache of prepared statements.
+   */
+  private static final class PooledConnection {
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+
+    /** Constructor for PooledConnection.
+     * @param connection is the open Connection.
+     */
+    PooledConnection(Connection connection) {
+      this.connection = connection;
+      this.statements = new LinkedHashMap<>(STATEMENTS_PER_CONNECTION, LOAD_FACTOR, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+          if (size() <= STATEMENTS_PER_CONNECTION) {
+            return false;
+          }
+          closeQuietly(eldest.getValue());
+          return true;
+        }
+      };
+    }
+
+    /** Get the prepared statement of a query, preparing it the first time.
+     * @param query is a String of the SQL Commands.
+     * @return a PreparedStatement of the query on this connection.
+     * @throws SQLException if the query cannot be prepared.
+     */
+    PreparedStatement prepare(String query) throws SQLException {
+      PreparedStatement prep = statements.get(query);
+      if (prep == null) {
+        prep = connection.prepareStatement(query);
+        statements.put(query, prep);
+      }
+      return prep;
+    }
+
+    /** Closes the cached statements and the connection, ignoring failures since nothing
+     * more is read from them.
+     */
+    void close() {
+      for (PreparedStatement prep : statements.values()) {
+        closeQuietly(prep);
+      }
+      statements.clear();
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        // the connection is dropped either way
+      }
+    }
+
+    /** Closes a statement, ignoring failures.
+     * @param prep is the PreparedStatement to close.
+     */
+    private static void closeQuietly(PreparedStatement prep) {
+      try {
+        prep.close();
+      } catch (SQLException e) {
+        // the statement is dropped either way
+      }
+    }
+  }
+}
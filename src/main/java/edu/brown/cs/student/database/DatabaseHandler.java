@@ -12,14 +12,22 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 
-/** Class that establishes connections to valid DBs.
+/** Class that establishes connections to valid DBs. Besides the connection a database is
+ * loaded with, which one-off queries such as building the road graph use, every loaded
+ * database gets a ConnectionPool of read-only connections that the queries searches run
+ * again and again go through, with their parameters bound to cached statements.
  */
 public final class DatabaseHandler {
   private DatabaseHandler() {
   }
 
   private static List<String> validExtensionFormats = new ArrayList<>(List.of("sqlite3"));
+  private static final int DEFAULT_POOL_SIZE = 4;
+
+  private static String filename = null;
   private static Connection conn = null;
+  private static ConnectionPool pool = null;
+  private static int poolSize = DEFAULT_POOL_SIZE;
 
   /** Sets the current valid extension formats to inputted list.
    * @param validExtensionFormats is a list of extension formats (ex. "sqlite3")
@@ -42,13 +50,60 @@ public final class DatabaseHandler {
     DatabaseHandler.conn = conn;
   }
 
+  /** Gets the file name of the loaded database.
+   * @return the file name it was loaded with, or null if no database has been loaded.
+   */
+  public static String getFilename() {
+    return filename;
+  }
+
+  /** Sets the most read-only connections open at once to each database loaded from now on.
+   * @param poolSize is a positive int.
+   */
+  public static void setPoolSize(int poolSize) {
+    DatabaseHandler.poolSize = poolSize;
+  }
+
+  /** Gets the most read-only connections open at once to each database loaded.
+   * @return a positive int.
+   */
+  public static int getPoolSize() {
+    return poolSize;
+  }
+
+  /** Gets the pool of read-only connections to the loaded database.
+   * @return the ConnectionPool, or null if no database has been loaded.
+   */
+  public static ConnectionPool getPool() {
+    return pool;
+  }
+
+  /** Closes the connection and the pool of the loaded database, if there is one.
+   */
+  public static synchronized void close() {
+    if (pool != null) {
+      pool.close();
+      pool = null;
+    }
+    if (conn != null) {
+      try {
+        conn.close();
+      } catch (SQLException e) {
+        // the connection is dropped either way
+      }
+      conn = null;
+    }
+    filename = null;
+  }
+
   /** Instantiates the database, creating tables if necessary; automatically loads files.
    @param filename file name of SQLite3 database to open.
    @throws SQLException if an error occurs in any SQL query.
    @throws ClassNotFoundException if the file path is broken.
    @throws FileNotFoundException if the file with inputted file name does not exist.
    */
-  public static void loadDB(String filename) throws SQLException, ClassNotFoundException,
+  public static synchronized void loadDB(String filename) throws SQLException,
+      ClassNotFoundException,
       FileNotFoundException {
 
     /*
@@ -66,14 +121,20 @@ public final class DatabaseHandler {
     // present for everything else to work properly
     Class.forName("org.sqlite.JDBC");
     String urlToDB = "jdbc:sqlite:" + filename;
-    conn = DriverManager.getConnection(urlToDB);
+    Connection opened = DriverManager.getConnection(urlToDB);
     // these two lines tell the database to enforce foreign keys during operations,
     // and should be present
-    Statement stat = conn.createStatement();
-    stat.executeUpdate("PRAGMA foreign_keys=ON;");
+    try (Statement stat = opened.createStatement()) {
+      stat.executeUpdate("PRAGMA foreign_keys=ON;");
+    }
+    close();
+    conn = opened;
+    pool = new ConnectionPool(urlToDB, poolSize);
+    DatabaseHandler.filename = filename;
   }
 
-  /** Queries Database according to an inputted String of SQL commands.
+  /** Queries Database according to an inputted String of SQL commands, for one-off
+   * queries; closing the ResultSet closes its statement.
    * @param query is a String of the SQL Commands
    * @return ResultSet containing the queried objects
    * @throws SQLException if something goes wrong with a SQL query.
@@ -82,6 +143,43 @@ public final class DatabaseHandler {
   public static ResultSet queryLoadedDB(String query) throws SQLException, NullPointerException {
     PreparedStatement prep;
     prep = conn.prepareStatement(query);
+    prep.closeOnCompletion();
     return prep.executeQuery();
   }
+
+  /** Queries Database according to an inputted String of SQL commands with ? parameters,
+   * for one-off queries; closing the ResultSet closes its statement.
+   * @param query is a String of the SQL Commands
+   * @param parameters are the Strings bound to the parameters of the query, in order
+   * @return ResultSet containing the queried objects
+   * @throws SQLException if something goes wrong with a SQL query.
+   * @throws NullPointerException if database has not been loaded yet.
+   */
+  public static ResultSet queryLoadedDB(String query, List<String> parameters)
+      throws SQLException, NullPointerException {
+    PreparedStatement prep;
+    prep = conn.prepareStatement(query);
+    prep.closeOnCompletion();
+    for (int i = 0; i < parameters.size(); i++) {
+      prep.setString(i + 1, parameters.get(i));
+    }
+    return prep.executeQuery();
+  }
+
+  /** Queries Database through the pool of read-only connections, with the parameters
+   * bound to a statement prepared the first time the query runs on a connection, and
+   * reads its rows before its ResultSet is closed.
+   * @param query is a String of the SQL Commands with ? parameters
+   * @param parameters are the Strings bound to the parameters of the query, in order
+   * @param reader is the ResultSetReader that reads the rows
+   * @param <T> is the type of the value read
+   * @return the value the reader read
+   * @throws SQLException if something goes wrong with a SQL query.
+   * @throws NullPointerException if database has not been loaded yet.
+   */
+  public static <T> T queryPooled(String query, List<String> parameters,
+                                  ResultSetReader<T> reader)
+      throws SQLException, NullPointerException {
+    return pool.query(query, parameters, reader);
+  }
 }
@@ -0,0 +1,17 @@
+package edu.brown.cs.student.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/** Interface for reading the rows of a query into a value before its ResultSet is closed.
+ * @param <T> is the type of the value read.
+ */
+@FunctionalInterface
+public interface ResultSetReader<T> {
+  /** Reads the rows of a ResultSet, which is closed afterwards.
+   * @param rs is the ResultSet of the query, which may already be closed if it is empty.
+   * @return the value read from the rows.
+   * @throws SQLException if reading the rows fails.
+   */
+  T read(ResultSet rs) throws SQLException;
+}
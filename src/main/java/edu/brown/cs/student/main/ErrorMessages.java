@@ -49,6 +49,9 @@ public final class ErrorMessages {
   public static final String NON_NUMBER_LAT_AND_LON =
           "ERROR: Latitudes and longitudes must be numbers";
 
+  public static final String FIXED_POINT_OUT_OF_RANGE =
+          "ERROR: Fixed-point latitudes and longitudes must be within 214.7 degrees of 0";
+
   public static final String NEAREST_INVALID_NUMBER_ARGUMENTS =
           "ERROR: Invalid no.of arguments passed for nearest";
 
@@ -61,6 +64,9 @@ public final class ErrorMessages {
   public static final String ROUTE_INVALID_NUMBER_ARGUMENTS =
           "ERROR: Invalid no.of arguments passed for route / streets within incomplete quotes";
 
+  public static final String DISTANCE_INVALID_NUMBER_ARGUMENTS =
+          "ERROR: Invalid no.of arguments passed for distance / streets within incomplete quotes";
+
   public static final String INVALID_SQL_QUERY =
           "ERROR: SQL Invalid Query";
 
@@ -156,4 +162,37 @@ public final class ErrorMessages {
 
   public static final String CHECKIN_TABLE_NOT_CREATED =
           "ERROR: Checkins table could not be created";
+
+  public static final String ROUTE_INVALID_FLAG =
+          "ERROR: Invalid flag passed for route";
+
+  public static final String ROUTE_CONFLICTING_FLAGS =
+          "ERROR: --contracted cannot be combined with --weight, --profile or --threads";
+
+  public static final String ROUTE_INVALID_REQUEST =
+          "ERROR: Route requests take four coordinates and an optional weight of at least 1";
+
+  public static final String ROUTE_UNKNOWN_PROFILE =
+          "ERROR: No such route profile";
+
+  public static final String ROUTE_UNKNOWN_JOB =
+          "ERROR: No such route job";
+
+  public static final String ROUTE_TIMED_OUT =
+          "ERROR: Route search timed out";
+
+  public static final String ROUTE_BUDGET_EXHAUSTED =
+          "ERROR: Route search exceeded its budget";
+
+  public static final String ROUTE_FAILED =
+          "ERROR: Route search failed";
+
+  public static final String ROUTE_CANCELLED =
+          "ERROR: Route search cancelled";
+
+  public static final String INVALID_EDGE_CACHE_OPTIONS =
+          "ERROR: Edge cache limits must be positive and its prefetch radius non-negative";
+
+  public static final String UNKNOWN_HEURISTIC_KERNEL =
+          "ERROR: Unknown heuristic kernel; use haversine or equirectangular";
 }
@@ -7,21 +7,35 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiFunction;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import edu.brown.cs.student.commandHandlers.pathfinding.DistanceCommandHandler;
 import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
 import edu.brown.cs.student.commandHandlers.pathfinding.NearestCommandHandler;
 import edu.brown.cs.student.commandHandlers.pathfinding.RouteCommandsHandler;
+import edu.brown.cs.student.database.DatabaseHandler;
 import edu.brown.cs.student.maps.DatabaseFetchHandler;
 import edu.brown.cs.student.maps.Way;
+import edu.brown.cs.student.pathfinding.ArcFlags;
+import edu.brown.cs.student.pathfinding.CancellationToken;
+import edu.brown.cs.student.pathfinding.DistanceKernel;
+import edu.brown.cs.student.pathfinding.EdgeCacheOptions;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import edu.brown.cs.student.pathfinding.SearchStats;
+import edu.brown.cs.student.pathfinding.WeightProfile;
 import edu.brown.cs.student.repl.Repl;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
+import org.eclipse.jetty.io.EndPoint;
 import spark.ExceptionHandler;
 import spark.Request;
 import spark.Response;
@@ -38,6 +52,13 @@ import freemarker.template.Configuration;
 public final class Main {
 
   private static final int DEFAULT_PORT = 4567;
+  private static final long DEFAULT_ROUTE_TIMEOUT_MILLIS = 2000;
+  private static final long DEFAULT_EDGE_CACHE_EDGES = 100_000;
+  private static final long DEFAULT_EDGE_CACHE_EXPIRY_SECONDS = 300;
+  private static final long DEFAULT_WARM_CACHE_INTERVAL_SECONDS = 60;
+  private static final int DEFAULT_DB_CONNECTIONS = 4;
+  private static final long BYTES_PER_MEGABYTE = 1 << 20;
+  private static final long HEAP_SHARE = 4;
 
   /**
    * The initial method called when execution begins.
@@ -50,6 +71,9 @@ public final class Main {
   }
 
   private String[] args;
+  private long routeTimeoutMillis;
+  private int routeMaxSettled;
+  private int routeMaxVisited;
 
   private Main(String[] args) {
     this.args = args;
@@ -61,8 +85,79 @@ public final class Main {
     parser.accepts("gui");
     parser.accepts("port").withRequiredArg().ofType(Integer.class)
         .defaultsTo(DEFAULT_PORT);
+    parser.accepts("snap-largest-component");
+    parser.accepts("route-timeout").withRequiredArg().ofType(Long.class)
+        .defaultsTo(DEFAULT_ROUTE_TIMEOUT_MILLIS);
+    parser.accepts("route-max-settled").withRequiredArg().ofType(Integer.class)
+        .defaultsTo(Integer.MAX_VALUE);
+    parser.accepts("route-max-visited").withRequiredArg().ofType(Integer.class)
+        .defaultsTo(Integer.MAX_VALUE);
+    parser.accepts("arc-flag-levels").withRequiredArg().ofType(Integer.class)
+        .defaultsTo(0);
+    parser.accepts("hub-labels").withRequiredArg().ofType(String.class);
+    parser.accepts("radix-route-queue");
+    parser.accepts("expansion-batch").withRequiredArg().ofType(Integer.class)
+        .defaultsTo(1);
+    parser.accepts("read-ahead").withRequiredArg().ofType(Integer.class)
+        .defaultsTo(0);
+    parser.accepts("edge-cache-edges").withRequiredArg().ofType(Long.class)
+        .defaultsTo(DEFAULT_EDGE_CACHE_EDGES);
+    parser.accepts("edge-cache-expiry").withRequiredArg().ofType(Long.class)
+        .defaultsTo(DEFAULT_EDGE_CACHE_EXPIRY_SECONDS);
+    parser.accepts("edge-cache-no-stats");
+    parser.accepts("edge-cache-adaptive");
+    parser.accepts("edge-cache-heap-budget").withRequiredArg().ofType(Long.class)
+        .defaultsTo(Runtime.getRuntime().maxMemory() / BYTES_PER_MEGABYTE / HEAP_SHARE);
+    parser.accepts("edge-cache-prefetch-radius").withRequiredArg().ofType(Double.class)
+        .defaultsTo(0.0);
+    parser.accepts("db-connections").withRequiredArg().ofType(Integer.class)
+        .defaultsTo(DEFAULT_DB_CONNECTIONS);
+    parser.accepts("warm-cache").withRequiredArg().ofType(String.class);
+    parser.accepts("warm-cache-interval").withRequiredArg().ofType(Long.class)
+        .defaultsTo(DEFAULT_WARM_CACHE_INTERVAL_SECONDS);
+    parser.accepts("heuristic-kernel").withRequiredArg().ofType(String.class)
+        .defaultsTo(DistanceKernel.HAVERSINE.name());
+    parser.accepts("fixed-point-coordinates");
 
     OptionSet options = parser.parse(args);
+    DistanceKernel heuristicKernel =
+        DistanceKernel.forName((String) options.valueOf("heuristic-kernel"));
+    if (heuristicKernel == null) {
+      System.out.println(ErrorMessages.UNKNOWN_HEURISTIC_KERNEL);
+      return;
+    }
+    EdgeCacheOptions edgeCacheOptions;
+    try {
+      edgeCacheOptions = new EdgeCacheOptions(
+          (long) options.valueOf("edge-cache-edges"), (long) options.valueOf("edge-cache-expiry"),
+          !options.has("edge-cache-no-stats"), options.has("edge-cache-adaptive"),
+          (long) options.valueOf("edge-cache-heap-budget") * BYTES_PER_MEGABYTE,
+          (double) options.valueOf("edge-cache-prefetch-radius"));
+    } catch (IllegalArgumentException e) {
+      System.out.println(ErrorMessages.INVALID_EDGE_CACHE_OPTIONS);
+      return;
+    }
+
+    GraticuleNode.setFixedPoint(options.has("fixed-point-coordinates"));
+    NearestCommandHandler.setPreferLargestComponent(options.has("snap-largest-component"));
+    routeTimeoutMillis = (long) options.valueOf("route-timeout");
+    routeMaxSettled = (int) options.valueOf("route-max-settled");
+    routeMaxVisited = (int) options.valueOf("route-max-visited");
+    MapCommandHandler.setArcFlagLevels(Math.max(0,
+        Math.min((int) options.valueOf("arc-flag-levels"), ArcFlags.MAX_LEVELS)));
+    if (options.has("hub-labels")) {
+      MapCommandHandler.setHubLabelFile(Paths.get((String) options.valueOf("hub-labels")));
+    }
+    MapCommandHandler.setEdgeCacheOptions(edgeCacheOptions);
+    DatabaseHandler.setPoolSize(Math.max(1, (int) options.valueOf("db-connections")));
+    if (options.has("warm-cache")) {
+      MapCommandHandler.setWarmCacheFile(Paths.get((String) options.valueOf("warm-cache")),
+          (long) options.valueOf("warm-cache-interval"));
+    }
+    RouteCommandsHandler.setRadixRouteQueue(options.has("radix-route-queue"));
+    RouteCommandsHandler.setExpansionBatchSize((int) options.valueOf("expansion-batch"));
+    RouteCommandsHandler.setReadAheadDepth((int) options.valueOf("read-ahead"));
+    RouteCommandsHandler.setHeuristicKernel(heuristicKernel);
 
     if (options.has("gui")) {
       runSparkServer((int) options.valueOf("port"));
@@ -74,6 +169,7 @@ public final class Main {
         put("map", MapCommandHandler::mapCommand);
         put("nearest", NearestCommandHandler::nearestCommand);
         put("route", RouteCommandsHandler::routeCommand);
+        put("distance", DistanceCommandHandler::distanceCommand);
       }
     };
 
@@ -123,12 +219,88 @@ public final class Main {
     FreeMarkerEngine freeMarker = createEngine();
 
     // TODO: Setup Spark Routes
-    // Example Spark Route where /route is the subpage and MapsGuiHandler is a class
-    // containing the RouteHandler method
-//     Spark.post("/route", new MapsGuiHandler.RouteHandler());
-    Spark.post("/ways", ((request, response) -> {
+    // routes are searched within the limits given on the command line, and stop early
+    // once Jetty notices that the client has gone away
+    Spark.post("/route", ((request, response) -> {
       response.type("application/json");
       Gson gson = new Gson();
+      // an optional fifth number is the weight to inflate the A* heuristic by
+      double[] coords;
+      double weight;
+      try {
+        coords = gson.fromJson(request.body(), double[].class);
+        weight = RouteCommandsHandler.parseWeight(coords);
+      } catch (JsonSyntaxException | IllegalArgumentException e) {
+        return gson.toJson(Map.of("error", ErrorMessages.ROUTE_INVALID_REQUEST));
+      }
+      org.eclipse.jetty.server.Request baseRequest =
+          org.eclipse.jetty.server.Request.getBaseRequest(request.raw());
+      CancellationToken token = new CancellationToken();
+      if (baseRequest != null) {
+        EndPoint endPoint = baseRequest.getHttpChannel().getEndPoint();
+        token = new CancellationToken(() -> !endPoint.isOpen());
+      }
+      RouteQueryOptions routeOptions = new RouteQueryOptions(routeTimeoutMillis,
+          routeMaxSettled, routeMaxVisited, token, weight);
+      // an optional profile query parameter names the costs to route by
+      WeightProfile profile;
+      try {
+        profile = RouteCommandsHandler.parseProfile(request.queryParams("profile"));
+      } catch (IllegalArgumentException e) {
+        return gson.toJson(Map.of("error", ErrorMessages.ROUTE_UNKNOWN_PROFILE));
+      }
+      return gson.toJson(RouteCommandsHandler.getPathLatLonGui(
+          coords[0], coords[1], coords[2], coords[3], routeOptions, profile));
+    }));
+    // only the length of the shortest route, read from the hub labels if there are any
+    Spark.post("/distance", ((request, response) -> {
+      response.type("application/json");
+      Gson gson = new Gson();
+      double[] coords = gson.fromJson(request.body(), double[].class);
+      return gson.toJson(DistanceCommandHandler.getDistanceLatLonGui(
+          coords[0], coords[1], coords[2], coords[3]));
+    }));
+    // a coarse route at once, with the id of a job to poll for the exact route; the job
+    // outlives this request, so it is only stopped by its limits or by cancelling it
+    Spark.post("/route/progressive", ((request, response) -> {
+      response.type("application/json");
+      Gson gson = new Gson();
+      double[] coords;
+      double weight;
+      try {
+        coords = gson.fromJson(request.body(), double[].class);
+        weight = RouteCommandsHandler.parseWeight(coords);
+      } catch (JsonSyntaxException | IllegalArgumentException e) {
+        return gson.toJson(Map.of("error", ErrorMessages.ROUTE_INVALID_REQUEST));
+      }
+      RouteQueryOptions routeOptions = new RouteQueryOptions(routeTimeoutMillis,
+          routeMaxSettled, routeMaxVisited, new CancellationToken(), weight);
+      return gson.toJson(RouteCommandsHandler.startProgressiveRoute(
+          coords[0], coords[1], coords[2], coords[3], routeOptions));
+    }));
+    Spark.get("/route/job/:id", ((request, response) -> {
+      response.type("application/json");
+      return new Gson().toJson(RouteCommandsHandler.pollRouteJob(request.params(":id")));
+    }));
+    Spark.delete("/route/job/:id", ((request, response) -> {
+      response.type("application/json");
+      return new Gson().toJson(RouteCommandsHandler.cancelRouteJob(request.params(":id")));
+    }));
+    // histograms of the search counters of every route searched since startup
+    Spark.get("/debug/route-stats", ((request, response) -> {
+      response.type("application/json");
+      return new Gson().toJson(SearchStats.histogramSummaries());
+    }));
+    // the size, hit rate and evictions of the cache of ways out of nodes
+    Spark.get("/debug/edge-cache", ((request, response) -> {
+      response.type("application/json");
+      return new Gson().toJson(MapCommandHandler.getEdgeCacheStats());
+    }));
+    Spark.post("/ways", ((request, response) -> {
+      response.type("application/json");
+      // ways hold coded names and types, which their serializer decodes
+      Gson gson = new GsonBuilder().registerTypeAdapter(Way.class, new Way.Serializer())
+          .create();
       double[] coords = gson.fromJson(request.body(), double[].class);
       DatabaseFetchHandler dbFetch = new DatabaseFetchHandler();
       List<Way> ways = dbFetch.fetchWays(coords[0], coords[1], coords[2], coords[3]);
@@ -2,7 +2,9 @@ package edu.brown.cs.student.maps;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
 import edu.brown.cs.student.database.DatabaseHandler;
+import edu.brown.cs.student.pathfinding.StringDictionary;
 import spark.Request;
 import spark.Response;
 import spark.Route;
@@ -14,6 +16,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class DatabaseFetchHandler {
+  private static final String MAPS_FILE = "./data/maps/maps.sqlite3";
+
   public DatabaseFetchHandler() {
   }
 
@@ -23,7 +27,10 @@ public class DatabaseFetchHandler {
     if (maxLat <= minLat || maxLon <= minLon) {
       throw new IllegalArgumentException("Coordinates are input incorrectly");
     }
-    DatabaseHandler.loadDB("./data/maps/maps.sqlite3");
+    // reloading would close the connections of the routes being searched on it
+    if (!MAPS_FILE.equals(DatabaseHandler.getFilename())) {
+      DatabaseHandler.loadDB(MAPS_FILE);
+    }
 
     // Create Query String
     String fancyStmt = "SELECT way.*, sNode.latitude as startLat, sNode.longitude as startLon, "
@@ -32,19 +39,24 @@ public class DatabaseFetchHandler {
         + "longitude BETWEEN " + minLon + " and " + maxLon + ") as sNode ON way.start=sNode.id INNER JOIN "
         + "(SELECT * FROM node WHERE latitude BETWEEN " + minLat + " AND " + maxLat + " AND longitude "
         + "BETWEEN " + minLon + " and " + maxLon + ") as eNode ON way.end=eNode.id;";
-    // Query Results
-    ResultSet results = DatabaseHandler.queryLoadedDB(fancyStmt);
     ArrayList<Way> ways = new ArrayList<>();
-    // Add each Way to ways ArrayList
-    while (results.next()) {
-      Way currWay = new Way(results.getString("id"),
-          results.getDouble("startLat"),
-          results.getDouble("endLat"),
-          results.getDouble("startLon"),
-          results.getDouble("endLon"),
-          results.getString("name"),
-          results.getString("type"));
-      ways.add(currWay);
+    // share the names of the loaded map, or at least those of this response
+    StringDictionary dictionary = MapCommandHandler.getStringDictionary() != null
+        ? MapCommandHandler.getStringDictionary() : new StringDictionary();
+    // Query Results
+    try (ResultSet results = DatabaseHandler.queryLoadedDB(fancyStmt)) {
+      // Add each Way to ways ArrayList
+      while (results.next()) {
+        Way currWay = new Way(results.getString("id"),
+            results.getDouble("startLat"),
+            results.getDouble("endLat"),
+            results.getDouble("startLon"),
+            results.getDouble("endLon"),
+            results.getString("name"),
+            results.getString("type"),
+            dictionary);
+        ways.add(currWay);
+      }
     }
     System.out.println(maxLon > minLon && maxLat > minLat);
     System.out.println("ways size " + ways.size());
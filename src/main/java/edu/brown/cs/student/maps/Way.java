@@ -1,23 +1,42 @@
 package edu.brown.cs.student.maps;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import edu.brown.cs.student.pathfinding.StringDictionary;
+
+import java.lang.reflect.Type;
+
 public class Way {
   private final String id;
   private final Double startLat;
   private final Double startLon;
   private final Double endLat;
   private final Double endLon;
-  private final String name;
-  private final String type;
+  // the name and type are coded in a dictionary, and decoded when the way is written out
+  private final StringDictionary dictionary;
+  private final int nameCode;
+  private final int typeCode;
 
   public Way(String id, Double startLat, Double endLat, Double startLon, Double endLon,
-             String name, String type) {
+             String name, String type, StringDictionary dictionary) {
     this.id = id;
     this.startLat = startLat;
     this.startLon = startLon;
     this.endLat = endLat;
     this.endLon = endLon;
-    this.name = name;
-    this.type = type;
+    this.dictionary = dictionary;
+    this.nameCode = dictionary.encode(name);
+    this.typeCode = dictionary.encode(type);
+  }
+
+  public String getName() {
+    return dictionary.decode(nameCode);
+  }
+
+  public String getType() {
+    return dictionary.decode(typeCode);
   }
 
   @Override
@@ -28,8 +47,25 @@ public class Way {
         ", startLon=" + startLon +
         ", endLat=" + endLat +
         ", endLon=" + endLon +
-        ", name='" + name + '\'' +
-        ", type='" + type + '\'' +
+        ", name='" + getName() + '\'' +
+        ", type='" + getType() + '\'' +
         '}';
   }
+
+  /** Writes a Way as the JSON the front end reads, with its name and type decoded.
+   */
+  public static class Serializer implements JsonSerializer<Way> {
+    @Override
+    public JsonElement serialize(Way way, Type type, JsonSerializationContext context) {
+      JsonObject json = new JsonObject();
+      json.addProperty("id", way.id);
+      json.addProperty("startLat", way.startLat);
+      json.addProperty("startLon", way.startLon);
+      json.addProperty("endLat", way.endLat);
+      json.addProperty("endLon", way.endLon);
+      json.addProperty("name", way.getName());
+      json.addProperty("type", way.getType());
+      return json;
+    }
+  }
 }
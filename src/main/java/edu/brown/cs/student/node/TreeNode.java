@@ -127,11 +127,25 @@ public class TreeNode<I, T extends Coordinate<I>> {
    * @return Double
    */
   public Double distanceTo(final List<Double> targetCoors) {
+    double[] target = new double[targetCoors.size()];
+    for (int i = 0; i < target.length; i++) {
+      target[i] = targetCoors.get(i);
+    }
+    return distanceTo(target);
+  }
+
+  /** Calculate the Euclidean distance between
+   * the object and the given target location
+   * without boxing any coordinate.
+   * @param target is the coordinates of the
+   *               target location
+   * @return double
+   */
+  public double distanceTo(final double[] target) {
     double sumOfSqr = 0.0;
-    for (int i = 0; i < targetCoors.size(); i++) {
-      double difference = value.getCoordinateVal(i) - (targetCoors.get(i));
-      double squared = difference * difference;
-      sumOfSqr += squared;
+    for (int i = 0; i < target.length; i++) {
+      double difference = value.coord(i) - target[i];
+      sumOfSqr += difference * difference;
     }
     return Math.sqrt(sumOfSqr);
   }
@@ -0,0 +1,225 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/** Class that precomputes arc flags over a RoadGraph. The nodes are split into regions by
+ * the same alternating latitude and longitude median splits a KdTree makes at its top
+ * levels, and every edge gets one bit per region that is set if the edge lies on a
+ * shortest path to some node of that region. A search toward a target can then skip every
+ * edge whose bit for the target's region is unset and still find a shortest path.
+ *
+ * <p>An edge is flagged for a region if both its ends lie in the region, or if it is in
+ * the shortest path tree grown backwards from a boundary node of the region, that is a
+ * node of the region with an incoming edge from outside it. The last entry of a shortest
+ * path into the target's region is such a boundary node, so some shortest path is made
+ * only of flagged edges. The flags hold for the weights they were computed with.
+ */
+public final class ArcFlags {
+  /** The most split levels supported, since the flags of an edge are packed in a long. */
+  public static final int MAX_LEVELS = 6;
+
+  private final RoadGraph graph;
+  private final double[] weights;
+  private final int numRegions;
+  private final int[] regions;
+  private final long[] flags;
+  private final int[] reverseOffsets;
+  private final int[] reverseEdges;
+
+  /** Constructor for ArcFlags; partitions the graph and computes the flag of every edge.
+   * @param graph is the RoadGraph to flag.
+   * @param weights is the non-negative weight of every edge of graph, indexed by edge.
+   * @param levels is the number of median splits, giving 2^levels regions.
+   * @throws IllegalArgumentException if levels is negative or above MAX_LEVELS.
+   */
+  public ArcFlags(RoadGraph graph, double[] weights, int levels)
+      throws IllegalArgumentException {
+    if (levels < 0 || levels > MAX_LEVELS) {
+      throw new IllegalArgumentException();
+    }
+    this.graph = graph;
+    this.weights = weights;
+    this.numRegions = 1 << levels;
+    this.regions = new int[graph.size()];
+    this.flags = new long[graph.edgeCount()];
+
+    Integer[] order = new Integer[graph.size()];
+    for (int v = 0; v < order.length; v++) {
+      order[v] = v;
+    }
+    partition(order, 0, order.length, 0, levels, 0);
+
+    // incoming edges of every node, for growing shortest path trees backwards
+    this.reverseOffsets = new int[graph.size() + 1];
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      reverseOffsets[graph.edgeTarget(e) + 1]++;
+    }
+    for (int v = 0; v < graph.size(); v++) {
+      reverseOffsets[v + 1] += reverseOffsets[v];
+    }
+    this.reverseEdges = new int[graph.edgeCount()];
+    int[] nextSlot = Arrays.copyOf(reverseOffsets, graph.size());
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      reverseEdges[nextSlot[graph.edgeTarget(e)]++] = e;
+    }
+
+    BitSet[] regionFlags = new BitSet[numRegions];
+    IntStream.range(0, numRegions).parallel()
+        .forEach(region -> regionFlags[region] = flagRegion(region));
+    for (int region = 0; region < numRegions; region++) {
+      for (int e = regionFlags[region].nextSetBit(0); e >= 0;
+           e = regionFlags[region].nextSetBit(e + 1)) {
+        flags[e] |= 1L << region;
+      }
+    }
+  }
+
+  /** Assigns a region to every node of a slice of order by splitting it at the median of
+   * one axis and recurring on both halves with the other axis.
+   * @param order is the node indices, reordered in place.
+   * @param from is the first position of the slice, inclusive.
+   * @param to is the last position of the slice, exclusive.
+   * @param depth is the number of splits made so far, which picks the axis.
+   * @param levels is the number of splits to make.
+   * @param region is the region number built from the splits made so far.
+   */
+  private void partition(Integer[] order, int from, int to, int depth, int levels,
+                         int region) {
+    if (depth == levels) {
+      for (int i = from; i < to; i++) {
+        regions[order[i]] = region;
+      }
+      return;
+    }
+    int axis = depth % 2;
+    Arrays.sort(order, from, to,
+        Comparator.comparingDouble(v -> graph.getNode(v).coord(axis)));
+    int mid = (from + to) >>> 1;
+    partition(order, from, mid, depth + 1, levels, region << 1);
+    partition(order, mid, to, depth + 1, levels, (region << 1) | 1);
+  }
+
+  /** Finds the edges to flag for one region.
+   * @param region is the region number.
+   * @return a BitSet of the edge indices that lie on a shortest path into the region.
+   */
+  private BitSet flagRegion(int region) {
+    BitSet flagged = new BitSet(graph.edgeCount());
+    double[] dist = new double[graph.size()];
+    int[] parentEdge = new int[graph.size()];
+    NodeHeap heap = new NodeHeap(graph.size());
+    for (int v = 0; v < graph.size(); v++) {
+      if (regions[v] != region) {
+        continue;
+      }
+      boolean boundary = false;
+      for (int i = reverseOffsets[v]; i < reverseOffsets[v + 1]; i++) {
+        int e = reverseEdges[i];
+        if (regions[graph.edgeSource(e)] == region) {
+          flagged.set(e);
+        } else {
+          boundary = true;
+        }
+      }
+      if (boundary) {
+        growBackwards(v, dist, parentEdge, heap);
+        for (int u = 0; u < graph.size(); u++) {
+          if (parentEdge[u] != -1) {
+            flagged.set(parentEdge[u]);
+          }
+        }
+      }
+    }
+    return flagged;
+  }
+
+  /** Runs Dijkstra's algorithm backwards from a node over the incoming edges.
+   * @param root is the dense index of the node every path leads to.
+   * @param dist is filled with the distance from every node to root.
+   * @param parentEdge is filled with the first edge of the path from every node to root,
+   *                   or -1 for root and nodes that cannot reach it.
+   * @param heap is an empty NodeHeap to search with.
+   */
+  private void growBackwards(int root, double[] dist, int[] parentEdge, NodeHeap heap) {
+    Arrays.fill(dist, Double.POSITIVE_INFINITY);
+    Arrays.fill(parentEdge, -1);
+    dist[root] = 0;
+    heap.push(root, 0);
+    while (!heap.isEmpty()) {
+      double key = heap.peekKey();
+      int v = heap.pop();
+      if (key > dist[v]) {
+        continue;
+      }
+      for (int i = reverseOffsets[v]; i < reverseOffsets[v + 1]; i++) {
+        int e = reverseEdges[i];
+        int u = graph.edgeSource(e);
+        double candidate = dist[v] + weights[e];
+        if (candidate < dist[u]) {
+          dist[u] = candidate;
+          parentEdge[u] = e;
+          heap.push(u, candidate);
+        }
+      }
+    }
+  }
+
+  /** Get the number of regions the graph is split into.
+   * @return an int that is the number of regions.
+   */
+  public int regionCount() {
+    return numRegions;
+  }
+
+  /** Get the region of a node.
+   * @param node is a dense node index.
+   * @return the region number of the node.
+   */
+  public int regionOf(int node) {
+    return regions[node];
+  }
+
+  /** Check whether the flags were computed for the given weights.
+   * @param edgeWeights is the weight of every edge, indexed by edge.
+   * @return true if edgeWeights is the array the flags were computed from.
+   */
+  public boolean isFor(double[] edgeWeights) {
+    return weights == edgeWeights;
+  }
+
+  /** Check whether an edge lies on a shortest path into a region.
+   * @param edge is an edge index.
+   * @param region is a region number.
+   * @return true if the flag of the edge for the region is set.
+   */
+  public boolean isFlagged(int edge, int region) {
+    return (flags[edge] & (1L << region)) != 0;
+  }
+
+  /** Get the share of edge flags that are set, which is how much of the graph a search
+   * toward an average region still has to consider.
+   * @return a double between 0 and 1.
+   */
+  public double flaggedShare() {
+    long set = 0;
+    for (long edgeFlags : flags) {
+      set += Long.bitCount(edgeFlags);
+    }
+    return flags.length == 0 ? 0 : (double) set / flags.length / numRegions;
+  }
+
+  /** Check whether a way may lie on a shortest path to a node. Ways or nodes missing from
+   * the graph are never ruled out.
+   * @param way is a GraphEdge whose id is a way id.
+   * @param target is a GraphNode whose id is a node id.
+   * @return false only if the way is on no shortest path to the region of target.
+   */
+  public boolean mayLeadTo(GraphEdge<String, String, ?> way, GraphNode<String> target) {
+    int edge = graph.edgeIndexOf(way.getId());
+    int node = graph.indexOf(target);
+    return edge == -1 || node == -1 || isFlagged(edge, regions[node]);
+  }
+}
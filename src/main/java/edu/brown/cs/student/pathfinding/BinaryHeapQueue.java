@@ -0,0 +1,108 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/** Class that is a binary min-heap RouteQueue for any priorities. The priorities are kept
+ * in a double array beside the items, so sifting compares primitives instead of calling a
+ * comparator that unboxes them from the items.
+ * @param <T> is the type of the queued items
+ */
+public final class BinaryHeapQueue<T> implements RouteQueue<T> {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private Object[] items;
+  private double[] priorities;
+  private int size;
+
+  /** Constructor for BinaryHeapQueue.
+   */
+  public BinaryHeapQueue() {
+    this.items = new Object[INITIAL_CAPACITY];
+    this.priorities = new double[INITIAL_CAPACITY];
+    this.size = 0;
+  }
+
+  @Override
+  public void add(T item, double priority) {
+    if (size == items.length) {
+      items = Arrays.copyOf(items, size * 2);
+      priorities = Arrays.copyOf(priorities, size * 2);
+    }
+    int i = size++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (priorities[parent] <= priority) {
+        break;
+      }
+      items[i] = items[parent];
+      priorities[i] = priorities[parent];
+      i = parent;
+    }
+    items[i] = item;
+    priorities[i] = priority;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T peek() {
+    return size == 0 ? null : (T) items[0];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T poll() {
+    if (size == 0) {
+      return null;
+    }
+    T top = (T) items[0];
+    Object lastItem = items[--size];
+    double lastPriority = priorities[size];
+    items[size] = null;
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+        child++;
+      }
+      if (priorities[child] >= lastPriority) {
+        break;
+      }
+      items[i] = items[child];
+      priorities[i] = priorities[child];
+      i = child;
+    }
+    if (size > 0) {
+      items[i] = lastItem;
+      priorities[i] = lastPriority;
+    }
+    return top;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(items, 0, size, null);
+    size = 0;
+  }
+
+  /** Get an iterator over the queued items in heap order, so the items with the smallest
+   * priorities come first though not in order.
+   * @return an Iterator of the items.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public Iterator<T> iterator() {
+    return (Iterator<T>) Arrays.asList(items).subList(0, size).iterator();
+  }
+}
@@ -0,0 +1,42 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.function.BooleanSupplier;
+
+/** Class that lets another thread stop a running route search. A token is cancelled
+ * once cancel is called, or once its cancel condition first reports true.
+ */
+public class CancellationToken {
+  private final BooleanSupplier cancelCondition;
+  private volatile boolean cancelled;
+
+  /** Constructor for a CancellationToken that is only cancelled by calling cancel.
+   */
+  public CancellationToken() {
+    this(() -> false);
+  }
+
+  /** Constructor for CancellationToken.
+   * @param cancelCondition is polled by isCancelled, and cancels the token when it
+   *                        returns true.
+   */
+  public CancellationToken(BooleanSupplier cancelCondition) {
+    this.cancelCondition = cancelCondition;
+    this.cancelled = false;
+  }
+
+  /** Cancels the token.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /** Check whether the token has been cancelled.
+   * @return true if cancel was called or the cancel condition has held.
+   */
+  public boolean isCancelled() {
+    if (!cancelled && cancelCondition.getAsBoolean()) {
+      cancelled = true;
+    }
+    return cancelled;
+  }
+}
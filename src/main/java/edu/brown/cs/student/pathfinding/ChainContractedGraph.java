@@ -0,0 +1,440 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** Class that simplifies a RoadGraph by contracting chains of degree-2 nodes, such as the
+ * nodes along a curved street, into single weighted shortcut edges. Every shortcut
+ * remembers the sequence of original edges it replaces, so routes found on the
+ * contracted graph are expanded back into the original ways.
+ *
+ * <p>A node is contracted when it has exactly two distinct neighbours and traffic can only
+ * pass straight through it, i.e. every way into it from one neighbour is matched by a way
+ * out of it to the other. All other nodes are kept. Route endpoints that were contracted
+ * are handled at query time from their position along the shortcut they lie on.
+ */
+public final class ChainContractedGraph {
+  private final RoadGraph graph;
+  private final boolean[] kept;
+  private final int keptCount;
+  private final int[] shortcutOffsets;
+  private final int[] shortcutSources;
+  private final int[] shortcutTargets;
+  private final double[] shortcutLengths;
+  private final int[] pathOffsets;
+  private final int[] pathEdges;
+  private final double[] pathPrefix;
+  private final int[] firstShortcut;
+  private final int[] firstPosition;
+  private final int[] secondShortcut;
+  private final int[] secondPosition;
+
+  /** Constructor for ChainContractedGraph; contracts every degree-2 chain of the graph.
+   * @param graph is the RoadGraph to contract.
+   * @param weights is the non-negative weight of every edge of graph, indexed by edge.
+   */
+  public ChainContractedGraph(RoadGraph graph, double[] weights) {
+    this.graph = graph;
+    int n = graph.size();
+    this.kept = new boolean[n];
+    boolean[] contractible = findContractible();
+    for (int v = 0; v < n; v++) {
+      kept[v] = !contractible[v];
+    }
+
+    List<int[]> paths = new ArrayList<>();
+    boolean[] covered = new boolean[n];
+    for (int v = 0; v < n; v++) {
+      if (kept[v]) {
+        walkChains(v, paths, covered);
+      }
+    }
+    // chains that close into a loop without any kept node need one node kept to start from
+    for (int v = 0; v < n; v++) {
+      if (!kept[v] && !covered[v]) {
+        kept[v] = true;
+        walkChains(v, paths, covered);
+      }
+    }
+    int numKept = 0;
+    for (int v = 0; v < n; v++) {
+      numKept += kept[v] ? 1 : 0;
+    }
+    this.keptCount = numKept;
+
+    // lay the shortcuts out grouped by source node, like the edges of the RoadGraph
+    int numShortcuts = paths.size();
+    this.shortcutOffsets = new int[n + 1];
+    for (int[] path : paths) {
+      shortcutOffsets[graph.edgeSource(path[0]) + 1]++;
+    }
+    for (int v = 0; v < n; v++) {
+      shortcutOffsets[v + 1] += shortcutOffsets[v];
+    }
+    int[] order = new int[numShortcuts];
+    int[] nextSlot = Arrays.copyOf(shortcutOffsets, n);
+    for (int i = 0; i < numShortcuts; i++) {
+      order[nextSlot[graph.edgeSource(paths.get(i)[0])]++] = i;
+    }
+
+    int totalPathLength = 0;
+    for (int[] path : paths) {
+      totalPathLength += path.length;
+    }
+    this.shortcutSources = new int[numShortcuts];
+    this.shortcutTargets = new int[numShortcuts];
+    this.shortcutLengths = new double[numShortcuts];
+    this.pathOffsets = new int[numShortcuts + 1];
+    this.pathEdges = new int[totalPathLength];
+    this.pathPrefix = new double[totalPathLength];
+    this.firstShortcut = new int[n];
+    this.firstPosition = new int[n];
+    this.secondShortcut = new int[n];
+    this.secondPosition = new int[n];
+    Arrays.fill(firstShortcut, -1);
+    Arrays.fill(secondShortcut, -1);
+
+    int position = 0;
+    for (int s = 0; s < numShortcuts; s++) {
+      int[] path = paths.get(order[s]);
+      pathOffsets[s] = position;
+      double length = 0;
+      for (int edge : path) {
+        length += weights[edge];
+        pathEdges[position] = edge;
+        pathPrefix[position] = length;
+        int head = graph.edgeTarget(edge);
+        if (!kept[head]) {
+          if (firstShortcut[head] == -1) {
+            firstShortcut[head] = s;
+            firstPosition[head] = position;
+          } else {
+            secondShortcut[head] = s;
+            secondPosition[head] = position;
+          }
+        }
+        position++;
+      }
+      shortcutSources[s] = graph.edgeSource(path[0]);
+      shortcutTargets[s] = graph.edgeTarget(path[path.length - 1]);
+      shortcutLengths[s] = length;
+    }
+    pathOffsets[numShortcuts] = position;
+  }
+
+  /** Finds the nodes that only pass traffic straight through between two neighbours.
+   * @return an array indexed by node that is true for contractible nodes.
+   */
+  private boolean[] findContractible() {
+    int n = graph.size();
+    int[] inCount = new int[n];
+    int[] inFirst = new int[n];
+    int[] inSecond = new int[n];
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      int w = graph.edgeTarget(e);
+      if (inCount[w] == 0) {
+        inFirst[w] = graph.edgeSource(e);
+      } else if (inCount[w] == 1) {
+        inSecond[w] = graph.edgeSource(e);
+      }
+      inCount[w]++;
+    }
+
+    boolean[] contractible = new boolean[n];
+    for (int v = 0; v < n; v++) {
+      int outCount = graph.endEdge(v) - graph.firstEdge(v);
+      if (outCount > 2 || inCount[v] > 2 || outCount + inCount[v] == 0) {
+        continue;
+      }
+      int[] outs = new int[outCount];
+      for (int i = 0; i < outCount; i++) {
+        outs[i] = graph.edgeTarget(graph.firstEdge(v) + i);
+      }
+      int[] ins = inCount[v] == 0 ? new int[0]
+          : inCount[v] == 1 ? new int[] {inFirst[v]} : new int[] {inFirst[v], inSecond[v]};
+      if (hasRepeatOrSelf(outs, v) || hasRepeatOrSelf(ins, v)) {
+        continue;
+      }
+
+      int u = outCount > 0 ? outs[0] : ins[0];
+      int w = -1;
+      for (int x : outs) {
+        w = x != u ? x : w;
+      }
+      for (int x : ins) {
+        w = x != u ? x : w;
+      }
+      boolean onlyTwoNeighbours = w != -1 && containsOnly(outs, u, w) && containsOnly(ins, u, w);
+      // a way in from one neighbour must be matched by a way out to the other
+      contractible[v] = onlyTwoNeighbours
+          && contains(ins, u) == contains(outs, w)
+          && contains(ins, w) == contains(outs, u);
+    }
+    return contractible;
+  }
+
+  /** Check whether a small array of nodes repeats a node or contains a given node.
+   * @param nodes is an array of at most two dense node indices.
+   * @param self is a node that must not appear.
+   * @return true if a node repeats or self appears.
+   */
+  private static boolean hasRepeatOrSelf(int[] nodes, int self) {
+    for (int i = 0; i < nodes.length; i++) {
+      if (nodes[i] == self || (i > 0 && nodes[i] == nodes[0])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Check whether an array of nodes only holds the two given nodes.
+   * @param nodes is an array of dense node indices.
+   * @param u is a node.
+   * @param w is a node.
+   * @return true if every element is u or w.
+   */
+  private static boolean containsOnly(int[] nodes, int u, int w) {
+    for (int x : nodes) {
+      if (x != u && x != w) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Check whether an array of nodes holds the given node.
+   * @param nodes is an array of dense node indices.
+   * @param u is a node.
+   * @return true if u is an element.
+   */
+  private static boolean contains(int[] nodes, int u) {
+    for (int x : nodes) {
+      if (x == u) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Follows every outgoing edge of a kept node through contracted nodes until another
+   * kept node is reached, recording each chain as the edges of one shortcut.
+   * @param start is a kept node.
+   * @param paths is the list of shortcut paths to add to.
+   * @param covered is marked for every contracted node passed through.
+   * @throws IllegalStateException if a chain never reaches a kept node.
+   */
+  private void walkChains(int start, List<int[]> paths, boolean[] covered)
+      throws IllegalStateException {
+    for (int e = graph.firstEdge(start); e < graph.endEdge(start); e++) {
+      List<Integer> path = new ArrayList<>();
+      path.add(e);
+      int previous = start;
+      int current = graph.edgeTarget(e);
+      while (!kept[current]) {
+        covered[current] = true;
+        int next = -1;
+        for (int f = graph.firstEdge(current); f < graph.endEdge(current); f++) {
+          if (graph.edgeTarget(f) != previous) {
+            next = f;
+          }
+        }
+        if (next == -1 || path.size() > graph.size()) {
+          throw new IllegalStateException();
+        }
+        path.add(next);
+        previous = current;
+        current = graph.edgeTarget(next);
+      }
+      paths.add(path.stream().mapToInt(Integer::intValue).toArray());
+    }
+  }
+
+  /** Get the number of nodes left after contraction.
+   * @return an int that is the number of kept nodes.
+   */
+  public int keptNodeCount() {
+    return keptCount;
+  }
+
+  /** Get the number of shortcut edges left after contraction.
+   * @return an int that is the number of shortcuts.
+   */
+  public int shortcutCount() {
+    return shortcutSources.length;
+  }
+
+  /** Finds the shortest path between two nodes of the original graph by searching the
+   * contracted graph and expanding the shortcuts used.
+   * @param source is the dense index of the start node in the RoadGraph.
+   * @param target is the dense index of the end node in the RoadGraph.
+   * @return the original edge indices of the path in order, or an empty list if there is none.
+   */
+  public List<Integer> shortestPath(int source, int target) {
+    return shortestPath(source, target, null);
+  }
+
+  /** Finds the shortest path between two nodes of the original graph, counting the kept
+   * nodes the search settles and the shortcuts it relaxes. The graph is shared by every search of the loaded map, so
+   * the count goes to the caller's stats rather than to a field.
+   * @param source is the dense index of the start node in the RoadGraph.
+   * @param target is the dense index of the end node in the RoadGraph.
+   * @param stats is the SearchStats to count the work of the search in, or null.
+   * @return the original edge indices of the path in order, or an empty list if there is none.
+   */
+  public List<Integer> shortestPath(int source, int target, SearchStats stats) {
+    if (source == target) {
+      return new ArrayList<>();
+    }
+    int n = graph.size();
+    double[] dist = new double[n];
+    int[] parentShortcut = new int[n];
+    int[] parentStart = new int[n];
+    boolean[] settled = new boolean[n];
+    Arrays.fill(dist, Double.POSITIVE_INFINITY);
+    NodeHeap heap = new NodeHeap(keptCount);
+
+    // the best way found so far onto a contracted target: the path slice
+    // [bestStart, bestEnd] of a shortcut, reached after bestDistance - slice length
+    double bestDistance = Double.POSITIVE_INFINITY;
+    int bestStart = -1;
+    int bestEnd = -1;
+
+    if (kept[source]) {
+      dist[source] = 0;
+      heap.push(source, 0);
+    } else {
+      for (int[] occurrence : occurrences(source)) {
+        int s = occurrence[0];
+        int position = occurrence[1];
+        int head = shortcutTargets[s];
+        int last = pathOffsets[s + 1] - 1;
+        int targetPosition = positionOn(target, s);
+        if (targetPosition > position) {
+          double direct = pathPrefix[targetPosition] - pathPrefix[position];
+          if (direct < bestDistance) {
+            bestDistance = direct;
+            bestStart = position + 1;
+            bestEnd = targetPosition;
+          }
+        }
+        double remaining = pathPrefix[last] - pathPrefix[position];
+        if (remaining < dist[head]) {
+          dist[head] = remaining;
+          parentShortcut[head] = s;
+          parentStart[head] = position + 1;
+          heap.push(head, remaining);
+        }
+      }
+    }
+
+    while (!heap.isEmpty() && heap.peekKey() < bestDistance) {
+      int v = heap.pop();
+      if (settled[v]) {
+        continue;
+      }
+      settled[v] = true;
+      if (stats != null) {
+        stats.nodeSettled();
+      }
+      if (v == target) {
+        break;
+      }
+      for (int s = shortcutOffsets[v]; s < shortcutOffsets[v + 1]; s++) {
+        int targetPosition = kept[target] ? -1 : positionOn(target, s);
+        if (targetPosition != -1 && dist[v] + pathPrefix[targetPosition] < bestDistance) {
+          bestDistance = dist[v] + pathPrefix[targetPosition];
+          bestStart = pathOffsets[s];
+          bestEnd = targetPosition;
+        }
+        int head = shortcutTargets[s];
+        double candidate = dist[v] + shortcutLengths[s];
+        if (stats != null) {
+          stats.edgeRelaxed();
+        }
+        if (candidate < dist[head]) {
+          dist[head] = candidate;
+          parentShortcut[head] = s;
+          parentStart[head] = pathOffsets[s];
+          heap.push(head, candidate);
+          if (stats != null) {
+            stats.heapPushed(1);
+          }
+        }
+      }
+    }
+
+    List<Integer> path = new ArrayList<>();
+    int current;
+    if (kept[target]) {
+      if (!settled[target]) {
+        return path;
+      }
+      current = target;
+    } else {
+      if (bestEnd == -1) {
+        return path;
+      }
+      for (int i = bestEnd; i >= bestStart; i--) {
+        path.add(pathEdges[i]);
+      }
+      int s = shortcutContaining(bestEnd);
+      if (bestStart != pathOffsets[s]) {
+        Collections.reverse(path);
+        return path;
+      }
+      current = shortcutSources[s];
+    }
+    while (current != source) {
+      int s = parentShortcut[current];
+      for (int i = pathOffsets[s + 1] - 1; i >= parentStart[current]; i--) {
+        path.add(pathEdges[i]);
+      }
+      if (parentStart[current] != pathOffsets[s]) {
+        break;
+      }
+      current = shortcutSources[s];
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
+  /** Get the shortcuts a contracted node lies on.
+   * @param node is a contracted node.
+   * @return a list of pairs of shortcut and path position of the edge into the node.
+   */
+  private List<int[]> occurrences(int node) {
+    List<int[]> found = new ArrayList<>();
+    if (firstShortcut[node] != -1) {
+      found.add(new int[] {firstShortcut[node], firstPosition[node]});
+    }
+    if (secondShortcut[node] != -1) {
+      found.add(new int[] {secondShortcut[node], secondPosition[node]});
+    }
+    return found;
+  }
+
+  /** Get the path position of the edge into a contracted node along a given shortcut.
+   * @param node is a dense node index.
+   * @param shortcut is a shortcut index.
+   * @return the path position, or -1 if the node is kept or not on the shortcut.
+   */
+  private int positionOn(int node, int shortcut) {
+    if (firstShortcut[node] == shortcut) {
+      return firstPosition[node];
+    } else if (secondShortcut[node] == shortcut) {
+      return secondPosition[node];
+    }
+    return -1;
+  }
+
+  /** Get the shortcut that a path position belongs to.
+   * @param position is an index into the shortcut paths.
+   * @return the shortcut index.
+   */
+  private int shortcutContaining(int position) {
+    int found = Arrays.binarySearch(pathOffsets, position);
+    return found >= 0 ? found : -found - 2;
+  }
+}
@@ -0,0 +1,237 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Class that computes shortest path trees over a RoadGraph with the delta-stepping
+ * algorithm. Nodes are kept in buckets of width delta by tentative distance, and the
+ * edges out of every node in the lowest bucket are relaxed in parallel on a ForkJoinPool.
+ * Light edges (no heavier than delta) can refill the current bucket, so they are relaxed
+ * until it empties; heavy edges are relaxed once per bucket afterwards.
+ *
+ * <p>A small delta does little wasted work but leaves small frontiers to split between
+ * threads, while a large delta gives more parallelism at the cost of relaxing nodes that
+ * are later improved again. A delta around the mean edge weight is a reasonable start.
+ */
+public final class DeltaStepping {
+  private static final int GRAIN = 256;
+
+  private final RoadGraph graph;
+  private final double[] weights;
+  private final double delta;
+  private final ForkJoinPool pool;
+
+  /** Constructor for DeltaStepping that runs on the common ForkJoinPool.
+   * @param graph is the RoadGraph to search.
+   * @param weights is the non-negative weight of every edge of graph, indexed by edge.
+   * @param delta is the width of a bucket.
+   * @throws IllegalArgumentException if delta is not positive.
+   */
+  public DeltaStepping(RoadGraph graph, double[] weights, double delta)
+      throws IllegalArgumentException {
+    this(graph, weights, delta, ForkJoinPool.commonPool());
+  }
+
+  /** Constructor for DeltaStepping.
+   * @param graph is the RoadGraph to search.
+   * @param weights is the non-negative weight of every edge of graph, indexed by edge.
+   * @param delta is the width of a bucket.
+   * @param pool is the ForkJoinPool to relax edges on.
+   * @throws IllegalArgumentException if delta is not positive.
+   */
+  public DeltaStepping(RoadGraph graph, double[] weights, double delta, ForkJoinPool pool)
+      throws IllegalArgumentException {
+    if (!(delta > 0)) {
+      throw new IllegalArgumentException();
+    }
+    this.graph = graph;
+    this.weights = weights;
+    this.delta = delta;
+    this.pool = pool;
+  }
+
+  /** Get the mean weight of the edges, a reasonable first choice of delta.
+   * @param weights is the weight of every edge, indexed by edge.
+   * @return the mean edge weight, or 1 if there are no positive weights.
+   */
+  public static double meanWeight(double[] weights) {
+    double total = 0;
+    for (double weight : weights) {
+      total += weight;
+    }
+    return total > 0 ? total / weights.length : 1;
+  }
+
+  /** Computes the distance from a source to every node of the graph.
+   * @param source is the dense index of the source node.
+   * @return an array of distances indexed by node, infinite for unreachable nodes.
+   */
+  public double[] shortestPathTree(int source) {
+    int n = graph.size();
+    AtomicLongArray dist = new AtomicLongArray(n);
+    long infinity = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+    for (int v = 0; v < n; v++) {
+      dist.set(v, infinity);
+    }
+    // the bucket each node currently sits in, or -1 once it has been taken out
+    long[] bucketOf = new long[n];
+    Arrays.fill(bucketOf, -1);
+    // the bucket in which each node last joined the settled set, to add it only once
+    long[] settledIn = new long[n];
+    Arrays.fill(settledIn, -1);
+    TreeMap<Long, IntBag> buckets = new TreeMap<>();
+
+    dist.set(source, Double.doubleToRawLongBits(0));
+    IntBag first = new IntBag();
+    first.add(source);
+    insert(first, dist, bucketOf, buckets);
+
+    while (!buckets.isEmpty()) {
+      long current = buckets.firstKey();
+      IntBag settled = new IntBag();
+      while (buckets.containsKey(current)) {
+        IntBag frontier = new IntBag();
+        for (int i = 0, size = buckets.get(current).size; i < size; i++) {
+          int v = buckets.get(current).items[i];
+          // skip entries left behind when a node moved to a lower bucket
+          if (bucketOf[v] == current) {
+            bucketOf[v] = -1;
+            frontier.add(v);
+            if (settledIn[v] != current) {
+              settledIn[v] = current;
+              settled.add(v);
+            }
+          }
+        }
+        buckets.remove(current);
+        IntBag improved = pool.invoke(new Relaxation(frontier, 0, frontier.size, dist, true));
+        insert(improved, dist, bucketOf, buckets);
+      }
+      IntBag improved = pool.invoke(new Relaxation(settled, 0, settled.size, dist, false));
+      insert(improved, dist, bucketOf, buckets);
+    }
+
+    double[] result = new double[n];
+    for (int v = 0; v < n; v++) {
+      result[v] = Double.longBitsToDouble(dist.get(v));
+    }
+    return result;
+  }
+
+  /** Moves every improved node into the bucket of its new tentative distance.
+   * @param improved is the nodes whose tentative distance went down.
+   * @param dist is the tentative distance of every node, as raw long bits.
+   * @param bucketOf is the bucket each node sits in, or -1.
+   * @param buckets is the map from bucket number to the nodes in it.
+   */
+  private void insert(IntBag improved, AtomicLongArray dist, long[] bucketOf,
+                      Map<Long, IntBag> buckets) {
+    for (int i = 0; i < improved.size; i++) {
+      int v = improved.items[i];
+      long bucket = (long) (Double.longBitsToDouble(dist.get(v)) / delta);
+      if (bucketOf[v] != bucket) {
+        bucketOf[v] = bucket;
+        buckets.computeIfAbsent(bucket, b -> new IntBag()).add(v);
+      }
+    }
+  }
+
+  /** Class that relaxes the light or heavy edges out of a slice of nodes, splitting the
+   * slice between ForkJoin workers, and returns the nodes whose distance went down.
+   */
+  private final class Relaxation extends RecursiveTask<IntBag> {
+    private static final long serialVersionUID = 1L;
+
+    private final IntBag nodes;
+    private final int from;
+    private final int to;
+    private final AtomicLongArray dist;
+    private final boolean light;
+
+    /** Constructor for Relaxation.
+     * @param nodes is the nodes whose outgoing edges are relaxed.
+     * @param from is the first position of nodes to relax, inclusive.
+     * @param to is the last position of nodes to relax, exclusive.
+     * @param dist is the tentative distance of every node, as raw long bits.
+     * @param light is true to relax edges no heavier than delta, false for the rest.
+     */
+    Relaxation(IntBag nodes, int from, int to, AtomicLongArray dist, boolean light) {
+      this.nodes = nodes;
+      this.from = from;
+      this.to = to;
+      this.dist = dist;
+      this.light = light;
+    }
+
+    @Override
+    protected IntBag compute() {
+      if (to - from > GRAIN) {
+        int mid = (from + to) >>> 1;
+        Relaxation left = new Relaxation(nodes, from, mid, dist, light);
+        left.fork();
+        IntBag improved = new Relaxation(nodes, mid, to, dist, light).compute();
+        improved.addAll(left.join());
+        return improved;
+      }
+      IntBag improved = new IntBag();
+      for (int i = from; i < to; i++) {
+        int v = nodes.items[i];
+        double base = Double.longBitsToDouble(dist.get(v));
+        for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+          if ((weights[e] <= delta) == light && relax(graph.edgeTarget(e), base + weights[e])) {
+            improved.add(graph.edgeTarget(e));
+          }
+        }
+      }
+      return improved;
+    }
+
+    /** Lowers the tentative distance of a node if the candidate is smaller.
+     * @param w is the dense index of the node.
+     * @param candidate is the new distance to try.
+     * @return true if the distance went down.
+     */
+    private boolean relax(int w, double candidate) {
+      long current = dist.get(w);
+      while (candidate < Double.longBitsToDouble(current)) {
+        if (dist.compareAndSet(w, current, Double.doubleToRawLongBits(candidate))) {
+          return true;
+        }
+        current = dist.get(w);
+      }
+      return false;
+    }
+  }
+
+  /** Class that is a growable list of ints.
+   */
+  private static final class IntBag {
+    private int[] items = new int[8];
+    private int size;
+
+    /** Appends an int.
+     * @param item is the int to append.
+     */
+    void add(int item) {
+      if (size == items.length) {
+        items = Arrays.copyOf(items, size * 2);
+      }
+      items[size++] = item;
+    }
+
+    /** Appends every int of another bag.
+     * @param other is the bag to append.
+     */
+    void addAll(IntBag other) {
+      if (size + other.size > items.length) {
+        items = Arrays.copyOf(items, Math.max(size + other.size, size * 2));
+      }
+      System.arraycopy(other.items, 0, items, size, other.size);
+      size += other.size;
+    }
+  }
+}
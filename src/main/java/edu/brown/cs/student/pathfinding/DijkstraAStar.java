@@ -4,14 +4,16 @@ import edu.brown.cs.student.utils.Utils;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /** Class that performs the A* or Dijkstra pathfind algorithm.
  * @param <E> is the ID type of the GraphEdge
@@ -19,13 +21,22 @@ import java.util.function.Function;
  * @param <P> is an object type that extends GraphNode
  */
 public class DijkstraAStar<E, N, P extends GraphNode<N>> {
+  private static final int BATCH_SCAN_FACTOR = 4;
+
   private final BiFunction<P, P, Double> distanceFunc;
   private final Function<P, Set<GraphEdge<E, N, P>>>
           queryNeighborEdgesFunc;
   private final Utils.Function4To1<P, P, GraphEdge<E, N, P>,
           BiFunction<P, P, Double>, Double> heuristicFunc;
+  private final BiPredicate<P, P> reachabilityFunc;
+  private final BiPredicate<GraphEdge<E, N, P>, P> edgePruningFunc;
+  private final Function<GraphEdge<E, N, P>, Double> edgeWeightFunc;
   private Map<N, GraphEdge<E, N, P>> visited;
-  private PriorityQueue<GraphEdge<E, N, P>> routes;
+  private final RouteQueue<PathWeightHeuristic<GraphEdge<E, N, P>>> routes;
+  private Predicate<P> cachedFunc = node -> true;
+  private Consumer<List<P>> batchFetchFunc = nodes -> { };
+  private int batchSize = 1;
+  private EdgeReadAhead<P> readAhead = null;
 
   /**
    * Constructor for DijkstraAStar.
@@ -43,18 +54,171 @@ public class DijkstraAStar<E, N, P extends GraphNode<N>> {
                                GraphEdge<E, N, P>,
                                BiFunction<P, P, Double>,
                                Double> heuristicFunc) {
+    this(distanceFunc, queryNeighborEdgesFunc, heuristicFunc, (start, end) -> true);
+  }
+
+  /**
+   * Constructor for DijkstraAStar with a reachability pre-check.
+   *
+   * @param distanceFunc           is a function that takes two GraphNodes and returns a double that
+   *                               is the distance between the two nodes
+   * @param queryNeighborEdgesFunc is a function that queries the
+   *                               adjacent edges starting from a target node
+   * @param heuristicFunc          is a function that calculates the heuristic of a node
+   * @param reachabilityFunc       is a function that returns false only if there is no path
+   *                               from its first node to its second node
+   */
+  public DijkstraAStar(BiFunction<P, P, Double> distanceFunc,
+                       Function<P, Set<GraphEdge<E, N, P>>> queryNeighborEdgesFunc,
+                       Utils.Function4To1<P,
+                               P,
+                               GraphEdge<E, N, P>,
+                               BiFunction<P, P, Double>,
+                               Double> heuristicFunc,
+                       BiPredicate<P, P> reachabilityFunc) {
+    this(distanceFunc, queryNeighborEdgesFunc, heuristicFunc, reachabilityFunc,
+        (edge, end) -> true);
+  }
+
+  /**
+   * Constructor for DijkstraAStar with a reachability pre-check and goal-directed edge
+   * pruning. Ways the pruning function rejects for the end node are never queued, so it
+   * must keep at least one shortest path to every end node, as arc flags do.
+   *
+   * @param distanceFunc           is a function that takes two GraphNodes and returns a double that
+   *                               is the distance between the two nodes
+   * @param queryNeighborEdgesFunc is a function that queries the
+   *                               adjacent edges starting from a target node
+   * @param heuristicFunc          is a function that calculates the heuristic of a node
+   * @param reachabilityFunc       is a function that returns false only if there is no path
+   *                               from its first node to its second node
+   * @param edgePruningFunc        is a function that returns false only if its edge lies on
+   *                               no shortest path to its node
+   */
+  public DijkstraAStar(BiFunction<P, P, Double> distanceFunc,
+                       Function<P, Set<GraphEdge<E, N, P>>> queryNeighborEdgesFunc,
+                       Utils.Function4To1<P,
+                               P,
+                               GraphEdge<E, N, P>,
+                               BiFunction<P, P, Double>,
+                               Double> heuristicFunc,
+                       BiPredicate<P, P> reachabilityFunc,
+                       BiPredicate<GraphEdge<E, N, P>, P> edgePruningFunc) {
+    this(distanceFunc, queryNeighborEdgesFunc, heuristicFunc, reachabilityFunc,
+        edgePruningFunc, edge -> distanceFunc.apply(edge.getStartNode(), edge.getEndNode()));
+  }
+
+  /**
+   * Constructor for DijkstraAStar with a reachability pre-check, goal-directed edge
+   * pruning and edge weights other than the distance between the ends of each way. Ways
+   * with an infinite weight are never used. The heuristic must not exceed the weight of
+   * the cheapest path to the end node for the routes found to be shortest.
+   *
+   * @param distanceFunc           is a function that takes two GraphNodes and returns a double that
+   *                               is the distance between the two nodes
+   * @param queryNeighborEdgesFunc is a function that queries the
+   *                               adjacent edges starting from a target node
+   * @param heuristicFunc          is a function that calculates the heuristic of a node
+   * @param reachabilityFunc       is a function that returns false only if there is no path
+   *                               from its first node to its second node
+   * @param edgePruningFunc        is a function that returns false only if its edge lies on
+   *                               no shortest path to its node
+   * @param edgeWeightFunc         is a function that returns the non-negative cost of
+   *                               traversing an edge
+   */
+  public DijkstraAStar(BiFunction<P, P, Double> distanceFunc,
+                       Function<P, Set<GraphEdge<E, N, P>>> queryNeighborEdgesFunc,
+                       Utils.Function4To1<P,
+                               P,
+                               GraphEdge<E, N, P>,
+                               BiFunction<P, P, Double>,
+                               Double> heuristicFunc,
+                       BiPredicate<P, P> reachabilityFunc,
+                       BiPredicate<GraphEdge<E, N, P>, P> edgePruningFunc,
+                       Function<GraphEdge<E, N, P>, Double> edgeWeightFunc) {
+    this(distanceFunc, queryNeighborEdgesFunc, heuristicFunc, reachabilityFunc,
+        edgePruningFunc, edgeWeightFunc, new BinaryHeapQueue<>());
+  }
+
+  /**
+   * Constructor for DijkstraAStar that also chooses the priority queue the candidate ways
+   * are kept in. A RadixHeapQueue needs the search to be monotone, so the heuristic
+   * must be consistent and the heuristic weight of the options 1.
+   *
+   * @param distanceFunc           is a function that takes two GraphNodes and returns a double that
+   *                               is the distance between the two nodes
+   * @param queryNeighborEdgesFunc is a function that queries the
+   *                               adjacent edges starting from a target node
+   * @param heuristicFunc          is a function that calculates the heuristic of a node
+   * @param reachabilityFunc       is a function that returns false only if there is no path
+   *                               from its first node to its second node
+   * @param edgePruningFunc        is a function that returns false only if its edge lies on
+   *                               no shortest path to its node
+   * @param edgeWeightFunc         is a function that returns the non-negative cost of
+   *                               traversing an edge
+   * @param routes                 is the empty RouteQueue to search with
+   */
+  public DijkstraAStar(BiFunction<P, P, Double> distanceFunc,
+                       Function<P, Set<GraphEdge<E, N, P>>> queryNeighborEdgesFunc,
+                       Utils.Function4To1<P,
+                               P,
+                               GraphEdge<E, N, P>,
+                               BiFunction<P, P, Double>,
+                               Double> heuristicFunc,
+                       BiPredicate<P, P> reachabilityFunc,
+                       BiPredicate<GraphEdge<E, N, P>, P> edgePruningFunc,
+                       Function<GraphEdge<E, N, P>, Double> edgeWeightFunc,
+                       RouteQueue<PathWeightHeuristic<GraphEdge<E, N, P>>> routes) {
+    this.edgeWeightFunc = edgeWeightFunc;
+    this.reachabilityFunc = reachabilityFunc;
+    this.edgePruningFunc = edgePruningFunc;
     this.queryNeighborEdgesFunc = queryNeighborEdgesFunc;
     this.heuristicFunc = heuristicFunc;
     this.distanceFunc = distanceFunc;
     this.visited = new HashMap<>();
-    this.routes = new PriorityQueue<GraphEdge<E, N, P>>(new Comparator<GraphEdge<E, N, P>>() {
-      @Override
-      public int compare(GraphEdge<E, N, P> e1, GraphEdge<E, N, P> e2) {
-        Double e1Distance = e1.getTotalDistance();
-        Double e2Distance = e2.getTotalDistance();
-        return e1Distance.compareTo(e2Distance);
-      }
-    });
+    // the queued ways carry their own priority, so searches on different threads can
+    // share cached GraphEdges
+    this.routes = routes;
+  }
+
+  /**
+   * Makes the search fetch the ways out of several frontier nodes with one query when the
+   * node it is about to expand is not cached: along with that node, it fetches the
+   * unsettled nodes at the ends of the queued ways that are not cached either, taking them
+   * in the order the RouteQueue iterates them and looking at no more than a few times the
+   * batch size of ways. Both heaps iterate roughly from their smallest priority, so those
+   * are nodes the search is about to expand. The nodes are settled in the same order as
+   * without batching; only the number of queries changes.
+   *
+   * @param cachedFunc     is a function that returns true if the ways out of a node are
+   *                       cached, without fetching them
+   * @param batchFetchFunc is a function that fetches and caches the ways out of every node
+   *                       of a list that is not cached, with one query
+   * @param batchSize      is the most nodes fetched at once; 1 turns batching off
+   */
+  public void setBatchedExpansion(Predicate<P> cachedFunc, Consumer<List<P>> batchFetchFunc,
+                                  int batchSize) {
+    this.cachedFunc = cachedFunc;
+    this.batchFetchFunc = batchFetchFunc;
+    this.batchSize = Math.max(batchSize, 1);
+  }
+
+  /**
+   * Makes the search fetch the ways out of the nodes it expects to expand next on a
+   * background executor, while it relaxes the ways of the node it just settled. After
+   * every settled node it asks the EdgeReadAhead for the unsettled, uncached nodes at the
+   * ends of the queued ways, found the same way as the batches of setBatchedExpansion, and
+   * the EdgeReadAhead cancels the fetches of nodes no longer among them. The fetches only
+   * fill the cache, so nodes are settled in the same order as without read-ahead.
+   *
+   * @param cachedFunc is a function that returns true if the ways out of a node are
+   *                   cached, without fetching them
+   * @param readAhead  is the EdgeReadAhead that fetches the nodes, or null to turn
+   *                   read-ahead off
+   */
+  public void setReadAhead(Predicate<P> cachedFunc, EdgeReadAhead<P> readAhead) {
+    this.cachedFunc = cachedFunc;
+    this.readAhead = readAhead;
   }
 
     /**
@@ -62,7 +226,8 @@ public class DijkstraAStar<E, N, P extends GraphNode<N>> {
    * GraphNodes, this method finds the shortest path between them. Because graphs can
    * be really big, this method relies on querying the database every time it looks for
    * outgoing edges. This way we don't need to store and build the whole graph in memory.
-   * Querying for outgoing edges is optimized further via caching.
+   * Querying for outgoing edges is optimized further via caching. If the reachability
+   * check rules out any path, an empty list is returned without searching at all.
    *
    * @param startNode the start node of the path
    * @param endNode   the end node of the path
@@ -70,47 +235,226 @@ public class DijkstraAStar<E, N, P extends GraphNode<N>> {
    * endNode
    */
   public List<GraphEdge<E, N, P>> runDijkstraAStar(P startNode, P endNode) {
+    return new ArrayList<>(
+        runDijkstraAStar(startNode, endNode, new RouteQueryOptions()).getPath());
+  }
+
+  /**
+   * Method responsible for the Dijkstra/AStar search under the limits of the given
+   * options. The limits are checked before every node is settled, and a search that
+   * breaks one stops there, reporting why in the status of its result along with the
+   * path to the settled node closest to endNode. With a heuristic weight w above 1 the
+   * search is weighted A*: it settles fewer nodes, and the result reports a bound of at
+   * most w on how much longer its path can be than the shortest one.
+   *
+   * @param startNode the start node of the path
+   * @param endNode   the end node of the path
+   * @param options   the deadline, budgets and cancellation token of the search
+   * @return a RouteResult holding the status of the search and the shortest path between
+   * startNode and endNode if it completed
+   */
+  public RouteResult<E, N, P> runDijkstraAStar(P startNode, P endNode,
+                                               RouteQueryOptions options) {
+    SearchStats stats = SearchStats.begin();
+    try {
+      return search(startNode, endNode, options, stats);
+    } finally {
+      if (readAhead != null) {
+        readAhead.cancelAll();
+      }
+      stats.finish();
+    }
+  }
+
+  /**
+   * Runs the search of runDijkstraAStar, counting its work in the given stats. Ways are
+   * queued by the cost of reaching their end node plus the heuristic of that node times
+   * the heuristic weight of the options, and every node is settled at most once.
+   *
+   * @param startNode the start node of the path
+   * @param endNode   the end node of the path
+   * @param options   the deadline, budgets, cancellation token and heuristic weight of the
+   *                  search
+   * @param stats     the SearchStats of the search
+   * @return a RouteResult holding the status of the search and the shortest path between
+   * startNode and endNode if it completed
+   */
+  private RouteResult<E, N, P> search(P startNode, P endNode, RouteQueryOptions options,
+                                      SearchStats stats) {
+    visited.clear();
+    routes.clear();
+    if (!reachabilityFunc.test(startNode, endNode)) {
+      return new RouteResult<>(RouteStatus.COMPLETED, new ArrayList<>(), new ArrayList<>(),
+          Double.POSITIVE_INFINITY, 1, stats);
+    }
+    double weight = options.getHeuristicWeight();
+    // the cost of the path found to every settled node
+    Map<N, Double> costs = new HashMap<>();
+    costs.put(startNode.getId(), 0.0);
+    // the lowest cost plus heuristic among ways that would have improved a settled node
+    double inconsistentBound = Double.POSITIVE_INFINITY;
+
     Set<GraphEdge<E, N, P>> initOutwardEdges = queryNeighborEdgesFunc.apply(startNode);
+    stats.neighborsFetched();
 
     for (GraphEdge<E, N, P> edge : initOutwardEdges) {
-      Double edgeDistance = distanceFunc.apply(edge.getStartNode(), edge.getEndNode());
+      Double edgeDistance = edgeWeightFunc.apply(edge);
+      if (edgeDistance.isInfinite() || !edgePruningFunc.test(edge, endNode)) {
+        continue;
+      }
       Double heuristicDistance = heuristicFunc.apply(startNode, endNode, edge, distanceFunc);
 
-      edge.setTotalDistance(edgeDistance + heuristicDistance);
+      PathWeightHeuristic<GraphEdge<E, N, P>> route =
+          new PathWeightHeuristic<>(edge, edgeDistance, weight * heuristicDistance);
+      routes.add(route, route.getTotalDistance());
+      stats.edgeRelaxed();
+      stats.heapPushed(1);
     }
 
-    routes.addAll(initOutwardEdges);
+    RouteStatus status = RouteStatus.COMPLETED;
     while (!routes.isEmpty()) {
-      while (visited.containsKey(routes.peek().getEndNode().getId())) {
-        routes.poll();
-        if (routes.isEmpty()) {
-          return new ArrayList<>();
+      while (!routes.isEmpty()
+          && costs.containsKey(routes.peek().getPath().getEndNode().getId())) {
+        PathWeightHeuristic<GraphEdge<E, N, P>> stale = routes.poll();
+        if (weight > 1) {
+          inconsistentBound = Math.min(inconsistentBound, improvingBound(stale, costs, weight));
         }
+        stats.stalePopped();
+      }
+      if (routes.isEmpty()) {
+        break;
+      }
+
+      RouteStatus limit = options.check(visited.size() + 1, visited.size() + routes.size());
+      if (limit != null) {
+        status = limit;
+        break;
       }
 
-      GraphEdge<E, N, P> nextWay = routes.poll();
+      PathWeightHeuristic<GraphEdge<E, N, P>> next = routes.poll();
+      GraphEdge<E, N, P> nextWay = next.getPath();
+      double curCost = next.getDistance();
 
+      costs.put(nextWay.getEndNode().getId(), curCost);
       visited.put(nextWay.getEndNode().getId(), nextWay);
+      stats.nodeSettled();
 
       if (nextWay.getEndNode().getId().equals(endNode.getId())) {
         break;
       }
 
+      if (readAhead != null) {
+        readAhead.request(uncachedFrontier(nextWay.getEndNode(), costs, readAhead.getDepth()));
+      }
+      if (batchSize > 1 && !cachedFunc.test(nextWay.getEndNode())) {
+        List<P> batch = new ArrayList<>(batchSize);
+        batch.add(nextWay.getEndNode());
+        batch.addAll(uncachedFrontier(nextWay.getEndNode(), costs, batchSize - 1));
+        batchFetchFunc.accept(batch);
+      }
       Set<GraphEdge<E, N, P>> outWardEdges = queryNeighborEdgesFunc.apply(nextWay.getEndNode());
-
-      double curTotalDistance = nextWay.getTotalDistance();
+      stats.neighborsFetched();
 
       for (GraphEdge<E, N, P> edge : outWardEdges) {
-        Double edgeDistance = distanceFunc.apply(edge.getStartNode(), edge.getEndNode());
+        Double edgeDistance = edgeWeightFunc.apply(edge);
+        if (edgeDistance.isInfinite() || !edgePruningFunc.test(edge, endNode)) {
+          continue;
+        }
         Double heuristicDistance = heuristicFunc.apply(startNode, endNode, edge, distanceFunc);
 
-        edge.setTotalDistance(curTotalDistance + edgeDistance + heuristicDistance);
+        PathWeightHeuristic<GraphEdge<E, N, P>> route = new PathWeightHeuristic<>(edge,
+            curCost + edgeDistance, weight * heuristicDistance);
+        routes.add(route, route.getTotalDistance());
+        stats.edgeRelaxed();
+        stats.heapPushed(1);
+      }
+    }
+
+    if (status != RouteStatus.COMPLETED) {
+      return new RouteResult<>(status, new ArrayList<>(),
+          findRoute(startNode, closestSettledNode(startNode, endNode)),
+          Double.POSITIVE_INFINITY, Double.NaN, stats);
+    }
+    double cost = costs.getOrDefault(endNode.getId(), Double.POSITIVE_INFINITY);
+    double bound = 1;
+    if (weight > 1 && cost > 0 && !Double.isInfinite(cost)) {
+      // no path can be cheaper than the lowest cost plus heuristic of a way still queued
+      // or of a way that would have improved a settled node
+      double lowerBound = Math.min(cost, inconsistentBound);
+      for (PathWeightHeuristic<GraphEdge<E, N, P>> queued : routes) {
+        lowerBound = Math.min(lowerBound, improvingBound(queued, costs, weight));
+      }
+      bound = lowerBound > 0 ? Math.min(weight, cost / lowerBound) : weight;
+    }
+    List<GraphEdge<E, N, P>> path = findRoute(startNode, endNode);
+    return new RouteResult<>(status, path, path, cost, bound, stats);
+  }
+
+  /**
+   * Finds the settled node closest to the end node, which a search that was cut short
+   * routes to. It is only looked for once a search stops early, so searches that run to
+   * the end never measure the distance of their settled nodes to the end.
+   *
+   * @param startNode the start node of the search
+   * @param endNode   the end node of the search
+   * @return the settled node, or the start node, that is closest to endNode
+   */
+  private P closestSettledNode(P startNode, P endNode) {
+    P closestNode = startNode;
+    double closestDistance = distanceFunc.apply(startNode, endNode);
+    for (GraphEdge<E, N, P> way : visited.values()) {
+      double distanceToEnd = distanceFunc.apply(way.getEndNode(), endNode);
+      if (distanceToEnd < closestDistance) {
+        closestDistance = distanceToEnd;
+        closestNode = way.getEndNode();
+      }
+    }
+    return closestNode;
+  }
 
-        routes.add(edge);
+  /**
+   * Gets up to limit distinct unsettled and uncached nodes at the ends of queued ways,
+   * other than the given node, looking at BATCH_SCAN_FACTOR times limit plus one ways at
+   * most.
+   *
+   * @param node  the node about to be expanded, which is left out
+   * @param costs the cost of the path found to every settled node
+   * @param limit the most nodes to get
+   * @return a list of nodes in the order the RouteQueue iterates their ways
+   */
+  private List<P> uncachedFrontier(P node, Map<N, Double> costs, int limit) {
+    List<P> frontier = new ArrayList<>(limit);
+    Set<N> seen = new HashSet<>();
+    seen.add(node.getId());
+    int scanned = 0;
+    for (PathWeightHeuristic<GraphEdge<E, N, P>> queued : routes) {
+      if (frontier.size() == limit || scanned++ == BATCH_SCAN_FACTOR * (limit + 1)) {
+        break;
+      }
+      P end = queued.getPath().getEndNode();
+      if (!costs.containsKey(end.getId()) && seen.add(end.getId()) && !cachedFunc.test(end)) {
+        frontier.add(end);
       }
     }
+    return frontier;
+  }
 
-    return findRoute(startNode, endNode);
+  /**
+   * Gets the cost plus the unweighted heuristic of reaching the end node of a queued way,
+   * if that would be cheaper than the path already found to the end node.
+   *
+   * @param queued a queued way with its cost and weighted heuristic
+   * @param costs  the cost of the path found to every settled node
+   * @param weight the factor the heuristic of the queued way was multiplied by
+   * @return the cost plus heuristic, or infinity if the way does not improve its end node
+   */
+  private double improvingBound(PathWeightHeuristic<GraphEdge<E, N, P>> queued,
+                                Map<N, Double> costs, double weight) {
+    Double settledCost = costs.get(queued.getPath().getEndNode().getId());
+    if (settledCost != null && settledCost <= queued.getDistance()) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return queued.getDistance() + queued.getHeuristic() / weight;
   }
 
     /**
@@ -0,0 +1,171 @@
+package edu.brown.cs.student.pathfinding;
+
+/** Enum of the ways to compute the distance in kilometers between two points of the
+ * earth, from exact to cheap. Every kernel computes the distance between two nodes, and
+ * from one node to many points given as arrays of latitude radians, longitude radians and
+ * latitude cosines, the way GraticuleNode caches them. The batched loops only read and
+ * write the arrays, so the JIT can unroll them and, for EQUIRECTANGULAR, vectorize them.
+ *
+ * <p>Every kernel knows how far it may overestimate within the range of distances and
+ * latitudes it documents, so a heuristic built on one can be scaled by getHeuristicScale
+ * to stay admissible there. admissibleDistance does so, and falls back to the Haversine
+ * distance between points outside that range.
+ */
+public enum DistanceKernel {
+  /** The Haversine formula on a sphere of the mean earth radius, which is exact on the
+   * sphere and the distance the edge lengths are measured with. */
+  HAVERSINE(0, Double.POSITIVE_INFINITY, 90) {
+    @Override
+    public double distance(GraticuleNode node1, GraticuleNode node2) {
+      return NodeDistanceCalculators.getHaversineDistance(node1, node2);
+    }
+
+    @Override
+    public void distances(GraticuleNode origin, double[] latitudeRadians,
+                          double[] longitudeRadians, double[] cosLatitudes, double[] out) {
+      final double phi = origin.getLatitudeRadians();
+      final double lambda = origin.getLongitudeRadians();
+      final double cosPhi = origin.getCosLatitude();
+      for (int i = 0; i < out.length; i++) {
+        double sinHalfDeltaPhi = Math.sin((latitudeRadians[i] - phi) / 2);
+        double sinHalfDeltaLambda = Math.sin((longitudeRadians[i] - lambda) / 2);
+        out[i] = 2 * EARTH_RADIUS * Math.asin(Math.sqrt(sinHalfDeltaPhi * sinHalfDeltaPhi
+            + cosPhi * cosLatitudes[i] * sinHalfDeltaLambda * sinHalfDeltaLambda));
+      }
+    }
+  },
+
+  /** The equirectangular projection with the difference in longitude scaled by the mean
+   * of the two latitude cosines, which needs no trigonometry at all. For points at most
+   * 100 km apart between latitudes 70 S and 70 N it is within 1e-4 of the Haversine
+   * distance relative to it, and within 1.1e-5 up to 45 degrees; the error grows with the
+   * square of the distance and with the tangent of the latitude. Longitudes are not
+   * wrapped, so points must not lie on both sides of the antimeridian. */
+  EQUIRECTANGULAR(1e-4, 100, 70) {
+    @Override
+    public double distance(GraticuleNode node1, GraticuleNode node2) {
+      return NodeDistanceCalculators.getEquirectangularDistance(node1, node2);
+    }
+
+    @Override
+    public void distances(GraticuleNode origin, double[] latitudeRadians,
+                          double[] longitudeRadians, double[] cosLatitudes, double[] out) {
+      final double phi = origin.getLatitudeRadians();
+      final double lambda = origin.getLongitudeRadians();
+      final double halfCosPhi = origin.getCosLatitude() / 2;
+      for (int i = 0; i < out.length; i++) {
+        double x = (longitudeRadians[i] - lambda) * (halfCosPhi + cosLatitudes[i] / 2);
+        double y = latitudeRadians[i] - phi;
+        out[i] = EARTH_RADIUS * Math.sqrt(x * x + y * y);
+      }
+    }
+  };
+
+  /** The mean radius of the earth in kilometers. */
+  public static final double EARTH_RADIUS = 6371.0088;
+
+  private final double maxRelativeError;
+  private final double maxRange;
+  private final double maxLatitudeRadians;
+
+  /** Constructor for DistanceKernel.
+   * @param maxRelativeError is the most the kernel overestimates by, relative to the
+   *                         Haversine distance, within its range.
+   * @param maxRange is the longest distance in kilometers the error bound holds for.
+   * @param maxLatitude is the largest absolute latitude in degrees the error bound holds
+   *                    for.
+   */
+  DistanceKernel(double maxRelativeError, double maxRange, double maxLatitude) {
+    this.maxRelativeError = maxRelativeError;
+    this.maxRange = maxRange;
+    this.maxLatitudeRadians = Math.toRadians(maxLatitude);
+  }
+
+  /** Get a kernel by name, ignoring case.
+   * @param name is the name of a kernel.
+   * @return the DistanceKernel, or null if none has that name.
+   */
+  public static DistanceKernel forName(String name) {
+    for (DistanceKernel kernel : values()) {
+      if (kernel.name().equalsIgnoreCase(name)) {
+        return kernel;
+      }
+    }
+    return null;
+  }
+
+  /** Get the distance between two nodes.
+   * @param node1 is a GraticuleNode
+   * @param node2 is a GraticuleNode
+   * @return a double that is the distance between them in kilometers.
+   */
+  public abstract double distance(GraticuleNode node1, GraticuleNode node2);
+
+  /** Get the distance from one node to many points at once.
+   * @param origin is the GraticuleNode to measure from.
+   * @param latitudeRadians is the latitude of every point in radians.
+   * @param longitudeRadians is the longitude of every point in radians.
+   * @param cosLatitudes is the cosine of the latitude of every point.
+   * @param out is filled with the distance to every point; its length is the number of
+   *            points, and the other arrays must be at least as long.
+   */
+  public abstract void distances(GraticuleNode origin, double[] latitudeRadians,
+                                 double[] longitudeRadians, double[] cosLatitudes,
+                                 double[] out);
+
+  /** Get a distance that never exceeds the Haversine distance between two nodes: the
+   * distance from this kernel scaled by getHeuristicScale if the nodes are within the
+   * range of its error bound, and otherwise the Haversine distance itself. An A*
+   * heuristic built on it stays admissible for routes of any length.
+   * @param node1 is a GraticuleNode
+   * @param node2 is a GraticuleNode
+   * @return a double that is at most the distance between them in kilometers.
+   */
+  public double admissibleDistance(GraticuleNode node1, GraticuleNode node2) {
+    double distance = distance(node1, node2);
+    if (maxRelativeError == 0) {
+      return distance;
+    } else if (isInRange(node1, node2, distance)) {
+      return getHeuristicScale() * distance;
+    }
+    return NodeDistanceCalculators.getHaversineDistance(node1, node2);
+  }
+
+  /** Check whether two nodes are within the range of distances and latitudes that the
+   * error bound of the kernel holds for.
+   * @param node1 is a GraticuleNode
+   * @param node2 is a GraticuleNode
+   * @return true if getMaxRelativeError bounds the distance from this kernel between them.
+   */
+  public boolean isInRange(GraticuleNode node1, GraticuleNode node2) {
+    return isInRange(node1, node2, distance(node1, node2));
+  }
+
+  /** Check whether two nodes are within the range of the error bound of the kernel.
+   * @param node1 is a GraticuleNode
+   * @param node2 is a GraticuleNode
+   * @param distance is the distance from this kernel between them.
+   * @return true if getMaxRelativeError bounds the distance.
+   */
+  private boolean isInRange(GraticuleNode node1, GraticuleNode node2, double distance) {
+    return distance <= maxRange
+        && Math.abs(node1.getLatitudeRadians()) <= maxLatitudeRadians
+        && Math.abs(node2.getLatitudeRadians()) <= maxLatitudeRadians;
+  }
+
+  /** Get the most the kernel overestimates a distance by, relative to the Haversine
+   * distance, within the range the kernel documents.
+   * @return a non-negative double that is 0 for HAVERSINE.
+   */
+  public double getMaxRelativeError() {
+    return maxRelativeError;
+  }
+
+  /** Get the factor to scale a distance from this kernel by so that it never exceeds the
+   * Haversine distance within the range of the kernel.
+   * @return a double that is at most 1.
+   */
+  public double getHeuristicScale() {
+    return 1 / (1 + maxRelativeError);
+  }
+}
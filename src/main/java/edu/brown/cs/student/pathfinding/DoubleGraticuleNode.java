@@ -0,0 +1,31 @@
+package edu.brown.cs.student.pathfinding;
+
+/** Class represents graticule nodes that store their coordinates as doubles, exactly as
+ * they are given.
+ */
+final class DoubleGraticuleNode extends GraticuleNode {
+  // kept unboxed, since searches read them far more often than anything asks for a list
+  private final double latitude;
+  private final double longitude;
+
+  /** Constructor for DoubleGraticuleNode.
+   * @param id is a String that represents the id of the node.
+   * @param latitude is a double that represents the latitude.
+   * @param longitude is a double that represents the longitude.
+   */
+  DoubleGraticuleNode(String id, double latitude, double longitude) {
+    super(id, latitude, longitude);
+    this.latitude = latitude;
+    this.longitude = longitude;
+  }
+
+  @Override
+  public double getLatitude() {
+    return latitude;
+  }
+
+  @Override
+  public double getLongitude() {
+    return longitude;
+  }
+}
@@ -0,0 +1,128 @@
+package edu.brown.cs.student.pathfinding;
+
+/** Class that holds how a ProxiedEdgeFetcher caches the ways out of nodes: how many ways
+ * it may hold in total, how long a cached node stays fresh, whether it records hit and
+ * eviction statistics, whether it resizes itself within a heap budget according to
+ * how well it is doing, and how far around a missed node it prefetches. The cache is
+ * bounded by ways rather than by nodes, since a node at a junction costs as much memory as
+ * several nodes along a road.
+ */
+public class EdgeCacheOptions {
+  /** The rough heap cost of one cached way with its share of the set and map holding it,
+   * which turns a heap budget into a number of ways. */
+  public static final long ESTIMATED_BYTES_PER_EDGE = 160;
+
+  private static final long DEFAULT_MAXIMUM_EDGES = 100_000;
+  private static final long DEFAULT_EXPIRE_AFTER_SECONDS = 300;
+  private static final int DEFAULT_HEAP_SHARE = 4;
+
+  private final long maximumEdges;
+  private final long expireAfterSeconds;
+  private final boolean recordStats;
+  private final boolean adaptive;
+  private final long heapBudgetBytes;
+  private final double prefetchRadius;
+
+  /** Constructor for EdgeCacheOptions with the defaults: 100,000 ways that stay fresh for
+   * five minutes, with statistics recorded and no adaptive sizing.
+   */
+  public EdgeCacheOptions() {
+    this(DEFAULT_MAXIMUM_EDGES, DEFAULT_EXPIRE_AFTER_SECONDS, true, false,
+        Runtime.getRuntime().maxMemory() / DEFAULT_HEAP_SHARE);
+  }
+
+  /** Constructor for EdgeCacheOptions that does not prefetch.
+   * @param maximumEdges is the largest number of ways the cache may hold, which is where
+   *                     an adaptive cache starts.
+   * @param expireAfterSeconds is the number of seconds a cached node stays fresh for.
+   * @param recordStats is true to record hits, misses, evictions and load times.
+   * @param adaptive is true to let the cache grow or shrink; this records statistics
+   *                 whatever recordStats is.
+   * @param heapBudgetBytes is the most heap an adaptive cache may grow to use.
+   * @throws IllegalArgumentException if a size, the expiry or the budget is not positive.
+   */
+  public EdgeCacheOptions(long maximumEdges, long expireAfterSeconds, boolean recordStats,
+                          boolean adaptive, long heapBudgetBytes)
+      throws IllegalArgumentException {
+    this(maximumEdges, expireAfterSeconds, recordStats, adaptive, heapBudgetBytes, 0);
+  }
+
+  /** Constructor for EdgeCacheOptions.
+   * @param maximumEdges is the largest number of ways the cache may hold, which is where
+   *                     an adaptive cache starts.
+   * @param expireAfterSeconds is the number of seconds a cached node stays fresh for.
+   * @param recordStats is true to record hits, misses, evictions and load times.
+   * @param adaptive is true to let the cache grow or shrink; this records statistics
+   *                 whatever recordStats is.
+   * @param heapBudgetBytes is the most heap an adaptive cache may grow to use.
+   * @param prefetchRadius is the radius, in degrees, of the cell around a missed node whose
+   *                       ways are loaded along with it, where the prefetching starts; 0
+   *                       loads only the missed node.
+   * @throws IllegalArgumentException if a size, the expiry or the budget is not positive,
+   *                                  or the radius is negative.
+   */
+  public EdgeCacheOptions(long maximumEdges, long expireAfterSeconds, boolean recordStats,
+                          boolean adaptive, long heapBudgetBytes, double prefetchRadius)
+      throws IllegalArgumentException {
+    if (maximumEdges < 1 || expireAfterSeconds < 1 || heapBudgetBytes < 1
+        || !(prefetchRadius >= 0)) {
+      throw new IllegalArgumentException();
+    }
+    this.maximumEdges = maximumEdges;
+    this.expireAfterSeconds = expireAfterSeconds;
+    this.recordStats = recordStats || adaptive;
+    this.adaptive = adaptive;
+    this.heapBudgetBytes = heapBudgetBytes;
+    this.prefetchRadius = prefetchRadius;
+  }
+
+  /** Get the largest number of ways the cache starts out holding.
+   * @return a positive long.
+   */
+  public long getMaximumEdges() {
+    return maximumEdges;
+  }
+
+  /** Get the number of seconds a cached node stays fresh for.
+   * @return a positive long.
+   */
+  public long getExpireAfterSeconds() {
+    return expireAfterSeconds;
+  }
+
+  /** Check whether the cache records statistics.
+   * @return true if hits, misses, evictions and load times are recorded.
+   */
+  public boolean isRecordStats() {
+    return recordStats;
+  }
+
+  /** Check whether the cache resizes itself.
+   * @return true if the cache grows and shrinks with its hit rate and evictions.
+   */
+  public boolean isAdaptive() {
+    return adaptive;
+  }
+
+  /** Get the largest number of ways an adaptive cache may grow to hold, which is the heap
+   * budget over the estimated cost of a way.
+   * @return a positive long that is never below the starting maximum.
+   */
+  public long getBudgetEdges() {
+    return Math.max(maximumEdges, heapBudgetBytes / ESTIMATED_BYTES_PER_EDGE);
+  }
+
+  /** Get the radius of the cell around a missed node that is prefetched at first.
+   * @return a double in degrees that is 0 if the cache does not prefetch.
+   */
+  public double getPrefetchRadius() {
+    return prefetchRadius;
+  }
+
+  /** Check whether the cache loads the ways of the nodes around a missed node.
+   * @return true if the prefetch radius is positive.
+   */
+  public boolean isPrefetching() {
+    return prefetchRadius > 0;
+  }
+}
@@ -0,0 +1,110 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/** Class that fetches the ways out of frontier nodes on a background executor while a
+ * search works on the node it settled, so that the database and the search overlap. A
+ * search asks for the nodes it expects to expand next after every node it settles. At
+ * most depth of its fetches are pending at a time, and a fetch still waiting for the
+ * executor is cancelled once its node drops out of the nodes asked for. A fetch already
+ * running is left to finish, since its ways are cached either way.
+ *
+ * <p>An EdgeReadAhead belongs to one search at a time and is not thread-safe; only the
+ * fetches it submits run on other threads.
+ * @param <P> is the GraphNode whose ways are fetched
+ */
+public class EdgeReadAhead<P> {
+  private final Consumer<P> fetchFunc;
+  private final ExecutorService executor;
+  private final int depth;
+  private final Map<P, Future<?>> pending = new LinkedHashMap<>();
+  private long submitted;
+  private long cancelled;
+
+  /** Constructor for EdgeReadAhead.
+   * @param fetchFunc is a function that fetches and caches the ways out of a node, such
+   *                  that the search finds them cached afterwards.
+   * @param executor is the ExecutorService the fetches run on.
+   * @param depth is the most fetches pending at once.
+   * @throws IllegalArgumentException if depth is not positive.
+   */
+  public EdgeReadAhead(Consumer<P> fetchFunc, ExecutorService executor, int depth)
+      throws IllegalArgumentException {
+    if (depth < 1) {
+      throw new IllegalArgumentException();
+    }
+    this.fetchFunc = fetchFunc;
+    this.executor = executor;
+    this.depth = depth;
+  }
+
+  /** Get the most fetches pending at once, which is how many frontier nodes a search
+   * should ask for.
+   * @return a positive int.
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /** Cancels the pending fetches of nodes that are not asked for anymore, and submits
+   * fetches for the nodes asked for, in order, while fewer than depth are pending.
+   * @param nodes are the nodes the search expects to expand next, most likely first.
+   */
+  public void request(List<P> nodes) {
+    Set<P> wanted = new HashSet<>(nodes);
+    Iterator<Map.Entry<P, Future<?>>> fetches = pending.entrySet().iterator();
+    while (fetches.hasNext()) {
+      Map.Entry<P, Future<?>> fetch = fetches.next();
+      if (fetch.getValue().isDone()) {
+        fetches.remove();
+      } else if (!wanted.contains(fetch.getKey())) {
+        if (fetch.getValue().cancel(false)) {
+          cancelled++;
+        }
+        fetches.remove();
+      }
+    }
+    for (P node : nodes) {
+      if (pending.size() >= depth) {
+        break;
+      }
+      if (!pending.containsKey(node)) {
+        pending.put(node, executor.submit(() -> fetchFunc.accept(node)));
+        submitted++;
+      }
+    }
+  }
+
+  /** Cancels every fetch still waiting for the executor, for when the search ends.
+   */
+  public void cancelAll() {
+    for (Future<?> fetch : pending.values()) {
+      if (fetch.cancel(false)) {
+        cancelled++;
+      }
+    }
+    pending.clear();
+  }
+
+  /** Get the number of fetches submitted so far.
+   * @return a non-negative long.
+   */
+  public long getSubmitted() {
+    return submitted;
+  }
+
+  /** Get the number of submitted fetches cancelled before they ran.
+   * @return a non-negative long.
+   */
+  public long getCancelled() {
+    return cancelled;
+  }
+}
@@ -0,0 +1,65 @@
+package edu.brown.cs.student.pathfinding;
+
+import edu.brown.cs.student.coordinates.FixedPoint;
+
+/** Class represents graticule nodes that store their coordinates as int32 fixed point in
+ * units of 1e-7 degrees, and decode them when they are read. The radians and cosine the
+ * Haversine distance needs are cached from the decoded coordinates, so routes are
+ * computed on the snapped points.
+ */
+final class FixedPointGraticuleNode extends GraticuleNode {
+  private final int latitude;
+  private final int longitude;
+
+  /** Constructor for FixedPointGraticuleNode.
+   * @param id is a String that represents the id of the node.
+   * @param latitude is a double that represents the latitude, which is rounded.
+   * @param longitude is a double that represents the longitude, which is rounded.
+   * @throws IllegalArgumentException if a coordinate does not fit in fixed point.
+   */
+  FixedPointGraticuleNode(String id, double latitude, double longitude)
+      throws IllegalArgumentException {
+    this(id, FixedPoint.encode(latitude), FixedPoint.encode(longitude));
+  }
+
+  /** Constructor for FixedPointGraticuleNode from fixed-point coordinates.
+   * @param id is a String that represents the id of the node.
+   * @param latitude is an int that represents the latitude in units of 1e-7 degrees.
+   * @param longitude is an int that represents the longitude in units of 1e-7 degrees.
+   */
+  private FixedPointGraticuleNode(String id, int latitude, int longitude) {
+    super(id, FixedPoint.decode(latitude), FixedPoint.decode(longitude));
+    this.latitude = latitude;
+    this.longitude = longitude;
+  }
+
+  @Override
+  public double getLatitude() {
+    return FixedPoint.decode(latitude);
+  }
+
+  @Override
+  public double getLongitude() {
+    return FixedPoint.decode(longitude);
+  }
+
+  @Override
+  public boolean isAt(double lat, double lon) {
+    return latitude == FixedPoint.encode(lat) && longitude == FixedPoint.encode(lon);
+  }
+
+  @Override
+  public boolean isFixedPoint() {
+    return true;
+  }
+
+  @Override
+  public int fixedCoord(int dim) throws IndexOutOfBoundsException {
+    if (dim == 0) {
+      return latitude;
+    } else if (dim == 1) {
+      return longitude;
+    }
+    throw new IndexOutOfBoundsException("Index out of range: " + dim);
+  }
+}
@@ -6,6 +6,17 @@ import java.util.List;
  * @param <T> is the ID type of the GraphNode
  */
 public interface GraphNode<T> {
+  /** Get the value of GraphNode's coordinate at given dimension without boxing it.
+   * @param dim is an int that represents a given dimension
+   * @return a double that is the coordinate value
+   */
+  double coord(int dim);
+
+  /** Get the number of dimensions of GraphNode's coordinates.
+   * @return a positive int
+   */
+  int dimensions();
+
   /** Get the value of GraphNode's coordinate at given dimension.
    * @param dim is an int that represents a given dimension
    * @return a Double that is the coordinate value
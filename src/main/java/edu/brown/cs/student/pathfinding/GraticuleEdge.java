@@ -6,40 +6,78 @@ import java.util.Objects;
  */
 public class GraticuleEdge implements GraphEdge<String, String, GraticuleNode> {
   private final String id;
-  private final String name;
-  private final String type;
+  // the name and type are coded in the dictionary of the map, and decoded only for output
+  private final StringDictionary dictionary;
+  private final int nameCode;
+  private final int typeCode;
   private final GraticuleNode start;
   private final GraticuleNode end;
+  private final double length;
+  private final int hash;
   private Double totalDistance;
 
-  /** Constructor for GraticuleEdge.
+  /** Constructor for GraticuleEdge. Its Haversine length is computed here, once, rather
+   * than every time a search relaxes it.
    * @param id is a String and must be unique.
    * @param name is a String that is the name of GraticuleEdge.
    * @param type is a String that is the type of the GraticuleEdge.
    * @param start is a GraticuleNode that is at the start of the GraticuleEdge.
    * @param end is a GraticuleNode that is at the end of the GraticuleEdge.
+   * @param dictionary is the StringDictionary of the map that codes the name and type.
    */
   public GraticuleEdge(String id, String name, String type,
-                       GraticuleNode start, GraticuleNode end) {
+                       GraticuleNode start, GraticuleNode end, StringDictionary dictionary) {
     this.id = id;
-    this.name = name;
-    this.type = type;
+    this.dictionary = dictionary;
+    this.nameCode = dictionary.encode(name);
+    this.typeCode = dictionary.encode(type);
     this.start = start;
     this.end = end;
+    this.length = NodeDistanceCalculators.getHaversineDistance(start, end);
+    this.hash = Objects.hash(id, start, end, name, type);
   }
 
-  /** Return name of the edge.
+  /** Return the Haversine length of the edge.
+   * @return double
+   */
+  public double getLength() {
+    return length;
+  }
+
+  /** Return name of the edge, decoded from its dictionary.
    * @return String
    */
   public String getName() {
-    return name;
+    return dictionary.decode(nameCode);
   }
 
-  /** Return type of the edge.
+  /** Return type of the edge, decoded from its dictionary.
    * @return String
    */
   public String getType() {
-    return type;
+    return dictionary.decode(typeCode);
+  }
+
+  /** Return the code of the name of the edge, which equals the code of another edge of the
+   * same dictionary exactly when their names are equal.
+   * @return an int that is -1 if the edge has no name.
+   */
+  public int getNameCode() {
+    return nameCode;
+  }
+
+  /** Return the code of the type of the edge.
+   * @return an int that is -1 if the edge has no type.
+   */
+  public int getTypeCode() {
+    return typeCode;
+  }
+
+  /** Return the dictionary that codes the name and type of the edge.
+   * @return a StringDictionary
+   */
+  public StringDictionary getDictionary() {
+    return dictionary;
   }
 
   /** Return a String that represents the edge.
@@ -51,8 +89,8 @@ public class GraticuleEdge implements GraphEdge<String, String, GraticuleNode> {
     str.append("id='" + id + '\'');
     str.append(", start=" + start.toString());
     str.append(", end=" + end.toString());
-    str.append(", name='" + name + '\'');
-    str.append(", type='" + type + '\'');
+    str.append(", name='" + getName() + '\'');
+    str.append(", type='" + getType() + '\'');
     str.append('}');
     return str.toString();
   }
@@ -70,9 +108,15 @@ public class GraticuleEdge implements GraphEdge<String, String, GraticuleNode> {
       return false;
     }
     GraticuleEdge graticuleEdge = (GraticuleEdge) o;
-    return id.equals(graticuleEdge.id) && Objects.equals(start, graticuleEdge.start)
-        && Objects.equals(end, graticuleEdge.end) && Objects.equals(name, graticuleEdge.name)
-        && Objects.equals(type, graticuleEdge.type);
+    if (hash != graticuleEdge.hash || !id.equals(graticuleEdge.id)
+        || !Objects.equals(start, graticuleEdge.start) || !Objects.equals(end, graticuleEdge.end)) {
+      return false;
+    }
+    if (dictionary == graticuleEdge.dictionary) {
+      return nameCode == graticuleEdge.nameCode && typeCode == graticuleEdge.typeCode;
+    }
+    return Objects.equals(getName(), graticuleEdge.getName())
+        && Objects.equals(getType(), graticuleEdge.getType());
   }
 
   /** Get a hashcode for a GraticuleEdge.
@@ -80,7 +124,7 @@ public class GraticuleEdge implements GraphEdge<String, String, GraticuleNode> {
    */
   @Override
   public int hashCode() {
-    return Objects.hash(id, start, end, name, type);
+    return hash;
   }
 
   /** Get the id of the edge.
@@ -2,51 +2,160 @@ package edu.brown.cs.student.pathfinding;
 
 import edu.brown.cs.student.coordinates.Coordinate;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 /** Class represents graticule nodes that have an id and latitude and longitude as coordinates.
+ * A node stores its coordinates either as doubles, which is the default, or as int32 fixed
+ * point in units of 1e-7 degrees, which snaps every coordinate to within 5.6 millimetres
+ * of its value; see FixedPoint. Fixed point halves the memory of the two coordinate
+ * fields, but the id, hash and cached radians stay the same, so a node takes 56 bytes
+ * rather than 64. The of method makes nodes the way the program was started with. Nodes
+ * are equal by their id and decoded coordinates, whichever way they are stored.
  */
-public class GraticuleNode implements Coordinate<String>, GraphNode<String> {
+public abstract class GraticuleNode implements Coordinate<String>, GraphNode<String> {
+  // set once at startup, before any map is loaded
+  private static volatile boolean fixedPoint = false;
+
   private final String id;
-  private final List<Double> coordinates;
+  private final double latitudeRadians;
+  private final double longitudeRadians;
+  private final double cosLatitude;
+  // the id and coordinates never change, and every cache lookup and HashSet insert hashes
+  private final int hash;
+  // the dense index a NodeRegistry gave the node, or -1
+  private int index = -1;
+
+  /** Constructor for GraticuleNode, given its coordinates as they read back once stored.
+   * @param id is a String that represents the id of GraticuleNode.
+   * @param latitude is a double that represents the stored latitude.
+   * @param longitude is a double that represents the stored longitude.
+   */
+  GraticuleNode(String id, double latitude, double longitude) {
+    this.id = id;
+    // cached for the Haversine distance, which every route relaxation and heuristic needs
+    this.latitudeRadians = latitude * Math.PI / 180;
+    this.longitudeRadians = longitude * Math.PI / 180;
+    this.cosLatitude = Math.cos(latitudeRadians);
+    // the hash Objects.hash(id, List.of(latitude, longitude)) had, without building the list
+    this.hash = 31 * (31 + Objects.hashCode(id))
+        + 31 * (31 + Double.hashCode(latitude)) + Double.hashCode(longitude);
+  }
 
-  /** Constructor for GraticuleNode.
+  /** Makes a GraticuleNode that stores its coordinates the way set by setFixedPoint.
    * @param id is a String that represents the id of GraticuleNode.
    * @param latitude is a double that represents the latitude.
    * @param longitude is a double that represents the longitude.
+   * @return a new GraticuleNode
+   * @throws IllegalArgumentException if nodes are stored in fixed point and a coordinate
+   *                                  does not fit.
    */
-  public GraticuleNode(String id, double latitude, double longitude) {
-    this.id = id;
-    List<Double> coor = new ArrayList<>();
-    coor.add(latitude);
-    coor.add(longitude);
+  public static GraticuleNode of(String id, double latitude, double longitude)
+      throws IllegalArgumentException {
+    return fixedPoint ? new FixedPointGraticuleNode(id, latitude, longitude)
+        : new DoubleGraticuleNode(id, latitude, longitude);
+  }
 
-    this.coordinates = coor;
+  /** Sets whether the nodes made from now on store their coordinates in fixed point.
+   * @param fixed is true for int32 fixed point and false for doubles.
+   */
+  public static void setFixedPoint(boolean fixed) {
+    fixedPoint = fixed;
   }
 
-  /** Get the latitude of the graticule node.
-   * @return the first element in the stored coordinates.
+  /** Check whether new nodes store their coordinates in fixed point.
+   * @return true if they do.
    */
-  public double getLatitude() {
-    return getCoordinateVal(0);
+  public static boolean isFixedPointStorage() {
+    return fixedPoint;
   }
 
+  /** Get the latitude of the graticule node.
+   * @return the first coordinate, decoded if it is stored in fixed point.
+   */
+  public abstract double getLatitude();
+
   /** Get the longitude of the graticule node.
-   * @return the second element in the stored coordinates.
+   * @return the second coordinate, decoded if it is stored in fixed point.
+   */
+  public abstract double getLongitude();
+
+  /** Check whether the node lies at the given coordinates once they are stored the way
+   * the node stores its own.
+   * @param latitude is a double that is a latitude.
+   * @param longitude is a double that is a longitude.
+   * @return true if the coordinates read back as those of the node.
+   */
+  public boolean isAt(double latitude, double longitude) {
+    return getLatitude() == latitude && getLongitude() == longitude;
+  }
+
+  /** Get the latitude of the graticule node in radians.
+   * @return a double that is the latitude in radians.
+   */
+  public double getLatitudeRadians() {
+    return latitudeRadians;
+  }
+
+  /** Get the longitude of the graticule node in radians.
+   * @return a double that is the longitude in radians.
    */
-  public double getLongitude() {
-    return getCoordinateVal(1);
+  public double getLongitudeRadians() {
+    return longitudeRadians;
+  }
+
+  /** Get the cosine of the latitude of the graticule node.
+   * @return a double that is the cosine of the latitude.
+   */
+  public double getCosLatitude() {
+    return cosLatitude;
+  }
+
+  /** Get the dense index the NodeRegistry of the loaded map gave the node, which is its
+   * index in the road graph.
+   * @return a non-negative int, or -1 if the node is not the registered node of its id.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /** Set the dense index of the node, once, when a NodeRegistry registers it.
+   * @param index is a non-negative int.
+   */
+  void setIndex(int index) {
+    this.index = index;
   }
 
   /** Get the value of a coordinate given the dimension.
-   * @param dim is an int that represents a dimension.
+   * @param dim is an int that is 0 for the latitude and 1 for the longitude.
    * @return a double that is the value of a coordinate at the given dimension
+   * @throws IndexOutOfBoundsException if dim is neither 0 nor 1.
+   */
+  @Override
+  public double coord(int dim) throws IndexOutOfBoundsException {
+    if (dim == 0) {
+      return getLatitude();
+    } else if (dim == 1) {
+      return getLongitude();
+    }
+    throw new IndexOutOfBoundsException("Index out of range: " + dim);
+  }
+
+  /** Get the number of dimensions of the GraticuleNode.
+   * @return 2, for the latitude and longitude.
+   */
+  @Override
+  public int dimensions() {
+    return 2;
+  }
+
+  /** Get the value of a coordinate given the dimension, boxed.
+   * @param dim is an int that represents a dimension.
+   * @return a Double that is the value of a coordinate at the given dimension
    */
   @Override
   public Double getCoordinateVal(int dim) {
-    return coordinates.get(dim);
+    return coord(dim);
   }
 
   /** Get the ID of the GraticuleNode.
@@ -57,12 +166,12 @@ public class GraticuleNode implements Coordinate<String>, GraphNode<String> {
     return id;
   }
 
-  /** Get the coordinates of the GraticuleNode.
-   * @return a list of Doubles that represents the coordinates.
+  /** Get the coordinates of the GraticuleNode, boxed into a new list.
+   * @return an unmodifiable list of Doubles that represents the coordinates.
    */
   @Override
   public List<Double> getCoordinates() {
-    return coordinates;
+    return List.of(getLatitude(), getLongitude());
   }
 
   /** Check if this GraticuleNode is equal to another.
@@ -74,12 +183,15 @@ public class GraticuleNode implements Coordinate<String>, GraphNode<String> {
     if (this == o) {
       return true;
     }
-    if (o == null || getClass() != o.getClass()) {
+    if (!(o instanceof GraticuleNode)) {
       return false;
     }
     GraticuleNode graticuleNode = (GraticuleNode) o;
-    return Objects.equals(id, graticuleNode.id)
-        && Objects.equals(coordinates, graticuleNode.coordinates);
+    return hash == graticuleNode.hash && Objects.equals(id, graticuleNode.id)
+        && Double.doubleToLongBits(getLatitude())
+        == Double.doubleToLongBits(graticuleNode.getLatitude())
+        && Double.doubleToLongBits(getLongitude())
+        == Double.doubleToLongBits(graticuleNode.getLongitude());
   }
 
   /** Return a String that represents a GraticuleNode.
@@ -89,7 +201,7 @@ public class GraticuleNode implements Coordinate<String>, GraphNode<String> {
   public String toString() {
     StringBuilder str = new StringBuilder("GraticuleNode{");
     str.append("id='" + id + '\'');
-    str.append(", coordinates=" + coordinates);
+    str.append(", coordinates=[" + getLatitude() + ", " + getLongitude() + "]");
     str.append('}');
     return str.toString();
   }
@@ -99,6 +211,6 @@ public class GraticuleNode implements Coordinate<String>, GraphNode<String> {
    */
   @Override
   public int hashCode() {
-    return Objects.hash(id, coordinates);
+    return hash;
   }
 }
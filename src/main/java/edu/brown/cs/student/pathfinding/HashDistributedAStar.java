@@ -0,0 +1,473 @@
+package edu.brown.cs.student.pathfinding;
+
+import edu.brown.cs.student.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/** Class that finds shortest paths with hash distributed A* (HDA*), which spreads one
+ * search over several worker threads. Every node is owned by the worker its id hashes to,
+ * and only the owner keeps its best known cost, its parent way and its place in an open
+ * list. A worker expands the most promising node of its own open list and sends every
+ * relaxed way to the owner of the node it leads to through that owner's lock-free inbox.
+ *
+ * <p>The cheapest path to the end found so far is shared by all workers, and a worker goes
+ * idle once nothing in its open list could beat it. The search ends when every worker is
+ * idle and no way is in flight, which one counter of the two together detects. Since the
+ * heuristic never overestimates, nothing left could have led to a cheaper path, so the
+ * path found is a shortest one. Nodes may be expanded again if a cheaper way to them
+ * arrives later, so the heuristic need not be consistent. An idle worker parks until a way
+ * is sent to it or the search ends. With the heuristic inflated by a weight w, every way
+ * pruned had a cost plus heuristic of at most w times the shortest path, so the path
+ * found is at most w times longer than a shortest one.
+ *
+ * <p>The workers check the limits of the RouteQueryOptions of the search before every
+ * expansion, and the first to break one stops them all. If a worker throws, the others
+ * are stopped too and the exception is rethrown to the caller.
+ * @param <E> is the ID type of the GraphEdge
+ * @param <N> is the ID type of the GraphNode
+ * @param <P> is an object type that extends GraphNode
+ */
+public class HashDistributedAStar<E, N, P extends GraphNode<N>> {
+  private final BiFunction<P, P, Double> distanceFunc;
+  private final Function<P, Set<GraphEdge<E, N, P>>> queryNeighborEdgesFunc;
+  private final Utils.Function4To1<P, P, GraphEdge<E, N, P>,
+      BiFunction<P, P, Double>, Double> heuristicFunc;
+  private final BiPredicate<P, P> reachabilityFunc;
+  private final BiPredicate<GraphEdge<E, N, P>, P> edgePruningFunc;
+  private final Function<GraphEdge<E, N, P>, Double> edgeWeightFunc;
+  private final int threads;
+
+  /**
+   * Constructor for HashDistributedAStar, taking the same functions as DijkstraAStar.
+   *
+   * @param distanceFunc           is a function that takes two GraphNodes and returns a double that
+   *                               is the distance between the two nodes
+   * @param queryNeighborEdgesFunc is a function that queries the
+   *                               adjacent edges starting from a target node; it is called
+   *                               from every worker thread at once
+   * @param heuristicFunc          is a function that calculates the heuristic of a node
+   * @param reachabilityFunc       is a function that returns false only if there is
+   *                               certainly no path from its first node to its second
+   * @param edgePruningFunc        is a function that returns false only if an edge is on
+   *                               no shortest path to the given end node
+   * @param edgeWeightFunc         is a function that returns the non-negative weight of an edge,
+   *                               or infinity if the edge may not be used
+   * @param threads                is the number of worker threads
+   * @throws IllegalArgumentException if threads is not positive.
+   */
+  public HashDistributedAStar(BiFunction<P, P, Double> distanceFunc,
+                              Function<P, Set<GraphEdge<E, N, P>>> queryNeighborEdgesFunc,
+                              Utils.Function4To1<P,
+                                  P,
+                                  GraphEdge<E, N, P>,
+                                  BiFunction<P, P, Double>,
+                                  Double> heuristicFunc,
+                              BiPredicate<P, P> reachabilityFunc,
+                              BiPredicate<GraphEdge<E, N, P>, P> edgePruningFunc,
+                              Function<GraphEdge<E, N, P>, Double> edgeWeightFunc,
+                              int threads) throws IllegalArgumentException {
+    if (threads < 1) {
+      throw new IllegalArgumentException();
+    }
+    this.distanceFunc = distanceFunc;
+    this.queryNeighborEdgesFunc = queryNeighborEdgesFunc;
+    this.heuristicFunc = heuristicFunc;
+    this.reachabilityFunc = reachabilityFunc;
+    this.edgePruningFunc = edgePruningFunc;
+    this.edgeWeightFunc = edgeWeightFunc;
+    this.threads = threads;
+  }
+
+  /** Finds the shortest path from startNode to endNode on the worker threads under the
+   * limits of the given options, waiting for the workers to finish. A search that breaks
+   * a limit reports why in the status of its result along with the path to the reached
+   * node closest to endNode. A heuristic weight w above 1 inflates the heuristic, and a
+   * completed search then reports w as the bound on how much longer its path can be.
+   * @param startNode is the GraphNode to start the path from
+   * @param endNode   is the GraphNode to end the path at
+   * @param options   the deadline, budgets and cancellation token of the search
+   * @return a RouteResult holding the status of the search and, if it completed, the
+   * shortest path, which is empty if there is none or the nodes are the same, along with
+   * the counters of all workers together.
+   * @throws IllegalStateException if the calling thread is interrupted while waiting.
+   */
+  public RouteResult<E, N, P> runHashDistributedAStar(P startNode, P endNode,
+                                                      RouteQueryOptions options)
+      throws IllegalStateException {
+    SearchStats stats = SearchStats.begin();
+    if (startNode.getId().equals(endNode.getId())
+        || !reachabilityFunc.test(startNode, endNode)) {
+      stats.finish();
+      double cost = startNode.getId().equals(endNode.getId()) ? 0 : Double.POSITIVE_INFINITY;
+      return new RouteResult<>(RouteStatus.COMPLETED, new ArrayList<>(), new ArrayList<>(),
+          cost, 1, stats);
+    }
+
+    Search search = new Search(startNode, endNode, options);
+    for (Worker worker : search.workers) {
+      worker.thread = new Thread(worker, "hash-distributed-a-star-" + worker.index);
+      worker.thread.setDaemon(true);
+    }
+    search.owner(startNode).open.add(new Entry<>(startNode, 0, 0));
+    search.owner(startNode).best.put(startNode.getId(), 0.0);
+    search.held.incrementAndGet();
+    for (Worker worker : search.workers) {
+      worker.thread.start();
+    }
+    try {
+      for (Worker worker : search.workers) {
+        worker.thread.join();
+      }
+    } catch (InterruptedException e) {
+      search.finish();
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+    Throwable failure = search.failure.get();
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw (RuntimeException) failure;
+    }
+    for (Worker worker : search.workers) {
+      stats.add(worker.stats);
+    }
+    stats.finish();
+
+    RouteStatus status = search.status.get();
+    if (status != null) {
+      return new RouteResult<>(status, new ArrayList<>(),
+          search.pathTo(search.closestReachedNode()), Double.POSITIVE_INFINITY, Double.NaN,
+          stats);
+    }
+    double cost = search.incumbent();
+    List<GraphEdge<E, N, P>> path = Double.isInfinite(cost)
+        ? new ArrayList<>() : search.pathTo(endNode);
+    double bound = options.getHeuristicWeight() > 1 && !path.isEmpty()
+        ? options.getHeuristicWeight() : 1;
+    return new RouteResult<>(RouteStatus.COMPLETED, path, path, cost, bound, stats);
+  }
+
+  /** Class that is the state shared by the workers of one search.
+   */
+  private final class Search {
+    private final P startNode;
+    private final P endNode;
+    private final RouteQueryOptions options;
+    private final List<Worker> workers = new ArrayList<>();
+    // the cost of the cheapest path to the end found so far, as raw long bits
+    private final AtomicLong incumbentBits =
+        new AtomicLong(Double.doubleToRawLongBits(Double.POSITIVE_INFINITY));
+    // the number of ways in flight plus the number of workers that are not idle
+    private final AtomicLong work = new AtomicLong(threads);
+    // the number of nodes expanded and the number of nodes given a cost by all workers
+    private final AtomicInteger settled = new AtomicInteger();
+    private final AtomicInteger held = new AtomicInteger();
+    // the limit the search broke, or the exception a worker threw, if any
+    private final AtomicReference<RouteStatus> status = new AtomicReference<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean finished;
+
+    /** Constructor for Search.
+     * @param startNode is the GraphNode the path starts at.
+     * @param endNode is the GraphNode the path ends at.
+     * @param options is the RouteQueryOptions the search must stay within.
+     */
+    Search(P startNode, P endNode, RouteQueryOptions options) {
+      this.startNode = startNode;
+      this.endNode = endNode;
+      this.options = options;
+      for (int i = 0; i < threads; i++) {
+        workers.add(new Worker(this, i));
+      }
+    }
+
+    /** Ends the search and wakes every parked worker so that it sees the end.
+     */
+    void finish() {
+      finished = true;
+      for (Worker worker : workers) {
+        LockSupport.unpark(worker.thread);
+      }
+    }
+
+    /** Get the path to a node along the parent ways kept by the owners of its nodes.
+     * @param node is a GraphNode the search reached, or null.
+     * @return a list of GraphEdges from the start to node, which is empty if node is the
+     * start or null.
+     */
+    List<GraphEdge<E, N, P>> pathTo(P node) {
+      List<GraphEdge<E, N, P>> path = new ArrayList<>();
+      if (node == null) {
+        return path;
+      }
+      GraphEdge<E, N, P> way = owner(node).parents.get(node.getId());
+      while (way != null) {
+        path.add(way);
+        P from = way.getStartNode();
+        way = owner(from).parents.get(from.getId());
+      }
+      Collections.reverse(path);
+      return path;
+    }
+
+    /** Finds the node closest to the end among those the workers reached, which a search
+     * that was cut short routes to. It is only called once the workers have stopped.
+     * @return a GraphNode that is the start if no way was kept.
+     */
+    P closestReachedNode() {
+      P closest = startNode;
+      double closestDistance = distanceFunc.apply(startNode, endNode);
+      for (Worker worker : workers) {
+        for (GraphEdge<E, N, P> way : worker.parents.values()) {
+          double distance = distanceFunc.apply(way.getEndNode(), endNode);
+          if (distance < closestDistance) {
+            closest = way.getEndNode();
+            closestDistance = distance;
+          }
+        }
+      }
+      return closest;
+    }
+
+    /** Get the worker that owns a node.
+     * @param node is a GraphNode.
+     * @return the Worker its id hashes to.
+     */
+    Worker owner(P node) {
+      int hash = node.getId().hashCode();
+      // spread the bits so ids with similar hash codes land on different workers
+      hash = (hash ^ (hash >>> 16)) * 0x9E3779B9;
+      return workers.get(Math.floorMod(hash ^ (hash >>> 16), threads));
+    }
+
+    /** Get the cost of the cheapest path to the end found so far.
+     * @return a double that is infinite until a path is found.
+     */
+    double incumbent() {
+      return Double.longBitsToDouble(incumbentBits.get());
+    }
+
+    /** Lowers the cost of the cheapest path to the end if the candidate is smaller.
+     * @param candidate is the cost of a path to the end.
+     */
+    void offerIncumbent(double candidate) {
+      long current = incumbentBits.get();
+      while (candidate < Double.longBitsToDouble(current)
+          && !incumbentBits.compareAndSet(current, Double.doubleToRawLongBits(candidate))) {
+        current = incumbentBits.get();
+      }
+    }
+  }
+
+  /** Class that is one worker thread of a search and the nodes it owns.
+   */
+  private final class Worker implements Runnable {
+    private final Search search;
+    private final int index;
+    private Thread thread;
+    // set while the worker is about to park or parked, so that senders know to wake it
+    private volatile boolean waiting;
+    private final ConcurrentLinkedQueue<Relaxation<E, N, P>> inbox =
+        new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<Entry<P>> open = new PriorityQueue<>();
+    private final Map<N, Double> best = new HashMap<>();
+    private final Map<N, GraphEdge<E, N, P>> parents = new HashMap<>();
+    private SearchStats stats;
+
+    /** Constructor for Worker.
+     * @param search is the Search the worker is part of.
+     * @param index is the position of the worker among those of the search.
+     */
+    Worker(Search search, int index) {
+      this.search = search;
+      this.index = index;
+    }
+
+    @Override
+    public void run() {
+      stats = SearchStats.begin();
+      try {
+        work();
+      } catch (RuntimeException | Error e) {
+        search.failure.compareAndSet(null, e);
+        search.finish();
+      }
+    }
+
+    /** Expands nodes and receives ways until the search ends.
+     */
+    private void work() {
+      boolean active = true;
+      while (!search.finished) {
+        Relaxation<E, N, P> relaxation;
+        while ((relaxation = inbox.poll()) != null) {
+          if (active) {
+            search.work.decrementAndGet();
+          } else {
+            // the count of the way received now counts this worker as busy
+            active = true;
+          }
+          receive(relaxation);
+        }
+
+        Entry<P> next = open.poll();
+        if (next != null && next.estimate < search.incumbent()) {
+          if (next.cost > best.get(next.node.getId())) {
+            stats.stalePopped();
+            continue;
+          }
+          RouteStatus limit = search.options.check(search.settled.incrementAndGet(),
+              search.held.get());
+          if (limit != null) {
+            search.status.compareAndSet(null, limit);
+            search.finish();
+            return;
+          }
+          expand(next);
+          continue;
+        }
+        if (active) {
+          // nothing left here can beat the cheapest path found, and the incumbent only
+          // goes down, so the open list can be dropped
+          open.clear();
+          active = false;
+          if (search.work.decrementAndGet() == 0) {
+            search.finish();
+          }
+        }
+        // a sender adds to the inbox before reading waiting, and this worker sets waiting
+        // before reading the inbox, so one of them sees the other and no way is missed
+        waiting = true;
+        if (inbox.isEmpty() && !search.finished) {
+          LockSupport.park(this);
+        }
+        waiting = false;
+      }
+    }
+
+    /** Keeps a way sent to this worker if it is the cheapest way yet to the node it
+     * leads to and could still be part of a path cheaper than the incumbent.
+     * @param relaxation is a way and the cost of the path along it.
+     */
+    private void receive(Relaxation<E, N, P> relaxation) {
+      P node = relaxation.way.getEndNode();
+      Double known = best.get(node.getId());
+      if (known != null && relaxation.cost >= known) {
+        return;
+      }
+      if (node.getId().equals(search.endNode.getId())) {
+        keep(relaxation, known);
+        search.offerIncumbent(relaxation.cost);
+        return;
+      }
+      double estimate = relaxation.cost + search.options.getHeuristicWeight()
+          * heuristicFunc.apply(search.startNode, search.endNode, relaxation.way, distanceFunc);
+      if (estimate >= search.incumbent()) {
+        return;
+      }
+      keep(relaxation, known);
+      open.add(new Entry<>(node, relaxation.cost, estimate));
+      stats.heapPushed(1);
+    }
+
+    /** Records a way as the cheapest yet to the node it leads to.
+     * @param relaxation is a way and the cost of the path along it.
+     * @param known is the cost of the cheapest way to the node before, or null if none.
+     */
+    private void keep(Relaxation<E, N, P> relaxation, Double known) {
+      N id = relaxation.way.getEndNode().getId();
+      if (known == null) {
+        search.held.incrementAndGet();
+      }
+      best.put(id, relaxation.cost);
+      parents.put(id, relaxation.way);
+    }
+
+    /** Relaxes the ways out of a node, sending each to the owner of the node it leads to.
+     * @param entry is the open list entry of the node.
+     */
+    private void expand(Entry<P> entry) {
+      stats.nodeSettled();
+      Set<GraphEdge<E, N, P>> outwardEdges = queryNeighborEdgesFunc.apply(entry.node);
+      stats.neighborsFetched();
+      for (GraphEdge<E, N, P> edge : outwardEdges) {
+        Double edgeDistance = edgeWeightFunc.apply(edge);
+        if (edgeDistance.isInfinite() || !edgePruningFunc.test(edge, search.endNode)) {
+          continue;
+        }
+        Relaxation<E, N, P> relaxation = new Relaxation<>(edge, entry.cost + edgeDistance);
+        stats.edgeRelaxed();
+        Worker owner = search.owner(edge.getEndNode());
+        if (owner == this) {
+          receive(relaxation);
+        } else {
+          // counted before it is queued, so the search cannot end while it is in flight
+          search.work.incrementAndGet();
+          owner.inbox.add(relaxation);
+          if (owner.waiting) {
+            LockSupport.unpark(owner.thread);
+          }
+        }
+      }
+    }
+  }
+
+  /** Class that is a way sent to the owner of the node it leads to.
+   * @param <E> is the ID type of the GraphEdge
+   * @param <N> is the ID type of the GraphNode
+   * @param <P> is an object type that extends GraphNode
+   */
+  private static final class Relaxation<E, N, P extends GraphNode<N>> {
+    private final GraphEdge<E, N, P> way;
+    private final double cost;
+
+    /** Constructor for Relaxation.
+     * @param way is the GraphEdge that was relaxed.
+     * @param cost is the cost of the path from the start along way.
+     */
+    Relaxation(GraphEdge<E, N, P> way, double cost) {
+      this.way = way;
+      this.cost = cost;
+    }
+  }
+
+  /** Class that is an entry of an open list, ordered by estimated total cost.
+   * @param <P> is an object type that extends GraphNode
+   */
+  private static final class Entry<P> implements Comparable<Entry<P>> {
+    private final P node;
+    private final double cost;
+    private final double estimate;
+
+    /** Constructor for Entry.
+     * @param node is the GraphNode to expand.
+     * @param cost is the cost of the path from the start to node.
+     * @param estimate is cost plus the heuristic distance from node to the end.
+     */
+    Entry(P node, double cost, double estimate) {
+      this.node = node;
+      this.cost = cost;
+      this.estimate = estimate;
+    }
+
+    @Override
+    public int compareTo(Entry<P> other) {
+      return Double.compare(estimate, other.estimate);
+    }
+  }
+}
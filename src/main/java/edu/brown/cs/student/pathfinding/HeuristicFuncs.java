@@ -21,6 +21,21 @@ public final class HeuristicFuncs {
     return distanceFunc.apply(way.getEndNode(), end);
   }
 
+  /** The heuristic for A* measured with a DistanceKernel, scaled down by the most the
+   * kernel can overestimate so that it stays admissible, or measured with Haversine where
+   * the end is beyond the range of the kernel's error bound.
+   * @param start is a GraticuleNode that represents the start.
+   * @param end is a GraticuleNode that represents the end.
+   * @param way is a GraphEdge that has a String ID and connects GraticuleNodes with String IDs.
+   * @param kernel is the DistanceKernel to measure the straight line distance with.
+   * @return a double that is at most the Haversine distance from the end of way to end.
+   */
+  public static double aStarKernelDist(GraticuleNode start, GraticuleNode end,
+                                       GraphEdge<String, String, GraticuleNode> way,
+                                       DistanceKernel kernel) {
+    return kernel.admissibleDistance(way.getEndNode(), end);
+  }
+
   /** The heuristic for Dijkstra.
    * @param start is a GraticuleNode that represents the start.
    * @param end is a GraticuleNode that represents the end.
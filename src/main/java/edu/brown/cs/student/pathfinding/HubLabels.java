@@ -0,0 +1,425 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/** Class that is a hub labeling of a RoadGraph, answering shortest path distance queries
+ * without a search. Every node has an out-label and an in-label of (hub, distance) pairs
+ * such that some shortest path between any two nodes passes through a hub in both the
+ * out-label of its start and the in-label of its end. A query merges the two labels,
+ * which are sorted by hub, and takes the smallest sum of distances.
+ *
+ * <p>Labels are built by pruned landmark labeling: nodes are taken as hubs in order of
+ * importance, and the forward and backward searches from each hub stop at nodes whose
+ * distance the labels built so far already give. Importance is estimated by how many
+ * descendants a node has in shortest path trees grown from a sample of roots, since
+ * nodes that many shortest paths pass through keep the other labels short.
+ */
+public final class HubLabels {
+  private static final int MAGIC = 0x48554231;
+  private static final int SAMPLE_ROOTS = 16;
+  private static final long SAMPLE_SEED = 35;
+
+  private final int[] outOffsets;
+  private final int[] outHubs;
+  private final double[] outDists;
+  private final int[] inOffsets;
+  private final int[] inHubs;
+  private final double[] inDists;
+  private final long fingerprint;
+
+  /** Constructor for HubLabels from labels already in compressed sparse row form.
+   * @param outOffsets is the start of the out-label of every node, plus its end.
+   * @param outHubs is the hub ranks of every out-label, ascending within a label.
+   * @param outDists is the distance from the node to each hub of its out-label.
+   * @param inOffsets is the start of the in-label of every node, plus its end.
+   * @param inHubs is the hub ranks of every in-label, ascending within a label.
+   * @param inDists is the distance from each hub of its in-label to the node.
+   * @param fingerprint is the fingerprint of the graph the labels were built for.
+   */
+  private HubLabels(int[] outOffsets, int[] outHubs, double[] outDists, int[] inOffsets,
+                    int[] inHubs, double[] inDists, long fingerprint) {
+    this.outOffsets = outOffsets;
+    this.outHubs = outHubs;
+    this.outDists = outDists;
+    this.inOffsets = inOffsets;
+    this.inHubs = inHubs;
+    this.inDists = inDists;
+    this.fingerprint = fingerprint;
+  }
+
+  /** Builds the hub labels of a graph.
+   * @param graph is the RoadGraph to label.
+   * @param weights is the non-negative weight of every edge of graph, indexed by edge.
+   * @return the HubLabels of graph
+   */
+  public static HubLabels build(RoadGraph graph, double[] weights) {
+    int n = graph.size();
+    int[] reverseOffsets = new int[n + 1];
+    int[] reverseEdges = new int[graph.edgeCount()];
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      reverseOffsets[graph.edgeTarget(e) + 1]++;
+    }
+    for (int v = 0; v < n; v++) {
+      reverseOffsets[v + 1] += reverseOffsets[v];
+    }
+    int[] nextSlot = Arrays.copyOf(reverseOffsets, n);
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      reverseEdges[nextSlot[graph.edgeTarget(e)]++] = e;
+    }
+
+    int[] order = importanceOrder(graph, weights);
+    Label[] out = new Label[n];
+    Label[] in = new Label[n];
+    for (int v = 0; v < n; v++) {
+      out[v] = new Label();
+      in[v] = new Label();
+    }
+
+    // the label of the current hub spread over an array indexed by hub rank, so checking
+    // whether a node is already covered costs one pass over that node's label
+    double[] hubDists = new double[n];
+    Arrays.fill(hubDists, Double.POSITIVE_INFINITY);
+    double[] dist = new double[n];
+    Arrays.fill(dist, Double.POSITIVE_INFINITY);
+    int[] touched = new int[n];
+    NodeHeap heap = new NodeHeap(n);
+    for (int rank = 0; rank < n; rank++) {
+      int hub = order[rank];
+      prunedSearch(graph, weights, null, null, hub, rank, out[hub], in, hubDists, dist,
+          touched, heap);
+      prunedSearch(graph, weights, reverseOffsets, reverseEdges, hub, rank, in[hub], out,
+          hubDists, dist, touched, heap);
+    }
+
+    int[] outOffsets = new int[n + 1];
+    int[] inOffsets = new int[n + 1];
+    for (int v = 0; v < n; v++) {
+      outOffsets[v + 1] = outOffsets[v] + out[v].size;
+      inOffsets[v + 1] = inOffsets[v] + in[v].size;
+    }
+    int[] outHubs = new int[outOffsets[n]];
+    double[] outDists = new double[outOffsets[n]];
+    int[] inHubs = new int[inOffsets[n]];
+    double[] inDists = new double[inOffsets[n]];
+    for (int v = 0; v < n; v++) {
+      System.arraycopy(out[v].hubs, 0, outHubs, outOffsets[v], out[v].size);
+      System.arraycopy(out[v].dists, 0, outDists, outOffsets[v], out[v].size);
+      System.arraycopy(in[v].hubs, 0, inHubs, inOffsets[v], in[v].size);
+      System.arraycopy(in[v].dists, 0, inDists, inOffsets[v], in[v].size);
+    }
+    return new HubLabels(outOffsets, outHubs, outDists, inOffsets, inHubs, inDists,
+        fingerprint(graph));
+  }
+
+  /** Runs a Dijkstra search from a hub that adds the hub to the labels of every node it
+   * reaches, except that it stops at nodes the labels already give the distance of.
+   * @param graph is the RoadGraph being labeled.
+   * @param weights is the weight of every edge, indexed by edge.
+   * @param reverseOffsets is the start of the incoming edges of every node to search
+   *                       backwards, or null to search forwards over outgoing edges.
+   * @param reverseEdges is the incoming edges of every node, or null.
+   * @param hub is the dense index of the hub.
+   * @param rank is the rank of the hub in the labeling order.
+   * @param hubLabel is the label of the hub on the side the search leaves from.
+   * @param labels is the labels on the side the search arrives at, which grow.
+   * @param hubDists is an array of infinities indexed by rank, restored before returning.
+   * @param dist is an array of infinities indexed by node, restored before returning.
+   * @param touched is scratch space for the nodes whose distance was set.
+   * @param heap is an empty NodeHeap, left empty.
+   */
+  private static void prunedSearch(RoadGraph graph, double[] weights, int[] reverseOffsets,
+                                   int[] reverseEdges, int hub, int rank, Label hubLabel,
+                                   Label[] labels, double[] hubDists, double[] dist,
+                                   int[] touched, NodeHeap heap) {
+    for (int i = 0; i < hubLabel.size; i++) {
+      hubDists[hubLabel.hubs[i]] = hubLabel.dists[i];
+    }
+    int numTouched = 0;
+    dist[hub] = 0;
+    touched[numTouched++] = hub;
+    heap.push(hub, 0);
+    while (!heap.isEmpty()) {
+      double d = heap.peekKey();
+      int v = heap.pop();
+      if (d > dist[v] || coveredDistance(labels[v], hubDists) <= d) {
+        continue;
+      }
+      labels[v].add(rank, d);
+      int first = reverseOffsets == null ? graph.firstEdge(v) : reverseOffsets[v];
+      int end = reverseOffsets == null ? graph.endEdge(v) : reverseOffsets[v + 1];
+      for (int i = first; i < end; i++) {
+        int e = reverseOffsets == null ? i : reverseEdges[i];
+        int w = reverseOffsets == null ? graph.edgeTarget(e) : graph.edgeSource(e);
+        double candidate = d + weights[e];
+        if (candidate < dist[w]) {
+          if (Double.isInfinite(dist[w])) {
+            touched[numTouched++] = w;
+          }
+          dist[w] = candidate;
+          heap.push(w, candidate);
+        }
+      }
+    }
+    for (int i = 0; i < numTouched; i++) {
+      dist[touched[i]] = Double.POSITIVE_INFINITY;
+    }
+    for (int i = 0; i < hubLabel.size; i++) {
+      hubDists[hubLabel.hubs[i]] = Double.POSITIVE_INFINITY;
+    }
+  }
+
+  /** Get the distance between the current hub and a node through the hubs labeled so far.
+   * @param label is the label of the node.
+   * @param hubDists is the label of the current hub, indexed by hub rank.
+   * @return the smallest distance through a shared hub, or infinity.
+   */
+  private static double coveredDistance(Label label, double[] hubDists) {
+    double best = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < label.size; i++) {
+      best = Math.min(best, label.dists[i] + hubDists[label.hubs[i]]);
+    }
+    return best;
+  }
+
+  /** Orders the nodes of a graph by the number of descendants they have, summed over
+   * shortest path trees grown from a fixed sample of roots, breaking ties by degree.
+   * @param graph is a RoadGraph.
+   * @param weights is the weight of every edge, indexed by edge.
+   * @return the dense node indices, most important first.
+   */
+  static int[] importanceOrder(RoadGraph graph, double[] weights) {
+    int n = graph.size();
+    long[] scores = new long[n];
+    Random random = new Random(SAMPLE_SEED);
+    double[] dist = new double[n];
+    int[] parent = new int[n];
+    int[] settledOrder = new int[n];
+    long[] descendants = new long[n];
+    NodeHeap heap = new NodeHeap(n);
+    for (int sample = 0; sample < SAMPLE_ROOTS && n > 0; sample++) {
+      int root = random.nextInt(n);
+      Arrays.fill(dist, Double.POSITIVE_INFINITY);
+      Arrays.fill(parent, -1);
+      int numSettled = 0;
+      dist[root] = 0;
+      heap.push(root, 0);
+      while (!heap.isEmpty()) {
+        double d = heap.peekKey();
+        int v = heap.pop();
+        if (d > dist[v]) {
+          continue;
+        }
+        settledOrder[numSettled++] = v;
+        for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+          int w = graph.edgeTarget(e);
+          if (d + weights[e] < dist[w]) {
+            dist[w] = d + weights[e];
+            parent[w] = v;
+            heap.push(w, dist[w]);
+          }
+        }
+      }
+      // children settle after their parents, so walking backwards totals every subtree
+      for (int i = numSettled - 1; i >= 0; i--) {
+        int v = settledOrder[i];
+        descendants[v]++;
+        if (parent[v] != -1) {
+          descendants[parent[v]] += descendants[v];
+        }
+      }
+      for (int i = 0; i < numSettled; i++) {
+        scores[settledOrder[i]] += descendants[settledOrder[i]];
+        descendants[settledOrder[i]] = 0;
+      }
+    }
+    Integer[] boxed = new Integer[n];
+    for (int v = 0; v < n; v++) {
+      boxed[v] = v;
+    }
+    Arrays.sort(boxed, Comparator.<Integer>comparingLong(v -> -scores[v])
+        .thenComparingInt(v -> graph.firstEdge(v) - graph.endEdge(v)));
+    int[] order = new int[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = boxed[i];
+    }
+    return order;
+  }
+
+  /** Get the shortest path distance between two nodes.
+   * @param source is the dense index of the start node.
+   * @param target is the dense index of the end node.
+   * @return the distance, or infinity if there is no path.
+   */
+  public double distance(int source, int target) {
+    double best = Double.POSITIVE_INFINITY;
+    int i = outOffsets[source];
+    int j = inOffsets[target];
+    int outEnd = outOffsets[source + 1];
+    int inEnd = inOffsets[target + 1];
+    while (i < outEnd && j < inEnd) {
+      if (outHubs[i] < inHubs[j]) {
+        i++;
+      } else if (outHubs[i] > inHubs[j]) {
+        j++;
+      } else {
+        best = Math.min(best, outDists[i++] + inDists[j++]);
+      }
+    }
+    return best;
+  }
+
+  /** Get the mean number of hubs in the out-label and in-label of a node together.
+   * @return a double that is the mean label size.
+   */
+  public double meanLabelSize() {
+    int n = outOffsets.length - 1;
+    return n == 0 ? 0 : (double) (outHubs.length + inHubs.length) / n;
+  }
+
+  /** Check whether the labels were built for a graph.
+   * @param graph is a RoadGraph.
+   * @return true if graph has the nodes and edges, in the same order, that the labels
+   * were built for.
+   */
+  public boolean matches(RoadGraph graph) {
+    return fingerprint == fingerprint(graph);
+  }
+
+  /** Get a fingerprint of the node and edge order of a graph, which the labels depend on.
+   * @param graph is a RoadGraph.
+   * @return a long that changes if the nodes or edges of graph change.
+   */
+  static long fingerprint(RoadGraph graph) {
+    final long prime = 1_000_003;
+    long hash = graph.size();
+    for (int v = 0; v < graph.size(); v++) {
+      hash = hash * prime + graph.getNode(v).getId().hashCode();
+    }
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      hash = hash * prime + graph.edgeId(e).hashCode();
+    }
+    return hash;
+  }
+
+  /** Writes the labels to a file as a header followed by primitive arrays.
+   * @param file is the Path to write to, replacing any existing file.
+   * @throws IOException if the file cannot be written.
+   */
+  public void write(Path file) throws IOException {
+    try (DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file)))) {
+      output.writeInt(MAGIC);
+      output.writeLong(fingerprint);
+      writeInts(output, outOffsets);
+      writeInts(output, outHubs);
+      writeDoubles(output, outDists);
+      writeInts(output, inOffsets);
+      writeInts(output, inHubs);
+      writeDoubles(output, inDists);
+    }
+  }
+
+  /** Reads labels written by write.
+   * @param file is the Path to read from.
+   * @return the HubLabels in the file
+   * @throws IOException if the file cannot be read or is not a hub label file.
+   */
+  public static HubLabels read(Path file) throws IOException {
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file)))) {
+      if (input.readInt() != MAGIC) {
+        throw new IOException("not a hub label file: " + file);
+      }
+      long fingerprint = input.readLong();
+      int[] outOffsets = readInts(input);
+      int[] outHubs = readInts(input);
+      double[] outDists = readDoubles(input);
+      int[] inOffsets = readInts(input);
+      int[] inHubs = readInts(input);
+      double[] inDists = readDoubles(input);
+      return new HubLabels(outOffsets, outHubs, outDists, inOffsets, inHubs, inDists,
+          fingerprint);
+    }
+  }
+
+  /** Writes an int array preceded by its length.
+   * @param output is the stream to write to.
+   * @param values is the array to write.
+   * @throws IOException if writing fails.
+   */
+  private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+    output.writeInt(values.length);
+    for (int value : values) {
+      output.writeInt(value);
+    }
+  }
+
+  /** Writes a double array preceded by its length.
+   * @param output is the stream to write to.
+   * @param values is the array to write.
+   * @throws IOException if writing fails.
+   */
+  private static void writeDoubles(DataOutputStream output, double[] values)
+      throws IOException {
+    output.writeInt(values.length);
+    for (double value : values) {
+      output.writeDouble(value);
+    }
+  }
+
+  /** Reads an int array preceded by its length.
+   * @param input is the stream to read from.
+   * @return the array read
+   * @throws IOException if reading fails.
+   */
+  private static int[] readInts(DataInputStream input) throws IOException {
+    int[] values = new int[input.readInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = input.readInt();
+    }
+    return values;
+  }
+
+  /** Reads a double array preceded by its length.
+   * @param input is the stream to read from.
+   * @return the array read
+   * @throws IOException if reading fails.
+   */
+  private static double[] readDoubles(DataInputStream input) throws IOException {
+    double[] values = new double[input.readInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = input.readDouble();
+    }
+    return values;
+  }
+
+  /** Class that is the label of one node while the labels are being built.
+   */
+  private static final class Label {
+    private int[] hubs = new int[4];
+    private double[] dists = new double[4];
+    private int size;
+
+    /** Appends a hub, which must rank after every hub already in the label.
+     * @param hub is the rank of the hub.
+     * @param dist is the distance between the node and the hub.
+     */
+    void add(int hub, double dist) {
+      if (size == hubs.length) {
+        hubs = Arrays.copyOf(hubs, size * 2);
+        dists = Arrays.copyOf(dists, size * 2);
+      }
+      hubs[size] = hub;
+      dists[size++] = dist;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** Class that runs Dijkstra's algorithm directly over a RoadGraph, with edge weights
+ * given as an array indexed by edge.
+ */
+public final class InMemoryDijkstra {
+  private final RoadGraph graph;
+  private final double[] weights;
+
+  /** Constructor for InMemoryDijkstra.
+   * @param graph is the RoadGraph to search.
+   * @param weights is the non-negative weight of every edge of graph, indexed by edge.
+   */
+  public InMemoryDijkstra(RoadGraph graph, double[] weights) {
+    this.graph = graph;
+    this.weights = weights;
+  }
+
+  /** Computes the distance from a source to every node of the graph.
+   * @param source is the dense index of the source node.
+   * @return an array of distances indexed by node, infinite for unreachable nodes.
+   */
+  public double[] shortestPathTree(int source) {
+    double[] dist = new double[graph.size()];
+    search(source, -1, dist, new int[graph.size()], null);
+    return dist;
+  }
+
+  /** Finds the shortest path between two nodes.
+   * @param source is the dense index of the start node.
+   * @param target is the dense index of the end node.
+   * @return the edge indices of the path in order, or an empty list if there is none.
+   */
+  public List<Integer> shortestPath(int source, int target) {
+    return shortestPath(source, target, null);
+  }
+
+  /** Finds the shortest path between two nodes, counting the nodes the search settles.
+   * One InMemoryDijkstra may serve concurrent searches, so the count goes to the
+   * caller's stats rather than to a field.
+   * @param source is the dense index of the start node.
+   * @param target is the dense index of the end node.
+   * @param stats is the SearchStats to count settled nodes in, or null.
+   * @return the edge indices of the path in order, or an empty list if there is none.
+   */
+  public List<Integer> shortestPath(int source, int target, SearchStats stats) {
+    double[] dist = new double[graph.size()];
+    int[] parentEdge = new int[graph.size()];
+    search(source, target, dist, parentEdge, stats);
+    List<Integer> path = new ArrayList<>();
+    if (source == target || Double.isInfinite(dist[target])) {
+      return path;
+    }
+    for (int v = target; v != source; v = graph.edgeSource(parentEdge[v])) {
+      path.add(parentEdge[v]);
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
+  /** Runs Dijkstra's algorithm from source, stopping early once target is settled.
+   * @param source is the dense index of the start node.
+   * @param target is the dense index of the end node, or -1 to settle every node.
+   * @param dist is filled with the distance to every node settled.
+   * @param parentEdge is filled with the edge used to reach every node settled.
+   * @param stats is the SearchStats to count settled nodes in, or null.
+   */
+  private void search(int source, int target, double[] dist, int[] parentEdge,
+                      SearchStats stats) {
+    Arrays.fill(dist, Double.POSITIVE_INFINITY);
+    Arrays.fill(parentEdge, -1);
+    boolean[] settled = new boolean[graph.size()];
+    NodeHeap heap = new NodeHeap(graph.size());
+    dist[source] = 0;
+    heap.push(source, 0);
+    while (!heap.isEmpty()) {
+      int v = heap.pop();
+      if (settled[v]) {
+        continue;
+      }
+      settled[v] = true;
+      if (stats != null) {
+        stats.nodeSettled();
+      }
+      if (v == target) {
+        return;
+      }
+      for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+        int w = graph.edgeTarget(e);
+        double candidate = dist[v] + weights[e];
+        if (candidate < dist[w]) {
+          dist[w] = candidate;
+          parentEdge[w] = e;
+          heap.push(w, candidate);
+        }
+      }
+    }
+  }
+}
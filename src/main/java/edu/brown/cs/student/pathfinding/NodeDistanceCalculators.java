@@ -0,0 +1,44 @@
+package edu.brown.cs.student.pathfinding;
+
+/** Class that calculates the distance between nodes using Haversine, or a cheaper
+ * approximation of it. DistanceKernel chooses between them by accuracy.
+ */
+public final class NodeDistanceCalculators {
+  private NodeDistanceCalculators() {
+  }
+
+  /** Get the Haversine distance between node1 and node2. The radians and cosines of the
+   * latitudes are cached on the nodes, so only the two half-angle sines are computed.
+   * @param node1 is a GraticuleNode
+   * @param node2 is a GraticuleNode
+   * @return a double that is the distance between them.
+   */
+  public static double getHaversineDistance(GraticuleNode node1,
+                                            GraticuleNode node2) {
+    final double r = DistanceKernel.EARTH_RADIUS;
+    final double sinHalfDeltaPhi =
+        Math.sin((node2.getLatitudeRadians() - node1.getLatitudeRadians()) / 2);
+    final double sinHalfDeltaLambda =
+        Math.sin((node2.getLongitudeRadians() - node1.getLongitudeRadians()) / 2);
+
+    return 2 * r * Math.asin(
+        Math.sqrt(sinHalfDeltaPhi * sinHalfDeltaPhi
+            + node1.getCosLatitude() * node2.getCosLatitude()
+            * sinHalfDeltaLambda * sinHalfDeltaLambda));
+  }
+
+  /** Get the equirectangular approximation of the distance between node1 and node2, with
+   * the difference in longitude scaled by the mean of the cached latitude cosines. See
+   * DistanceKernel.EQUIRECTANGULAR for how far it strays from the Haversine distance.
+   * @param node1 is a GraticuleNode
+   * @param node2 is a GraticuleNode
+   * @return a double that is the approximate distance between them.
+   */
+  public static double getEquirectangularDistance(GraticuleNode node1,
+                                                  GraticuleNode node2) {
+    final double x = (node2.getLongitudeRadians() - node1.getLongitudeRadians())
+        * (node1.getCosLatitude() + node2.getCosLatitude()) / 2;
+    final double y = node2.getLatitudeRadians() - node1.getLatitudeRadians();
+    return DistanceKernel.EARTH_RADIUS * Math.sqrt(x * x + y * y);
+  }
+}
@@ -0,0 +1,99 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.Arrays;
+
+/** Class that is a binary min-heap of dense node indices keyed by a double, used by the
+ * in-memory searches over a RoadGraph. A node may be pushed more than once; callers skip
+ * the stale entries when they are popped.
+ */
+public final class NodeHeap {
+  private int[] nodes;
+  private double[] keys;
+  private int size;
+
+  /** Constructor for NodeHeap.
+   * @param capacity is the number of entries to allocate room for up front.
+   */
+  public NodeHeap(int capacity) {
+    int initial = Math.max(capacity, 1);
+    this.nodes = new int[initial];
+    this.keys = new double[initial];
+    this.size = 0;
+  }
+
+  /** Check whether the heap has no entries.
+   * @return true if the heap is empty.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Get the number of entries in the heap, including stale ones.
+   * @return an int that is the number of entries.
+   */
+  public int size() {
+    return size;
+  }
+
+  /** Removes every entry from the heap.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /** Adds a node with the given key.
+   * @param node is a dense node index.
+   * @param key is the priority of the node; smaller keys are popped first.
+   */
+  public void push(int node, double key) {
+    if (size == nodes.length) {
+      nodes = Arrays.copyOf(nodes, size * 2);
+      keys = Arrays.copyOf(keys, size * 2);
+    }
+    int i = size++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (keys[parent] <= key) {
+        break;
+      }
+      nodes[i] = nodes[parent];
+      keys[i] = keys[parent];
+      i = parent;
+    }
+    nodes[i] = node;
+    keys[i] = key;
+  }
+
+  /** Get the smallest key in the heap.
+   * @return the key of the entry that pop would return.
+   */
+  public double peekKey() {
+    return keys[0];
+  }
+
+  /** Removes the entry with the smallest key.
+   * @return the node of the removed entry.
+   */
+  public int pop() {
+    int top = nodes[0];
+    int lastNode = nodes[--size];
+    double lastKey = keys[size];
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && keys[child + 1] < keys[child]) {
+        child++;
+      }
+      if (keys[child] >= lastKey) {
+        break;
+      }
+      nodes[i] = nodes[child];
+      keys[i] = keys[child];
+      i = child;
+    }
+    nodes[i] = lastNode;
+    keys[i] = lastKey;
+    return top;
+  }
+}
@@ -0,0 +1,116 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Class that holds one canonical GraticuleNode for every node id of the loaded map, and
+ * one canonical GraticuleEdge for every way id, taken from its road graph. Database
+ * loaders resolve the rows they read to these instances instead of building a node and
+ * its coordinate list per row, so a cached way set holds shared nodes, and equality checks
+ * between them stop at the identity check. Every registered node carries its index in the
+ * road graph, which lets the graph look it up without hashing its id. The registry also
+ * holds the StringDictionary of the map, which codes the names and types of the ways it
+ * resolves.
+ *
+ * <p>A row that disagrees with the registered node or way of its id, such as one read
+ * from another map, resolves to a new instance, so resolving never changes results. A
+ * registry is only read after it is built, so it is safe to share between threads.
+ */
+public final class NodeRegistry {
+  private final Map<String, GraticuleNode> nodes;
+  private final Map<String, GraticuleEdge> edges;
+  private final StringDictionary dictionary;
+
+  /** Constructor for an empty NodeRegistry with a dictionary of its own, which resolves
+   * every row to a new instance.
+   */
+  public NodeRegistry() {
+    this(new StringDictionary());
+  }
+
+  /** Constructor for an empty NodeRegistry, which resolves every row to a new instance
+   * whose name and type are coded in the given dictionary.
+   * @param dictionary is the StringDictionary of the map being loaded.
+   */
+  public NodeRegistry(StringDictionary dictionary) {
+    this.nodes = Map.of();
+    this.edges = Map.of();
+    this.dictionary = dictionary;
+  }
+
+  /** Constructor for NodeRegistry that registers every node and edge of a road graph and
+   * gives every node its index in the graph.
+   * @param graph is the RoadGraph of the loaded map.
+   * @param dictionary is the StringDictionary the ways of the graph were coded in.
+   */
+  public NodeRegistry(RoadGraph graph, StringDictionary dictionary) {
+    this.dictionary = dictionary;
+    this.nodes = new HashMap<>(graph.size() * 2);
+    this.edges = new HashMap<>(graph.edgeCount() * 2);
+    for (int i = 0; i < graph.size(); i++) {
+      GraticuleNode node = graph.getNode(i);
+      node.setIndex(i);
+      nodes.put(node.getId(), node);
+    }
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      edges.put(graph.edgeId(e), graph.getEdge(e));
+    }
+  }
+
+  /** Get the number of registered nodes.
+   * @return a non-negative int.
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  /** Get the dictionary that codes the names and types of the ways resolved.
+   * @return a StringDictionary
+   */
+  public StringDictionary getDictionary() {
+    return dictionary;
+  }
+
+  /** Get the registered node of an id.
+   * @param id is the id of a node.
+   * @return the canonical GraticuleNode, or null if none is registered.
+   */
+  public GraticuleNode getNode(String id) {
+    return nodes.get(id);
+  }
+
+  /** Get the canonical node of a row read from the database.
+   * @param id is the id of the node.
+   * @param latitude is the latitude of the node.
+   * @param longitude is the longitude of the node.
+   * @return the registered GraticuleNode of the id if it lies at the same coordinates,
+   * and a new GraticuleNode otherwise.
+   */
+  public GraticuleNode resolveNode(String id, double latitude, double longitude) {
+    GraticuleNode node = nodes.get(id);
+    if (node != null && node.isAt(latitude, longitude)) {
+      return node;
+    }
+    return GraticuleNode.of(id, latitude, longitude);
+  }
+
+  /** Get the canonical way of a row read from the database.
+   * @param id is the id of the way.
+   * @param name is the name of the way.
+   * @param type is the type of the way.
+   * @param start is the resolved node the way starts at.
+   * @param end is the resolved node the way ends at.
+   * @return the registered GraticuleEdge of the id if it has the same name, type and
+   * ends, and a new GraticuleEdge otherwise.
+   */
+  public GraticuleEdge resolveEdge(String id, String name, String type,
+                                   GraticuleNode start, GraticuleNode end) {
+    GraticuleEdge edge = edges.get(id);
+    if (edge != null && edge.getStartNode() == start && edge.getEndNode() == end
+        && edge.getDictionary() == dictionary && edge.getNameCode() == dictionary.encode(name)
+        && edge.getTypeCode() == dictionary.encode(type)) {
+      return edge;
+    }
+    return new GraticuleEdge(id, name, type, start, end, dictionary);
+  }
+}
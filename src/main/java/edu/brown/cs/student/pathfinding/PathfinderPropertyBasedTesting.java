@@ -1,7 +1,6 @@
 package edu.brown.cs.student.pathfinding;
 
 import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
-import edu.brown.cs.student.commandHandlers.pathfinding.NodeDistanceCalculators;
 import edu.brown.cs.student.commandHandlers.pathfinding.RouteCommandsHandler;
 
 import java.util.List;
@@ -2,44 +2,415 @@ package edu.brown.cs.student.pathfinding;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
-/** Class caches the neighboring edges for nodes while performing A* search.
+/** Class caches the neighboring edges for nodes while performing A* search. The cache is
+ * bounded by the number of edges it holds and configured by EdgeCacheOptions.
+ *
+ * <p>An adaptive cache looks at its statistics every few thousand lookups. If it misses
+ * often and most misses evict another node, the working set does not fit, so it doubles
+ * in size up to its heap budget; if it evicted nothing and is less than a quarter full,
+ * it halves. Guava caches cannot be resized, so resizing builds a new cache and copies
+ * the cached nodes into it.
+ *
+ * <p>A prefetching cache answers a miss by loading the ways of every node in a cell around
+ * the missed node with one query, since A* settles the nodes of a region one after the
+ * other. Every few dozen cells it compares how many prefetched nodes were looked up with
+ * how many were loaded: if few were, the cells are too large and it halves their radius;
+ * if most were and the cache still misses often, it doubles it.
+ *
+ * <p>Every cached node counts how often it is looked up, so the hottest nodes can be saved
+ * when the program stops and fetched in batches before the searches of the next run need
+ * them.
  * @param <N> is the ID type of the PathNode
  * @param <E> is the ID type of the cached PathEdge
  * @param <P> is the PathNode that the cached PathEdges connects
  */
 public class ProxiedEdgeFetcher<N, E, P extends GraphNode<N>> {
-  private LoadingCache<P, Set<GraphEdge<E, N, P>>> edgeMapCache;
+  private static final long ADAPT_INTERVAL = 4096;
+  private static final double TARGET_HIT_RATE = 0.9;
+  private static final double EVICTING_MISS_SHARE = 0.5;
+  private static final long MINIMUM_EDGES = 1024;
+  private static final int SHRINK_FILL = 4;
+  private static final double NANOS_PER_MILLI = 1e6;
+  private static final long PREFETCH_ADAPT_CELLS = 32;
+  private static final double LOW_PREFETCH_YIELD = 0.25;
+  private static final double HIGH_PREFETCH_YIELD = 0.5;
+  private static final double PREFETCH_RADIUS_RANGE = 16;
+  // set by the loader, so a lookup knows whether it hit without a second probe that
+  // would count as one more miss in the cache statistics
+  private static final ThreadLocal<boolean[]> LOADED = ThreadLocal.withInitial(() ->
+      new boolean[1]);
 
-  /** Constructor for ProxiedEdgeFetcher.
+  private final Function<P, Set<GraphEdge<E, N, P>>> queryNeighborEdgesFunc;
+  private final Function<Collection<P>, Map<P, Set<GraphEdge<E, N, P>>>>
+      queryNeighborEdgesBatchFunc;
+  private final BiFunction<P, Double, Map<P, Set<GraphEdge<E, N, P>>>> queryCellFunc;
+  private final EdgeCacheOptions options;
+  private final boolean prefetching;
+  private final AtomicLong lookups = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong cellQueries = new AtomicLong();
+  private final AtomicLong prefetched = new AtomicLong();
+  private final AtomicLong prefetchUsed = new AtomicLong();
+  private final AtomicLong prefetchEvictedUnused = new AtomicLong();
+  private final AtomicLong batchQueries = new AtomicLong();
+  private final AtomicLong batchedNodes = new AtomicLong();
+  // prefetched nodes that have not been looked up since
+  private final Set<P> unusedPrefetches = ConcurrentHashMap.newKeySet();
+  // how often each cached node was looked up, dropped when the node leaves the cache
+  private final ConcurrentMap<P, LongAdder> nodeLookups = new ConcurrentHashMap<>();
+  private volatile double prefetchRadius;
+  // the counters when the current prefetch window began: lookups, misses, prefetched, used
+  private final long[] prefetchWindowStart = new long[4];
+  private volatile Generation<N, E, P> current;
+  // the statistics of the caches replaced by resizing, and of the current cache when the
+  // adaptive window began
+  private CacheStats retiredStats = new CacheStats(0, 0, 0, 0, 0, 0);
+  private CacheStats windowStart = new CacheStats(0, 0, 0, 0, 0, 0);
+  private int resizes;
+
+  /** Constructor for ProxiedEdgeFetcher with the default EdgeCacheOptions.
    * @param queryNeighborEdgesFunc is a function that queries adjacent PathEdges
    *                              starting from a certain node and returns them.
    */
   public ProxiedEdgeFetcher(Function<P, Set<GraphEdge<E, N, P>>>
                                 queryNeighborEdgesFunc) {
-    final int cacheSize = 100;
-    edgeMapCache = CacheBuilder.newBuilder()
-        .maximumSize(cacheSize)
-        .expireAfterWrite(5, TimeUnit.MINUTES)
-        .build(new CacheLoader<>() {
-          @Override
-          public Set<GraphEdge<E, N, P>> load(P node) {
-            return queryNeighborEdgesFunc.apply(node);
-          }
-        });
+    this(queryNeighborEdgesFunc, new EdgeCacheOptions());
+  }
+
+  /** Constructor for ProxiedEdgeFetcher.
+   * @param queryNeighborEdgesFunc is a function that queries adjacent PathEdges
+   *                              starting from a certain node and returns them.
+   * @param options is the EdgeCacheOptions of the cache.
+   */
+  public ProxiedEdgeFetcher(Function<P, Set<GraphEdge<E, N, P>>> queryNeighborEdgesFunc,
+                            EdgeCacheOptions options) {
+    this(queryNeighborEdgesFunc, null, null, options);
+  }
+
+  /** Constructor for ProxiedEdgeFetcher that can fetch several nodes at once, and that
+   * prefetches cells if the options ask it to.
+   * @param queryNeighborEdgesFunc is a function that queries adjacent PathEdges
+   *                              starting from a certain node and returns them.
+   * @param queryNeighborEdgesBatchFunc is a function that queries the PathEdges starting
+   *                                    from every one of several nodes and returns them by
+   *                                    node, with an empty set for a node that has none;
+   *                                    it may be null.
+   * @param queryCellFunc is a function that queries the PathEdges starting from every node
+   *                      within a radius in degrees of a node and returns them by node,
+   *                      with an empty set for a node that has none; it may be null.
+   * @param options is the EdgeCacheOptions of the cache.
+   */
+  public ProxiedEdgeFetcher(Function<P, Set<GraphEdge<E, N, P>>> queryNeighborEdgesFunc,
+                            Function<Collection<P>, Map<P, Set<GraphEdge<E, N, P>>>>
+                                queryNeighborEdgesBatchFunc,
+                            BiFunction<P, Double, Map<P, Set<GraphEdge<E, N, P>>>>
+                                queryCellFunc,
+                            EdgeCacheOptions options) {
+    this.queryNeighborEdgesFunc = queryNeighborEdgesFunc;
+    this.queryNeighborEdgesBatchFunc = queryNeighborEdgesBatchFunc;
+    this.queryCellFunc = queryCellFunc;
+    this.options = options;
+    this.prefetching = queryCellFunc != null && options.isPrefetching();
+    this.prefetchRadius = options.getPrefetchRadius();
+    this.current = newGeneration(options.getMaximumEdges());
   }
 
   /** If a given node exists in caches, retrieves the adjacent edges starting from node from cache;
-   * otherwise runs queryNeighborEdgesFunc to find those edges.
+   * otherwise runs queryNeighborEdgesFunc to find those edges. Hits and misses are
+   * counted against the search running on the current thread.
    * @param node is of type P that is the given PathNode
    * @return a Set of PathEdge
    */
   public Set<GraphEdge<E, N, P>> get(P node) {
-    return edgeMapCache.getUnchecked(node);
+    Generation<N, E, P> generation = current;
+    if (lookups.incrementAndGet() % ADAPT_INTERVAL == 0 && options.isAdaptive()) {
+      adapt();
+    }
+    nodeLookups.computeIfAbsent(node, key -> new LongAdder()).increment();
+    boolean[] loaded = LOADED.get();
+    loaded[0] = false;
+    Set<GraphEdge<E, N, P>> ways = generation.cache.getUnchecked(node);
+    if (!loaded[0]) {
+      SearchStats.recordCacheHit();
+      if (prefetching && unusedPrefetches.remove(node)) {
+        prefetchUsed.incrementAndGet();
+      }
+    }
+    return ways;
+  }
+
+  /** Check whether the ways out of a node are cached, without counting a hit or a miss.
+   * @param node is of type P that is the given PathNode
+   * @return true if looking the node up would not query for its edges.
+   */
+  public boolean isCached(P node) {
+    return current.cache.asMap().containsKey(node);
+  }
+
+  /** Loads the edges out of a node into the cache if they are not cached, for reading
+   * ahead on another thread. It is not counted as a lookup, and a search looking the node
+   * up while it loads waits for it rather than querying again.
+   * @param node is of type P that is the given PathNode
+   */
+  public void preload(P node) {
+    current.cache.getUnchecked(node);
+  }
+
+  /** Queries the edges out of all the given nodes that are not cached with one batched
+   * query, if the fetcher has a batch function, and caches them. Later lookups of those
+   * nodes are hits.
+   * @param nodes is a Collection of the PathNodes to fetch.
+   */
+  public void fetchAll(Collection<P> nodes) {
+    if (queryNeighborEdgesBatchFunc == null) {
+      return;
+    }
+    Generation<N, E, P> generation = current;
+    ConcurrentMap<P, Set<GraphEdge<E, N, P>>> cached = generation.cache.asMap();
+    List<P> missing = new ArrayList<>();
+    for (P node : nodes) {
+      if (!cached.containsKey(node)) {
+        missing.add(node);
+      }
+    }
+    if (missing.isEmpty()) {
+      return;
+    }
+    batchQueries.incrementAndGet();
+    for (Map.Entry<P, Set<GraphEdge<E, N, P>>> entry
+        : queryNeighborEdgesBatchFunc.apply(missing).entrySet()) {
+      if (cached.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+        generation.weight.addAndGet(weigh(entry.getValue()));
+        batchedNodes.incrementAndGet();
+      }
+    }
+  }
+
+  /** Get the cached nodes that were looked up most often, for warming the cache of a later
+   * run with. Nodes that were cached without being looked up, such as those fetched to
+   * warm this cache, come after all the others.
+   * @param limit is the most nodes to return.
+   * @return a List of the cached PathNodes, the most looked up first.
+   */
+  public List<P> hotNodes(int limit) {
+    List<Map.Entry<P, Long>> counts = new ArrayList<>();
+    for (P node : current.cache.asMap().keySet()) {
+      LongAdder count = nodeLookups.get(node);
+      counts.add(Map.entry(node, count == null ? 0 : count.sum()));
+    }
+    counts.sort(Map.Entry.<P, Long>comparingByValue(Comparator.reverseOrder()));
+    List<P> hot = new ArrayList<>();
+    for (Map.Entry<P, Long> count : counts.subList(0, Math.min(limit, counts.size()))) {
+      hot.add(count.getKey());
+    }
+    return hot;
+  }
+
+  /** Get the size and, if they are recorded, the statistics of the cache since it was
+   * created, for operators to tune it by.
+   * @return a map from the name of each figure to its value.
+   */
+  public synchronized Map<String, Object> stats() {
+    Generation<N, E, P> generation = current;
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("maximumEdges", generation.bound);
+    stats.put("cachedEdges", generation.weight.get());
+    stats.put("cachedNodes", generation.cache.size());
+    stats.put("expireAfterSeconds", options.getExpireAfterSeconds());
+    stats.put("adaptive", options.isAdaptive());
+    if (options.isAdaptive()) {
+      stats.put("budgetEdges", options.getBudgetEdges());
+      stats.put("resizes", resizes);
+    }
+    if (options.isRecordStats()) {
+      CacheStats total = retiredStats.plus(generation.cache.stats());
+      stats.put("hits", total.hitCount());
+      stats.put("misses", total.missCount());
+      stats.put("hitRate", total.hitRate());
+      stats.put("evictions", total.evictionCount());
+      stats.put("averageLoadMillis", total.averageLoadPenalty() / NANOS_PER_MILLI);
+    }
+    if (queryNeighborEdgesBatchFunc != null) {
+      stats.put("batchQueries", batchQueries.get());
+      stats.put("batchedNodes", batchedNodes.get());
+    }
+    if (prefetching) {
+      stats.put("prefetchRadius", prefetchRadius);
+      stats.put("cellQueries", cellQueries.get());
+      stats.put("prefetchedNodes", prefetched.get());
+      stats.put("prefetchUsed", prefetchUsed.get());
+      stats.put("prefetchEvictedUnused", prefetchEvictedUnused.get());
+    }
+    return stats;
+  }
+
+  /** Builds an empty cache that holds at most the given number of edges.
+   * @param bound is the largest total number of edges of the cached nodes.
+   * @return the Generation holding the cache.
+   */
+  private Generation<N, E, P> newGeneration(long bound) {
+    Generation<N, E, P> generation = new Generation<>(new AtomicLong(), bound);
+    CacheBuilder<P, Set<GraphEdge<E, N, P>>> builder = CacheBuilder.newBuilder()
+        .maximumWeight(bound)
+        .weigher((P node, Set<GraphEdge<E, N, P>> ways) -> weigh(ways))
+        .expireAfterWrite(options.getExpireAfterSeconds(), TimeUnit.SECONDS)
+        .removalListener((RemovalNotification<P, Set<GraphEdge<E, N, P>>> removal) -> {
+          generation.weight.addAndGet(-weigh(removal.getValue()));
+          if (removal.wasEvicted()) {
+            nodeLookups.remove(removal.getKey());
+          }
+          if (prefetching && removal.wasEvicted() && unusedPrefetches.remove(removal.getKey())) {
+            prefetchEvictedUnused.incrementAndGet();
+          }
+        });
+    if (options.isRecordStats()) {
+      builder.recordStats();
+    }
+    generation.cache = builder.build(new CacheLoader<>() {
+      @Override
+      public Set<GraphEdge<E, N, P>> load(P node) {
+        LOADED.get()[0] = true;
+        SearchStats.recordCacheMiss();
+        misses.incrementAndGet();
+        Set<GraphEdge<E, N, P>> ways = prefetching
+            ? loadCell(generation, node) : queryNeighborEdgesFunc.apply(node);
+        generation.weight.addAndGet(weigh(ways));
+        return ways;
+      }
+    });
+    return generation;
+  }
+
+  /** Loads the ways of every node in the cell around a missed node, caches those of the
+   * nodes that are not cached yet, and returns those of the missed node.
+   * @param generation is the Generation whose cache missed.
+   * @param node is the missed node.
+   * @return a Set of the PathEdges out of the missed node.
+   */
+  private Set<GraphEdge<E, N, P>> loadCell(Generation<N, E, P> generation, P node) {
+    Map<P, Set<GraphEdge<E, N, P>>> cell = queryCellFunc.apply(node, prefetchRadius);
+    Set<GraphEdge<E, N, P>> ways = cell.get(node);
+    if (ways == null) {
+      ways = queryNeighborEdgesFunc.apply(node);
+    }
+    ConcurrentMap<P, Set<GraphEdge<E, N, P>>> cached = generation.cache.asMap();
+    for (Map.Entry<P, Set<GraphEdge<E, N, P>>> entry : cell.entrySet()) {
+      if (!entry.getKey().equals(node)
+          && cached.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+        generation.weight.addAndGet(weigh(entry.getValue()));
+        unusedPrefetches.add(entry.getKey());
+        prefetched.incrementAndGet();
+      }
+    }
+    if (cellQueries.incrementAndGet() % PREFETCH_ADAPT_CELLS == 0) {
+      adaptPrefetchRadius();
+    }
+    return ways;
+  }
+
+  /** Halves the prefetch radius if few of the nodes prefetched since the last call were
+   * looked up, or doubles it if most were but the cache still missed often, within a
+   * factor of PREFETCH_RADIUS_RANGE of the radius it started at.
+   */
+  private synchronized void adaptPrefetchRadius() {
+    long[] now = {lookups.get(), misses.get(), prefetched.get(), prefetchUsed.get()};
+    long windowLookups = now[0] - prefetchWindowStart[0];
+    long windowMisses = now[1] - prefetchWindowStart[1];
+    long windowPrefetched = now[2] - prefetchWindowStart[2];
+    long windowUsed = now[3] - prefetchWindowStart[3];
+    System.arraycopy(now, 0, prefetchWindowStart, 0, now.length);
+
+    double radius = prefetchRadius;
+    double hitRate = windowLookups == 0 ? 1 : 1 - (double) windowMisses / windowLookups;
+    if (windowUsed < LOW_PREFETCH_YIELD * windowPrefetched) {
+      radius = Math.max(radius / 2, options.getPrefetchRadius() / PREFETCH_RADIUS_RANGE);
+    } else if (windowUsed >= HIGH_PREFETCH_YIELD * windowPrefetched
+        && hitRate < TARGET_HIT_RATE) {
+      radius = Math.min(radius * 2, options.getPrefetchRadius() * PREFETCH_RADIUS_RANGE);
+    }
+    prefetchRadius = radius;
+  }
+
+  /** Grows or shrinks the cache by the statistics of the lookups since the last call.
+   */
+  private synchronized void adapt() {
+    Generation<N, E, P> generation = current;
+    CacheStats total = generation.cache.stats();
+    CacheStats window = total.minus(windowStart);
+    windowStart = total;
+
+    long bound = generation.bound;
+    if (window.hitRate() < TARGET_HIT_RATE
+        && window.evictionCount() > EVICTING_MISS_SHARE * window.missCount()) {
+      bound = Math.min(bound * 2, options.getBudgetEdges());
+    } else if (window.evictionCount() == 0 && generation.weight.get() < bound / SHRINK_FILL) {
+      bound = Math.max(bound / 2, Math.min(MINIMUM_EDGES, options.getMaximumEdges()));
+    }
+    if (bound == generation.bound) {
+      return;
+    }
+    Generation<N, E, P> next = newGeneration(bound);
+    Map<P, Set<GraphEdge<E, N, P>>> cached = generation.cache.asMap();
+    next.cache.putAll(cached);
+    // putAll skips the loader, and evictions while shrinking fire the removal listener, so
+    // the weight is summed afresh before the cache is published
+    long weight = 0;
+    for (Set<GraphEdge<E, N, P>> ways : next.cache.asMap().values()) {
+      weight += weigh(ways);
+    }
+    next.weight.set(weight);
+    retiredStats = retiredStats.plus(total);
+    windowStart = next.cache.stats();
+    resizes++;
+    current = next;
+  }
+
+  /** Get the weight of a cached node, which is its number of outgoing edges.
+   * @param ways is the Set of edges out of the node.
+   * @return an int that is at least 1, so nodes without edges still count.
+   */
+  private static int weigh(Set<?> ways) {
+    return Math.max(ways.size(), 1);
+  }
+
+  /** Class that is one cache of a ProxiedEdgeFetcher, together with the total weight of
+   * its entries and its bound; resizing replaces it.
+   * @param <N> is the ID type of the PathNode
+   * @param <E> is the ID type of the cached PathEdge
+   * @param <P> is the PathNode that the cached PathEdges connects
+   */
+  private static final class Generation<N, E, P extends GraphNode<N>> {
+    // set once by newGeneration, since the loader of the cache needs the Generation
+    private LoadingCache<P, Set<GraphEdge<E, N, P>>> cache;
+    private final AtomicLong weight;
+    private final long bound;
+
+    /** Constructor for Generation without its cache.
+     * @param weight is the total weight of the cached entries.
+     * @param bound is the largest weight the cache holds.
+     */
+    Generation(AtomicLong weight, long bound) {
+      this.weight = weight;
+      this.bound = bound;
+    }
   }
 }
@@ -0,0 +1,187 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** Class that is a radix heap RouteQueue for monotone searches, in which no priority
+ * added is smaller than the last one taken, as in Dijkstra's algorithm or A* with a
+ * consistent heuristic. Priorities are rounded to whole quanta, such as centimetres, and
+ * queued in 65 buckets by the highest bit in which they differ from the last priority
+ * taken. An item moves to a lower bucket at most 64 times, so adding and taking cost
+ * O(1) amortized instead of the O(log n) of a binary heap.
+ *
+ * <p>The order is exact when every edge weight is rounded up to whole quanta and the
+ * heuristic rounded down, which keeps a consistent heuristic consistent; ceilToQuantum
+ * and floorToQuantum do this. A priority below the last one taken, which only an
+ * inconsistent heuristic produces, is raised to it instead of breaking the heap.
+ * @param <T> is the type of the queued items
+ */
+public final class RadixHeapQueue<T> implements RouteQueue<T> {
+  /** The quanta per kilometre that make priorities in kilometres whole centimetres. */
+  public static final double CENTIMETRES_PER_KILOMETRE = 100000;
+
+  private static final int BUCKETS = Long.SIZE + 1;
+  private static final int INITIAL_CAPACITY = 4;
+
+  private final double quantaPerUnit;
+  private final long[][] keys = new long[BUCKETS][];
+  private final Object[][] items = new Object[BUCKETS][];
+  private final int[] sizes = new int[BUCKETS];
+  private long last;
+  private int size;
+
+  /** Constructor for RadixHeapQueue.
+   * @param quantaPerUnit is the number of quanta a priority of 1 is rounded to.
+   * @throws IllegalArgumentException if quantaPerUnit is not positive.
+   */
+  public RadixHeapQueue(double quantaPerUnit) throws IllegalArgumentException {
+    if (!(quantaPerUnit > 0)) {
+      throw new IllegalArgumentException();
+    }
+    this.quantaPerUnit = quantaPerUnit;
+    for (int b = 0; b < BUCKETS; b++) {
+      keys[b] = new long[INITIAL_CAPACITY];
+      items[b] = new Object[INITIAL_CAPACITY];
+    }
+  }
+
+  /** Rounds a value up to whole quanta, for edge weights.
+   * @param value is a non-negative double.
+   * @param quantaPerUnit is the number of quanta in 1.
+   * @return the smallest multiple of 1 / quantaPerUnit that is at least value.
+   */
+  public static double ceilToQuantum(double value, double quantaPerUnit) {
+    return Math.ceil(value * quantaPerUnit) / quantaPerUnit;
+  }
+
+  /** Rounds a value down to whole quanta, for heuristic distances.
+   * @param value is a non-negative double.
+   * @param quantaPerUnit is the number of quanta in 1.
+   * @return the largest multiple of 1 / quantaPerUnit that is at most value.
+   */
+  public static double floorToQuantum(double value, double quantaPerUnit) {
+    return Math.floor(value * quantaPerUnit) / quantaPerUnit;
+  }
+
+  @Override
+  public void add(T item, double priority) {
+    push(Math.max(Math.round(priority * quantaPerUnit), last), item);
+    size++;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T peek() {
+    if (size == 0) {
+      return null;
+    }
+    refill();
+    return (T) items[0][sizes[0] - 1];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T poll() {
+    if (size == 0) {
+      return null;
+    }
+    refill();
+    int top = --sizes[0];
+    T item = (T) items[0][top];
+    items[0][top] = null;
+    size--;
+    return item;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public void clear() {
+    for (int b = 0; b < BUCKETS; b++) {
+      Arrays.fill(items[b], 0, sizes[b], null);
+      sizes[b] = 0;
+    }
+    last = 0;
+    size = 0;
+  }
+
+  /** Get an iterator over the queued items, bucket by bucket from the lowest, so the
+   * items with the smallest priorities come first though not in order. The iterator walks
+   * the buckets as it goes, so looking at the first few items is cheap.
+   * @return an Iterator of the items.
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<>() {
+      private int bucket = 0;
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        while (bucket < BUCKETS && index == sizes[bucket]) {
+          bucket++;
+          index = 0;
+        }
+        return bucket < BUCKETS;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return (T) items[bucket][index++];
+      }
+    };
+  }
+
+  /** Adds an item to the bucket of its key.
+   * @param key is the rounded priority of the item, no smaller than last.
+   * @param item is the item to add.
+   */
+  private void push(long key, Object item) {
+    int b = key == last ? 0 : Long.SIZE - Long.numberOfLeadingZeros(key ^ last);
+    if (sizes[b] == keys[b].length) {
+      keys[b] = Arrays.copyOf(keys[b], sizes[b] * 2);
+      items[b] = Arrays.copyOf(items[b], sizes[b] * 2);
+    }
+    keys[b][sizes[b]] = key;
+    items[b][sizes[b]++] = item;
+  }
+
+  /** Makes sure the first bucket holds the items with the smallest key, if it is empty,
+   * by taking the smallest key of the lowest other bucket as the new last key and
+   * spreading that bucket's items over the buckets below it. The queue must not be empty.
+   */
+  private void refill() {
+    if (sizes[0] > 0) {
+      return;
+    }
+    int b = 1;
+    while (sizes[b] == 0) {
+      b++;
+    }
+    long min = Long.MAX_VALUE;
+    for (int i = 0; i < sizes[b]; i++) {
+      min = Math.min(min, keys[b][i]);
+    }
+    last = min;
+    int count = sizes[b];
+    sizes[b] = 0;
+    for (int i = 0; i < count; i++) {
+      Object item = items[b][i];
+      items[b][i] = null;
+      push(keys[b][i], item);
+    }
+  }
+}
@@ -0,0 +1,337 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/** Class that holds an in-memory snapshot of the traversable ways of a loaded map.
+ * Nodes are given dense int indices and the outgoing ways of every node are stored
+ * contiguously (compressed sparse row layout), so graph-wide passes run over int arrays
+ * instead of querying the database.
+ *
+ * <p>Node ids are opaque strings, so by default the indices are handed out in the order
+ * nodes appear along a Hilbert curve over their latitude and longitude. Nodes that are
+ * close on the map then sit close together in every array indexed by node or edge, which
+ * keeps searches that sweep a neighbourhood inside a few cache lines.
+ */
+public final class RoadGraph {
+  private static final int HILBERT_ORDER = 16;
+
+  private final List<GraticuleNode> nodes;
+  private final Map<String, Integer> nodeIndices;
+  private final Map<String, Integer> edgeIndices;
+  private final int[] edgeOffsets;
+  private final int[] edgeSources;
+  private final int[] edgeTargets;
+  private final GraticuleEdge[] edges;
+  private final double[] edgeLengths;
+  // the index of every edge in the order the edges were given, which is the database's
+  private final int[] edgesInLoadOrder;
+  private final Map<WeightProfile, double[]> profileWeights = new ConcurrentHashMap<>();
+
+  /** Constructor for RoadGraph that numbers nodes in Hilbert curve order.
+   * @param nodes is a list of every GraticuleNode that a way starts or ends at.
+   * @param edges is a list of every traversable GraticuleEdge between those nodes.
+   * @throws IllegalArgumentException if an edge connects a node missing from nodes.
+   */
+  public RoadGraph(List<GraticuleNode> nodes, List<GraticuleEdge> edges)
+      throws IllegalArgumentException {
+    this(nodes, edges, true);
+  }
+
+  /** Constructor for RoadGraph.
+   * @param nodes is a list of every GraticuleNode that a way starts or ends at.
+   * @param edges is a list of every traversable GraticuleEdge between those nodes.
+   * @param hilbertOrder is true to number nodes in Hilbert curve order, false to keep the
+   *                     order of the nodes list.
+   * @throws IllegalArgumentException if an edge connects a node missing from nodes.
+   */
+  public RoadGraph(List<GraticuleNode> nodes, List<GraticuleEdge> edges, boolean hilbertOrder)
+      throws IllegalArgumentException {
+    this.nodes = hilbertOrder ? sortByHilbertIndex(nodes) : new ArrayList<>(nodes);
+    this.nodeIndices = new HashMap<>();
+    for (int i = 0; i < this.nodes.size(); i++) {
+      nodeIndices.put(this.nodes.get(i).getId(), i);
+    }
+
+    int numEdges = edges.size();
+    this.edgeOffsets = new int[this.nodes.size() + 1];
+    this.edgeSources = new int[numEdges];
+    this.edgeTargets = new int[numEdges];
+    this.edges = new GraticuleEdge[numEdges];
+    this.edgeLengths = new double[numEdges];
+    this.edgesInLoadOrder = new int[numEdges];
+    this.edgeIndices = new HashMap<>();
+
+    // count the outgoing edges of every node, then turn the counts into offsets
+    int[] sources = new int[numEdges];
+    for (int e = 0; e < numEdges; e++) {
+      sources[e] = requireIndex(edges.get(e).getStartNode().getId());
+      edgeOffsets[sources[e] + 1]++;
+    }
+    for (int v = 0; v < this.nodes.size(); v++) {
+      edgeOffsets[v + 1] += edgeOffsets[v];
+    }
+
+    int[] nextSlot = new int[this.nodes.size()];
+    System.arraycopy(edgeOffsets, 0, nextSlot, 0, this.nodes.size());
+    for (int e = 0; e < numEdges; e++) {
+      int slot = nextSlot[sources[e]]++;
+      edgeSources[slot] = sources[e];
+      edgeTargets[slot] = requireIndex(edges.get(e).getEndNode().getId());
+      this.edges[slot] = edges.get(e);
+      edgeIndices.put(edges.get(e).getId(), slot);
+      edgeLengths[slot] = edges.get(e).getLength();
+      edgesInLoadOrder[e] = slot;
+    }
+  }
+
+  /** Get the graph made of the edges that pass a filter and the nodes they connect. The
+   * nodes keep the relative order they have in this graph.
+   * @param keepEdge is a Predicate that an edge must pass to be kept.
+   * @return a new RoadGraph
+   */
+  public RoadGraph subgraph(Predicate<GraticuleEdge> keepEdge) {
+    boolean[] keepNode = new boolean[nodes.size()];
+    List<GraticuleEdge> keptEdges = new ArrayList<>();
+    for (int e = 0; e < edges.length; e++) {
+      if (keepEdge.test(edges[e])) {
+        keptEdges.add(edges[e]);
+        keepNode[edgeSources[e]] = true;
+        keepNode[edgeTargets[e]] = true;
+      }
+    }
+    List<GraticuleNode> keptNodes = new ArrayList<>();
+    for (int v = 0; v < nodes.size(); v++) {
+      if (keepNode[v]) {
+        keptNodes.add(nodes.get(v));
+      }
+    }
+    return new RoadGraph(keptNodes, keptEdges, false);
+  }
+
+  /** Sort nodes by their position along a Hilbert curve laid over the bounding box of
+   * their latitudes and longitudes.
+   * @param nodes is a list of GraticuleNodes.
+   * @return a new list of the same nodes in Hilbert curve order.
+   */
+  static List<GraticuleNode> sortByHilbertIndex(List<GraticuleNode> nodes) {
+    double minLat = Double.POSITIVE_INFINITY;
+    double maxLat = Double.NEGATIVE_INFINITY;
+    double minLon = Double.POSITIVE_INFINITY;
+    double maxLon = Double.NEGATIVE_INFINITY;
+    for (GraticuleNode node : nodes) {
+      minLat = Math.min(minLat, node.getLatitude());
+      maxLat = Math.max(maxLat, node.getLatitude());
+      minLon = Math.min(minLon, node.getLongitude());
+      maxLon = Math.max(maxLon, node.getLongitude());
+    }
+    final int cells = 1 << HILBERT_ORDER;
+    double latScale = maxLat > minLat ? (cells - 1) / (maxLat - minLat) : 0;
+    double lonScale = maxLon > minLon ? (cells - 1) / (maxLon - minLon) : 0;
+
+    // pack the curve position above the list position so one primitive sort orders both
+    final int indexBits = 31;
+    long[] keys = new long[nodes.size()];
+    for (int i = 0; i < nodes.size(); i++) {
+      int x = (int) ((nodes.get(i).getLongitude() - minLon) * lonScale);
+      int y = (int) ((nodes.get(i).getLatitude() - minLat) * latScale);
+      keys[i] = (hilbertIndex(x, y) << indexBits) | i;
+    }
+    Arrays.sort(keys);
+
+    List<GraticuleNode> sorted = new ArrayList<>(nodes.size());
+    for (long key : keys) {
+      sorted.add(nodes.get((int) (key & Integer.MAX_VALUE)));
+    }
+    return sorted;
+  }
+
+  /** Get the distance along a Hilbert curve of the cell at column x and row y of a
+   * square grid with 2^HILBERT_ORDER cells per side.
+   * @param x is the column of the cell.
+   * @param y is the row of the cell.
+   * @return the position of the cell along the curve.
+   */
+  static long hilbertIndex(int x, int y) {
+    long d = 0;
+    for (int s = 1 << (HILBERT_ORDER - 1); s > 0; s >>= 1) {
+      int rx = (x & s) > 0 ? 1 : 0;
+      int ry = (y & s) > 0 ? 1 : 0;
+      d += (long) s * s * ((3 * rx) ^ ry);
+      // rotate the quadrant so the curve stays continuous
+      if (ry == 0) {
+        if (rx == 1) {
+          x = s - 1 - x;
+          y = s - 1 - y;
+        }
+        int t = x;
+        x = y;
+        y = t;
+      }
+    }
+    return d;
+  }
+
+  /** Look up the index of a node id that must be present in the graph.
+   * @param id is the id of a node.
+   * @return the dense index of the node.
+   * @throws IllegalArgumentException if the node is not in the graph.
+   */
+  private int requireIndex(String id) throws IllegalArgumentException {
+    Integer index = nodeIndices.get(id);
+    if (index == null) {
+      throw new IllegalArgumentException();
+    }
+    return index;
+  }
+
+  /** Get the number of nodes in the graph.
+   * @return an int that is the number of nodes.
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  /** Get the index of an edge by the position it was given to the graph at, so edges can
+   * be visited in the order they were read rather than in the order they are stored.
+   * @param position is an int between 0 and edgeCount.
+   * @return an edge index.
+   */
+  public int edgeAtLoadPosition(int position) {
+    return edgesInLoadOrder[position];
+  }
+
+  /** Get the number of directed edges in the graph.
+   * @return an int that is the number of edges.
+   */
+  public int edgeCount() {
+    return edgeTargets.length;
+  }
+
+  /** Get the dense index of the node with the given id.
+   * @param id is the id of a GraticuleNode.
+   * @return the index of the node, or -1 if the node is not in the graph.
+   */
+  public int indexOf(String id) {
+    Integer index = nodeIndices.get(id);
+    return index == null ? -1 : index;
+  }
+
+  /** Get the dense index of a node, without hashing its id if it is the registered node
+   * of the loaded map and this graph keeps it at its registered index.
+   * @param node is a GraphNode whose id is a node id.
+   * @return the index of the node, or -1 if the node is not in the graph.
+   */
+  public int indexOf(GraphNode<String> node) {
+    if (node instanceof GraticuleNode) {
+      int index = ((GraticuleNode) node).getIndex();
+      if (index >= 0 && index < nodes.size() && nodes.get(index) == node) {
+        return index;
+      }
+    }
+    return indexOf(node.getId());
+  }
+
+  /** Get the index of the edge built from the way with the given id.
+   * @param id is the id of a way.
+   * @return the edge index, or -1 if the way is not in the graph.
+   */
+  public int edgeIndexOf(String id) {
+    Integer index = edgeIndices.get(id);
+    return index == null ? -1 : index;
+  }
+
+  /** Get the node stored at the given index.
+   * @param index is a dense node index.
+   * @return a GraticuleNode
+   */
+  public GraticuleNode getNode(int index) {
+    return nodes.get(index);
+  }
+
+  /** Get every node of the graph in index order.
+   * @return an unmodifiable list of GraticuleNodes.
+   */
+  public List<GraticuleNode> getNodes() {
+    return Collections.unmodifiableList(nodes);
+  }
+
+  /** Get the index of the first outgoing edge of a node.
+   * @param node is a dense node index.
+   * @return the first edge index, inclusive.
+   */
+  public int firstEdge(int node) {
+    return edgeOffsets[node];
+  }
+
+  /** Get the index after the last outgoing edge of a node.
+   * @param node is a dense node index.
+   * @return the last edge index, exclusive.
+   */
+  public int endEdge(int node) {
+    return edgeOffsets[node + 1];
+  }
+
+  /** Get the node an edge starts at.
+   * @param edge is an edge index.
+   * @return the dense index of the start node.
+   */
+  public int edgeSource(int edge) {
+    return edgeSources[edge];
+  }
+
+  /** Get the node an edge ends at.
+   * @param edge is an edge index.
+   * @return the dense index of the end node.
+   */
+  public int edgeTarget(int edge) {
+    return edgeTargets[edge];
+  }
+
+  /** Get the way id of an edge.
+   * @param edge is an edge index.
+   * @return a String that is the id of the way.
+   */
+  public String edgeId(int edge) {
+    return edges[edge].getId();
+  }
+
+  /** Get the way an edge was built from.
+   * @param edge is an edge index.
+   * @return a GraticuleEdge
+   */
+  public GraticuleEdge getEdge(int edge) {
+    return edges[edge];
+  }
+
+  /** Get the Haversine length of an edge.
+   * @param edge is an edge index.
+   * @return a double that is the length of the edge.
+   */
+  public double edgeLength(int edge) {
+    return edgeLengths[edge];
+  }
+
+  /** Get the Haversine lengths of every edge, indexed by edge.
+   * @return a copy of the edge lengths.
+   */
+  public double[] getEdgeLengths() {
+    return edgeLengths.clone();
+  }
+
+  /** Get the weight of every edge under a profile, computing them the first time the
+   * profile is used with this graph. The weights are kept with the graph, so a search
+   * that holds the graph weighs it by its own weights even while another map loads.
+   * @param profile is a WeightProfile.
+   * @return an array of weights indexed by edge, shared by every caller.
+   */
+  public double[] getProfileWeights(WeightProfile profile) {
+    return profileWeights.computeIfAbsent(profile, p -> p.weights(this));
+  }
+}
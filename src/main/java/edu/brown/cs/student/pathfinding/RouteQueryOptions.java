@@ -0,0 +1,115 @@
+package edu.brown.cs.student.pathfinding;
+
+/** Class that holds the limits a route search must stay within: a wall-clock deadline,
+ * a maximum number of settled nodes, a cap on the entries the search holds in memory,
+ * and a CancellationToken. The deadline is counted from when the options are created,
+ * so time a request spends waiting for a worker counts against it. The options also
+ * hold the weight the heuristic is inflated by, which trades route quality for speed.
+ */
+public class RouteQueryOptions {
+  private final long deadlineNanos;
+  private final int maxSettled;
+  private final int maxVisited;
+  private final CancellationToken cancellationToken;
+  private final double heuristicWeight;
+
+  /** Constructor for RouteQueryOptions without any limits.
+   */
+  public RouteQueryOptions() {
+    this(Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, new CancellationToken());
+  }
+
+  /** Constructor for RouteQueryOptions.
+   * @param timeoutMillis is the number of milliseconds from now the search may run for,
+   *                      or Long.MAX_VALUE for no deadline.
+   * @param maxSettled is the largest number of nodes the search may settle.
+   * @param maxVisited is the largest number of settled nodes and queued ways the search
+   *                   may hold at once.
+   * @param cancellationToken is a token that stops the search once cancelled.
+   * @throws IllegalArgumentException if a limit is negative.
+   */
+  public RouteQueryOptions(long timeoutMillis, int maxSettled, int maxVisited,
+                           CancellationToken cancellationToken)
+      throws IllegalArgumentException {
+    this(timeoutMillis, maxSettled, maxVisited, cancellationToken, 1);
+  }
+
+  /** Constructor for RouteQueryOptions with an inflated heuristic.
+   * @param timeoutMillis is the number of milliseconds from now the search may run for,
+   *                      or Long.MAX_VALUE for no deadline.
+   * @param maxSettled is the largest number of nodes the search may settle.
+   * @param maxVisited is the largest number of settled nodes and queued ways the search
+   *                   may hold at once.
+   * @param cancellationToken is a token that stops the search once cancelled.
+   * @param heuristicWeight is the factor w the heuristic is multiplied by; a completed
+   *                        search returns a route at most w times the shortest one.
+   * @throws IllegalArgumentException if a limit is negative or heuristicWeight is below 1.
+   */
+  public RouteQueryOptions(long timeoutMillis, int maxSettled, int maxVisited,
+                           CancellationToken cancellationToken, double heuristicWeight)
+      throws IllegalArgumentException {
+    if (timeoutMillis < 0 || maxSettled < 0 || maxVisited < 0 || !(heuristicWeight >= 1)
+        || Double.isInfinite(heuristicWeight)) {
+      throw new IllegalArgumentException();
+    }
+    final long nanosPerMilli = 1_000_000;
+    long now = System.nanoTime();
+    this.deadlineNanos = timeoutMillis >= (Long.MAX_VALUE - now) / nanosPerMilli
+        ? Long.MAX_VALUE : now + timeoutMillis * nanosPerMilli;
+    this.maxSettled = maxSettled;
+    this.maxVisited = maxVisited;
+    this.cancellationToken = cancellationToken;
+    this.heuristicWeight = heuristicWeight;
+  }
+
+  /** Get the maximum number of nodes a search may settle.
+   * @return an int that is the settled node budget.
+   */
+  public int getMaxSettled() {
+    return maxSettled;
+  }
+
+  /** Get the maximum number of entries a search may hold at once.
+   * @return an int that is the memory budget.
+   */
+  public int getMaxVisited() {
+    return maxVisited;
+  }
+
+  /** Get the token that cancels the search.
+   * @return a CancellationToken
+   */
+  public CancellationToken getCancellationToken() {
+    return cancellationToken;
+  }
+
+  /** Get the factor the heuristic is multiplied by.
+   * @return a double that is at least 1.
+   */
+  public double getHeuristicWeight() {
+    return heuristicWeight;
+  }
+
+  /** Check whether the deadline has passed.
+   * @return true if the search is out of time.
+   */
+  public boolean isPastDeadline() {
+    return deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0;
+  }
+
+  /** Check a running search against every limit.
+   * @param settled is the number of nodes the search has settled.
+   * @param held is the number of settled nodes and queued ways the search holds.
+   * @return the status to stop the search with, or null if it may go on.
+   */
+  public RouteStatus check(int settled, int held) {
+    if (cancellationToken.isCancelled()) {
+      return RouteStatus.CANCELLED;
+    } else if (isPastDeadline()) {
+      return RouteStatus.TIMED_OUT;
+    } else if (settled > maxSettled || held > maxVisited) {
+      return RouteStatus.BUDGET_EXHAUSTED;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,38 @@
+package edu.brown.cs.student.pathfinding;
+
+/** Interface for the priority queue a route search keeps its candidate ways in. Items are
+ * added with a priority, and the item with the smallest priority is taken first; items of
+ * equal priority come out in any order.
+ * @param <T> is the type of the queued items
+ */
+public interface RouteQueue<T> extends Iterable<T> {
+  /** Adds an item with the given priority.
+   * @param item is the item to queue.
+   * @param priority is the priority of the item; smaller priorities are taken first.
+   */
+  void add(T item, double priority);
+
+  /** Get the item with the smallest priority without removing it.
+   * @return the item poll would return, or null if the queue is empty.
+   */
+  T peek();
+
+  /** Removes the item with the smallest priority.
+   * @return the removed item, or null if the queue is empty.
+   */
+  T poll();
+
+  /** Check whether the queue has no items.
+   * @return true if the queue is empty.
+   */
+  boolean isEmpty();
+
+  /** Get the number of items in the queue.
+   * @return an int that is the number of items.
+   */
+  int size();
+
+  /** Removes every item from the queue.
+   */
+  void clear();
+}
@@ -0,0 +1,106 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.Collections;
+import java.util.List;
+
+/** Class that is the outcome of a route search: how it ended, the path it found and
+ * its cost, how far from optimal that cost can be, and the SearchStats of the work it did.
+ * @param <E> is the ID type of the GraphEdge
+ * @param <N> is the ID type of the GraphNode
+ * @param <P> is an object type that extends GraphNode
+ */
+public class RouteResult<E, N, P extends GraphNode<N>> {
+  private final RouteStatus status;
+  private final List<GraphEdge<E, N, P>> path;
+  private final List<GraphEdge<E, N, P>> partialPath;
+  private final double cost;
+  private final double suboptimalityBound;
+  private final SearchStats stats;
+
+  /** Constructor for RouteResult.
+   * @param status is how the search ended.
+   * @param path is the shortest path if the search completed, or an empty list.
+   * @param partialPath is the path to the settled node closest to the end, which is
+   *                    the whole path if the search completed.
+   * @param cost is the cost of path, or infinity if there is none.
+   * @param suboptimalityBound is a factor that the cost of path is proven to be within of
+   *                           the shortest path, or NaN if the search did not complete.
+   * @param stats is the SearchStats of the search, read once it has finished.
+   */
+  public RouteResult(RouteStatus status, List<GraphEdge<E, N, P>> path,
+                     List<GraphEdge<E, N, P>> partialPath, double cost,
+                     double suboptimalityBound, SearchStats stats) {
+    this.status = status;
+    this.path = path;
+    this.partialPath = partialPath;
+    this.cost = cost;
+    this.suboptimalityBound = suboptimalityBound;
+    this.stats = stats;
+  }
+
+  /** Get how the search ended.
+   * @return a RouteStatus
+   */
+  public RouteStatus getStatus() {
+    return status;
+  }
+
+  /** Check whether the search ran to the end.
+   * @return true if the status is COMPLETED.
+   */
+  public boolean isCompleted() {
+    return status == RouteStatus.COMPLETED;
+  }
+
+  /** Get the shortest path, which is empty if there is none or the search was cut short.
+   * @return an unmodifiable list of GraphEdges.
+   */
+  public List<GraphEdge<E, N, P>> getPath() {
+    return Collections.unmodifiableList(path);
+  }
+
+  /** Get the cost of the path.
+   * @return a double that is the sum of the distances of the path, or infinity if there
+   * is no path.
+   */
+  public double getCost() {
+    return cost;
+  }
+
+  /** Get how far from optimal the path can be. A search with heuristic weight w gives a
+   * bound of at most w, and usually much less.
+   * @return a double that is at least 1, such that the cost is at most the bound times the
+   * cost of the shortest path, or NaN if the search did not complete.
+   */
+  public double getSuboptimalityBound() {
+    return suboptimalityBound;
+  }
+
+  /** Get the best path found so far, which leads to the settled node closest to the end.
+   * @return an unmodifiable list of GraphEdges.
+   */
+  public List<GraphEdge<E, N, P>> getPartialPath() {
+    return Collections.unmodifiableList(partialPath);
+  }
+
+  /** Get the number of nodes the search settled.
+   * @return an int that is the number of settled nodes.
+   */
+  public int getSettledCount() {
+    return stats.getSettled();
+  }
+
+  /** Get the time the search ran for.
+   * @return a long that is the elapsed time in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return stats.getTotalNanos();
+  }
+
+  /** Get the counters of the work the search did.
+   * @return a SearchStats
+   */
+  public SearchStats getStats() {
+    return stats;
+  }
+}
@@ -0,0 +1,14 @@
+package edu.brown.cs.student.pathfinding;
+
+/** Enum of the ways a route search can end.
+ */
+public enum RouteStatus {
+  /** The search ran to the end: the path is the shortest one, or empty if there is none. */
+  COMPLETED,
+  /** The search passed the deadline of its RouteQueryOptions. */
+  TIMED_OUT,
+  /** The search settled or held more nodes than its RouteQueryOptions allow. */
+  BUDGET_EXHAUSTED,
+  /** The CancellationToken of the search was cancelled. */
+  CANCELLED
+}
@@ -0,0 +1,232 @@
+package edu.brown.cs.student.pathfinding;
+
+import edu.brown.cs.student.utils.Histogram;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Class that counts the work done by one route search. A search begins its stats on the
+ * thread it runs on, so the edge cache and the database queries it triggers can add to
+ * them without being handed the stats object. Every finished search is also added to
+ * process-wide histograms of each counter.
+ */
+public final class SearchStats {
+  private static final ThreadLocal<SearchStats> CURRENT = new ThreadLocal<>();
+  private static final Map<String, Histogram> HISTOGRAMS;
+
+  static {
+    Map<String, Histogram> histograms = new LinkedHashMap<>();
+    for (String name : new String[] {"settled", "edgesRelaxed", "heapPushes", "stalePops",
+        "neighborFetches", "cacheHits", "cacheMisses", "sqlNanos", "totalNanos"}) {
+      histograms.put(name, new Histogram());
+    }
+    HISTOGRAMS = Collections.unmodifiableMap(histograms);
+  }
+
+  private final long startNanos;
+  private int settled;
+  private int edgesRelaxed;
+  private int heapPushes;
+  private int stalePops;
+  private int neighborFetches;
+  private int cacheHits;
+  private int cacheMisses;
+  private long sqlNanos;
+  private long totalNanos;
+
+  /** Constructor for SearchStats, which starts the clock of the search.
+   */
+  private SearchStats() {
+    this.startNanos = System.nanoTime();
+  }
+
+  /** Starts counting a search on the current thread.
+   * @return the new SearchStats of the search.
+   */
+  public static SearchStats begin() {
+    SearchStats stats = new SearchStats();
+    CURRENT.set(stats);
+    return stats;
+  }
+
+  /** Stops counting the search on the current thread and adds it to the process-wide
+   * histograms.
+   */
+  public void finish() {
+    totalNanos = System.nanoTime() - startNanos;
+    if (CURRENT.get() == this) {
+      CURRENT.remove();
+    }
+    HISTOGRAMS.get("settled").record(settled);
+    HISTOGRAMS.get("edgesRelaxed").record(edgesRelaxed);
+    HISTOGRAMS.get("heapPushes").record(heapPushes);
+    HISTOGRAMS.get("stalePops").record(stalePops);
+    HISTOGRAMS.get("neighborFetches").record(neighborFetches);
+    HISTOGRAMS.get("cacheHits").record(cacheHits);
+    HISTOGRAMS.get("cacheMisses").record(cacheMisses);
+    HISTOGRAMS.get("sqlNanos").record(sqlNanos);
+    HISTOGRAMS.get("totalNanos").record(totalNanos);
+  }
+
+  /** Get the stats of the search running on the current thread.
+   * @return the SearchStats, or null if no search is running.
+   */
+  public static SearchStats current() {
+    return CURRENT.get();
+  }
+
+  /** Counts an edge cache hit against the search running on the current thread, if any.
+   */
+  public static void recordCacheHit() {
+    SearchStats stats = CURRENT.get();
+    if (stats != null) {
+      stats.cacheHits++;
+    }
+  }
+
+  /** Counts an edge cache miss against the search running on the current thread, if any.
+   */
+  public static void recordCacheMiss() {
+    SearchStats stats = CURRENT.get();
+    if (stats != null) {
+      stats.cacheMisses++;
+    }
+  }
+
+  /** Adds database time to the search running on the current thread, if any.
+   * @param nanos is the time spent querying in nanoseconds.
+   */
+  public static void recordSqlTime(long nanos) {
+    SearchStats stats = CURRENT.get();
+    if (stats != null) {
+      stats.sqlNanos += nanos;
+    }
+  }
+
+  /** Adds the counters of another search, such as one worker of a parallel search, to
+   * these counters.
+   * @param other is the SearchStats to add.
+   */
+  void add(SearchStats other) {
+    settled += other.settled;
+    edgesRelaxed += other.edgesRelaxed;
+    heapPushes += other.heapPushes;
+    stalePops += other.stalePops;
+    neighborFetches += other.neighborFetches;
+    cacheHits += other.cacheHits;
+    cacheMisses += other.cacheMisses;
+    sqlNanos += other.sqlNanos;
+  }
+
+  /** Counts a settled node. */
+  void nodeSettled() {
+    settled++;
+  }
+
+  /** Counts a relaxed edge. */
+  void edgeRelaxed() {
+    edgesRelaxed++;
+  }
+
+  /** Counts entries pushed onto the priority queue.
+   * @param pushes is the number of entries pushed.
+   */
+  void heapPushed(int pushes) {
+    heapPushes += pushes;
+  }
+
+  /** Counts an entry popped from the priority queue for an already settled node. */
+  void stalePopped() {
+    stalePops++;
+  }
+
+  /** Counts a call for the outgoing edges of a node. */
+  void neighborsFetched() {
+    neighborFetches++;
+  }
+
+  /** Get the number of nodes settled.
+   * @return an int that is the count.
+   */
+  public int getSettled() {
+    return settled;
+  }
+
+  /** Get the number of edges relaxed.
+   * @return an int that is the count.
+   */
+  public int getEdgesRelaxed() {
+    return edgesRelaxed;
+  }
+
+  /** Get the number of entries pushed onto the priority queue.
+   * @return an int that is the count.
+   */
+  public int getHeapPushes() {
+    return heapPushes;
+  }
+
+  /** Get the number of entries popped for nodes that were already settled.
+   * @return an int that is the count.
+   */
+  public int getStalePops() {
+    return stalePops;
+  }
+
+  /** Get the number of calls for the outgoing edges of a node.
+   * @return an int that is the count.
+   */
+  public int getNeighborFetches() {
+    return neighborFetches;
+  }
+
+  /** Get the number of edge cache hits.
+   * @return an int that is the count.
+   */
+  public int getCacheHits() {
+    return cacheHits;
+  }
+
+  /** Get the number of edge cache misses.
+   * @return an int that is the count.
+   */
+  public int getCacheMisses() {
+    return cacheMisses;
+  }
+
+  /** Get the time spent querying the database.
+   * @return a long that is the time in nanoseconds.
+   */
+  public long getSqlNanos() {
+    return sqlNanos;
+  }
+
+  /** Get the time the search ran for, once it has finished.
+   * @return a long that is the time in nanoseconds.
+   */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /** Get a summary of the histogram of every counter over all finished searches.
+   * @return a map from counter name to its histogram summary.
+   */
+  public static Map<String, Map<String, Object>> histogramSummaries() {
+    Map<String, Map<String, Object>> summaries = new LinkedHashMap<>();
+    for (Map.Entry<String, Histogram> histogram : HISTOGRAMS.entrySet()) {
+      summaries.put(histogram.getKey(), histogram.getValue().summary());
+    }
+    return summaries;
+  }
+
+  @Override
+  public String toString() {
+    final double nanosPerMilli = 1e6;
+    return String.format("settled: %d, edges relaxed: %d, heap pushes: %d, stale pops: %d, "
+            + "neighbor fetches: %d, cache hits: %d, cache misses: %d, "
+            + "sql: %.3f ms, total: %.3f ms",
+        settled, edgesRelaxed, heapPushes, stalePops, neighborFetches, cacheHits, cacheMisses,
+        sqlNanos / nanosPerMilli, totalNanos / nanosPerMilli);
+  }
+}
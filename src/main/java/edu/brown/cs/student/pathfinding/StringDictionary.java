@@ -0,0 +1,86 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Class that gives every distinct way name and type of a map a small int code, so that
+ * the many ways of one street share a single String and compare their names as ints. The
+ * map command builds one dictionary per map while it loads the road graph; strings read
+ * afterwards, such as from the rows of another map, are added as they are encoded. Codes
+ * are only decoded back into Strings where they leave the program, as in a route or a way
+ * sent to the front end.
+ *
+ * <p>Codes are dense, from 0 up to the size of the dictionary, and null is given -1. A
+ * dictionary may be read and added to from several threads at once.
+ */
+public final class StringDictionary {
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+  private volatile String[] strings = new String[INITIAL_CAPACITY];
+  private volatile int size;
+
+  /** Get the code of a string, adding it to the dictionary if it is not in it yet.
+   * @param string is a String, or null.
+   * @return a non-negative int, or -1 if string is null.
+   */
+  public int encode(String string) {
+    if (string == null) {
+      return -1;
+    }
+    Integer code = codes.get(string);
+    return code != null ? code : add(string);
+  }
+
+  /** Get the code of a string without adding it.
+   * @param string is a String, or null.
+   * @return a non-negative int, or -1 if string is null or not in the dictionary.
+   */
+  public int codeOf(String string) {
+    Integer code = string == null ? null : codes.get(string);
+    return code != null ? code : -1;
+  }
+
+  /** Get the string of a code.
+   * @param code is an int that this dictionary gave out.
+   * @return the String of the code, or null if the code is -1.
+   * @throws IndexOutOfBoundsException if the code is not -1 and not in the dictionary.
+   */
+  public String decode(int code) throws IndexOutOfBoundsException {
+    if (code == -1) {
+      return null;
+    }
+    // size is written after the string it counts, so reading it first sees that string
+    if (code < 0 || code >= size) {
+      throw new IndexOutOfBoundsException("Index out of range: " + code);
+    }
+    return strings[code];
+  }
+
+  /** Get the number of strings in the dictionary.
+   * @return a non-negative int.
+   */
+  public int size() {
+    return size;
+  }
+
+  /** Adds a string under the next code, unless another thread added it first.
+   * @param string is a String that was not in the dictionary when it was looked up.
+   * @return the code of the string.
+   */
+  private synchronized int add(String string) {
+    Integer code = codes.get(string);
+    if (code != null) {
+      return code;
+    }
+    int next = size;
+    if (next == strings.length) {
+      strings = Arrays.copyOf(strings, next * 2);
+    }
+    strings[next] = string;
+    size = next + 1;
+    codes.put(string, next);
+    return next;
+  }
+}
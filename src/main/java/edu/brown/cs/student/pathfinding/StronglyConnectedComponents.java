@@ -0,0 +1,266 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/** Class that labels every node of a RoadGraph with its strongly connected component,
+ * so a route query between two nodes that cannot reach each other is answered
+ * without running a search. It also groups the components into weakly connected ones,
+ * which ignore the direction of ways: on maps of one-way ways nearly every strongly
+ * connected component is a single node, so only the largest weakly connected component
+ * tells the main road network apart from pieces of road cut off from it.
+ */
+public final class StronglyConnectedComponents {
+  private final RoadGraph graph;
+  private final int[] components;
+  private final int[] componentSizes;
+  private final int[] dagOffsets;
+  private final int[] dagTargets;
+  private final int largestComponent;
+  // the weakly connected component of every strongly connected component
+  private final int[] weakComponents;
+  private final int largestWeakComponent;
+
+  /** Constructor for StronglyConnectedComponents; labels every node of the graph.
+   * Components are numbered in the order Tarjan's algorithm completes them, which is a
+   * reverse topological order: an edge between two different components always points
+   * from the higher component number to the lower one.
+   * @param graph is the RoadGraph to label.
+   */
+  public StronglyConnectedComponents(RoadGraph graph) {
+    this.graph = graph;
+    this.components = new int[graph.size()];
+    int numComponents = label();
+
+    this.componentSizes = new int[numComponents];
+    for (int component : components) {
+      componentSizes[component]++;
+    }
+    int largest = -1;
+    for (int c = 0; c < numComponents; c++) {
+      if (largest == -1 || componentSizes[c] > componentSizes[largest]) {
+        largest = c;
+      }
+    }
+    this.largestComponent = largest;
+
+    // build the condensation, i.e. the DAG of edges between different components
+    this.dagOffsets = new int[numComponents + 1];
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      int from = components[graph.edgeSource(e)];
+      if (from != components[graph.edgeTarget(e)]) {
+        dagOffsets[from + 1]++;
+      }
+    }
+    for (int c = 0; c < numComponents; c++) {
+      dagOffsets[c + 1] += dagOffsets[c];
+    }
+    this.dagTargets = new int[dagOffsets[numComponents]];
+    int[] nextSlot = Arrays.copyOf(dagOffsets, numComponents);
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      int from = components[graph.edgeSource(e)];
+      int to = components[graph.edgeTarget(e)];
+      if (from != to) {
+        dagTargets[nextSlot[from]++] = to;
+      }
+    }
+
+    // join the components along the edges of the condensation, ignoring their direction
+    this.weakComponents = new int[numComponents];
+    for (int c = 0; c < numComponents; c++) {
+      weakComponents[c] = c;
+    }
+    for (int c = 0; c < numComponents; c++) {
+      for (int i = dagOffsets[c]; i < dagOffsets[c + 1]; i++) {
+        int root = findWeakComponent(c);
+        int other = findWeakComponent(dagTargets[i]);
+        weakComponents[Math.max(root, other)] = Math.min(root, other);
+      }
+    }
+    int[] weakSizes = new int[numComponents];
+    int largestWeak = -1;
+    for (int c = 0; c < numComponents; c++) {
+      weakComponents[c] = findWeakComponent(c);
+      weakSizes[weakComponents[c]] += componentSizes[c];
+    }
+    for (int c = 0; c < numComponents; c++) {
+      if (largestWeak == -1 || weakSizes[c] > weakSizes[largestWeak]) {
+        largestWeak = c;
+      }
+    }
+    this.largestWeakComponent = largestWeak;
+  }
+
+  /** Finds the root of the weakly connected component a strongly connected component has
+   * been joined into so far, halving the path to it on the way.
+   * @param component is a strongly connected component label.
+   * @return the label of the root component.
+   */
+  private int findWeakComponent(int component) {
+    int c = component;
+    while (weakComponents[c] != c) {
+      weakComponents[c] = weakComponents[weakComponents[c]];
+      c = weakComponents[c];
+    }
+    return c;
+  }
+
+  /** Runs an iterative version of Tarjan's algorithm so that long roads do not overflow
+   * the call stack, filling in the components array.
+   * @return the number of components found.
+   */
+  private int label() {
+    int n = graph.size();
+    int[] discovery = new int[n];
+    int[] lowLink = new int[n];
+    int[] nextEdge = new int[n];
+    int[] callStack = new int[n];
+    int[] tarjanStack = new int[n];
+    boolean[] onStack = new boolean[n];
+    Arrays.fill(discovery, -1);
+
+    int time = 0;
+    int numComponents = 0;
+    int tarjanTop = 0;
+    for (int root = 0; root < n; root++) {
+      if (discovery[root] != -1) {
+        continue;
+      }
+      int callTop = 0;
+      callStack[callTop++] = root;
+      discovery[root] = time;
+      lowLink[root] = time++;
+      nextEdge[root] = graph.firstEdge(root);
+      tarjanStack[tarjanTop++] = root;
+      onStack[root] = true;
+
+      while (callTop > 0) {
+        int v = callStack[callTop - 1];
+        if (nextEdge[v] < graph.endEdge(v)) {
+          int w = graph.edgeTarget(nextEdge[v]++);
+          if (discovery[w] == -1) {
+            discovery[w] = time;
+            lowLink[w] = time++;
+            nextEdge[w] = graph.firstEdge(w);
+            tarjanStack[tarjanTop++] = w;
+            onStack[w] = true;
+            callStack[callTop++] = w;
+          } else if (onStack[w]) {
+            lowLink[v] = Math.min(lowLink[v], discovery[w]);
+          }
+          continue;
+        }
+
+        // every edge of v has been explored, so v is finished
+        callTop--;
+        if (callTop > 0) {
+          int parent = callStack[callTop - 1];
+          lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+        }
+        if (lowLink[v] == discovery[v]) {
+          int w;
+          do {
+            w = tarjanStack[--tarjanTop];
+            onStack[w] = false;
+            components[w] = numComponents;
+          } while (w != v);
+          numComponents++;
+        }
+      }
+    }
+    return numComponents;
+  }
+
+  /** Get the number of strongly connected components.
+   * @return an int that is the number of components.
+   */
+  public int componentCount() {
+    return componentSizes.length;
+  }
+
+  /** Get the component label of a node.
+   * @param node is a dense node index of the graph.
+   * @return an int that is the component label.
+   */
+  public int getComponent(int node) {
+    return components[node];
+  }
+
+  /** Get the number of nodes in a component.
+   * @param component is a component label.
+   * @return an int that is the size of the component.
+   */
+  public int getComponentSize(int component) {
+    return componentSizes[component];
+  }
+
+  /** Get the label of the component with the most nodes.
+   * @return a component label, or -1 if the graph is empty.
+   */
+  public int getLargestComponent() {
+    return largestComponent;
+  }
+
+  /** Check whether a node lies in the component with the most nodes.
+   * @param node is a GraticuleNode.
+   * @return true if the node is in the graph and in the largest component.
+   */
+  public boolean isInLargestComponent(GraticuleNode node) {
+    int index = graph.indexOf(node);
+    return index != -1 && components[index] == largestComponent;
+  }
+
+  /** Check whether a node lies in the weakly connected component with the most nodes,
+   * which is the one nearest-node snapping keeps to.
+   * @param node is a GraticuleNode.
+   * @return true if the node is in the graph and in the largest weakly connected component.
+   */
+  public boolean isInLargestWeakComponent(GraticuleNode node) {
+    int index = graph.indexOf(node);
+    return index != -1 && weakComponents[components[index]] == largestWeakComponent;
+  }
+
+  /** Check whether there is a directed path from one node to another. Nodes in the same
+   * component always reach each other and, because components are numbered in reverse
+   * topological order, a node can never reach a component with a higher number. Only the
+   * remaining case walks the condensation, which is far smaller than the graph itself.
+   * @param from is the GraticuleNode a route starts at.
+   * @param to is the GraticuleNode a route ends at.
+   * @return false only if no path exists; nodes missing from the graph are assumed reachable.
+   */
+  public boolean canReach(GraticuleNode from, GraticuleNode to) {
+    int fromIndex = graph.indexOf(from);
+    int toIndex = graph.indexOf(to);
+    if (fromIndex == -1 || toIndex == -1) {
+      return true;
+    }
+    int source = components[fromIndex];
+    int target = components[toIndex];
+    if (source == target) {
+      return true;
+    } else if (target > source) {
+      return false;
+    }
+
+    BitSet seen = new BitSet(componentSizes.length);
+    int[] stack = new int[componentSizes.length];
+    int top = 0;
+    stack[top++] = source;
+    seen.set(source);
+    while (top > 0) {
+      int c = stack[--top];
+      for (int i = dagOffsets[c]; i < dagOffsets[c + 1]; i++) {
+        int next = dagTargets[i];
+        if (next == target) {
+          return true;
+        }
+        // components numbered below the target are downstream of it and cannot lead back
+        if (next > target && !seen.get(next)) {
+          seen.set(next);
+          stack[top++] = next;
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,66 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Class that reads and writes the ids of the hottest nodes of an edge cache, which a
+ * later run fetches before its searches need them. The file is a header followed by the
+ * ids, the hottest first. It is written next to itself and moved into place, so a run
+ * that stops while writing leaves the previous file whole.
+ */
+public final class WarmCacheFile {
+  private static final int MAGIC = 0x57415231;
+
+  private WarmCacheFile() {
+  }
+
+  /** Writes node ids to a file, replacing any existing file.
+   * @param file is the Path to write to.
+   * @param ids is a List of node ids, the hottest first.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void write(Path file, List<String> ids) throws IOException {
+    Path partial = file.resolveSibling(file.getFileName() + ".partial");
+    try (DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(partial)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(ids.size());
+      for (String id : ids) {
+        output.writeUTF(id);
+      }
+    }
+    Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Reads node ids written by write.
+   * @param file is the Path to read from.
+   * @return a List of node ids, the hottest first.
+   * @throws IOException if the file cannot be read or is not a warm cache file.
+   */
+  public static List<String> read(Path file) throws IOException {
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file)))) {
+      if (input.readInt() != MAGIC) {
+        throw new IOException("not a warm cache file: " + file);
+      }
+      int count = input.readInt();
+      if (count < 0) {
+        throw new IOException("not a warm cache file: " + file);
+      }
+      List<String> ids = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        ids.add(input.readUTF());
+      }
+      return ids;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package edu.brown.cs.student.pathfinding;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Class that is a cost function for routing, given as a factor the length of every way
+ * is multiplied by according to its type. A profile is turned into one weight array per
+ * RoadGraph, indexed by edge, so any number of profiles share the topology of the graph.
+ * A way whose factor is infinite is never used.
+ *
+ * <p>Since a route costs at least its length times the smallest factor of the profile,
+ * the straight line distance times that factor is still an admissible A* heuristic.
+ */
+public final class WeightProfile {
+  /** The profile that routes by length alone. */
+  public static final WeightProfile SHORTEST = new WeightProfile("shortest", Map.of(), 1);
+
+  /** The profile that makes major roads cheaper and residential streets dearer. */
+  public static final WeightProfile PREFER_HIGHWAYS = new WeightProfile("highway", Map.of(
+      "motorway", 0.5, "motorway_link", 0.6, "trunk", 0.6, "trunk_link", 0.7,
+      "primary", 0.75, "primary_link", 0.8, "secondary", 0.85, "tertiary", 0.9,
+      "residential", 1.2), 1);
+
+  /** The profile that routes by length but never uses motorways or trunk roads. */
+  public static final WeightProfile AVOID_HIGHWAYS = new WeightProfile("avoid-highways",
+      Map.of("motorway", Double.POSITIVE_INFINITY, "motorway_link", Double.POSITIVE_INFINITY,
+          "trunk", Double.POSITIVE_INFINITY, "trunk_link", Double.POSITIVE_INFINITY), 1);
+
+  private static final Map<String, WeightProfile> PROFILES = new ConcurrentHashMap<>(Map.of(
+      SHORTEST.getName(), SHORTEST,
+      PREFER_HIGHWAYS.getName(), PREFER_HIGHWAYS,
+      AVOID_HIGHWAYS.getName(), AVOID_HIGHWAYS));
+
+  private final String name;
+  private final Map<String, Double> typeFactors;
+  private final double defaultFactor;
+  private final double heuristicScale;
+
+  /** Constructor for WeightProfile.
+   * @param name is the name queries choose the profile by.
+   * @param typeFactors is the factor to multiply the length of a way by, keyed by type.
+   * @param defaultFactor is the factor for ways whose type is not in typeFactors.
+   * @throws IllegalArgumentException if a factor is not positive.
+   */
+  public WeightProfile(String name, Map<String, Double> typeFactors, double defaultFactor)
+      throws IllegalArgumentException {
+    double smallest = defaultFactor;
+    for (double factor : typeFactors.values()) {
+      smallest = Math.min(smallest, factor);
+    }
+    if (!(smallest > 0)) {
+      throw new IllegalArgumentException();
+    }
+    this.name = name;
+    this.typeFactors = Map.copyOf(typeFactors);
+    this.defaultFactor = defaultFactor;
+    this.heuristicScale = Double.isInfinite(smallest) ? 1 : smallest;
+  }
+
+  /** Makes a profile available to forName, replacing any profile of the same name.
+   * @param profile is the WeightProfile to register.
+   */
+  public static void register(WeightProfile profile) {
+    PROFILES.put(profile.getName(), profile);
+  }
+
+  /** Get a registered profile by name.
+   * @param name is the name of a profile.
+   * @return the WeightProfile, or null if none has that name.
+   */
+  public static WeightProfile forName(String name) {
+    return PROFILES.get(name);
+  }
+
+  /** Get the name of the profile.
+   * @return a String that is the name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /** Get the factor the length of a way of the given type is multiplied by.
+   * @param type is the type of a way.
+   * @return a positive double, or infinity if such ways are avoided.
+   */
+  public double factor(String type) {
+    return typeFactors.getOrDefault(type, defaultFactor);
+  }
+
+  /** Get the factor to scale a straight line distance heuristic by so that it stays
+   * admissible, which is the smallest finite factor of the profile.
+   * @return a positive double that is 1 for profiles that neither discount nor charge
+   * extra for any way.
+   */
+  public double getHeuristicScale() {
+    return heuristicScale;
+  }
+
+  /** Computes the weight of every edge of a graph under this profile.
+   * @param graph is a RoadGraph.
+   * @return an array of weights indexed by edge, which are infinite for avoided ways.
+   */
+  public double[] weights(RoadGraph graph) {
+    double[] weights = new double[graph.edgeCount()];
+    for (int e = 0; e < weights.length; e++) {
+      double factor = factor(graph.getEdge(e).getType());
+      // an avoided way stays avoided even if it has no length, where 0 * infinity is NaN
+      weights[e] = Double.isInfinite(factor) ? factor : graph.edgeLength(e) * factor;
+    }
+    return weights;
+  }
+}
@@ -4,11 +4,10 @@ import edu.brown.cs.student.coordinates.Coordinate;
 import edu.brown.cs.student.utils.Utils;
 
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 // Wrapper class - uses composition in place of inheritance
 /** Class to perform NaiveSearch over coordinates of specified type ID.
@@ -17,20 +16,40 @@ import java.util.stream.Collectors;
  @param <T> Any type that extends the interface Coordinate.
  */
 public class ListNaiveSearch<I, T extends Coordinate<I>> {
-  private Map<T, Double> keysDist;
+  // the keys and their distances, sorted by distance; keys before next have been consumed
+  private final List<T> keys;
+  private final double[] dists;
+  private int next;
 
   /** Construct a ListNaiveSearch using the passed values by storing in a List
    of KeyDistance.
    @param kNearestNeighbors A List of KeyDistance of the type specified by the KeyDistance ID.
    */
   public ListNaiveSearch(Map<T, Double> kNearestNeighbors) {
-    keysDist = kNearestNeighbors.entrySet()
-             .stream()
-             .sorted(Map.Entry.comparingByValue())
-             .collect(Collectors.toMap(
-                     Map.Entry::getKey,
-                     Map.Entry::getValue,
-               (oldValue, newValue) -> oldValue, LinkedHashMap::new));
+    this(new ArrayList<>(kNearestNeighbors.keySet()), kNearestNeighbors.values().stream()
+        .mapToDouble(Double::doubleValue).toArray());
+  }
+
+  /** Construct a ListNaiveSearch from keys and their distances given in parallel, which
+   * keeps the distances unboxed.
+   @param keys A List of the keys of the type specified.
+   @param distances An array of doubles where the i-th value is the distance of the i-th key.
+   @throws IllegalArgumentException if there are not as many distances as keys.
+   */
+  public ListNaiveSearch(List<T> keys, double[] distances) throws IllegalArgumentException {
+    if (keys.size() != distances.length) {
+      throw new IllegalArgumentException();
+    }
+    // a stable sort, so that keys at equal distances keep the order they were given in
+    int[] order = IntStream.range(0, distances.length).boxed()
+        .sorted(Comparator.comparingDouble(i -> distances[i]))
+        .mapToInt(Integer::intValue).toArray();
+    this.keys = new ArrayList<>(order.length);
+    this.dists = new double[order.length];
+    for (int i = 0; i < order.length; i++) {
+      this.keys.add(keys.get(order[i]));
+      this.dists[i] = distances[order[i]];
+    }
   }
 
   /** Get the first few stars within the passed threshold with the least distances,
@@ -43,17 +62,17 @@ public class ListNaiveSearch<I, T extends Coordinate<I>> {
 
     List<T> nearestStars = new ArrayList<>();
     List<T> commonDistStars = new ArrayList<>();
-    Iterator<Map.Entry<T, Double>> mapIterator = keysDist.entrySet().iterator();
-    Double prevDist = 0.0;
+    double prevDist = 0.0;
 
     // filledPos represents how many filled positions out of k
     int filledPos = 0;
     try {
-      while (filledPos < k && mapIterator.hasNext()) {
-        Map.Entry<T, Double> keyDistPair = mapIterator.next();
+      while (filledPos < k && next < keys.size()) {
+        T key = keys.get(next);
+        double dist = dists[next];
         // any common dist stars get added to commonDistStars
-        if (Double.compare(keyDistPair.getValue(), prevDist) == 0) {
-          commonDistStars.add(keyDistPair.getKey());
+        if (Double.compare(dist, prevDist) == 0) {
+          commonDistStars.add(key);
         } else {
           // if the star does not have common dist, print out everything from
           // commonDistStars after shuffling, then add this star to commonDistStars
@@ -64,10 +83,10 @@ public class ListNaiveSearch<I, T extends Coordinate<I>> {
             filledPos = addCommonDistStars(k, commonDistStars, filledPos, nearestStars);
           }
           commonDistStars = new ArrayList<>();
-          commonDistStars.add(keyDistPair.getKey());
-          prevDist = keyDistPair.getValue();
+          commonDistStars.add(key);
+          prevDist = dist;
         }
-        mapIterator.remove();
+        next++;
         if (commonDistStars.size() > 0) {
           filledPos = addCommonDistStars(k, commonDistStars, filledPos, nearestStars);
         }
@@ -112,16 +131,8 @@ public class ListNaiveSearch<I, T extends Coordinate<I>> {
    */
   public List<T> getNaiveRadiusSearchResult(double r) {
     List<T> nearestStars = new ArrayList<>();
-    Iterator<Map.Entry<T, Double>> mapIterator = keysDist.entrySet().iterator();
-    int index = 0;
-    while (index < keysDist.size() && mapIterator.hasNext()) {
-      Map.Entry<T, Double> keyDistPair = mapIterator.next();
-      if (keyDistPair.getValue() <= r) {
-        nearestStars.add(keyDistPair.getKey());
-        index++;
-      } else {
-        break;
-      }
+    for (int i = next; i < keys.size() && dists[i] <= r; i++) {
+      nearestStars.add(keys.get(i));
     }
     return nearestStars;
   }
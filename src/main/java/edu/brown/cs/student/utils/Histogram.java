@@ -0,0 +1,88 @@
+package edu.brown.cs.student.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Class that is a thread-safe histogram of non-negative longs with power-of-two buckets,
+ * so it needs a fixed, small amount of memory however many values it records. Percentiles
+ * are reported as the upper bound of the bucket they fall in, which is within a factor
+ * of two of the true value.
+ */
+public final class Histogram {
+  private static final int BUCKETS = Long.SIZE + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /** Records a value.
+   * @param value is a long that is recorded as 0 if negative.
+   */
+  public void record(long value) {
+    long clamped = Math.max(value, 0);
+    counts.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(clamped));
+    count.incrementAndGet();
+    sum.addAndGet(clamped);
+    max.accumulateAndGet(clamped, Math::max);
+  }
+
+  /** Get the number of values recorded.
+   * @return a long that is the count.
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /** Get the mean of the values recorded.
+   * @return a double that is the mean, or 0 if nothing was recorded.
+   */
+  public double getMean() {
+    long n = count.get();
+    return n == 0 ? 0 : (double) sum.get() / n;
+  }
+
+  /** Get the largest value recorded.
+   * @return a long that is the maximum, or 0 if nothing was recorded.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /** Get an upper bound on a percentile of the values recorded.
+   * @param percentile is a double between 0 and 100.
+   * @return the upper bound of the bucket the percentile falls in, or 0 if nothing was
+   * recorded.
+   */
+  public long getPercentile(double percentile) {
+    final double percent = 100.0;
+    long rank = (long) Math.ceil(count.get() * percentile / percent);
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += counts.get(bucket);
+      if (seen >= rank && seen > 0) {
+        return bucket == 0 ? 0 : Math.min(max.get(), (1L << bucket) - 1);
+      }
+    }
+    return max.get();
+  }
+
+  /** Get a summary of the histogram.
+   * @return a map of count, mean, p50, p90, p99 and max.
+   */
+  public Map<String, Object> summary() {
+    final double p50 = 50;
+    final double p90 = 90;
+    final double p99 = 99;
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("count", getCount());
+    summary.put("mean", getMean());
+    summary.put("p50", getPercentile(p50));
+    summary.put("p90", getPercentile(p90));
+    summary.put("p99", getPercentile(p99));
+    summary.put("max", getMax());
+    return summary;
+  }
+}
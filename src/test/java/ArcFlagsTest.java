@@ -0,0 +1,73 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.ArcFlags;
+import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.InMemoryDijkstra;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import edu.brown.cs.student.pathfinding.RouteResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ArcFlagsTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+  private static final double TOLERANCE = 1e-9;
+
+  /** A* that skips the edges arc flags rule out must find routes exactly as short as
+   * Dijkstra between every pair of nodes, however many regions the map is split into.
+   */
+  @Test
+  public void prunedRoutesMatchDijkstra() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      double[] lengths = graph.getEdgeLengths();
+      InMemoryDijkstra inMemory = new InMemoryDijkstra(graph, lengths);
+      for (int levels = 0; levels <= 3; levels++) {
+        ArcFlags arcFlags = new ArcFlags(graph, lengths, levels);
+        assertEquals(1 << levels, arcFlags.regionCount());
+        assertTrue(arcFlags.isFor(lengths));
+        DijkstraAStar<String, String, GraticuleNode> flaggedAStar = new DijkstraAStar<>(
+            NodeDistanceCalculators::getHaversineDistance,
+            MapCommandHandler.getdBProxiedReader()::get,
+            HeuristicFuncs::aStarDist,
+            (from, to) -> true,
+            arcFlags::mayLeadTo);
+        for (int source = 0; source < graph.size(); source++) {
+          double[] expected = inMemory.shortestPathTree(source);
+          for (int target = 0; target < graph.size(); target++) {
+            RouteResult<String, String, GraticuleNode> flagged = flaggedAStar.runDijkstraAStar(
+                graph.getNode(source), graph.getNode(target), new RouteQueryOptions());
+            double cost = source == target ? 0 : flagged.getCost();
+            assertTrue(flagged.isCompleted());
+            assertEquals(expected[target], cost, TOLERANCE);
+          }
+        }
+      }
+    }
+  }
+
+  /** Every edge within a region must be flagged for that region.
+   */
+  @Test
+  public void edgesWithinRegionsAreFlagged() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      ArcFlags arcFlags = new ArcFlags(graph, graph.getEdgeLengths(), 2);
+      for (int edge = 0; edge < graph.edgeCount(); edge++) {
+        int region = arcFlags.regionOf(graph.edgeTarget(edge));
+        if (arcFlags.regionOf(graph.edgeSource(edge)) == region) {
+          assertTrue(arcFlags.isFlagged(edge, region));
+          assertTrue(arcFlags.mayLeadTo(graph.getEdge(edge),
+              graph.getEdge(edge).getEndNode()));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.NeighborWaySearchers;
+import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.EdgeCacheOptions;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.ProxiedEdgeFetcher;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import edu.brown.cs.student.pathfinding.RouteResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchedExpansionTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+
+  /** A* must settle the same nodes and find the same routes between every pair of nodes
+   * when it fetches the ways out of uncached frontier nodes in batches as when it fetches
+   * them one node at a time. Each search starts from an empty way cache, so the batched
+   * one actually batches.
+   */
+  @Test
+  public void routesMatchUnbatchedSearch() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      for (int batchSize : new int[] {1, 4, 64}) {
+        long batchQueries = 0;
+        for (GraticuleNode start : graph.getNodes()) {
+          for (GraticuleNode end : graph.getNodes()) {
+            ProxiedEdgeFetcher<String, String, GraticuleNode> single =
+                new ProxiedEdgeFetcher<>(NeighborWaySearchers::getWaysFromTargetNode);
+            RouteResult<String, String, GraticuleNode> unbatched = new DijkstraAStar<>(
+                NodeDistanceCalculators::getHaversineDistance, single::get,
+                HeuristicFuncs::aStarDist).runDijkstraAStar(start, end, new RouteQueryOptions());
+            ProxiedEdgeFetcher<String, String, GraticuleNode> batch = newBatchFetcher();
+            DijkstraAStar<String, String, GraticuleNode> batchedAStar = new DijkstraAStar<>(
+                NodeDistanceCalculators::getHaversineDistance, batch::get,
+                HeuristicFuncs::aStarDist);
+            batchedAStar.setBatchedExpansion(batch::isCached, batch::fetchAll, batchSize);
+            RouteResult<String, String, GraticuleNode> batched =
+                batchedAStar.runDijkstraAStar(start, end, new RouteQueryOptions());
+
+            assertEquals(unbatched.getSettledCount(), batched.getSettledCount());
+            assertEquals(unbatched.getPath(), batched.getPath());
+            batchQueries += (Long) batch.stats().get("batchQueries");
+          }
+        }
+        // a batch of one is a single lookup, which is not batched
+        assertEquals(batchSize == 1, batchQueries == 0);
+      }
+    }
+  }
+
+  /** Fetching several nodes at once must cache every one of them with one query, and
+   * fetching them again must not query at all.
+   */
+  @Test
+  public void fetchAllCachesEveryNode() {
+    MapCommandHandler.mapCommand("map data/maps/testMaps.sqlite3", "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    ProxiedEdgeFetcher<String, String, GraticuleNode> batch = newBatchFetcher();
+    batch.fetchAll(graph.getNodes());
+    batch.fetchAll(graph.getNodes());
+    for (GraticuleNode node : graph.getNodes()) {
+      assertTrue(batch.isCached(node));
+      assertEquals(NeighborWaySearchers.getWaysFromTargetNode(node), batch.get(node));
+    }
+    assertEquals(1L, batch.stats().get("batchQueries"));
+    assertEquals((long) graph.size(), batch.stats().get("batchedNodes"));
+    assertEquals(0L, batch.stats().get("misses"));
+  }
+
+  /** Makes an empty way cache over the loaded map that can fetch several nodes at once.
+   * @return the ProxiedEdgeFetcher
+   */
+  private static ProxiedEdgeFetcher<String, String, GraticuleNode> newBatchFetcher() {
+    return new ProxiedEdgeFetcher<>(NeighborWaySearchers::getWaysFromTargetNode,
+        NeighborWaySearchers::getWaysFromTargetNodes, null, new EdgeCacheOptions());
+  }
+}
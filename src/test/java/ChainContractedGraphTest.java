@@ -0,0 +1,72 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.ChainContractedGraph;
+import edu.brown.cs.student.pathfinding.InMemoryDijkstra;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.WeightProfile;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChainContractedGraphTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+  private static final double TOLERANCE = 1e-9;
+
+  /** The routes found on the contracted graph between every pair of nodes, expanded back
+   * into original ways, must run from the start to the end and be exactly as long as the
+   * shortest paths of Dijkstra on the original graph, for lengths and for profile weights.
+   */
+  @Test
+  public void routesMatchDijkstra() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      for (double[] weights : List.of(graph.getEdgeLengths(),
+          graph.getProfileWeights(WeightProfile.PREFER_HIGHWAYS))) {
+        ChainContractedGraph contracted = new ChainContractedGraph(graph, weights);
+        InMemoryDijkstra dijkstra = new InMemoryDijkstra(graph, weights);
+        assertTrue(contracted.keptNodeCount() <= graph.size());
+        for (int source = 0; source < graph.size(); source++) {
+          double[] expected = dijkstra.shortestPathTree(source);
+          for (int target = 0; target < graph.size(); target++) {
+            List<Integer> path = contracted.shortestPath(source, target);
+            if (source == target || Double.isInfinite(expected[target])) {
+              assertTrue(path.isEmpty());
+              continue;
+            }
+            double length = 0;
+            int at = source;
+            for (int edge : path) {
+              assertEquals(at, graph.edgeSource(edge));
+              at = graph.edgeTarget(edge);
+              length += weights[edge];
+            }
+            assertEquals(target, at);
+            assertEquals(expected[target], length, TOLERANCE);
+          }
+        }
+      }
+    }
+  }
+
+  /** The degree-2 nodes of smallMaps that traffic only passes straight through are
+   * contracted away along with the ways through them, while no node of the routeMap grid
+   * is a chain node.
+   */
+  @Test
+  public void onlyChainNodesAreContracted() {
+    MapCommandHandler.mapCommand("map data/maps/smallMaps.sqlite3", "repl");
+    ChainContractedGraph contracted = MapCommandHandler.getContractedGraph();
+    assertEquals(4, contracted.keptNodeCount());
+    assertEquals(5, contracted.shortcutCount());
+
+    MapCommandHandler.mapCommand("map data/maps/routeMap.sqlite3", "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    contracted = MapCommandHandler.getContractedGraph();
+    assertEquals(graph.size(), contracted.keptNodeCount());
+    assertEquals(graph.edgeCount(), contracted.shortcutCount());
+  }
+}
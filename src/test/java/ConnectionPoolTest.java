@@ -0,0 +1,122 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.MapDBResultSetHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.NeighborWaySearchers;
+import edu.brown.cs.student.database.ConnectionPool;
+import edu.brown.cs.student.database.DatabaseHandler;
+import edu.brown.cs.student.pathfinding.GraphEdge;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConnectionPoolTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+  private static final int THREADS = 4;
+
+  /** The queries run through the pool of read-only connections, with their parameters
+   * bound, must read the same ways and intersecting streets of every node as one-off
+   * queries with the ids written into the SQL, and a padded batch and several threads
+   * querying at once must read the same ways as single queries on one thread.
+   */
+  @Test
+  public void pooledQueriesMatchOneOffQueries()
+      throws SQLException, InterruptedException, ExecutionException {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      for (String map : MAPS) {
+        MapCommandHandler.mapCommand("map " + map, "repl");
+        RoadGraph graph = MapCommandHandler.getRoadGraph();
+        List<Future<Set<GraphEdge<String, String, GraticuleNode>>>> concurrent =
+            new ArrayList<>();
+        for (GraticuleNode node : graph.getNodes()) {
+          concurrent.add(executor.submit(() -> NeighborWaySearchers.getWaysFromTargetNode(node)));
+        }
+        Map<GraticuleNode, Set<GraphEdge<String, String, GraticuleNode>>> batched =
+            NeighborWaySearchers.getWaysFromTargetNodes(graph.getNodes());
+
+        for (int i = 0; i < graph.size(); i++) {
+          GraticuleNode node = graph.getNode(i);
+          Set<GraphEdge<String, String, GraticuleNode>> ways =
+              NeighborWaySearchers.getWaysFromTargetNode(node);
+          Set<String> wayIds = new HashSet<>();
+          ways.forEach(way -> wayIds.add(way.getId()));
+          Set<String> expectedIds = new HashSet<>();
+          try (ResultSet rs = DatabaseHandler.queryLoadedDB("SELECT id FROM way WHERE start='"
+              + node.getId() + "' AND type!='unclassified' AND type!='';")) {
+            while (rs.next()) {
+              expectedIds.add(rs.getString(1));
+            }
+          }
+          List<String> expectedNames = new ArrayList<>();
+          try (ResultSet rs = DatabaseHandler.queryLoadedDB("SELECT name from way WHERE "
+              + "(start='" + node.getId() + "' or end='" + node.getId() + "')")) {
+            while (rs.next()) {
+              expectedNames.add(rs.getString(1));
+            }
+          }
+
+          assertEquals(expectedIds, wayIds);
+          assertEquals(expectedNames, MapDBResultSetHandler.queryDBStreetIntersections(
+              "SELECT name from way WHERE (start=? or end=?)",
+              List.of(node.getId(), node.getId())));
+          assertEquals(ways, concurrent.get(i).get());
+          assertEquals(ways, batched.get(node));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Threads that outnumber the connections of a pool must wait for one to be given back
+   * rather than fail, and every query must read its own bound parameter.
+   */
+  @Test
+  public void threadsShareFewerConnections()
+      throws InterruptedException, ExecutionException {
+    ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + MAPS[0], 2);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        String parameter = Integer.toString(i);
+        results.add(executor.submit(() -> pool.query("SELECT ?;", List.of(parameter),
+            rs -> rs.next() ? rs.getInt(1) : -1)));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals(i, (int) results.get(i).get());
+      }
+    } finally {
+      executor.shutdownNow();
+      pool.close();
+    }
+  }
+
+  @Test(expected = SQLException.class)
+  public void closedPoolRefusesQueries() throws SQLException {
+    ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + MAPS[0], 1);
+    assertEquals(List.of(1), pool.query("SELECT ?;", List.of("1"),
+        rs -> List.of(rs.next() ? rs.getInt(1) : 0)));
+    pool.close();
+    pool.query("SELECT 1;", List.of(), ResultSet::next);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNonPositiveSizes() {
+    new ConnectionPool("jdbc:sqlite:" + MAPS[0], 0);
+  }
+}
@@ -2,6 +2,7 @@ import com.google.gson.Gson;
 import edu.brown.cs.student.database.DatabaseHandler;
 import edu.brown.cs.student.maps.DatabaseFetchHandler;
 import edu.brown.cs.student.maps.Way;
+import edu.brown.cs.student.pathfinding.StringDictionary;
 import org.junit.Test;
 
 import java.io.FileNotFoundException;
@@ -37,6 +38,7 @@ public class DBTest {
         + "BETWEEN " + minLon + " and " + maxLon + ") as eNode ON way.end=eNode.id WHERE way.id LIKE '%1';";
     ResultSet results = DatabaseHandler.queryLoadedDB(fancyStmt);
     ArrayList<Way> ways = new ArrayList<>();
+    StringDictionary dictionary = new StringDictionary();
     while (results.next()) {
       Way currWay = new Way(results.getString("id"),
           results.getDouble("startLat"),
@@ -44,7 +46,8 @@ public class DBTest {
           results.getDouble("endLat"),
           results.getDouble("endLon"),
           results.getString("name"),
-          results.getString("type"));
+          results.getString("type"),
+          dictionary);
 //      System.out.println(currWay);
       ways.add(currWay);
     }
@@ -0,0 +1,75 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.DeltaStepping;
+import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.GraphEdge;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.InMemoryDijkstra;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DeltaSteppingTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+  private static final double TOLERANCE = 1e-9;
+
+  /** Delta-stepping must grow the same shortest path tree as sequential Dijkstra from
+   * every node, whether its buckets are narrower or wider than the ways.
+   */
+  @Test
+  public void treesMatchDijkstra() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      double[] lengths = graph.getEdgeLengths();
+      InMemoryDijkstra inMemory = new InMemoryDijkstra(graph, lengths);
+      double meanWeight = DeltaStepping.meanWeight(lengths);
+      for (double delta : new double[] {meanWeight / 10, meanWeight, meanWeight * 100}) {
+        DeltaStepping deltaStepping = new DeltaStepping(graph, lengths, delta);
+        for (int source = 0; source < graph.size(); source++) {
+          double[] expected = inMemory.shortestPathTree(source);
+          double[] tree = deltaStepping.shortestPathTree(source);
+          for (int v = 0; v < graph.size(); v++) {
+            assertEquals(expected[v], tree[v], TOLERANCE);
+          }
+        }
+      }
+    }
+  }
+
+  /** The distances of a delta-stepping tree must be the lengths of the routes the database
+   * backed Dijkstra search finds.
+   */
+  @Test
+  public void treesMatchRouteSearch() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      double[] lengths = graph.getEdgeLengths();
+      DeltaStepping deltaStepping =
+          new DeltaStepping(graph, lengths, DeltaStepping.meanWeight(lengths));
+      DijkstraAStar<String, String, GraticuleNode> dijkstra = new DijkstraAStar<>(
+          NodeDistanceCalculators::getHaversineDistance,
+          MapCommandHandler.getdBProxiedReader()::get,
+          HeuristicFuncs::dijkstraDist);
+      for (int source = 0; source < graph.size(); source++) {
+        double[] tree = deltaStepping.shortestPathTree(source);
+        for (int target = 0; target < graph.size(); target++) {
+          List<GraphEdge<String, String, GraticuleNode>> path =
+              dijkstra.runDijkstraAStar(graph.getNode(source), graph.getNode(target));
+          double length = path.isEmpty() && source != target ? Double.POSITIVE_INFINITY : 0;
+          for (GraphEdge<String, String, GraticuleNode> way : path) {
+            length += NodeDistanceCalculators.getHaversineDistance(way.getStartNode(),
+                way.getEndNode());
+          }
+          assertEquals(length, tree[target], TOLERANCE);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,82 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.DistanceKernel;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DistanceKernelTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+  private static final double TOLERANCE = 1e-12;
+
+  /** Between every pair of nodes of a map, every kernel must stay within its error bound
+   * of the Haversine distance where the bound holds, its admissible distance must not
+   * exceed the Haversine distance, and its batched distances must match its single ones.
+   */
+  @Test
+  public void kernelsStayWithinTheirBounds() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      double[] latitudeRadians = new double[graph.size()];
+      double[] longitudeRadians = new double[graph.size()];
+      double[] cosLatitudes = new double[graph.size()];
+      for (int v = 0; v < graph.size(); v++) {
+        latitudeRadians[v] = graph.getNode(v).getLatitudeRadians();
+        longitudeRadians[v] = graph.getNode(v).getLongitudeRadians();
+        cosLatitudes[v] = graph.getNode(v).getCosLatitude();
+      }
+      double[] batched = new double[graph.size()];
+      for (DistanceKernel kernel : DistanceKernel.values()) {
+        for (GraticuleNode origin : graph.getNodes()) {
+          kernel.distances(origin, latitudeRadians, longitudeRadians, cosLatitudes, batched);
+          for (int v = 0; v < graph.size(); v++) {
+            GraticuleNode node = graph.getNode(v);
+            double exact = NodeDistanceCalculators.getHaversineDistance(origin, node);
+            double approximate = kernel.distance(origin, node);
+            if (kernel.isInRange(origin, node)) {
+              assertTrue(approximate <= exact * (1 + kernel.getMaxRelativeError()) + TOLERANCE);
+            }
+            assertTrue(kernel.admissibleDistance(origin, node) <= exact + TOLERANCE);
+            assertEquals(approximate, batched[v], TOLERANCE);
+          }
+        }
+      }
+    }
+  }
+
+  /** The admissible distance must not exceed the Haversine distance between points far
+   * apart or near the poles either, where the error bounds of the kernels do not hold.
+   */
+  @Test
+  public void admissibleDistanceHoldsEverywhere() {
+    Random random = new Random(0);
+    for (DistanceKernel kernel : DistanceKernel.values()) {
+      for (int i = 0; i < 10000; i++) {
+        GraticuleNode origin = GraticuleNode.of("/n/origin", random.nextDouble() * 178 - 89,
+            random.nextDouble() * 358 - 179);
+        GraticuleNode far = GraticuleNode.of("/n/far",
+            Math.max(-89, Math.min(89, origin.getLatitude() + random.nextDouble() * 40 - 20)),
+            Math.max(-179, Math.min(179, origin.getLongitude() + random.nextDouble() * 40 - 20)));
+        assertTrue(kernel.admissibleDistance(origin, far)
+            <= NodeDistanceCalculators.getHaversineDistance(origin, far) + TOLERANCE);
+      }
+    }
+  }
+
+  @Test
+  public void kernelsAreFoundByName() {
+    assertEquals(DistanceKernel.HAVERSINE, DistanceKernel.forName("haversine"));
+    assertEquals(DistanceKernel.EQUIRECTANGULAR, DistanceKernel.forName("EquiRectangular"));
+    assertNull(DistanceKernel.forName("manhattan"));
+    assertEquals(1, DistanceKernel.HAVERSINE.getHeuristicScale(), 0);
+    assertTrue(DistanceKernel.EQUIRECTANGULAR.getHeuristicScale() < 1);
+  }
+}
@@ -0,0 +1,111 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.EdgeCacheOptions;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.ProxiedEdgeFetcher;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EdgeCachePrefetchTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+  private static final double TOLERANCE = 1e-9;
+  // covers every node of testMaps and smallMaps, though none around a routeMap node
+  private static final double RADIUS = 1;
+
+  @After
+  public void restoreEdgeCache() {
+    MapCommandHandler.setEdgeCacheOptions(new EdgeCacheOptions());
+  }
+
+  /** A* must find routes between every pair of nodes exactly as cheap with a cache that
+   * prefetches cells as with one that loads a node at a time.
+   */
+  @Test
+  public void routesMatchWithoutPrefetching() {
+    for (String map : MAPS) {
+      MapCommandHandler.setEdgeCacheOptions(new EdgeCacheOptions());
+      double[][] expected = routeCosts(map);
+      MapCommandHandler.setEdgeCacheOptions(prefetchingOptions(RADIUS));
+      double[][] prefetched = routeCosts(map);
+      for (int start = 0; start < expected.length; start++) {
+        for (int end = 0; end < expected.length; end++) {
+          assertEquals(expected[start][end], prefetched[start][end], TOLERANCE);
+        }
+      }
+    }
+  }
+
+  /** A miss must cache the ways of every node of the cell around the missed node, so that
+   * looking them up later does not miss.
+   */
+  @Test
+  public void missCachesTheCell() {
+    for (String map : MAPS) {
+      MapCommandHandler.setEdgeCacheOptions(prefetchingOptions(RADIUS));
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      ProxiedEdgeFetcher<String, String, GraticuleNode> reader =
+          MapCommandHandler.getdBProxiedReader();
+      GraticuleNode missed = MapCommandHandler.getRoadGraph().getNode(0);
+      assertFalse(reader.isCached(missed));
+      reader.get(missed);
+      List<GraticuleNode> cell =
+          MapCommandHandler.getKdTree().getRadiusSearchResult(RADIUS, missed, true);
+      for (GraticuleNode node : cell) {
+        assertTrue(reader.isCached(node));
+      }
+
+      Map<String, Object> stats = reader.stats();
+      assertEquals(1L, stats.get("misses"));
+      assertEquals(1L, stats.get("cellQueries"));
+      assertEquals(RADIUS, stats.get("prefetchRadius"));
+      assertEquals((long) cell.size(), stats.get("prefetchedNodes"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNegativeRadii() {
+    prefetchingOptions(-1);
+  }
+
+  /** Makes EdgeCacheOptions with the default size and expiry that prefetch cells.
+   * @param radius is the radius of the cells in degrees.
+   * @return the EdgeCacheOptions
+   */
+  private static EdgeCacheOptions prefetchingOptions(double radius) {
+    return new EdgeCacheOptions(100_000, 300, true, false,
+        Runtime.getRuntime().maxMemory() / 4, radius);
+  }
+
+  /** Loads a map and finds the cost of the A* route between every pair of its nodes.
+   * @param map is the file name of the map.
+   * @return the costs indexed by start node and then end node.
+   */
+  private static double[][] routeCosts(String map) {
+    MapCommandHandler.mapCommand("map " + map, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    DijkstraAStar<String, String, GraticuleNode> aStar = new DijkstraAStar<>(
+        NodeDistanceCalculators::getHaversineDistance,
+        MapCommandHandler.getdBProxiedReader()::get,
+        HeuristicFuncs::aStarDist);
+    double[][] costs = new double[graph.size()][graph.size()];
+    for (int start = 0; start < graph.size(); start++) {
+      for (int end = 0; end < graph.size(); end++) {
+        costs[start][end] = aStar.runDijkstraAStar(graph.getNode(start), graph.getNode(end),
+            new RouteQueryOptions()).getCost();
+      }
+    }
+    return costs;
+  }
+}
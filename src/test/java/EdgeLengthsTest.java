@@ -0,0 +1,62 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.GraticuleEdge;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class EdgeLengthsTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+
+  /** The precomputed length of every way must be the Haversine distance between its ends,
+   * in the graph and on the way itself.
+   */
+  @Test
+  public void lengthsAreHaversineDistances() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      double[] lengths = graph.getEdgeLengths();
+      for (int edge = 0; edge < graph.edgeCount(); edge++) {
+        GraticuleEdge way = graph.getEdge(edge);
+        double expected =
+            NodeDistanceCalculators.getHaversineDistance(way.getStartNode(), way.getEndNode());
+        assertEquals(expected, graph.edgeLength(edge), 0);
+        assertEquals(expected, way.getLength(), 0);
+        assertEquals(expected, lengths[edge], 0);
+      }
+      // callers get their own copy, so the lengths of the graph cannot be changed
+      assertNotSame(lengths, graph.getEdgeLengths());
+    }
+  }
+
+  /** Every node caches its latitude and longitude in radians and the cosine of its
+   * latitude, which must be what they would be computed as up to rounding.
+   */
+  @Test
+  public void nodesCacheTheirRadians() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      for (GraticuleNode node : MapCommandHandler.getRoadGraph().getNodes()) {
+        assertEquals(Math.toRadians(node.getLatitude()), node.getLatitudeRadians(), 1e-15);
+        assertEquals(Math.toRadians(node.getLongitude()), node.getLongitudeRadians(), 1e-15);
+        assertEquals(Math.cos(node.getLatitudeRadians()), node.getCosLatitude(), 1e-15);
+      }
+    }
+  }
+
+  @Test
+  public void haversineDistanceIsSymmetric() {
+    GraticuleNode providence = GraticuleNode.of("/n/p", 41.824, -71.4128);
+    GraticuleNode boston = GraticuleNode.of("/n/b", 42.3601, -71.0589);
+    double distance = NodeDistanceCalculators.getHaversineDistance(providence, boston);
+    assertEquals(66.38, distance, 0.01);
+    assertEquals(distance, NodeDistanceCalculators.getHaversineDistance(boston, providence),
+        1e-12);
+    assertEquals(0, NodeDistanceCalculators.getHaversineDistance(boston, boston), 0);
+  }
+}
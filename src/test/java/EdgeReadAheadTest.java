@@ -0,0 +1,110 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.NeighborWaySearchers;
+import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.EdgeReadAhead;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.ProxiedEdgeFetcher;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import edu.brown.cs.student.pathfinding.RouteResult;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EdgeReadAheadTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+
+  /** A* must settle the same nodes and find the same routes between every pair of nodes
+   * when it reads the ways of frontier nodes ahead on a background thread as when it does
+   * not. Each search starts from an empty way cache.
+   */
+  @Test
+  public void routesMatchSequentialSearch() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      for (String map : MAPS) {
+        MapCommandHandler.mapCommand("map " + map, "repl");
+        RoadGraph graph = MapCommandHandler.getRoadGraph();
+        for (int depth : new int[] {1, 4}) {
+          for (GraticuleNode start : graph.getNodes()) {
+            for (GraticuleNode end : graph.getNodes()) {
+              ProxiedEdgeFetcher<String, String, GraticuleNode> plain =
+                  new ProxiedEdgeFetcher<>(NeighborWaySearchers::getWaysFromTargetNode);
+              RouteResult<String, String, GraticuleNode> sequential = new DijkstraAStar<>(
+                  NodeDistanceCalculators::getHaversineDistance, plain::get,
+                  HeuristicFuncs::aStarDist)
+                  .runDijkstraAStar(start, end, new RouteQueryOptions());
+              ProxiedEdgeFetcher<String, String, GraticuleNode> ahead =
+                  new ProxiedEdgeFetcher<>(NeighborWaySearchers::getWaysFromTargetNode);
+              DijkstraAStar<String, String, GraticuleNode> pipelinedAStar =
+                  new DijkstraAStar<>(NodeDistanceCalculators::getHaversineDistance,
+                      ahead::get, HeuristicFuncs::aStarDist);
+              pipelinedAStar.setReadAhead(ahead::isCached,
+                  new EdgeReadAhead<>(ahead::preload, executor, depth));
+              RouteResult<String, String, GraticuleNode> pipelined =
+                  pipelinedAStar.runDijkstraAStar(start, end, new RouteQueryOptions());
+
+              assertEquals(sequential.getSettledCount(), pipelined.getSettledCount());
+              assertEquals(sequential.getPath(), pipelined.getPath());
+            }
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** At most depth fetches are pending at once, and those still waiting for the executor
+   * are cancelled once their nodes are not asked for anymore or the search ends.
+   */
+  @Test
+  public void staleFetchesAreCancelled() throws InterruptedException {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    CountDownLatch blocked = new CountDownLatch(1);
+    Set<String> fetched = ConcurrentHashMap.newKeySet();
+    try {
+      // keeps the only thread busy, so every fetch waits until it is released
+      executor.submit(() -> {
+        blocked.await();
+        return null;
+      });
+      EdgeReadAhead<String> readAhead = new EdgeReadAhead<>(fetched::add, executor, 2);
+      readAhead.request(List.of("a", "b", "c"));
+      assertEquals(2, readAhead.getSubmitted());
+
+      readAhead.request(List.of("b", "c"));
+      assertEquals(3, readAhead.getSubmitted());
+      assertEquals(1, readAhead.getCancelled());
+
+      readAhead.request(List.of("d"));
+      readAhead.cancelAll();
+      assertEquals(4, readAhead.getSubmitted());
+      assertEquals(4, readAhead.getCancelled());
+
+      blocked.countDown();
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+      assertTrue(fetched.isEmpty());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNonPositiveDepths() {
+    new EdgeReadAhead<String>(node -> { }, null, 0);
+  }
+}
@@ -0,0 +1,144 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.DistanceCommandHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.NearestCommandHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.RouteCommandsHandler;
+import edu.brown.cs.student.coordinates.FixedPoint;
+import edu.brown.cs.student.coordinates.KdTree;
+import edu.brown.cs.student.main.ErrorMessages;
+import edu.brown.cs.student.pathfinding.DistanceKernel;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.InMemoryDijkstra;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FixedPointTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+  private static final double ROUND_OFF = 1e-12;
+  private static final double HALF_UNIT = 0.5 / FixedPoint.UNITS_PER_DEGREE + ROUND_OFF;
+  // the most a node moves, in degrees of arc and in kilometres of route
+  private static final double MAX_SHIFT = Math.sqrt(2) * HALF_UNIT;
+  private static final double MAX_SHIFT_KILOMETRES =
+      Math.toRadians(MAX_SHIFT) * DistanceKernel.EARTH_RADIUS;
+
+  @After
+  public void restoreStorage() {
+    GraticuleNode.setFixedPoint(false);
+  }
+
+  /** Any latitude or longitude must snap to within half a unit of itself, and any unit
+   * must survive decoding and encoding again.
+   */
+  @Test
+  public void valuesRoundTrip() {
+    Random random = new Random(0);
+    for (int i = 0; i < 100000; i++) {
+      double degrees = random.nextDouble() * 360 - 180;
+      int units = FixedPoint.encode(degrees);
+      assertEquals(degrees, FixedPoint.decode(units), HALF_UNIT);
+      assertEquals(FixedPoint.decode(units), FixedPoint.snap(degrees), 0);
+      assertEquals(units, FixedPoint.encode(FixedPoint.decode(units)));
+    }
+    assertEquals(1_800_000_000, FixedPoint.encode(180));
+    assertEquals(-1_800_000_000, FixedPoint.encode(-180));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsValuesTooLargeForAnInt() {
+    FixedPoint.encode(215);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNaN() {
+    FixedPoint.encode(Double.NaN);
+  }
+
+  /** Loading a map with its nodes stored in fixed point must move no node by more than
+   * rounding allows, find nearest nodes no farther than that beyond the exact nearest
+   * distance, and change the shortest distance between every pair of nodes by no more
+   * than the rounding of the nodes of the exact shortest path allows.
+   */
+  @Test
+  public void fixedPointMapsStayClose() {
+    for (String map : MAPS) {
+      GraticuleNode.setFixedPoint(false);
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph exact = MapCommandHandler.getRoadGraph();
+      KdTree<String, GraticuleNode> exactTree = MapCommandHandler.getKdTree();
+      GraticuleNode.setFixedPoint(true);
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph fixed = MapCommandHandler.getRoadGraph();
+      KdTree<String, GraticuleNode> fixedTree = MapCommandHandler.getKdTree();
+      InMemoryDijkstra exactSearch = new InMemoryDijkstra(exact, exact.getEdgeLengths());
+      InMemoryDijkstra fixedSearch = new InMemoryDijkstra(fixed, fixed.getEdgeLengths());
+
+      for (int source = 0; source < exact.size(); source++) {
+        GraticuleNode node = exact.getNode(source);
+        GraticuleNode snapped = fixed.getNode(fixed.indexOf(node.getId()));
+        assertTrue(snapped.isFixedPoint());
+        assertFalse(node.isFixedPoint());
+        assertEquals(node.getLatitude(), snapped.getLatitude(), HALF_UNIT);
+        assertEquals(node.getLongitude(), snapped.getLongitude(), HALF_UNIT);
+        assertTrue(snapped.isAt(node.getLatitude(), node.getLongitude()));
+
+        GraticuleNode point = GraticuleNode.of("", node.getLatitude() + MAX_SHIFT / 2,
+            node.getLongitude());
+        double exactNearest = planarDistance(point,
+            exactTree.getNearestNeighborsResult(1, point, false).get(0));
+        double fixedNearest = planarDistance(point,
+            fixedTree.getNearestNeighborsResult(1, point, false).get(0));
+        assertTrue(fixedNearest <= exactNearest + MAX_SHIFT);
+
+        double[] exactDistances = exactSearch.shortestPathTree(source);
+        double[] fixedDistances = fixedSearch.shortestPathTree(fixed.indexOf(node.getId()));
+        for (int target = 0; target < exact.size(); target++) {
+          double exactDistance = exactDistances[target];
+          double fixedDistance = fixedDistances[fixed.indexOf(exact.getNode(target).getId())];
+          assertEquals(Double.isInfinite(exactDistance), Double.isInfinite(fixedDistance));
+          if (!Double.isInfinite(exactDistance)) {
+            int pathEdges = exactSearch.shortestPath(source, target).size();
+            assertTrue(fixedDistance <= exactDistance + 2 * pathEdges * MAX_SHIFT_KILOMETRES);
+          }
+        }
+      }
+    }
+  }
+
+  /** Coordinates that do not fit fixed point must be reported by the commands that take
+   * them rather than read as other coordinates.
+   */
+  @Test
+  public void commandsReportCoordinatesOutOfRange() throws SQLException {
+    GraticuleNode.setFixedPoint(true);
+    MapCommandHandler.mapCommand("map data/maps/routeMap.sqlite3", "repl");
+    assertEquals(ErrorMessages.FIXED_POINT_OUT_OF_RANGE,
+        NearestCommandHandler.nearestCommand("nearest 300 0", "repl"));
+    assertEquals(ErrorMessages.FIXED_POINT_OUT_OF_RANGE,
+        RouteCommandsHandler.routeCommand("route 0 0 7 1e300", "repl"));
+    assertEquals(ErrorMessages.FIXED_POINT_OUT_OF_RANGE,
+        DistanceCommandHandler.distanceCommand("distance 300 0 7 7", "repl"));
+    assertEquals(ErrorMessages.FIXED_POINT_OUT_OF_RANGE,
+        NearestCommandHandler.handleNearestGui(300, 0).get("error"));
+    assertEquals(ErrorMessages.FIXED_POINT_OUT_OF_RANGE,
+        RouteCommandsHandler.getPathLatLonGui(300, 0, 7, 7).get("error"));
+  }
+
+  /** Finds the distance in degrees between two nodes as the kd-tree measures it.
+   * @param a is a GraticuleNode.
+   * @param b is another GraticuleNode.
+   * @return the Euclidean distance between their latitudes and longitudes.
+   */
+  private static double planarDistance(GraticuleNode a, GraticuleNode b) {
+    double latitude = a.coord(0) - b.coord(0);
+    double longitude = a.coord(1) - b.coord(1);
+    return Math.sqrt(latitude * latitude + longitude * longitude);
+  }
+}
@@ -0,0 +1,125 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.CancellationToken;
+import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.GraphEdge;
+import edu.brown.cs.student.pathfinding.GraticuleEdge;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HashDistributedAStar;
+import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import edu.brown.cs.student.pathfinding.RouteResult;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HashDistributedAStarTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+  private static final double TOLERANCE = 1e-9;
+
+  /** Hash distributed A* must find routes between every pair of nodes exactly as cheap
+   * as sequential A*, however many workers it runs, made of ways that cost what it reports
+   * and that run from the start to the end.
+   */
+  @Test
+  public void routesMatchSequentialAStar() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      DijkstraAStar<String, String, GraticuleNode> aStar = new DijkstraAStar<>(
+          NodeDistanceCalculators::getHaversineDistance,
+          MapCommandHandler.getdBProxiedReader()::get,
+          HeuristicFuncs::aStarDist);
+      for (int threads : new int[] {1, 2, 4}) {
+        HashDistributedAStar<String, String, GraticuleNode> parallel = newParallelAStar(threads);
+        for (GraticuleNode start : graph.getNodes()) {
+          for (GraticuleNode end : graph.getNodes()) {
+            RouteResult<String, String, GraticuleNode> sequential =
+                aStar.runDijkstraAStar(start, end, new RouteQueryOptions());
+            RouteResult<String, String, GraticuleNode> distributed =
+                parallel.runHashDistributedAStar(start, end, new RouteQueryOptions());
+
+            assertTrue(sequential.isCompleted() && distributed.isCompleted());
+            assertEquals(sequential.getCost(), distributed.getCost(), TOLERANCE);
+            assertEquals(1, distributed.getSuboptimalityBound(), 0);
+            List<GraphEdge<String, String, GraticuleNode>> path = distributed.getPath();
+            if (!path.isEmpty()) {
+              assertEquals(distributed.getCost(), pathCost(path), TOLERANCE);
+              assertEquals(start, path.get(0).getStartNode());
+              assertEquals(end, path.get(path.size() - 1).getEndNode());
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /** With an inflated heuristic the routes must stay within the bound the search reports,
+   * which is at most the weight.
+   */
+  @Test
+  public void weightedRoutesStayWithinBound() {
+    final double weight = 2;
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      DijkstraAStar<String, String, GraticuleNode> aStar = new DijkstraAStar<>(
+          NodeDistanceCalculators::getHaversineDistance,
+          MapCommandHandler.getdBProxiedReader()::get,
+          HeuristicFuncs::aStarDist);
+      HashDistributedAStar<String, String, GraticuleNode> parallel = newParallelAStar(2);
+      for (GraticuleNode start : graph.getNodes()) {
+        for (GraticuleNode end : graph.getNodes()) {
+          double exact = aStar.runDijkstraAStar(start, end, new RouteQueryOptions()).getCost();
+          RouteResult<String, String, GraticuleNode> weighted =
+              parallel.runHashDistributedAStar(start, end, new RouteQueryOptions(
+                  Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                  new CancellationToken(), weight));
+
+          assertTrue(weighted.isCompleted());
+          assertEquals(Double.isInfinite(exact), Double.isInfinite(weighted.getCost()));
+          assertTrue(weighted.getSuboptimalityBound() >= 1
+              && weighted.getSuboptimalityBound() <= weight);
+          if (!Double.isInfinite(exact)) {
+            assertTrue(weighted.getCost() >= exact - TOLERANCE);
+            assertTrue(weighted.getCost()
+                <= weighted.getSuboptimalityBound() * exact + TOLERANCE);
+          }
+        }
+      }
+    }
+  }
+
+  /** Makes a hash distributed A* over the ways of the loaded map weighted by length.
+   * @param threads is the number of workers.
+   * @return the HashDistributedAStar
+   */
+  private static HashDistributedAStar<String, String, GraticuleNode> newParallelAStar(
+      int threads) {
+    return new HashDistributedAStar<>(
+        NodeDistanceCalculators::getHaversineDistance,
+        MapCommandHandler.getdBProxiedReader()::get,
+        HeuristicFuncs::aStarDist,
+        (from, to) -> true,
+        (way, to) -> true,
+        way -> ((GraticuleEdge) way).getLength(),
+        threads);
+  }
+
+  /** Sums the lengths of the ways of a path.
+   * @param path is a list of GraticuleEdges.
+   * @return the length of the path.
+   */
+  private static double pathCost(List<GraphEdge<String, String, GraticuleNode>> path) {
+    double cost = 0;
+    for (GraphEdge<String, String, GraticuleNode> way : path) {
+      cost += ((GraticuleEdge) way).getLength();
+    }
+    return cost;
+  }
+}
@@ -0,0 +1,66 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.GraticuleEdge;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.InMemoryDijkstra;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class HilbertOrderTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+
+  /** Numbering the nodes in Hilbert curve order must not change the graph: the same
+   * nodes and ways, and the same shortest distance between every pair of nodes as a
+   * graph numbered in load order.
+   */
+  @Test
+  public void numberingKeepsDistances() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph loaded = MapCommandHandler.getRoadGraph();
+      List<GraticuleEdge> edges = new ArrayList<>();
+      for (int e = 0; e < loaded.edgeCount(); e++) {
+        edges.add(loaded.getEdge(e));
+      }
+      RoadGraph hilbert = new RoadGraph(loaded.getNodes(), edges, true);
+      RoadGraph plain = new RoadGraph(loaded.getNodes(), edges, false);
+      assertEquals(new HashSet<>(plain.getNodes()), new HashSet<>(hilbert.getNodes()));
+      assertEquals(plain.edgeCount(), hilbert.edgeCount());
+
+      InMemoryDijkstra hilbertSearch = new InMemoryDijkstra(hilbert, hilbert.getEdgeLengths());
+      InMemoryDijkstra plainSearch = new InMemoryDijkstra(plain, plain.getEdgeLengths());
+      for (GraticuleNode source : plain.getNodes()) {
+        double[] expected = plainSearch.shortestPathTree(plain.indexOf(source));
+        double[] tree = hilbertSearch.shortestPathTree(hilbert.indexOf(source));
+        for (GraticuleNode target : plain.getNodes()) {
+          assertEquals(expected[plain.indexOf(target)], tree[hilbert.indexOf(target)], 1e-9);
+        }
+      }
+    }
+  }
+
+  /** Every edge of a node must be found between its first and end edge, with the node as
+   * its source, whichever way the nodes are numbered.
+   */
+  @Test
+  public void edgesStayWithTheirSource() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      for (int v = 0; v < graph.size(); v++) {
+        for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+          assertEquals(v, graph.edgeSource(e));
+          assertEquals(graph.getNode(v), graph.getEdge(e).getStartNode());
+          assertEquals(graph.getNode(graph.edgeTarget(e)), graph.getEdge(e).getEndNode());
+          assertEquals(e, graph.edgeIndexOf(graph.edgeId(e)));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,78 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.HubLabels;
+import edu.brown.cs.student.pathfinding.InMemoryDijkstra;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HubLabelsTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+  private static final double TOLERANCE = 1e-9;
+
+  /** Hub label distances between every pair of nodes must be the distances of the
+   * shortest path trees of Dijkstra, infinite where there is no path.
+   */
+  @Test
+  public void distancesMatchDijkstra() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      double[] lengths = graph.getEdgeLengths();
+      HubLabels hubLabels = HubLabels.build(graph, lengths);
+      InMemoryDijkstra inMemory = new InMemoryDijkstra(graph, lengths);
+      assertTrue(hubLabels.matches(graph));
+      for (int source = 0; source < graph.size(); source++) {
+        double[] expected = inMemory.shortestPathTree(source);
+        for (int target = 0; target < graph.size(); target++) {
+          assertEquals(expected[target], hubLabels.distance(source, target), TOLERANCE);
+        }
+      }
+    }
+  }
+
+  /** Labels read back from a file must give the same distances, and only match the graph
+   * they were built for.
+   */
+  @Test
+  public void labelsSurviveAFile() throws IOException {
+    MapCommandHandler.mapCommand("map data/maps/routeMap.sqlite3", "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    HubLabels built = HubLabels.build(graph, graph.getEdgeLengths());
+    Path file = Files.createTempFile("hub-labels", ".bin");
+    try {
+      built.write(file);
+      HubLabels read = HubLabels.read(file);
+      assertTrue(read.matches(graph));
+      assertEquals(built.meanLabelSize(), read.meanLabelSize(), 0);
+      for (int source = 0; source < graph.size(); source++) {
+        for (int target = 0; target < graph.size(); target++) {
+          assertEquals(built.distance(source, target), read.distance(source, target), 0);
+        }
+      }
+    } finally {
+      Files.delete(file);
+    }
+
+    MapCommandHandler.mapCommand("map data/maps/smallMaps.sqlite3", "repl");
+    assertFalse(built.matches(MapCommandHandler.getRoadGraph()));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsOtherFiles() throws IOException {
+    Path file = Files.createTempFile("hub-labels", ".bin");
+    try {
+      Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+      HubLabels.read(file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.MapDBResultSetHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.NeighborWaySearchers;
+import edu.brown.cs.student.pathfinding.GraphEdge;
+import edu.brown.cs.student.pathfinding.GraticuleEdge;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.NodeRegistry;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class NodeRegistryTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+
+  /** The ways read for every node must be the same whether they are resolved to the
+   * canonical nodes and ways of the registry or built afresh, and the resolved ones must
+   * be the very instances of the road graph.
+   */
+  @Test
+  public void resolvedWaysAreThoseOfTheGraph() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      NodeRegistry registry = new NodeRegistry(graph, MapCommandHandler.getStringDictionary());
+      try {
+        for (int index = 0; index < graph.size(); index++) {
+          GraticuleNode node = graph.getNode(index);
+          MapDBResultSetHandler.setNodeRegistry(new NodeRegistry());
+          Set<GraphEdge<String, String, GraticuleNode>> fresh =
+              NeighborWaySearchers.getWaysFromTargetNode(node);
+          MapDBResultSetHandler.setNodeRegistry(registry);
+          Set<GraphEdge<String, String, GraticuleNode>> resolved =
+              NeighborWaySearchers.getWaysFromTargetNode(node);
+
+          assertEquals(fresh, resolved);
+          assertEquals(index, graph.indexOf(node));
+          for (GraphEdge<String, String, GraticuleNode> way : resolved) {
+            assertSame(graph.getNode(graph.indexOf(way.getStartNode())), way.getStartNode());
+            assertSame(graph.getNode(graph.indexOf(way.getEndNode())), way.getEndNode());
+            assertSame(graph.getEdge(graph.edgeIndexOf(way.getId())), way);
+          }
+        }
+      } finally {
+        MapDBResultSetHandler.setNodeRegistry(registry);
+      }
+    }
+  }
+
+  /** A row that disagrees with the registered node or way of its id resolves to a new
+   * instance, and one that agrees resolves to the registered one.
+   */
+  @Test
+  public void onlyMatchingRowsResolveToRegisteredInstances() {
+    MapCommandHandler.mapCommand("map data/maps/smallMaps.sqlite3", "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    NodeRegistry registry = new NodeRegistry(graph, MapCommandHandler.getStringDictionary());
+    assertEquals(graph.size(), registry.size());
+    assertNull(registry.getNode("/n/missing"));
+
+    GraticuleEdge way = graph.getEdge(0);
+    GraticuleNode start = way.getStartNode();
+    GraticuleNode end = way.getEndNode();
+    assertSame(start, registry.getNode(start.getId()));
+    assertSame(start,
+        registry.resolveNode(start.getId(), start.getLatitude(), start.getLongitude()));
+    assertNotSame(start,
+        registry.resolveNode(start.getId(), start.getLatitude() + 1, start.getLongitude()));
+
+    assertSame(way, registry.resolveEdge(way.getId(), way.getName(), way.getType(), start,
+        end));
+    assertNotSame(way, registry.resolveEdge(way.getId(), way.getName() + " Extension",
+        way.getType(), start, end));
+    assertNotSame(way, registry.resolveEdge(way.getId(), way.getName(), way.getType(), end,
+        start));
+    assertNotSame(way, new NodeRegistry().resolveEdge(way.getId(), way.getName(),
+        way.getType(), start, end));
+  }
+}
@@ -0,0 +1,145 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.CancellationToken;
+import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.GraphEdge;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.InMemoryDijkstra;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import edu.brown.cs.student.pathfinding.RouteResult;
+import edu.brown.cs.student.pathfinding.RouteStatus;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RouteQueryOptionsTest {
+  private GraticuleNode start;
+  private GraticuleNode end;
+  private DijkstraAStar<String, String, GraticuleNode> dijkstra;
+
+  /** Loads the route map and picks the two nodes with the longest route between them, so
+   * that a search between them settles several nodes.
+   */
+  @Before
+  public void setUp() {
+    MapCommandHandler.mapCommand("map data/maps/routeMap.sqlite3", "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    InMemoryDijkstra inMemory = new InMemoryDijkstra(graph, graph.getEdgeLengths());
+    int longest = -1;
+    for (int source = 0; source < graph.size(); source++) {
+      for (int target = 0; target < graph.size(); target++) {
+        List<Integer> path = inMemory.shortestPath(source, target);
+        if (path.size() > longest) {
+          longest = path.size();
+          start = graph.getNode(source);
+          end = graph.getNode(target);
+        }
+      }
+    }
+    assertTrue(longest > 1);
+    dijkstra = new DijkstraAStar<>(NodeDistanceCalculators::getHaversineDistance,
+        MapCommandHandler.getdBProxiedReader()::get, HeuristicFuncs::dijkstraDist);
+  }
+
+  @Test
+  public void completesWithoutLimits() {
+    RouteResult<String, String, GraticuleNode> result =
+        dijkstra.runDijkstraAStar(start, end, new RouteQueryOptions());
+    assertEquals(RouteStatus.COMPLETED, result.getStatus());
+    assertFalse(result.getPath().isEmpty());
+    assertEquals(result.getPath(), result.getPartialPath());
+    assertNull(new RouteQueryOptions().check(Integer.MAX_VALUE, Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void stopsAtDeadline() throws InterruptedException {
+    RouteQueryOptions options = new RouteQueryOptions(0, Integer.MAX_VALUE,
+        Integer.MAX_VALUE, new CancellationToken());
+    Thread.sleep(1);
+    assertTrue(options.isPastDeadline());
+
+    RouteResult<String, String, GraticuleNode> result =
+        dijkstra.runDijkstraAStar(start, end, options);
+    assertEquals(RouteStatus.TIMED_OUT, result.getStatus());
+    assertTrue(result.getPath().isEmpty());
+    assertTrue(Double.isInfinite(result.getCost()));
+    assertTrue(Double.isNaN(result.getSuboptimalityBound()));
+    assertFalse(new RouteQueryOptions(Long.MAX_VALUE, 0, 0, new CancellationToken())
+        .isPastDeadline());
+  }
+
+  @Test
+  public void stopsWhenCancelled() {
+    CancellationToken token = new CancellationToken();
+    token.cancel();
+    RouteResult<String, String, GraticuleNode> result = dijkstra.runDijkstraAStar(start, end,
+        new RouteQueryOptions(Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, token));
+    assertEquals(RouteStatus.CANCELLED, result.getStatus());
+    assertTrue(result.getPath().isEmpty());
+
+    // a search cancelled after it has settled a node keeps a route toward the end
+    AtomicInteger checks = new AtomicInteger();
+    result = dijkstra.runDijkstraAStar(start, end, new RouteQueryOptions(Long.MAX_VALUE,
+        Integer.MAX_VALUE, Integer.MAX_VALUE,
+        new CancellationToken(() -> checks.incrementAndGet() > 1)));
+    assertEquals(RouteStatus.CANCELLED, result.getStatus());
+    assertTrue(result.getPath().isEmpty());
+    assertEquals(1, result.getSettledCount());
+    assertLeadsTowardEnd(result.getPartialPath());
+  }
+
+  @Test
+  public void cancellationComesBeforeDeadline() throws InterruptedException {
+    CancellationToken token = new CancellationToken();
+    token.cancel();
+    RouteQueryOptions options = new RouteQueryOptions(0, 0, 0, token);
+    Thread.sleep(1);
+    assertEquals(RouteStatus.CANCELLED, options.check(1, 1));
+    assertEquals(RouteStatus.TIMED_OUT,
+        new RouteQueryOptions(0, 0, 0, new CancellationToken()).check(1, 1));
+  }
+
+  @Test
+  public void stopsAtBudgets() {
+    RouteResult<String, String, GraticuleNode> result = dijkstra.runDijkstraAStar(start, end,
+        new RouteQueryOptions(Long.MAX_VALUE, 1, Integer.MAX_VALUE, new CancellationToken()));
+    assertEquals(RouteStatus.BUDGET_EXHAUSTED, result.getStatus());
+    assertEquals(1, result.getSettledCount());
+    assertLeadsTowardEnd(result.getPartialPath());
+
+    result = dijkstra.runDijkstraAStar(start, end,
+        new RouteQueryOptions(Long.MAX_VALUE, Integer.MAX_VALUE, 0, new CancellationToken()));
+    assertEquals(RouteStatus.BUDGET_EXHAUSTED, result.getStatus());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNegativeLimits() {
+    new RouteQueryOptions(-1, 0, 0, new CancellationToken());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsHeuristicWeightBelowOne() {
+    new RouteQueryOptions(0, 0, 0, new CancellationToken(), 0.5);
+  }
+
+  /** Checks that a partial path runs from the start to a node no farther from the end.
+   * @param partialPath is the partial path of a search that was cut short.
+   */
+  private void assertLeadsTowardEnd(List<GraphEdge<String, String, GraticuleNode>> partialPath) {
+    if (!partialPath.isEmpty()) {
+      assertEquals(start, partialPath.get(0).getStartNode());
+      GraticuleNode reached = partialPath.get(partialPath.size() - 1).getEndNode();
+      assertTrue(NodeDistanceCalculators.getHaversineDistance(reached, end)
+          < NodeDistanceCalculators.getHaversineDistance(start, end));
+    }
+  }
+}
@@ -0,0 +1,128 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.BinaryHeapQueue;
+import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.GraphEdge;
+import edu.brown.cs.student.pathfinding.GraticuleEdge;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.PathWeightHeuristic;
+import edu.brown.cs.student.pathfinding.RadixHeapQueue;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import edu.brown.cs.student.pathfinding.RouteQueue;
+import edu.brown.cs.student.pathfinding.RouteResult;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RouteQueueTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+  private static final double TOLERANCE = 1e-9;
+  private static final double QUANTA = RadixHeapQueue.CENTIMETRES_PER_KILOMETRE;
+
+  /** Both queues must hand back items in order of priority when no priority added is
+   * below the last one taken, as in a search, and peek must show what poll takes next.
+   */
+  @Test
+  public void queuesPollInOrderOfPriority() {
+    Random random = new Random(0);
+    for (RouteQueue<Double> queue : List.of(new BinaryHeapQueue<Double>(),
+        new RadixHeapQueue<Double>(QUANTA))) {
+      double last = 0;
+      int added = 0;
+      int taken = 0;
+      for (int i = 0; i < 10000; i++) {
+        if (queue.isEmpty() || random.nextInt(3) > 0) {
+          double priority = RadixHeapQueue.ceilToQuantum(
+              last + random.nextDouble() * 10, QUANTA);
+          queue.add(priority, priority);
+          added++;
+        } else {
+          Double next = queue.peek();
+          double priority = queue.poll();
+          assertEquals(next, priority, 0);
+          assertTrue(priority >= last);
+          last = priority;
+          taken++;
+        }
+        assertEquals(added - taken, queue.size());
+      }
+      queue.clear();
+      assertTrue(queue.isEmpty());
+      assertNull(queue.peek());
+      assertNull(queue.poll());
+    }
+  }
+
+  /** The radix heap only goes forward, so an item added below the last priority taken
+   * comes out before anything added after it but not before what was taken.
+   */
+  @Test
+  public void radixHeapRaisesLatePriorities() {
+    RadixHeapQueue<String> queue = new RadixHeapQueue<>(QUANTA);
+    queue.add("first", 2);
+    queue.add("third", 5);
+    assertEquals("first", queue.poll());
+    queue.add("second", 1);
+    assertEquals("second", queue.poll());
+    assertEquals("third", queue.poll());
+    assertTrue(queue.isEmpty());
+  }
+
+  /** A* keeping its ways in a radix heap must find routes between every pair of nodes
+   * exactly as cheap as A* keeping them in a binary heap, with both searching over way
+   * weights rounded up and a heuristic rounded down to whole centimetres.
+   */
+  @Test
+  public void radixRoutesMatchBinaryRoutes() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      for (GraticuleNode start : graph.getNodes()) {
+        for (GraticuleNode end : graph.getNodes()) {
+          RouteResult<String, String, GraticuleNode> binary =
+              newQuantizedAStar(new BinaryHeapQueue<>())
+                  .runDijkstraAStar(start, end, new RouteQueryOptions());
+          RouteResult<String, String, GraticuleNode> radix =
+              newQuantizedAStar(new RadixHeapQueue<>(QUANTA))
+                  .runDijkstraAStar(start, end, new RouteQueryOptions());
+
+          assertTrue(binary.isCompleted() && radix.isCompleted());
+          assertEquals(Double.isInfinite(binary.getCost()), Double.isInfinite(radix.getCost()));
+          if (!Double.isInfinite(binary.getCost())) {
+            assertEquals(binary.getCost(), radix.getCost(), TOLERANCE);
+          }
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNonPositiveQuanta() {
+    new RadixHeapQueue<String>(0);
+  }
+
+  /** Makes an A* over the ways of the loaded map weighted by length in whole centimetres.
+   * @param queue is the RouteQueue the search keeps its ways in.
+   * @return the DijkstraAStar
+   */
+  private static DijkstraAStar<String, String, GraticuleNode> newQuantizedAStar(
+      RouteQueue<PathWeightHeuristic<GraphEdge<String, String, GraticuleNode>>> queue) {
+    return new DijkstraAStar<>(
+        NodeDistanceCalculators::getHaversineDistance,
+        MapCommandHandler.getdBProxiedReader()::get,
+        (start, end, way, distanceFunc) -> RadixHeapQueue.floorToQuantum(
+            HeuristicFuncs.aStarDist(start, end, way, distanceFunc), QUANTA),
+        (from, to) -> true,
+        (way, to) -> true,
+        way -> RadixHeapQueue.ceilToQuantum(((GraticuleEdge) way).getLength(), QUANTA),
+        queue);
+  }
+}
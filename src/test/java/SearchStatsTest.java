@@ -0,0 +1,89 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.RouteCommandsHandler;
+import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import edu.brown.cs.student.pathfinding.RouteResult;
+import edu.brown.cs.student.pathfinding.SearchStats;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SearchStatsTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+
+  /** The counters of every search must agree with its result and with each other: A*
+   * pushes every way it relaxes, pops at most what it pushed, and goes through the way
+   * cache once for every node whose ways it reads.
+   */
+  @Test
+  public void countersAgreeWithSearch() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      DijkstraAStar<String, String, GraticuleNode> aStar = new DijkstraAStar<>(
+          NodeDistanceCalculators::getHaversineDistance,
+          MapCommandHandler.getdBProxiedReader()::get,
+          HeuristicFuncs::aStarDist);
+      for (GraticuleNode start : graph.getNodes()) {
+        for (GraticuleNode end : graph.getNodes()) {
+          RouteResult<String, String, GraticuleNode> result =
+              aStar.runDijkstraAStar(start, end, new RouteQueryOptions());
+          SearchStats stats = result.getStats();
+          assertEquals(result.getSettledCount(), stats.getSettled());
+          assertEquals(stats.getEdgesRelaxed(), stats.getHeapPushes());
+          assertTrue(stats.getSettled() + stats.getStalePops() <= stats.getHeapPushes());
+          assertTrue(stats.getNeighborFetches() >= stats.getSettled());
+          assertEquals(stats.getNeighborFetches(),
+              stats.getCacheHits() + stats.getCacheMisses());
+          assertTrue(stats.getTotalNanos() > 0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void statsFollowTheSearchThread() {
+    SearchStats stats = SearchStats.begin();
+    assertSame(stats, SearchStats.current());
+    SearchStats.recordCacheHit();
+    SearchStats.recordCacheMiss();
+    SearchStats.recordCacheMiss();
+    stats.finish();
+    assertNull(SearchStats.current());
+    // nothing is counted once the search has finished
+    SearchStats.recordCacheHit();
+    assertEquals(1, stats.getCacheHits());
+    assertEquals(2, stats.getCacheMisses());
+  }
+
+  @Test
+  public void finishedSearchesAreRecorded() {
+    long before = (Long) SearchStats.histogramSummaries().get("settled").get("count");
+    SearchStats.begin().finish();
+    SearchStats.begin().finish();
+    assertEquals(before + 2,
+        (long) (Long) SearchStats.histogramSummaries().get("settled").get("count"));
+  }
+
+  @Test
+  public void routeCommandPrintsStats() {
+    MapCommandHandler.mapCommand("map data/maps/routeMap.sqlite3", "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    GraticuleNode start = graph.getNode(0);
+    GraticuleNode end = graph.getNode(graph.size() - 1);
+    String coordinates = start.getLatitude() + " " + start.getLongitude() + " "
+        + end.getLatitude() + " " + end.getLongitude();
+    String route = RouteCommandsHandler.routeCommand("route " + coordinates, "repl");
+    String withStats = RouteCommandsHandler.routeCommand("route --stats " + coordinates,
+        "repl");
+    assertTrue(withStats.startsWith(route + System.lineSeparator() + "settled: "));
+  }
+}
@@ -0,0 +1,137 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.RouteCommandsHandler;
+import edu.brown.cs.student.database.DatabaseHandler;
+import edu.brown.cs.student.pathfinding.GraticuleEdge;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.StringDictionary;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StringDictionaryTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+
+  /** The names and types of every way of the road graph must decode to what the database
+   * holds, and two ways must have the same name code exactly when they have the same name.
+   */
+  @Test
+  public void waysDecodeToDatabaseValues() throws SQLException {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      StringDictionary dictionary = MapCommandHandler.getStringDictionary();
+      for (int edge = 0; edge < graph.edgeCount(); edge++) {
+        GraticuleEdge way = graph.getEdge(edge);
+        try (ResultSet rs = DatabaseHandler.queryLoadedDB(
+            "SELECT name, type FROM way WHERE id = ?;", List.of(way.getId()))) {
+          assertTrue(rs.next());
+          assertEquals(rs.getString(1), way.getName());
+          assertEquals(rs.getString(2), way.getType());
+          assertEquals(way.getNameCode(), dictionary.codeOf(rs.getString(1)));
+        }
+        for (int other = 0; other < graph.edgeCount(); other++) {
+          assertEquals(Objects.equals(way.getName(), graph.getEdge(other).getName()),
+              way.getNameCode() == graph.getEdge(other).getNameCode());
+        }
+      }
+    }
+  }
+
+  /** The intersection of the name of every way with the name of every way it meets, found
+   * by name codes, must be a node that ways of both names touch in the database.
+   */
+  @Test
+  public void intersectionsAreTouchedByBothStreets() throws SQLException {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      for (int edge = 0; edge < graph.edgeCount(); edge++) {
+        String name = graph.getEdge(edge).getName();
+        int node = graph.edgeTarget(edge);
+        for (int e = graph.firstEdge(node); e < graph.endEdge(node); e++) {
+          String cross = graph.getEdge(e).getName();
+          if (name == null || cross == null || name.equals(cross)) {
+            continue;
+          }
+          String intersection = RouteCommandsHandler.getTargetPathNode(name, cross).getId();
+          for (String street : List.of(name, cross)) {
+            try (ResultSet rs = DatabaseHandler.queryLoadedDB("SELECT COUNT(*) FROM way "
+                + "WHERE name = ? AND (start = ? OR end = ?);",
+                List.of(street, intersection, intersection))) {
+              assertTrue(rs.next());
+              assertTrue(rs.getInt(1) > 0);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void codesAreDenseAndDecodeBack() {
+    StringDictionary dictionary = new StringDictionary();
+    assertEquals(-1, dictionary.encode(null));
+    assertEquals(-1, dictionary.codeOf("Thayer Street"));
+    assertEquals(0, dictionary.size());
+    assertEquals(0, dictionary.encode("Thayer Street"));
+    assertEquals(1, dictionary.encode("Waterman Street"));
+    assertEquals(0, dictionary.encode("Thayer Street"));
+    assertEquals(1, dictionary.codeOf("Waterman Street"));
+    assertEquals(2, dictionary.size());
+    assertEquals("Waterman Street", dictionary.decode(1));
+    assertNull(dictionary.decode(-1));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void rejectsCodesItDidNotGive() {
+    StringDictionary dictionary = new StringDictionary();
+    dictionary.encode("Thayer Street");
+    dictionary.decode(1);
+  }
+
+  /** Threads encoding the same strings at once must be given the same codes, and every
+   * code must decode to its string.
+   */
+  @Test
+  public void threadsAgreeOnCodes() throws InterruptedException, ExecutionException {
+    final int strings = 1000;
+    StringDictionary dictionary = new StringDictionary();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<int[]>> results = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        results.add(executor.submit(() -> {
+          int[] codes = new int[strings];
+          for (int i = 0; i < strings; i++) {
+            codes[i] = dictionary.encode("Street " + i);
+          }
+          return codes;
+        }));
+      }
+      int[] expected = results.get(0).get();
+      for (Future<int[]> result : results) {
+        int[] codes = result.get();
+        for (int i = 0; i < strings; i++) {
+          assertEquals(expected[i], codes[i]);
+          assertEquals("Street " + i, dictionary.decode(codes[i]));
+        }
+      }
+      assertEquals(strings, dictionary.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.NearestCommandHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.RouteCommandsHandler;
+import edu.brown.cs.student.coordinates.KdTree;
+import edu.brown.cs.student.pathfinding.GraticuleEdge;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.StringDictionary;
+import edu.brown.cs.student.pathfinding.StronglyConnectedComponents;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StronglyConnectedComponentsTest {
+  private GraticuleNode a;
+  private GraticuleNode b;
+  private GraticuleNode c;
+  private GraticuleNode d;
+  private GraticuleNode e;
+  private GraticuleNode f;
+  private List<GraticuleNode> nodes;
+  private StronglyConnectedComponents components;
+
+  /** Builds a graph of a one-way triangle a, b, c, a two-way road d, e that the triangle
+   * leads into but cannot be reached from, and a node f that no way reaches.
+   */
+  @Before
+  public void setUp() {
+    a = GraticuleNode.of("/n/a", 41.820, -71.400);
+    b = GraticuleNode.of("/n/b", 41.821, -71.400);
+    c = GraticuleNode.of("/n/c", 41.821, -71.401);
+    d = GraticuleNode.of("/n/d", 41.830, -71.410);
+    e = GraticuleNode.of("/n/e", 41.831, -71.410);
+    f = GraticuleNode.of("/n/f", 41.829, -71.409);
+    nodes = List.of(a, b, c, d, e, f);
+
+    StringDictionary dictionary = new StringDictionary();
+    List<GraticuleEdge> edges = new ArrayList<>();
+    edges.add(new GraticuleEdge("/w/ab", "Loop", "residential", a, b, dictionary));
+    edges.add(new GraticuleEdge("/w/bc", "Loop", "residential", b, c, dictionary));
+    edges.add(new GraticuleEdge("/w/ca", "Loop", "residential", c, a, dictionary));
+    edges.add(new GraticuleEdge("/w/cd", "Exit", "residential", c, d, dictionary));
+    edges.add(new GraticuleEdge("/w/de", "Spur", "residential", d, e, dictionary));
+    edges.add(new GraticuleEdge("/w/ed", "Spur", "residential", e, d, dictionary));
+    components = new StronglyConnectedComponents(new RoadGraph(nodes, edges));
+  }
+
+  @Test
+  public void labelsComponents() {
+    assertEquals(3, components.componentCount());
+    assertEquals(3, components.getComponentSize(components.getLargestComponent()));
+    assertTrue(components.isInLargestComponent(a));
+    assertTrue(components.isInLargestComponent(c));
+    assertFalse(components.isInLargestComponent(d));
+    assertFalse(components.isInLargestComponent(f));
+    assertTrue(components.isInLargestWeakComponent(a));
+    assertTrue(components.isInLargestWeakComponent(e));
+    assertFalse(components.isInLargestWeakComponent(f));
+  }
+
+  @Test
+  public void reachability() {
+    assertTrue(components.canReach(a, c));
+    assertTrue(components.canReach(c, a));
+    assertTrue(components.canReach(a, e));
+    assertTrue(components.canReach(e, d));
+    assertFalse(components.canReach(d, a));
+    assertFalse(components.canReach(a, f));
+    assertFalse(components.canReach(f, a));
+    // nodes the graph does not know are left to the search
+    assertTrue(components.canReach(d, GraticuleNode.of("/n/x", 41.0, -71.0)));
+  }
+
+  @Test
+  public void snappingIgnoresSmallerComponents() {
+    KdTree<String, GraticuleNode> kdTree = new KdTree<>(2, new ArrayList<>(nodes));
+    kdTree.buildTree();
+    GraticuleNode target = GraticuleNode.of("/n/target", 41.8292, -71.4092);
+
+    assertEquals(f, kdTree.getNearestNeighborsResult(1, target, false).get(0));
+    assertEquals(c, kdTree.getNearestNeighborsResult(1, target, false,
+        components::isInLargestComponent).get(0));
+    assertEquals(d, kdTree.getNearestNeighborsResult(1, target, false,
+        components::isInLargestWeakComponent).get(0));
+  }
+
+  /** On a map of one-way ways nearly every strongly connected component is a single node,
+   * so snapping to the largest one would send every query to the same node.
+   */
+  @Test
+  public void snappingKeepsToRoadNetworkOfOneWayMap() {
+    MapCommandHandler.mapCommand("map data/maps/testMaps.sqlite3", "repl");
+    String unfiltered = RouteCommandsHandler.routeCommand("route 41.82 -71.4 41.83 -72.0",
+        "repl");
+    NearestCommandHandler.setPreferLargestComponent(true);
+    try {
+      assertEquals("/n/0", NearestCommandHandler.nearestCommand("nearest 41.82 -71.4",
+          "repl"));
+      assertEquals(unfiltered, RouteCommandsHandler.routeCommand(
+          "route 41.82 -71.4 41.83 -72.0", "repl"));
+      assertTrue(unfiltered.startsWith("/n/0 -> "));
+    } finally {
+      NearestCommandHandler.setPreferLargestComponent(false);
+    }
+  }
+}
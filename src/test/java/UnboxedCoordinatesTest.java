@@ -0,0 +1,88 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.coordinates.KdTree;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class UnboxedCoordinatesTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+
+  /** The unboxed coordinates of every node must agree with its boxed adapters and with
+   * the hash the nodes had when they held their coordinates in a list.
+   */
+  @Test
+  public void coordinatesAgreeWithBoxedAdapters() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      for (GraticuleNode node : MapCommandHandler.getRoadGraph().getNodes()) {
+        assertEquals(2, node.dimensions());
+        assertEquals(List.of(node.getLatitude(), node.getLongitude()), node.getCoordinates());
+        assertEquals(node.getLatitude(), node.coord(0), 0);
+        assertEquals(node.getLongitude(), node.coord(1), 0);
+        assertEquals(Double.valueOf(node.coord(1)), node.getCoordinateVal(1));
+        assertEquals(Objects.hash(node.getId(), node.getCoordinates()), node.hashCode());
+      }
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void rejectsOtherDimensions() {
+    GraticuleNode.of("/n/0", 41.82, -71.4).coord(2);
+  }
+
+  /** The kd-tree must find the same nearest distance and the same nodes within a radius
+   * as a naive scan over every node, for targets around the nodes of a map.
+   */
+  @Test
+  public void searchesMatchNaiveScan() {
+    Random random = new Random(0);
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      KdTree<String, GraticuleNode> tree = MapCommandHandler.getKdTree();
+      for (double radius : new double[] {0.0002, 0.001, 1, 5}) {
+        for (int i = 0; i < 100; i++) {
+          GraticuleNode node = graph.getNode(random.nextInt(graph.size()));
+          GraticuleNode target = GraticuleNode.of("",
+              node.getLatitude() + (random.nextDouble() * 2 - 1) * radius,
+              node.getLongitude() + (random.nextDouble() * 2 - 1) * radius);
+          double nearest = Double.POSITIVE_INFINITY;
+          Set<GraticuleNode> within = new HashSet<>();
+          for (GraticuleNode other : graph.getNodes()) {
+            double distance = planarDistance(other, target);
+            nearest = Math.min(nearest, distance);
+            if (distance <= radius) {
+              within.add(other);
+            }
+          }
+          GraticuleNode found = tree.getNearestNeighborsResult(1, target, false).get(0);
+          List<GraticuleNode> radiusResult = tree.getRadiusSearchResult(radius, target, false);
+
+          assertEquals(nearest, planarDistance(found, target), 0);
+          assertEquals(within, new HashSet<>(radiusResult));
+          assertEquals(within.size(), radiusResult.size());
+        }
+      }
+    }
+  }
+
+  /** Finds the distance in degrees between two nodes as the kd-tree measures it.
+   * @param a is a GraticuleNode.
+   * @param b is another GraticuleNode.
+   * @return the Euclidean distance between their latitudes and longitudes.
+   */
+  private static double planarDistance(GraticuleNode a, GraticuleNode b) {
+    double latitude = a.coord(0) - b.coord(0);
+    double longitude = a.coord(1) - b.coord(1);
+    return Math.sqrt(latitude * latitude + longitude * longitude);
+  }
+}
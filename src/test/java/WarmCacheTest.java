@@ -0,0 +1,141 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.EdgeCacheOptions;
+import edu.brown.cs.student.pathfinding.GraphEdge;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.ProxiedEdgeFetcher;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import edu.brown.cs.student.pathfinding.WarmCacheFile;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WarmCacheTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+
+  @After
+  public void stopWarming() {
+    MapCommandHandler.setWarmCacheFile(null, 0);
+  }
+
+  /** The way cache must rank the nodes looked up most often first, and nodes cached
+   * without being looked up after all the others.
+   */
+  @Test
+  public void hotNodesAreTheMostLookedUp() {
+    List<GraticuleNode> ranked = List.of(GraticuleNode.of("/n/0", 41.82, -71.4),
+        GraticuleNode.of("/n/1", 41.8203, -71.4), GraticuleNode.of("/n/2", 41.8206, -71.4));
+    ProxiedEdgeFetcher<String, String, GraticuleNode> counting = new ProxiedEdgeFetcher<>(
+        node -> new HashSet<>(), nodes -> {
+          Map<GraticuleNode, Set<GraphEdge<String, String, GraticuleNode>>> ways =
+              new HashMap<>();
+          nodes.forEach(node -> ways.put(node, new HashSet<>()));
+          return ways;
+        }, null, new EdgeCacheOptions());
+    counting.fetchAll(List.of(ranked.get(2)));
+    counting.get(ranked.get(1));
+    for (int i = 0; i < 3; i++) {
+      counting.get(ranked.get(0));
+    }
+
+    assertEquals(ranked, counting.hotNodes(ranked.size()));
+    assertEquals(ranked.subList(0, 1), counting.hotNodes(1));
+  }
+
+  /** The hottest nodes after routing between every pair of nodes must be saved to the
+   * warm cache file, loading the map again must fetch them all into the new cache, and the
+   * routes found on the warmed cache must be the same.
+   */
+  @Test
+  public void savedNodesWarmTheNextLoad()
+      throws IOException, InterruptedException, ExecutionException {
+    Path file = Files.createTempFile("warm-cache", ".bin");
+    try {
+      MapCommandHandler.setWarmCacheFile(file, 0);
+      for (String map : MAPS) {
+        MapCommandHandler.mapCommand("map " + map, "repl");
+        RoadGraph graph = MapCommandHandler.getRoadGraph();
+        ProxiedEdgeFetcher<String, String, GraticuleNode> reader =
+            MapCommandHandler.getdBProxiedReader();
+        List<List<GraphEdge<String, String, GraticuleNode>>> paths = new ArrayList<>();
+        for (GraticuleNode start : graph.getNodes()) {
+          for (GraticuleNode end : graph.getNodes()) {
+            paths.add(new DijkstraAStar<>(NodeDistanceCalculators::getHaversineDistance,
+                reader::get, HeuristicFuncs::aStarDist)
+                .runDijkstraAStar(start, end, new RouteQueryOptions()).getPath());
+          }
+        }
+        List<GraticuleNode> hot = reader.hotNodes(Integer.MAX_VALUE);
+        MapCommandHandler.saveWarmCache();
+        List<String> saved = WarmCacheFile.read(file);
+
+        MapCommandHandler.mapCommand("map " + map, "repl");
+        MapCommandHandler.getWarmUp().get();
+        RoadGraph reloaded = MapCommandHandler.getRoadGraph();
+        ProxiedEdgeFetcher<String, String, GraticuleNode> warmed =
+            MapCommandHandler.getdBProxiedReader();
+
+        assertFalse(saved.isEmpty());
+        assertTrue(saved.size() <= hot.size());
+        for (int i = 0; i < saved.size(); i++) {
+          assertEquals(hot.get(i).getId(), saved.get(i));
+          assertTrue(warmed.isCached(reloaded.getNode(reloaded.indexOf(saved.get(i)))));
+        }
+        int query = 0;
+        for (GraticuleNode start : reloaded.getNodes()) {
+          for (GraticuleNode end : reloaded.getNodes()) {
+            assertEquals(paths.get(query++), new DijkstraAStar<>(
+                NodeDistanceCalculators::getHaversineDistance, warmed::get,
+                HeuristicFuncs::aStarDist)
+                .runDijkstraAStar(start, end, new RouteQueryOptions()).getPath());
+          }
+        }
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void idsSurviveAFile() throws IOException {
+    Path file = Files.createTempFile("warm-cache", ".bin");
+    try {
+      List<String> ids = List.of("/n/2", "/n/0", "/n/1");
+      WarmCacheFile.write(file, ids);
+      assertEquals(ids, WarmCacheFile.read(file));
+      WarmCacheFile.write(file, List.of());
+      assertEquals(List.of(), WarmCacheFile.read(file));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsOtherFiles() throws IOException {
+    Path file = Files.createTempFile("warm-cache", ".bin");
+    try {
+      Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+      WarmCacheFile.read(file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
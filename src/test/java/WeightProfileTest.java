@@ -0,0 +1,94 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.InMemoryDijkstra;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import edu.brown.cs.student.pathfinding.RouteResult;
+import edu.brown.cs.student.pathfinding.WeightProfile;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WeightProfileTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+  private static final double TOLERANCE = 1e-9;
+  // discounts most ways and avoids residential streets, so that profiles change routes
+  private static final WeightProfile AVOID_RESIDENTIAL = new WeightProfile(
+      "avoid-residential", Map.of("residential", Double.POSITIVE_INFINITY), 0.5);
+
+  /** A* routing by the weights of a profile, with its heuristic scaled by the profile,
+   * must find routes exactly as cheap as in-memory Dijkstra over the same weights.
+   */
+  @Test
+  public void routesMatchDijkstraOverProfileWeights() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      for (WeightProfile profile : List.of(WeightProfile.SHORTEST,
+          WeightProfile.PREFER_HIGHWAYS, WeightProfile.AVOID_HIGHWAYS, AVOID_RESIDENTIAL)) {
+        double[] weights = graph.getProfileWeights(profile);
+        InMemoryDijkstra inMemory = new InMemoryDijkstra(graph, weights);
+        DijkstraAStar<String, String, GraticuleNode> aStar = new DijkstraAStar<>(
+            NodeDistanceCalculators::getHaversineDistance,
+            MapCommandHandler.getdBProxiedReader()::get,
+            (start, end, way, distanceFunc) -> profile.getHeuristicScale()
+                * HeuristicFuncs.aStarDist(start, end, way, distanceFunc),
+            (from, to) -> true,
+            (way, to) -> true,
+            way -> weights[graph.edgeIndexOf(way.getId())]);
+        for (int source = 0; source < graph.size(); source++) {
+          double[] expected = inMemory.shortestPathTree(source);
+          for (int target = 0; target < graph.size(); target++) {
+            RouteResult<String, String, GraticuleNode> result = aStar.runDijkstraAStar(
+                graph.getNode(source), graph.getNode(target), new RouteQueryOptions());
+            assertTrue(result.isCompleted());
+            assertEquals(expected[target], source == target ? 0 : result.getCost(),
+                TOLERANCE);
+          }
+        }
+      }
+    }
+  }
+
+  /** The weights of a profile are computed once per road graph and dropped with it.
+   */
+  @Test
+  public void weightsBelongToTheirGraph() {
+    MapCommandHandler.mapCommand("map data/maps/routeMap.sqlite3", "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    double[] weights = MapCommandHandler.getProfileWeights(WeightProfile.SHORTEST);
+    assertSame(weights, graph.getProfileWeights(WeightProfile.SHORTEST));
+    assertArrayEquals(graph.getEdgeLengths(), weights, 0);
+    assertArrayEquals(WeightProfile.PREFER_HIGHWAYS.weights(graph),
+        graph.getProfileWeights(WeightProfile.PREFER_HIGHWAYS), 0);
+
+    MapCommandHandler.mapCommand("map data/maps/routeMap.sqlite3", "repl");
+    assertNotSame(weights, MapCommandHandler.getProfileWeights(WeightProfile.SHORTEST));
+  }
+
+  @Test
+  public void profilesAreFoundByName() {
+    assertSame(WeightProfile.PREFER_HIGHWAYS, WeightProfile.forName("highway"));
+    assertNull(WeightProfile.forName("avoid-residential"));
+    WeightProfile.register(AVOID_RESIDENTIAL);
+    assertSame(AVOID_RESIDENTIAL, WeightProfile.forName("avoid-residential"));
+    assertEquals(0.5, AVOID_RESIDENTIAL.getHeuristicScale(), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNonPositiveFactors() {
+    new WeightProfile("free", Map.of("residential", 0.0), 1);
+  }
+}
@@ -0,0 +1,80 @@
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.pathfinding.CancellationToken;
+import edu.brown.cs.student.pathfinding.DijkstraAStar;
+import edu.brown.cs.student.pathfinding.GraticuleNode;
+import edu.brown.cs.student.pathfinding.HeuristicFuncs;
+import edu.brown.cs.student.pathfinding.NodeDistanceCalculators;
+import edu.brown.cs.student.pathfinding.RoadGraph;
+import edu.brown.cs.student.pathfinding.RouteQueryOptions;
+import edu.brown.cs.student.pathfinding.RouteResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WeightedAStarTest {
+  private static final String[] MAPS = {"data/maps/routeMap.sqlite3",
+      "data/maps/testMaps.sqlite3", "data/maps/smallMaps.sqlite3"};
+  private static final double TOLERANCE = 1e-9;
+
+  /** Weighted A* must find a route between every pair of nodes that exact Dijkstra finds
+   * one between, no cheaper than the shortest and within the bound it reports, which is
+   * at least 1 and at most the weight.
+   */
+  @Test
+  public void routesStayWithinReportedBound() {
+    for (String map : MAPS) {
+      MapCommandHandler.mapCommand("map " + map, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      DijkstraAStar<String, String, GraticuleNode> dijkstra = new DijkstraAStar<>(
+          NodeDistanceCalculators::getHaversineDistance,
+          MapCommandHandler.getdBProxiedReader()::get,
+          HeuristicFuncs::dijkstraDist);
+      DijkstraAStar<String, String, GraticuleNode> weightedAStar = new DijkstraAStar<>(
+          NodeDistanceCalculators::getHaversineDistance,
+          MapCommandHandler.getdBProxiedReader()::get,
+          HeuristicFuncs::aStarDist);
+      for (double weight : new double[] {1, 1.5, 3}) {
+        for (GraticuleNode start : graph.getNodes()) {
+          for (GraticuleNode end : graph.getNodes()) {
+            RouteResult<String, String, GraticuleNode> exact =
+                dijkstra.runDijkstraAStar(start, end, new RouteQueryOptions());
+            RouteResult<String, String, GraticuleNode> weighted =
+                weightedAStar.runDijkstraAStar(start, end, new RouteQueryOptions(
+                    Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                    new CancellationToken(), weight));
+
+            assertTrue(weighted.isCompleted() && exact.isCompleted());
+            assertEquals(Double.isInfinite(exact.getCost()),
+                Double.isInfinite(weighted.getCost()));
+            assertTrue(weighted.getSuboptimalityBound() >= 1
+                && weighted.getSuboptimalityBound() <= weight);
+            if (!Double.isInfinite(exact.getCost())) {
+              assertTrue(weighted.getCost() >= exact.getCost() - TOLERANCE);
+              assertTrue(weighted.getCost()
+                  <= weighted.getSuboptimalityBound() * exact.getCost() + TOLERANCE);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /** Without inflating the heuristic the search is plain A*, which is exact.
+   */
+  @Test
+  public void unweightedSearchIsExact() {
+    MapCommandHandler.mapCommand("map data/maps/routeMap.sqlite3", "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    DijkstraAStar<String, String, GraticuleNode> aStar = new DijkstraAStar<>(
+        NodeDistanceCalculators::getHaversineDistance,
+        MapCommandHandler.getdBProxiedReader()::get,
+        HeuristicFuncs::aStarDist);
+    for (GraticuleNode start : graph.getNodes()) {
+      for (GraticuleNode end : graph.getNodes()) {
+        assertEquals(1, aStar.runDijkstraAStar(start, end, new RouteQueryOptions())
+            .getSuboptimalityBound(), 0);
+      }
+    }
+  }
+}
@@ -0,0 +1,1352 @@
+package edu.brown.cs.student.pathfinding;
+
+import edu.brown.cs.student.commandHandlers.pathfinding.MapCommandHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.MapDBResultSetHandler;
+import edu.brown.cs.student.commandHandlers.pathfinding.NeighborWaySearchers;
+import edu.brown.cs.student.commandHandlers.pathfinding.RouteCommandsHandler;
+import edu.brown.cs.student.coordinates.KdTree;
+import edu.brown.cs.student.database.DatabaseHandler;
+import edu.brown.cs.student.utils.Utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/** Class to benchmark the pathfinding data structures of the Maps project on a loaded
+ database. Every benchmark prints its measurements and returns them as a report. The
+ benchmarks are run by hand rather than by the test suite, and live with the tests so
+ that they can reach the package-private parts of the pathfinding package.
+ */
+public class PathfinderBenchmarks {
+  private static final double NANOS_PER_MICRO = 1000.0;
+  private static final double TOLERANCE = 1e-9;
+
+  /** Measure how much contracting degree-2 chains shrinks the road graph and how much
+   it speeds up in-memory shortest path queries between randomly chosen nodes.
+   @param iterations An integer that represents the number of random queries to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the graph sizes and mean query times.
+   */
+  public String benchmarkChainContraction(int iterations, String possibleDB) {
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    double[] lengths = graph.getEdgeLengths();
+
+    long buildStart = System.nanoTime();
+    ChainContractedGraph contracted = new ChainContractedGraph(graph, lengths);
+    long buildTime = System.nanoTime() - buildStart;
+    InMemoryDijkstra dijkstra = new InMemoryDijkstra(graph, lengths);
+
+    int[][] queries = randomQueries(iterations, graph.size());
+    // warm up both searches so the timings below measure compiled code
+    for (int[] query : queries) {
+      dijkstra.shortestPath(query[0], query[1]);
+      contracted.shortestPath(query[0], query[1]);
+    }
+
+    long plainTime = 0;
+    long contractedTime = 0;
+    long plainSettled = 0;
+    long contractedSettled = 0;
+    int mismatches = 0;
+    for (int[] query : queries) {
+      SearchStats stats = SearchStats.begin();
+      long start = System.nanoTime();
+      List<Integer> plainPath = dijkstra.shortestPath(query[0], query[1], stats);
+      plainTime += System.nanoTime() - start;
+      stats.finish();
+      plainSettled += stats.getSettled();
+
+      stats = SearchStats.begin();
+      start = System.nanoTime();
+      List<Integer> contractedPath = contracted.shortestPath(query[0], query[1], stats);
+      contractedTime += System.nanoTime() - start;
+      stats.finish();
+      contractedSettled += stats.getSettled();
+
+      if (Math.abs(pathLength(plainPath, lengths) - pathLength(contractedPath, lengths))
+          > TOLERANCE) {
+        mismatches++;
+      }
+    }
+
+    String report = String.format("[chain contraction] nodes %d -> %d (%.1f%%), "
+            + "edges %d -> %d (%.1f%%), build %.1f ms%n"
+            + "[chain contraction] plain: %.1f us/query, %.1f settled; "
+            + "contracted: %.1f us/query, %.1f settled; speedup %.2fx; %d mismatches",
+        graph.size(), contracted.keptNodeCount(),
+        percentRemoved(graph.size(), contracted.keptNodeCount()),
+        graph.edgeCount(), contracted.shortcutCount(),
+        percentRemoved(graph.edgeCount(), contracted.shortcutCount()),
+        buildTime / NANOS_PER_MICRO / NANOS_PER_MICRO,
+        plainTime / NANOS_PER_MICRO / iterations, (double) plainSettled / iterations,
+        contractedTime / NANOS_PER_MICRO / iterations, (double) contractedSettled / iterations,
+        (double) plainTime / Math.max(contractedTime, 1), mismatches);
+    System.out.println(report);
+    return report;
+  }
+
+  /** Compare in-memory route and nearest neighbor latency when the nodes of the loaded
+   map are numbered in Hilbert curve order against a random numbering of the same graph.
+   @param iterations An integer that represents the number of random queries to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the edge spans and mean query times of both numberings.
+   */
+  public String benchmarkHilbertOrder(int iterations, String possibleDB) {
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph hilbert = MapCommandHandler.getRoadGraph();
+    List<GraticuleNode> shuffled = new ArrayList<>(hilbert.getNodes());
+    Collections.shuffle(shuffled);
+    List<GraticuleEdge> edges = new ArrayList<>();
+    for (int e = 0; e < hilbert.edgeCount(); e++) {
+      edges.add(hilbert.getEdge(e));
+    }
+    RoadGraph random = new RoadGraph(shuffled, edges, false);
+
+    KdTree<String, GraticuleNode> hilbertTree = new KdTree<>(2, hilbert.getNodes());
+    hilbertTree.buildTree();
+    KdTree<String, GraticuleNode> randomTree = new KdTree<>(2, shuffled);
+    randomTree.buildTree();
+
+    InMemoryDijkstra hilbertSearch = new InMemoryDijkstra(hilbert, hilbert.getEdgeLengths());
+    InMemoryDijkstra randomSearch = new InMemoryDijkstra(random, random.getEdgeLengths());
+    int[][] queries = randomQueries(iterations, hilbert.size());
+    int[][] randomQueries = new int[iterations][2];
+    List<GraticuleNode> targets = new ArrayList<>();
+    for (int i = 0; i < iterations; i++) {
+      randomQueries[i][0] = random.indexOf(hilbert.getNode(queries[i][0]).getId());
+      randomQueries[i][1] = random.indexOf(hilbert.getNode(queries[i][1]).getId());
+      GraticuleNode near = hilbert.getNode(queries[i][0]);
+      targets.add(GraticuleNode.of("", near.getLatitude() + jitter(),
+          near.getLongitude() + jitter()));
+    }
+
+    // warm up both numberings so the timings below measure compiled code
+    for (int i = 0; i < iterations; i++) {
+      hilbertSearch.shortestPath(queries[i][0], queries[i][1]);
+      randomSearch.shortestPath(randomQueries[i][0], randomQueries[i][1]);
+      hilbertTree.getNearestNeighborsResult(1, targets.get(i), false);
+      randomTree.getNearestNeighborsResult(1, targets.get(i), false);
+    }
+
+    long hilbertRoute = 0;
+    long randomRoute = 0;
+    long hilbertNearest = 0;
+    long randomNearest = 0;
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      hilbertSearch.shortestPath(queries[i][0], queries[i][1]);
+      hilbertRoute += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      randomSearch.shortestPath(randomQueries[i][0], randomQueries[i][1]);
+      randomRoute += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      hilbertTree.getNearestNeighborsResult(1, targets.get(i), false);
+      hilbertNearest += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      randomTree.getNearestNeighborsResult(1, targets.get(i), false);
+      randomNearest += System.nanoTime() - start;
+    }
+
+    String report = String.format("[hilbert order] mean edge span: random %.0f, hilbert %.0f%n"
+            + "[hilbert order] route: random %.1f us/query, hilbert %.1f us/query "
+            + "(%.2fx)%n"
+            + "[hilbert order] nearest: random %.2f us/query, hilbert %.2f us/query (%.2fx)",
+        meanEdgeSpan(random), meanEdgeSpan(hilbert),
+        randomRoute / NANOS_PER_MICRO / iterations, hilbertRoute / NANOS_PER_MICRO / iterations,
+        (double) randomRoute / Math.max(hilbertRoute, 1),
+        randomNearest / NANOS_PER_MICRO / iterations,
+        hilbertNearest / NANOS_PER_MICRO / iterations,
+        (double) randomNearest / Math.max(hilbertNearest, 1));
+    System.out.println(report);
+    return report;
+  }
+
+  /** Compare the time to grow full shortest path trees from random sources with
+   sequential Dijkstra and with delta-stepping at several bucket widths.
+   @param iterations An integer that represents the number of random sources to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the mean tree time for every configuration.
+   */
+  public String benchmarkDeltaStepping(int iterations, String possibleDB) {
+    final double[] deltaScales = {0.5, 1, 2, 4, 8};
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    double[] lengths = graph.getEdgeLengths();
+    double meanWeight = DeltaStepping.meanWeight(lengths);
+    int[][] queries = randomQueries(iterations, graph.size());
+
+    InMemoryDijkstra dijkstra = new InMemoryDijkstra(graph, lengths);
+    StringBuilder report = new StringBuilder(String.format(
+        "[delta-stepping] %d nodes, %d threads, mean edge weight %.3g%n", graph.size(),
+        ForkJoinPool.commonPool().getParallelism(), meanWeight));
+    long sequentialTime = timeTrees(queries, dijkstra::shortestPathTree);
+    report.append(String.format("[delta-stepping] sequential dijkstra: %.2f ms/tree",
+        sequentialTime / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations));
+    for (double scale : deltaScales) {
+      DeltaStepping deltaStepping = new DeltaStepping(graph, lengths, scale * meanWeight);
+      long time = timeTrees(queries, deltaStepping::shortestPathTree);
+      report.append(String.format("%n[delta-stepping] delta %.1f x mean: %.2f ms/tree (%.2fx)",
+          scale, time / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+          (double) sequentialTime / Math.max(time, 1)));
+    }
+    System.out.println(report);
+    return report.toString();
+  }
+
+  /** Compare the database-backed A* search between randomly chosen nodes under three way
+   caches: one about as small as the old 100 node cache, the default one, and an adaptive
+   one that starts small. Each runs the same queries twice on a freshly loaded map, so
+   the second pass shows what the cache keeps.
+   @param iterations An integer that represents the number of random queries to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the mean query time and the cache statistics of each.
+   */
+  public String benchmarkEdgeCache(int iterations, String possibleDB) {
+    final long smallEdges = 300;
+    final long adaptiveStart = 1024;
+    final long expirySeconds = 300;
+    String[] names = {"small", "default", "adaptive"};
+    EdgeCacheOptions[] configurations = {
+        new EdgeCacheOptions(smallEdges, expirySeconds, true, false, Long.MAX_VALUE),
+        new EdgeCacheOptions(),
+        new EdgeCacheOptions(adaptiveStart, expirySeconds, true, true,
+            Runtime.getRuntime().maxMemory() / 4)};
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    int[][] queries = randomQueries(iterations, MapCommandHandler.getRoadGraph().size());
+
+    StringBuilder report = new StringBuilder(String.format("[edge cache] %d queries, "
+        + "2 passes", iterations));
+    for (int c = 0; c < configurations.length; c++) {
+      MapCommandHandler.setEdgeCacheOptions(configurations[c]);
+      MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      DijkstraAStar<String, String, GraticuleNode> aStar = new DijkstraAStar<>(
+          NodeDistanceCalculators::getHaversineDistance,
+          MapCommandHandler.getdBProxiedReader()::get,
+          HeuristicFuncs::aStarDist);
+      long[] passTimes = new long[2];
+      for (int pass = 0; pass < passTimes.length; pass++) {
+        for (int[] query : queries) {
+          passTimes[pass] += aStar.runDijkstraAStar(graph.getNode(query[0]),
+              graph.getNode(query[1]), new RouteQueryOptions()).getStats().getTotalNanos();
+        }
+      }
+      report.append(String.format("%n[edge cache] %s: first pass %.2f ms/query, second pass "
+              + "%.2f ms/query; %s", names[c],
+          passTimes[0] / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+          passTimes[1] / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+          MapCommandHandler.getEdgeCacheStats()));
+    }
+    MapCommandHandler.setEdgeCacheOptions(new EdgeCacheOptions());
+    System.out.println(report);
+    return report.toString();
+  }
+
+  /** Compare the database-backed A* search between randomly chosen nodes with the default
+   way cache loading one node per miss against caches that prefetch the cell around a
+   missed node, starting from several radii. Each runs the same queries once on a freshly
+   loaded map, so every way comes from the database.
+   @param iterations An integer that represents the number of random queries to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @param radii are the prefetch radii in degrees to start from.
+   @return a String report of the mean query and SQL time, the number of misses, and the
+   cache statistics of each.
+   */
+  public String benchmarkEdgeCachePrefetch(int iterations, String possibleDB,
+                                           double... radii) {
+    final long maximumEdges = 100_000;
+    final long expirySeconds = 300;
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    int[][] queries = randomQueries(iterations, MapCommandHandler.getRoadGraph().size());
+
+    StringBuilder report = new StringBuilder(String.format("[edge prefetch] %d queries",
+        iterations));
+    for (int c = 0; c <= radii.length; c++) {
+      double radius = c == 0 ? 0 : radii[c - 1];
+      MapCommandHandler.setEdgeCacheOptions(new EdgeCacheOptions(maximumEdges, expirySeconds,
+          true, false, Runtime.getRuntime().maxMemory() / 4, radius));
+      MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      DijkstraAStar<String, String, GraticuleNode> aStar = new DijkstraAStar<>(
+          NodeDistanceCalculators::getHaversineDistance,
+          MapCommandHandler.getdBProxiedReader()::get,
+          HeuristicFuncs::aStarDist);
+      long time = 0;
+      long sqlTime = 0;
+      long misses = 0;
+      for (int[] query : queries) {
+        SearchStats stats = aStar.runDijkstraAStar(graph.getNode(query[0]),
+            graph.getNode(query[1]), new RouteQueryOptions()).getStats();
+        time += stats.getTotalNanos();
+        sqlTime += stats.getSqlNanos();
+        misses += stats.getCacheMisses();
+      }
+      report.append(String.format("%n[edge prefetch] radius %.4f: %.2f ms/query, %.2f ms "
+              + "SQL/query, %.1f misses/query; %s", radius,
+          time / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+          sqlTime / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+          (double) misses / iterations, MapCommandHandler.getEdgeCacheStats()));
+    }
+    MapCommandHandler.setEdgeCacheOptions(new EdgeCacheOptions());
+    System.out.println(report);
+    return report.toString();
+  }
+
+  /** Compare the database-backed A* search between randomly chosen nodes fetching the ways
+   out of one node at a time against fetching those of several uncached frontier nodes
+   with one query. Each batch size runs the same queries on its own empty way cache.
+   @param iterations An integer that represents the number of random queries to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @param batchSizes are the batch sizes to compare with fetching one node at a time.
+   @return a String report of the mean query and SQL time and the number of queries of
+   each batch size.
+   */
+  public String benchmarkBatchedExpansion(int iterations, String possibleDB,
+                                          int... batchSizes) {
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    int[][] queries = randomQueries(iterations, graph.size());
+
+    StringBuilder report = new StringBuilder(String.format("[batched expansion] %d queries",
+        iterations));
+    for (int c = 0; c <= batchSizes.length; c++) {
+      int batchSize = c == 0 ? 1 : batchSizes[c - 1];
+      ProxiedEdgeFetcher<String, String, GraticuleNode> reader = new ProxiedEdgeFetcher<>(
+          NeighborWaySearchers::getWaysFromTargetNode,
+          NeighborWaySearchers::getWaysFromTargetNodes, null, new EdgeCacheOptions());
+      DijkstraAStar<String, String, GraticuleNode> aStar = new DijkstraAStar<>(
+          NodeDistanceCalculators::getHaversineDistance, reader::get,
+          HeuristicFuncs::aStarDist);
+      aStar.setBatchedExpansion(reader::isCached, reader::fetchAll, batchSize);
+      long time = 0;
+      long sqlTime = 0;
+      long misses = 0;
+      for (int[] query : queries) {
+        SearchStats stats = aStar.runDijkstraAStar(graph.getNode(query[0]),
+            graph.getNode(query[1]), new RouteQueryOptions()).getStats();
+        time += stats.getTotalNanos();
+        sqlTime += stats.getSqlNanos();
+        misses += stats.getCacheMisses();
+      }
+      long sqlQueries = misses + (long) reader.stats().get("batchQueries");
+      report.append(String.format("%n[batched expansion] batch %d: %.2f ms/query, %.2f ms "
+              + "SQL/query, %.1f SQL queries/query", batchSize,
+          time / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+          sqlTime / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+          (double) sqlQueries / iterations));
+    }
+    System.out.println(report);
+    return report.toString();
+  }
+
+  /** Compare the database-backed A* search between randomly chosen nodes fetching the ways
+   out of every node when it expands it against reading them ahead on a background thread
+   at several depths. Each depth runs the same queries on its own empty way cache.
+   @param iterations An integer that represents the number of random queries to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @param depths are the read-ahead depths to compare with no read-ahead.
+   @return a String report of the mean query time, the misses left on the search thread
+   and the fetches submitted and cancelled at each depth.
+   */
+  public String benchmarkReadAhead(int iterations, String possibleDB, int... depths) {
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    int[][] queries = randomQueries(iterations, graph.size());
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    StringBuilder report = new StringBuilder(String.format("[read-ahead] %d queries, %d "
+        + "processors", iterations, Runtime.getRuntime().availableProcessors()));
+    for (int c = 0; c <= depths.length; c++) {
+      int depth = c == 0 ? 0 : depths[c - 1];
+      ProxiedEdgeFetcher<String, String, GraticuleNode> reader = new ProxiedEdgeFetcher<>(
+          NeighborWaySearchers::getWaysFromTargetNode);
+      DijkstraAStar<String, String, GraticuleNode> aStar = new DijkstraAStar<>(
+          NodeDistanceCalculators::getHaversineDistance, reader::get,
+          HeuristicFuncs::aStarDist);
+      EdgeReadAhead<GraticuleNode> readAhead = depth == 0 ? null
+          : new EdgeReadAhead<>(reader::preload, executor, depth);
+      aStar.setReadAhead(reader::isCached, readAhead);
+      long time = 0;
+      long misses = 0;
+      for (int[] query : queries) {
+        SearchStats stats = aStar.runDijkstraAStar(graph.getNode(query[0]),
+            graph.getNode(query[1]), new RouteQueryOptions()).getStats();
+        time += stats.getTotalNanos();
+        misses += stats.getCacheMisses();
+      }
+      report.append(String.format("%n[read-ahead] depth %d: %.2f ms/query, %.1f misses on "
+              + "the search thread/query, %d fetches submitted, %d cancelled", depth,
+          time / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+          (double) misses / iterations, readAhead == null ? 0 : readAhead.getSubmitted(),
+          readAhead == null ? 0 : readAhead.getCancelled()));
+    }
+    executor.shutdownNow();
+    System.out.println(report);
+    return report.toString();
+  }
+
+  /** Compare the database-backed A* search between randomly chosen nodes with the ways
+   it reads built afresh against resolved to the canonical nodes and ways of the
+   NodeRegistry. Each runs the same queries twice on its own empty way cache, and the heap
+   the filled cache keeps is measured between garbage collections.
+   @param iterations An integer that represents the number of random queries to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the mean query time of each pass and the heap of the cache.
+   */
+  public String benchmarkNodeRegistry(int iterations, String possibleDB) {
+    final long bytesPerKilobyte = 1024;
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    int[][] queries = randomQueries(iterations, graph.size());
+    String[] names = {"fresh", "canonical"};
+    NodeRegistry[] registries = {new NodeRegistry(),
+        new NodeRegistry(graph, MapCommandHandler.getStringDictionary())};
+    Runtime runtime = Runtime.getRuntime();
+
+    StringBuilder report = new StringBuilder(String.format("[node registry] %d queries, "
+        + "2 passes", iterations));
+    for (int c = 0; c < registries.length; c++) {
+      MapDBResultSetHandler.setNodeRegistry(registries[c]);
+      System.gc();
+      long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+      ProxiedEdgeFetcher<String, String, GraticuleNode> reader = new ProxiedEdgeFetcher<>(
+          NeighborWaySearchers::getWaysFromTargetNode);
+      DijkstraAStar<String, String, GraticuleNode> aStar = new DijkstraAStar<>(
+          NodeDistanceCalculators::getHaversineDistance, reader::get,
+          HeuristicFuncs::aStarDist);
+      long[] passTimes = new long[2];
+      for (int pass = 0; pass < passTimes.length; pass++) {
+        for (int[] query : queries) {
+          passTimes[pass] += aStar.runDijkstraAStar(graph.getNode(query[0]),
+              graph.getNode(query[1]), new RouteQueryOptions()).getStats().getTotalNanos();
+        }
+      }
+      System.gc();
+      long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+      report.append(String.format("%n[node registry] %s: first pass %.2f ms/query, second "
+              + "pass %.2f ms/query, %d cached nodes holding about %d KB", names[c],
+          passTimes[0] / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+          passTimes[1] / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+          (long) reader.stats().get("cachedNodes"),
+          (heapAfter - heapBefore) / bytesPerKilobyte));
+    }
+    MapDBResultSetHandler.setNodeRegistry(registries[1]);
+    System.out.println(report);
+    return report.toString();
+  }
+
+  /** Compare the heap the names and types of every way of the loaded map take when each
+   way keeps the Strings read for it against when it keeps their codes in a dictionary,
+   measured between garbage collections, and time finding the intersections of the names
+   of randomly chosen ways with the names of ways they meet.
+   @param iterations An integer that represents the number of random intersections to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the heap of both and the mean time of an intersection.
+   @throws SQLException if the ways cannot be read.
+   */
+  public String benchmarkStringDictionary(int iterations, String possibleDB)
+      throws SQLException {
+    final long bytesPerKilobyte = 1024;
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    long heapBefore = usedHeap();
+    List<String[]> strings = new ArrayList<>();
+    ResultSet rs = DatabaseHandler.queryLoadedDB("SELECT name, type FROM way;");
+    while (rs.next()) {
+      strings.add(new String[] {rs.getString(1), rs.getString(2)});
+    }
+    rs.close();
+    long heapStrings = usedHeap();
+    int ways = strings.size();
+
+    // both stay reachable until measured, so each is measured on top of the one before
+    StringDictionary dictionary = new StringDictionary();
+    int[][] codes = new int[ways][];
+    rs = DatabaseHandler.queryLoadedDB("SELECT name, type FROM way;");
+    for (int w = 0; rs.next(); w++) {
+      codes[w] = new int[] {dictionary.encode(rs.getString(1)), dictionary.encode(rs.getString(2))};
+    }
+    rs.close();
+    long codeBytes = usedHeap() - heapStrings;
+    long stringBytes = heapStrings - heapBefore;
+    strings.clear();
+
+    List<String[]> intersections = new ArrayList<>();
+    while (intersections.size() < iterations) {
+      int edge = ThreadLocalRandom.current().nextInt(graph.edgeCount());
+      int node = graph.edgeTarget(edge);
+      for (int e = graph.firstEdge(node); e < graph.endEdge(node); e++) {
+        if (graph.getEdge(edge).getNameCode() >= 0 && graph.getEdge(e).getNameCode() >= 0
+            && graph.getEdge(e).getNameCode() != graph.getEdge(edge).getNameCode()) {
+          intersections.add(new String[] {graph.getEdge(edge).getName(),
+              graph.getEdge(e).getName()});
+          break;
+        }
+      }
+    }
+    long nanos = 0;
+    // the first pass warms up the lookups so the second measures compiled code
+    for (int pass = 0; pass < 2; pass++) {
+      nanos = 0;
+      for (String[] streets : intersections) {
+        long start = System.nanoTime();
+        RouteCommandsHandler.getTargetPathNode(streets[0], streets[1]);
+        nanos += System.nanoTime() - start;
+      }
+    }
+
+    String report = String.format("[string dictionary] %d ways, %d distinct names and types"
+            + "%n[string dictionary] strings per way: %d KB, codes in a dictionary: %d KB "
+            + "(%d KB for the codes)"
+            + "%n[string dictionary] intersection of two names: %.2f us/query",
+        ways, dictionary.size(), stringBytes / bytesPerKilobyte,
+        codeBytes / bytesPerKilobyte, (long) codes.length * 2 * Integer.BYTES
+            / bytesPerKilobyte, nanos / NANOS_PER_MICRO / iterations);
+    System.out.println(report);
+    return report;
+  }
+
+  /** Compare storing the nodes of the loaded map with double coordinates against int32
+   fixed-point ones: the heap copies of every node take, measured between garbage
+   collections, the time to build a kd-tree over the nodes and to search it for targets near
+   randomly chosen nodes, and how far fixed point moves the nodes and the shortest
+   distances between randomly chosen nodes of the loaded map.
+   @param iterations An integer that represents the number of random queries to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the heap, times and errors of both storages.
+   */
+  public String benchmarkFixedPointCoordinates(int iterations, String possibleDB) {
+    // enough copies of a small map that the heap they take is well above the noise
+    final int copiesOfNodes = 40;
+    final int rounds = 4;
+    final double millimetresPerKilometre = 1e6;
+    boolean fixedPoint = GraticuleNode.isFixedPointStorage();
+    String[] names = {"double", "fixed point"};
+    RoadGraph[] graphs = new RoadGraph[2];
+    List<KdTree<String, GraticuleNode>> trees = new ArrayList<>();
+    double[] bytesPerNode = new double[2];
+    long[] buildNanos = new long[2];
+    int[][] queries = null;
+    List<GraticuleNode> targets = new ArrayList<>();
+    for (int c = 0; c < graphs.length; c++) {
+      GraticuleNode.setFixedPoint(c == 1);
+      MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+      graphs[c] = MapCommandHandler.getRoadGraph();
+      if (queries == null) {
+        queries = randomQueries(iterations, graphs[c].size());
+        for (int[] query : queries) {
+          GraticuleNode near = graphs[c].getNode(query[0]);
+          targets.add(GraticuleNode.of("", near.getLatitude() + jitter(),
+              near.getLongitude() + jitter()));
+        }
+      }
+
+      long start = System.nanoTime();
+      KdTree<String, GraticuleNode> tree = new KdTree<>(2, graphs[c].getNodes());
+      tree.buildTree();
+      buildNanos[c] = System.nanoTime() - start;
+      trees.add(tree);
+    }
+    // both maps are loaded before measuring, so no map is collected during a measurement
+    for (int c = 0; c < graphs.length; c++) {
+      GraticuleNode.setFixedPoint(c == 1);
+      GraticuleNode[] copies = new GraticuleNode[graphs[c].size() * copiesOfNodes];
+      long heapBefore = usedHeap();
+      for (int i = 0; i < copies.length; i++) {
+        GraticuleNode node = graphs[c].getNode(i % graphs[c].size());
+        copies[i] = GraticuleNode.of(node.getId(), node.getLatitude(), node.getLongitude());
+      }
+      bytesPerNode[c] = (double) (usedHeap() - heapBefore) / copies.length;
+    }
+
+    // the storages take turns so that neither is timed before the searches are compiled
+    long[] nearestNanos = new long[2];
+    for (int round = 0; round < rounds; round++) {
+      for (int c = 0; c < graphs.length; c++) {
+        nearestNanos[c] = 0;
+        for (GraticuleNode target : targets) {
+          long start = System.nanoTime();
+          trees.get(c).getNearestNeighborsResult(1, target, false);
+          nearestNanos[c] += System.nanoTime() - start;
+        }
+      }
+    }
+    StringBuilder report = new StringBuilder();
+    for (int c = 0; c < graphs.length; c++) {
+      report.append(String.format("[fixed point] %s: %.1f bytes per node, kd-tree over %d "
+              + "nodes built in %.1f ms, nearest %.2f us/query%n", names[c], bytesPerNode[c],
+          graphs[c].size(), buildNanos[c] / NANOS_PER_MICRO / NANOS_PER_MICRO,
+          nearestNanos[c] / NANOS_PER_MICRO / iterations));
+    }
+
+    double maxShift = 0;
+    double totalShift = 0;
+    for (GraticuleNode node : graphs[0].getNodes()) {
+      GraticuleNode snapped = graphs[1].getNode(graphs[1].indexOf(node.getId()));
+      double shift = NodeDistanceCalculators.getHaversineDistance(node, snapped);
+      maxShift = Math.max(maxShift, shift);
+      totalShift += shift;
+    }
+    InMemoryDijkstra exactSearch = new InMemoryDijkstra(graphs[0], graphs[0].getEdgeLengths());
+    InMemoryDijkstra fixedSearch = new InMemoryDijkstra(graphs[1], graphs[1].getEdgeLengths());
+    double maxError = 0;
+    double maxRelativeError = 0;
+    for (int[] query : queries) {
+      double exact = exactSearch.shortestPathTree(query[0])[query[1]];
+      double fixed = fixedSearch.shortestPathTree(
+          graphs[1].indexOf(graphs[0].getNode(query[0]).getId()))[
+          graphs[1].indexOf(graphs[0].getNode(query[1]).getId())];
+      if (exact > 0 && !Double.isInfinite(exact)) {
+        maxError = Math.max(maxError, Math.abs(fixed - exact));
+        maxRelativeError = Math.max(maxRelativeError, Math.abs(fixed - exact) / exact);
+      }
+    }
+    GraticuleNode.setFixedPoint(fixedPoint);
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+
+    report.append(String.format("[fixed point] node shift: mean %.2f mm, max %.2f mm%n"
+            + "[fixed point] shortest distance error: max %.3f mm, max relative %.2e",
+        totalShift / graphs[0].size() * millimetresPerKilometre,
+        maxShift * millimetresPerKilometre, maxError * millimetresPerKilometre,
+        maxRelativeError));
+    System.out.println(report);
+    return report.toString();
+  }
+
+  /** Compare the first database-backed A* searches after loading a map on an empty way
+   cache against those on a cache warmed from the hottest nodes of an earlier run, which
+   routed between randomly chosen nodes. The searches are timed both repeating the
+   earlier run's queries and on fresh random ones; each is run right after the map is
+   loaded again.
+   @param iterations An integer that represents the number of random queries of the earlier
+   run and of each timed run.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of how long warming took, and of the mean query time and cache
+   misses of each run.
+   @throws IOException if the warm cache file cannot be created or written.
+   */
+  public String benchmarkWarmCache(int iterations, String possibleDB) throws IOException {
+    Path file = Files.createTempFile("warm-cache", ".bin");
+    StringBuilder report = new StringBuilder();
+    try {
+      MapCommandHandler.setWarmCacheFile(file, 0);
+      MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+      RoadGraph graph = MapCommandHandler.getRoadGraph();
+      int[][] earlier = randomQueries(iterations, graph.size());
+      timeReaderQueries(earlier);
+      MapCommandHandler.saveWarmCache();
+      report.append(String.format("[warm cache] %d nodes saved after %d queries",
+          WarmCacheFile.read(file).size(), iterations));
+
+      int[][][] runs = {earlier, randomQueries(iterations, graph.size())};
+      String[] runNames = {"repeated", "fresh"};
+      for (int r = 0; r < runs.length; r++) {
+        for (boolean warm : new boolean[] {false, true}) {
+          MapCommandHandler.setWarmCacheFile(warm ? file : null, 0);
+          long start = System.nanoTime();
+          MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+          MapCommandHandler.getWarmUp().get();
+          long warmUpNanos = System.nanoTime() - start;
+          long[] timed = timeReaderQueries(runs[r]);
+          report.append(String.format("%n[warm cache] %s queries, %s cache: load%s %.1f ms, "
+                  + "%.2f ms/query, %.1f misses/query", runNames[r], warm ? "warm" : "empty",
+              warm ? " and warm" : "", warmUpNanos / NANOS_PER_MICRO / NANOS_PER_MICRO,
+              timed[0] / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+              (double) timed[1] / iterations));
+        }
+      }
+    } catch (InterruptedException | ExecutionException e) {
+      report.append(String.format("%n[warm cache] warming failed: %s", e));
+    } finally {
+      MapCommandHandler.setWarmCacheFile(null, 0);
+      Files.deleteIfExists(file);
+    }
+    System.out.println(report);
+    return report.toString();
+  }
+
+  /** Compare reading the ways out of randomly chosen nodes with one-off statements that
+   have the node id written into their SQL, as every lookup was once prepared, against
+   binding it to a statement cached on a pooled connection; then compare A* searches
+   between randomly chosen nodes on several threads at once, each on its own empty way
+   cache, with a pool of one connection against one connection per thread.
+   @param iterations An integer that represents the number of random lookups and queries.
+   @param threads is the number of threads searching at once.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the mean time of a lookup of each kind, and of the wall
+   time of the searches with each pool size.
+   @throws SQLException if a lookup fails.
+   */
+  public String benchmarkConnectionPool(int iterations, int threads, String possibleDB)
+      throws SQLException {
+    final String waysFrom = "SELECT way.id AS wayID, way.name, way.type, way.start, way.end,\n"
+        + "N1.latitude as lat1, N1.longitude as lon1,\n"
+        + "N2.latitude as lat2, N2.longitude as lon2\n"
+        + "FROM way\n"
+        + "INNER JOIN node as N1\n"
+        + "INNER JOIN node as N2\n"
+        + "ON (way.start=N1.id) AND (way.end=N2.id)\n"
+        + "WHERE way.start=%s\n"
+        + "AND way.type!='unclassified' AND way.type!='';";
+    int poolSize = DatabaseHandler.getPoolSize();
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    int[][] queries = randomQueries(iterations, graph.size());
+
+    long[] lookupNanos = new long[2];
+    long rows = 0;
+    // the first pass warms up both kinds of lookup so the second measures compiled code
+    for (int pass = 0; pass < 2; pass++) {
+      Arrays.fill(lookupNanos, 0);
+      for (int[] query : queries) {
+        String id = graph.getNode(query[0]).getId();
+        long start = System.nanoTime();
+        try (ResultSet rs = DatabaseHandler.queryLoadedDB(
+            String.format(waysFrom, "'" + id + "'"))) {
+          while (rs.next()) {
+            rows++;
+          }
+        }
+        lookupNanos[0] += System.nanoTime() - start;
+        start = System.nanoTime();
+        rows += DatabaseHandler.queryPooled(String.format(waysFrom, "?"), List.of(id), rs -> {
+          int read = 0;
+          while (rs.next()) {
+            read++;
+          }
+          return read;
+        });
+        lookupNanos[1] += System.nanoTime() - start;
+      }
+    }
+    StringBuilder report = new StringBuilder(String.format("[connection pool] ways of a "
+            + "node: %.1f us/lookup prepared every time, %.1f us/lookup on a cached "
+            + "statement (%d rows)", lookupNanos[0] / NANOS_PER_MICRO / iterations,
+        lookupNanos[1] / NANOS_PER_MICRO / iterations, rows));
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (int size : new int[] {1, threads}) {
+        DatabaseHandler.setPoolSize(size);
+        MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+        RoadGraph loaded = MapCommandHandler.getRoadGraph();
+        List<Future<?>> searches = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int[] query : queries) {
+          searches.add(executor.submit(() -> {
+            ProxiedEdgeFetcher<String, String, GraticuleNode> reader =
+                new ProxiedEdgeFetcher<>(NeighborWaySearchers::getWaysFromTargetNode);
+            return new DijkstraAStar<>(NodeDistanceCalculators::getHaversineDistance,
+                reader::get, HeuristicFuncs::aStarDist).runDijkstraAStar(
+                loaded.getNode(query[0]), loaded.getNode(query[1]), new RouteQueryOptions());
+          }));
+        }
+        for (Future<?> search : searches) {
+          search.get();
+        }
+        report.append(String.format("%n[connection pool] %d searches on %d threads, %d "
+                + "connections: %.1f ms", iterations, threads, size,
+            (System.nanoTime() - start) / NANOS_PER_MICRO / NANOS_PER_MICRO));
+      }
+    } catch (InterruptedException | ExecutionException e) {
+      report.append(String.format("%n[connection pool] searches failed: %s", e));
+    } finally {
+      executor.shutdownNow();
+      DatabaseHandler.setPoolSize(poolSize);
+      MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    }
+    System.out.println(report);
+    return report.toString();
+  }
+
+  /** Runs database-backed A* searches on the way cache of the loaded map.
+   @param queries are pairs of indices of nodes of the road graph to route between.
+   @return the total time and the total cache misses of the searches.
+   */
+  private static long[] timeReaderQueries(int[][] queries) {
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    ProxiedEdgeFetcher<String, String, GraticuleNode> reader =
+        MapCommandHandler.getdBProxiedReader();
+    long[] timed = new long[2];
+    for (int[] query : queries) {
+      SearchStats stats = new DijkstraAStar<>(NodeDistanceCalculators::getHaversineDistance,
+          reader::get, HeuristicFuncs::aStarDist).runDijkstraAStar(graph.getNode(query[0]),
+          graph.getNode(query[1]), new RouteQueryOptions()).getStats();
+      timed[0] += stats.getTotalNanos();
+      timed[1] += stats.getCacheMisses();
+    }
+    return timed;
+  }
+
+  /** Time the kd-tree searches over the nodes of the loaded map for targets near randomly
+   chosen nodes: the nearest node, the nearest node in the largest strongly connected
+   component, and every node within a radius, as the map command runs them.
+   @param iterations An integer that represents the number of random targets to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @param radius is the radius, in degrees, of the radius searches.
+   @return a String report of the mean time of each search.
+   */
+  public String benchmarkKdTreeSearches(int iterations, String possibleDB, double radius) {
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    KdTree<String, GraticuleNode> tree = new KdTree<>(2, graph.getNodes());
+    tree.buildTree();
+    StronglyConnectedComponents components = new StronglyConnectedComponents(graph);
+    int[][] queries = randomQueries(iterations, graph.size());
+    List<GraticuleNode> targets = new ArrayList<>();
+    for (int[] query : queries) {
+      GraticuleNode near = graph.getNode(query[0]);
+      targets.add(GraticuleNode.of("", near.getLatitude() + jitter(),
+          near.getLongitude() + jitter()));
+    }
+
+    long[] nanos = new long[3];
+    long found = 0;
+    // the first pass warms up the searches so the second measures compiled code
+    for (int pass = 0; pass < 2; pass++) {
+      Arrays.fill(nanos, 0);
+      found = 0;
+      for (GraticuleNode target : targets) {
+        long start = System.nanoTime();
+        tree.getNearestNeighborsResult(1, target, false);
+        nanos[0] += System.nanoTime() - start;
+
+        start = System.nanoTime();
+        tree.getNearestNeighborsResult(1, target, false, components::isInLargestComponent);
+        nanos[1] += System.nanoTime() - start;
+
+        start = System.nanoTime();
+        found += tree.getRadiusSearchResult(radius, target, false).size();
+        nanos[2] += System.nanoTime() - start;
+      }
+    }
+
+    String report = String.format("[kd-tree] %d nodes, %d targets%n"
+            + "[kd-tree] nearest: %.2f us/query, nearest in component: %.2f us/query, "
+            + "radius %.4f: %.2f us/query (%.1f nodes)", graph.size(), iterations,
+        nanos[0] / NANOS_PER_MICRO / iterations, nanos[1] / NANOS_PER_MICRO / iterations,
+        radius, nanos[2] / NANOS_PER_MICRO / iterations, (double) found / iterations);
+    System.out.println(report);
+    return report;
+  }
+
+  /** Compare the binary heap and radix heap route queues, first on their own by replaying
+   the adds and polls of in-memory Dijkstra searches between random nodes, then inside the
+   database-backed A* search with way weights and heuristic rounded to whole centimetres.
+   @param iterations An integer that represents the number of random queries to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the mean time per queue operation and per query.
+   */
+  public String benchmarkRouteQueues(int iterations, String possibleDB) {
+    final double quanta = RadixHeapQueue.CENTIMETRES_PER_KILOMETRE;
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    double[] lengths = graph.getEdgeLengths();
+    for (int e = 0; e < lengths.length; e++) {
+      lengths[e] = RadixHeapQueue.ceilToQuantum(lengths[e], quanta);
+    }
+    int[][] queries = randomQueries(iterations, graph.size());
+
+    StringBuilder report = new StringBuilder(String.format(
+        "[route queues] %d nodes, %d queries", graph.size(), iterations));
+    String[] names = {"binary heap", "radix heap"};
+    long[] queueOperations = new long[names.length];
+    long[] queueTimes = new long[names.length];
+    // the first pass warms up both queues
+    for (int pass = 0; pass < 2; pass++) {
+      for (int q = 0; q < names.length; q++) {
+        RouteQueue<Integer> queue = q == 0 ? new BinaryHeapQueue<>() : new RadixHeapQueue<>(quanta);
+        long start = System.nanoTime();
+        long operations = 0;
+        for (int[] query : queries) {
+          operations += replayDijkstra(graph, lengths, query[0], queue);
+        }
+        queueTimes[q] = System.nanoTime() - start;
+        queueOperations[q] = operations;
+      }
+    }
+    for (int q = 0; q < names.length; q++) {
+      report.append(String.format("%n[route queues] %s, in-memory dijkstra: %.1f ns/operation",
+          names[q], (double) queueTimes[q] / Math.max(queueOperations[q], 1)));
+    }
+
+    Utils.Function4To1<GraticuleNode, GraticuleNode, GraphEdge<String, String, GraticuleNode>,
+        BiFunction<GraticuleNode, GraticuleNode, Double>, Double> heuristic =
+          (start, end, way, distanceFunc) -> RadixHeapQueue.floorToQuantum(
+              HeuristicFuncs.aStarDist(start, end, way, distanceFunc), quanta);
+    Function<GraphEdge<String, String, GraticuleNode>, Double> weights =
+        way -> RadixHeapQueue.ceilToQuantum(((GraticuleEdge) way).getLength(), quanta);
+    for (int q = 0; q < names.length; q++) {
+      DijkstraAStar<String, String, GraticuleNode> aStar = new DijkstraAStar<>(
+          NodeDistanceCalculators::getHaversineDistance,
+          MapCommandHandler.getdBProxiedReader()::get,
+          heuristic, (from, to) -> true, (way, to) -> true, weights,
+          q == 0 ? new BinaryHeapQueue<>() : new RadixHeapQueue<>(quanta));
+      // the first pass fills the way cache so the timed pass reads from memory
+      for (int[] query : queries) {
+        aStar.runDijkstraAStar(graph.getNode(query[0]), graph.getNode(query[1]));
+      }
+      long time = 0;
+      for (int[] query : queries) {
+        time += aStar.runDijkstraAStar(graph.getNode(query[0]), graph.getNode(query[1]),
+            new RouteQueryOptions()).getStats().getTotalNanos();
+      }
+      report.append(String.format("%n[route queues] %s, database-backed A*: %.2f ms/query",
+          names[q], time / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations));
+    }
+    System.out.println(report);
+    return report.toString();
+  }
+
+  /** Grow a full shortest path tree from a source with Dijkstra's algorithm over a given
+   route queue, as the workload for comparing queues.
+   @param graph is a RoadGraph.
+   @param weights is the weight of every edge of graph, indexed by edge.
+   @param source is the dense index of the source node.
+   @param queue is an empty RouteQueue of node indices, left empty.
+   @return the number of adds and polls made.
+   */
+  long replayDijkstra(RoadGraph graph, double[] weights, int source, RouteQueue<Integer> queue) {
+    double[] dist = new double[graph.size()];
+    Arrays.fill(dist, Double.POSITIVE_INFINITY);
+    boolean[] settled = new boolean[graph.size()];
+    dist[source] = 0;
+    queue.add(source, 0);
+    long operations = 1;
+    while (!queue.isEmpty()) {
+      int v = queue.poll();
+      operations++;
+      if (settled[v]) {
+        continue;
+      }
+      settled[v] = true;
+      for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+        int w = graph.edgeTarget(e);
+        double candidate = dist[v] + weights[e];
+        if (candidate < dist[w]) {
+          dist[w] = candidate;
+          queue.add(w, candidate);
+          operations++;
+        }
+      }
+    }
+    queue.clear();
+    return operations;
+  }
+
+  /** Compare the database-backed A* search with hash distributed A* on several numbers
+   of worker threads between randomly chosen nodes.
+   @param iterations An integer that represents the number of random queries to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the mean query time and settled nodes of every search.
+   */
+  public String benchmarkHashDistributedAStar(int iterations, String possibleDB) {
+    final int[] threadCounts = {1, 2, 4, 8};
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    DijkstraAStar<String, String, GraticuleNode> sequential = new DijkstraAStar<>(
+        NodeDistanceCalculators::getHaversineDistance,
+        MapCommandHandler.getdBProxiedReader()::get,
+        HeuristicFuncs::aStarDist);
+
+    int[][] queries = randomQueries(iterations, graph.size());
+    // the first pass fills the way cache so every timed pass reads from memory
+    for (int[] query : queries) {
+      sequential.runDijkstraAStar(graph.getNode(query[0]), graph.getNode(query[1]));
+    }
+    long sequentialTime = 0;
+    long sequentialSettled = 0;
+    for (int[] query : queries) {
+      RouteResult<String, String, GraticuleNode> result = sequential.runDijkstraAStar(
+          graph.getNode(query[0]), graph.getNode(query[1]), new RouteQueryOptions());
+      sequentialTime += result.getStats().getTotalNanos();
+      sequentialSettled += result.getStats().getSettled();
+    }
+    StringBuilder report = new StringBuilder(String.format(
+        "[hda*] %d nodes, %d cores%n[hda*] sequential A*: %.2f ms/query, %d settled/query",
+        graph.size(), Runtime.getRuntime().availableProcessors(),
+        sequentialTime / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+        sequentialSettled / iterations));
+
+    for (int threads : threadCounts) {
+      HashDistributedAStar<String, String, GraticuleNode> parallel =
+          new HashDistributedAStar<>(
+              NodeDistanceCalculators::getHaversineDistance,
+              MapCommandHandler.getdBProxiedReader()::get,
+              HeuristicFuncs::aStarDist,
+              (from, to) -> true,
+              (way, to) -> true,
+              way -> ((GraticuleEdge) way).getLength(),
+              threads);
+      long time = 0;
+      long settled = 0;
+      for (int[] query : queries) {
+        RouteResult<String, String, GraticuleNode> result = parallel.runHashDistributedAStar(
+            graph.getNode(query[0]), graph.getNode(query[1]), new RouteQueryOptions());
+        time += result.getStats().getTotalNanos();
+        settled += result.getStats().getSettled();
+      }
+      report.append(String.format("%n[hda*] %d threads: %.2f ms/query (%.2fx), "
+              + "%d settled/query", threads,
+          time / NANOS_PER_MICRO / NANOS_PER_MICRO / iterations,
+          (double) sequentialTime / Math.max(time, 1), settled / iterations));
+    }
+    System.out.println(report);
+    return report.toString();
+  }
+
+  /** Compare the database-backed A* search with and without arc flag pruning between
+   randomly chosen nodes, after computing the flags for the given number of splits.
+   @param iterations An integer that represents the number of random queries to time.
+   @param levels is the number of median splits of the arc flag regions.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the preprocessing cost and mean query work of both searches.
+   */
+  public String benchmarkArcFlags(int iterations, int levels, String possibleDB) {
+    final double percent = 100.0;
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    long buildStart = System.nanoTime();
+    ArcFlags arcFlags = new ArcFlags(graph, graph.getEdgeLengths(), levels);
+    long buildTime = System.nanoTime() - buildStart;
+
+    DijkstraAStar<String, String, GraticuleNode> plain = new DijkstraAStar<>(
+        NodeDistanceCalculators::getHaversineDistance,
+        MapCommandHandler.getdBProxiedReader()::get,
+        HeuristicFuncs::aStarDist);
+    DijkstraAStar<String, String, GraticuleNode> flagged = new DijkstraAStar<>(
+        NodeDistanceCalculators::getHaversineDistance,
+        MapCommandHandler.getdBProxiedReader()::get,
+        HeuristicFuncs::aStarDist,
+        (from, to) -> true,
+        arcFlags::mayLeadTo);
+
+    int[][] queries = randomQueries(iterations, graph.size());
+    // the first pass fills the way cache so both timed passes read from memory
+    for (int[] query : queries) {
+      plain.runDijkstraAStar(graph.getNode(query[0]), graph.getNode(query[1]));
+    }
+    long plainTime = 0;
+    long flaggedTime = 0;
+    long plainSettled = 0;
+    long flaggedSettled = 0;
+    for (int[] query : queries) {
+      RouteResult<String, String, GraticuleNode> result = plain.runDijkstraAStar(
+          graph.getNode(query[0]), graph.getNode(query[1]), new RouteQueryOptions());
+      plainTime += result.getStats().getTotalNanos();
+      plainSettled += result.getStats().getSettled();
+
+      result = flagged.runDijkstraAStar(
+          graph.getNode(query[0]), graph.getNode(query[1]), new RouteQueryOptions());
+      flaggedTime += result.getStats().getTotalNanos();
+      flaggedSettled += result.getStats().getSettled();
+    }
+
+    String report = String.format("[arc flags] %d regions, build %.1f ms, %.1f%% of flags set%n"
+            + "[arc flags] a*: %.1f us/query, %.1f settled; "
+            + "a* with arc flags: %.1f us/query, %.1f settled; speedup %.2fx",
+        arcFlags.regionCount(), buildTime / NANOS_PER_MICRO / NANOS_PER_MICRO,
+        percent * arcFlags.flaggedShare(),
+        plainTime / NANOS_PER_MICRO / iterations, (double) plainSettled / iterations,
+        flaggedTime / NANOS_PER_MICRO / iterations, (double) flaggedSettled / iterations,
+        (double) plainTime / Math.max(flaggedTime, 1));
+    System.out.println(report);
+    return report;
+  }
+
+  /** Compare answering distance queries between randomly chosen nodes from hub labels
+   against running in-memory Dijkstra for each of them.
+   @param iterations An integer that represents the number of random queries to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the label sizes and mean query times.
+   */
+  public String benchmarkHubLabels(int iterations, String possibleDB) {
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    double[] lengths = graph.getEdgeLengths();
+    long buildStart = System.nanoTime();
+    HubLabels hubLabels = HubLabels.build(graph, lengths);
+    long buildTime = System.nanoTime() - buildStart;
+    InMemoryDijkstra dijkstra = new InMemoryDijkstra(graph, lengths);
+
+    int[][] queries = randomQueries(iterations, graph.size());
+    // warm up both so the timings below measure compiled code
+    for (int[] query : queries) {
+      dijkstra.shortestPath(query[0], query[1]);
+      hubLabels.distance(query[0], query[1]);
+    }
+    long start = System.nanoTime();
+    for (int[] query : queries) {
+      dijkstra.shortestPath(query[0], query[1]);
+    }
+    long dijkstraTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    for (int[] query : queries) {
+      hubLabels.distance(query[0], query[1]);
+    }
+    long labelTime = System.nanoTime() - start;
+
+    String report = String.format("[hub labels] build %.1f ms, %.1f hubs per node%n"
+            + "[hub labels] dijkstra: %.1f us/query, hub labels: %.2f us/query (%.0fx)",
+        buildTime / NANOS_PER_MICRO / NANOS_PER_MICRO, hubLabels.meanLabelSize(),
+        dijkstraTime / NANOS_PER_MICRO / iterations, labelTime / NANOS_PER_MICRO / iterations,
+        (double) dijkstraTime / Math.max(labelTime, 1));
+    System.out.println(report);
+    return report;
+  }
+
+  /** Measure the cost of getting the length of an edge during a relaxation three ways:
+   the Haversine formula from degrees as it was computed before nodes cached their
+   radians, the Haversine formula from the cached radians and cosines, and reading the
+   length precomputed when the edge was built.
+   @param iterations An integer that represents the number of passes over every edge.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the mean time per edge of each way.
+   */
+  public String benchmarkEdgeLengths(int iterations, String possibleDB) {
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    GraticuleEdge[] edges = new GraticuleEdge[graph.edgeCount()];
+    for (int e = 0; e < edges.length; e++) {
+      edges[e] = graph.getEdge(e);
+    }
+
+    double maxDifference = 0;
+    long degreeTime = 0;
+    long cachedTime = 0;
+    long precomputedTime = 0;
+    // the first pass warms up all three, and every pass sums the lengths so none of the
+    // loops can be optimized away
+    for (int pass = 0; pass <= iterations; pass++) {
+      double degreeSum = 0;
+      long start = System.nanoTime();
+      for (GraticuleEdge edge : edges) {
+        degreeSum += haversineFromDegrees(edge.getStartNode(), edge.getEndNode());
+      }
+      long degreeEnd = System.nanoTime();
+      double cachedSum = 0;
+      for (GraticuleEdge edge : edges) {
+        cachedSum += NodeDistanceCalculators.getHaversineDistance(
+            edge.getStartNode(), edge.getEndNode());
+      }
+      long cachedEnd = System.nanoTime();
+      double precomputedSum = 0;
+      for (GraticuleEdge edge : edges) {
+        precomputedSum += edge.getLength();
+      }
+      long precomputedEnd = System.nanoTime();
+      if (pass > 0) {
+        degreeTime += degreeEnd - start;
+        cachedTime += cachedEnd - degreeEnd;
+        precomputedTime += precomputedEnd - cachedEnd;
+      }
+      maxDifference = Math.max(maxDifference, Math.max(Math.abs(degreeSum - cachedSum),
+          Math.abs(cachedSum - precomputedSum)));
+    }
+
+    double relaxations = (double) iterations * Math.max(edges.length, 1);
+    String report = String.format("[edge lengths] %d edges, %d passes%n"
+            + "[edge lengths] haversine from degrees: %.1f ns/edge, from cached radians: "
+            + "%.1f ns/edge, precomputed: %.1f ns/edge; summed lengths differ by %.2g",
+        edges.length, iterations, degreeTime / relaxations, cachedTime / relaxations,
+        precomputedTime / relaxations, maxDifference);
+    System.out.println(report);
+    return report;
+  }
+
+  /** Measure the cost of every DistanceKernel from random origins to every node of a map,
+   one node at a time and batched over arrays, and how far each strays from the Haversine
+   distance.
+   @param iterations An integer that represents the number of random origins to time.
+   @param possibleDB is the file name of the possible database to be queried.
+   @return a String report of the mean time per distance and the largest relative error
+   of each kernel.
+   */
+  public String benchmarkDistanceKernels(int iterations, String possibleDB) {
+    MapCommandHandler.mapCommand("map " + possibleDB, "repl");
+    RoadGraph graph = MapCommandHandler.getRoadGraph();
+    GraticuleNode[] nodes = new GraticuleNode[graph.size()];
+    double[] latitudeRadians = new double[graph.size()];
+    double[] longitudeRadians = new double[graph.size()];
+    double[] cosLatitudes = new double[graph.size()];
+    for (int v = 0; v < nodes.length; v++) {
+      nodes[v] = graph.getNode(v);
+      latitudeRadians[v] = nodes[v].getLatitudeRadians();
+      longitudeRadians[v] = nodes[v].getLongitudeRadians();
+      cosLatitudes[v] = nodes[v].getCosLatitude();
+    }
+    GraticuleNode[] origins = new GraticuleNode[iterations];
+    for (int i = 0; i < iterations; i++) {
+      origins[i] = nodes[ThreadLocalRandom.current().nextInt(nodes.length)];
+    }
+
+    StringBuilder report = new StringBuilder(String.format(
+        "[distance kernels] %d nodes, %d origins", nodes.length, iterations));
+    double[] exact = new double[nodes.length];
+    double[] batched = new double[nodes.length];
+    double distances = (double) iterations * Math.max(nodes.length, 1);
+    for (DistanceKernel kernel : DistanceKernel.values()) {
+      long singleTime = 0;
+      long batchedTime = 0;
+      double maxError = 0;
+      double checksum = 0;
+      // the first pass warms up both loops
+      for (int pass = 0; pass < 2; pass++) {
+        singleTime = 0;
+        batchedTime = 0;
+        for (GraticuleNode origin : origins) {
+          long start = System.nanoTime();
+          for (int v = 0; v < nodes.length; v++) {
+            batched[v] = kernel.distance(origin, nodes[v]);
+          }
+          long singleEnd = System.nanoTime();
+          kernel.distances(origin, latitudeRadians, longitudeRadians, cosLatitudes, batched);
+          long batchedEnd = System.nanoTime();
+          singleTime += singleEnd - start;
+          batchedTime += batchedEnd - singleEnd;
+
+          DistanceKernel.HAVERSINE.distances(origin, latitudeRadians, longitudeRadians,
+              cosLatitudes, exact);
+          for (int v = 0; v < nodes.length; v++) {
+            checksum += batched[v];
+            if (exact[v] > 0) {
+              maxError = Math.max(maxError, Math.abs(batched[v] - exact[v]) / exact[v]);
+            }
+          }
+        }
+      }
+      report.append(String.format("%n[distance kernels] %s: %.1f ns/distance, batched "
+              + "%.1f ns/distance; largest relative error %.2g (bound %.2g), checksum %.6g",
+          kernel, singleTime / distances, batchedTime / distances, maxError,
+          kernel.getMaxRelativeError(), checksum));
+    }
+    System.out.println(report);
+    return report.toString();
+  }
+
+  /** Get the Haversine distance between two nodes from their coordinates in degrees, the
+   way it was computed on every relaxation before the lengths were precomputed.
+   @param node1 is a GraticuleNode.
+   @param node2 is a GraticuleNode.
+   @return a double that is the distance between them.
+   */
+  double haversineFromDegrees(GraticuleNode node1, GraticuleNode node2) {
+    final double r = 6371.0088;
+    final double phi1 = node1.getLatitude() * Math.PI / 180;
+    final double phi2 = node2.getLatitude() * Math.PI / 180;
+    final double lambda1 = node1.getLongitude() * Math.PI / 180;
+    final double lambda2 = node2.getLongitude() * Math.PI / 180;
+
+    return 2 * r * Math.asin(
+        Math.sqrt(Math.pow(Math.sin((phi2 - phi1) / 2), 2)
+            + Math.cos(phi1) * Math.cos(phi2) * Math.pow(Math.sin((lambda2 - lambda1) / 2), 2)));
+  }
+
+  /** Time growing a shortest path tree from the source of every query, after growing
+   them all once to warm up.
+   @param queries the pairs of node indices whose first element is the source.
+   @param treeFunc the function that grows a tree from a source.
+   @return the total time in nanoseconds of the timed pass.
+   */
+  long timeTrees(int[][] queries, IntFunction<double[]> treeFunc) {
+    for (int[] query : queries) {
+      treeFunc.apply(query[0]);
+    }
+    long start = System.nanoTime();
+    for (int[] query : queries) {
+      treeFunc.apply(query[0]);
+    }
+    return System.nanoTime() - start;
+  }
+
+  /** Get the heap in use after collecting garbage a few times, which settles it enough to
+   measure what a structure keeps alive.
+   @return a long that is the heap in use in bytes.
+   */
+  long usedHeap() {
+    final int collections = 3;
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < collections; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /** Get a small random offset in degrees, so nearest neighbor targets fall near but
+   not exactly on a node.
+   @return a double between -0.001 and 0.001.
+   */
+  double jitter() {
+    final double maxOffset = 0.001;
+    return ThreadLocalRandom.current().nextDouble(-maxOffset, maxOffset);
+  }
+
+  /** Get the mean distance between the indices of the two ends of every edge, which is
+   how far apart in memory a search has to reach to relax an edge.
+   @param graph is a RoadGraph.
+   @return the mean absolute index difference over all edges.
+   */
+  double meanEdgeSpan(RoadGraph graph) {
+    long total = 0;
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      total += Math.abs(graph.edgeTarget(e) - graph.edgeSource(e));
+    }
+    return graph.edgeCount() == 0 ? 0 : (double) total / graph.edgeCount();
+  }
+
+  /** Pick random pairs of node indices.
+   @param iterations the number of pairs to pick.
+   @param numNodes the number of nodes to pick from.
+   @return an array of pairs of source and target node indices.
+   */
+  int[][] randomQueries(int iterations, int numNodes) {
+    int[][] queries = new int[iterations][2];
+    for (int i = 0; i < iterations; i++) {
+      queries[i][0] = ThreadLocalRandom.current().nextInt(numNodes);
+      queries[i][1] = ThreadLocalRandom.current().nextInt(numNodes);
+    }
+    return queries;
+  }
+
+  /** Sum the weights of the edges of a path.
+   @param path the edge indices of a path.
+   @param weights the weight of every edge, indexed by edge.
+   @return the total weight of the path.
+   */
+  double pathLength(List<Integer> path, double[] weights) {
+    double total = 0;
+    for (int edge : path) {
+      total += weights[edge];
+    }
+    return total;
+  }
+
+  /** Get the share of elements removed when shrinking from one size to another.
+   @param before the size before shrinking.
+   @param after the size after shrinking.
+   @return the percentage removed.
+   */
+  double percentRemoved(int before, int after) {
+    final double percent = 100.0;
+    return before == 0 ? 0 : percent * (before - after) / before;
+  }
+}